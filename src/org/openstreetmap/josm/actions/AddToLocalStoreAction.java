@@ -0,0 +1,97 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.actions;
+
+import static org.openstreetmap.josm.gui.help.HelpUtil.ht;
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.gui.ExceptionDialogUtil;
+import org.openstreetmap.josm.gui.PleaseWaitRunnable;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.widgets.AbstractFileChooser;
+import org.openstreetmap.josm.io.LocalOsmStore;
+import org.openstreetmap.josm.io.OsmImporter;
+import org.openstreetmap.josm.io.OsmTransferException;
+import org.openstreetmap.josm.tools.Shortcut;
+import org.xml.sax.SAXException;
+
+/**
+ * Adds OSM files, for instance extracts of a region, to the {@link LocalOsmStore local store}.
+ * Downloads of areas covered by these files are then read from the store instead of the OSM server.
+ */
+public class AddToLocalStoreAction extends DiskAccessAction {
+
+    /**
+     * Constructs a new {@code AddToLocalStoreAction}.
+     */
+    public AddToLocalStoreAction() {
+        super(tr("Add to local store..."), "open", tr("Add OSM files to the local store, to work in their area without network."),
+                Shortcut.registerShortcut("file:addtolocalstore", tr("File: {0}", tr("Add to local store...")),
+                        KeyEvent.CHAR_UNDEFINED, Shortcut.NONE), true, "addtolocalstore", false);
+        putValue("help", ht("/Action/AddToLocalStore"));
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        AbstractFileChooser fc = createAndOpenFileChooser(true, true, tr("Add to local store"), OsmImporter.FILE_FILTER,
+                JFileChooser.FILES_ONLY, null);
+        if (fc == null)
+            return;
+        Main.worker.submit(new AddToLocalStoreTask(Arrays.asList(fc.getSelectedFiles())));
+    }
+
+    @Override
+    protected void updateEnabledState() {
+        setEnabled(true);
+    }
+
+    private static class AddToLocalStoreTask extends PleaseWaitRunnable {
+        private final List<File> files;
+        private Exception lastException;
+
+        AddToLocalStoreTask(List<File> files) {
+            super(tr("Adding to local store"), false);
+            this.files = files;
+        }
+
+        @Override
+        protected void realRun() throws SAXException, IOException, OsmTransferException {
+            ProgressMonitor monitor = getProgressMonitor();
+            monitor.setTicksCount(files.size());
+            for (File file : files) {
+                try {
+                    LocalOsmStore.getInstance().importFile(file, monitor.createSubTaskMonitor(1, false));
+                } catch (Exception e) {
+                    lastException = e;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        protected void finish() {
+            if (lastException != null) {
+                ExceptionDialogUtil.explainException(lastException);
+            } else {
+                JOptionPane.showMessageDialog(Main.parent,
+                        tr("The files have been added to the local store in {0}.", LocalOsmStore.getInstance().getDirectory()),
+                        tr("Local store"), JOptionPane.INFORMATION_MESSAGE);
+            }
+        }
+
+        @Override
+        protected void cancel() {
+            // importing a file cannot be canceled
+        }
+    }
+}
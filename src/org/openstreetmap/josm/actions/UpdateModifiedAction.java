@@ -10,6 +10,7 @@ import java.util.Collections;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.io.UpdatePrimitivesTask;
 import org.openstreetmap.josm.io.OnlineResource;
 import org.openstreetmap.josm.tools.Shortcut;
 
@@ -52,6 +53,16 @@ public class UpdateModifiedAction extends UpdateSelectionAction {
         // Do nothing
     }
 
+    /**
+     * Only downloads the modified objects which have been changed on the server, unless
+     * {@code update.modified.only-stale} is disabled. The current versions of the objects are checked first.
+     */
+    @Override
+    protected void update(Collection<OsmPrimitive> toUpdate) {
+        Main.worker.submit(new UpdatePrimitivesTask(Main.main.getEditLayer(), toUpdate,
+                Main.pref.getBoolean("update.modified.only-stale", true)));
+    }
+
     @Override
     public Collection<OsmPrimitive> getData() {
         if (getCurrentDataSet() == null) return Collections.emptyList();
@@ -138,6 +138,14 @@ public class UpdateSelectionAction extends JosmAction {
             );
             return;
         }
+        update(toUpdate);
+    }
+
+    /**
+     * Updates the primitives on which this action operates. Override if needed.
+     * @param toUpdate the primitives returned by {@link #getData()}, not empty
+     */
+    protected void update(Collection<OsmPrimitive> toUpdate) {
         updatePrimitives(toUpdate);
     }
 
@@ -19,11 +19,14 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
+import org.openstreetmap.josm.gui.layer.LazyOsmDataLayer;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.BoundingBoxDownloader;
+import org.openstreetmap.josm.io.LocalOsmStore;
+import org.openstreetmap.josm.io.LocalOsmStoreReader;
 import org.openstreetmap.josm.io.OsmServerLocationReader;
 import org.openstreetmap.josm.io.OsmServerReader;
 import org.openstreetmap.josm.io.OsmTransferCanceledException;
@@ -69,9 +72,63 @@ public class DownloadOsmTask extends AbstractDownloadTask<DataSet> {
         }
     }
 
+    /**
+     * Downloads the data of an area. The data is read from the {@link LocalOsmStore local store} if it covers
+     * the area, unless {@code local-store.download} is disabled. Data downloaded into a {@link LazyOsmDataLayer}
+     * is read from the file of the layer if it covers the area.
+     */
     @Override
     public Future<?> download(boolean newLayer, Bounds downloadArea, ProgressMonitor progressMonitor) {
-        return download(new BoundingBoxDownloader(downloadArea), newLayer, downloadArea, progressMonitor);
+        OsmDataLayer editLayer = Main.main != null ? Main.main.getEditLayer() : null;
+        LocalOsmStore layerStore = !newLayer && editLayer instanceof LazyOsmDataLayer ? ((LazyOsmDataLayer) editLayer).getStore() : null;
+        return download(new AreaReader(layerStore, downloadArea), newLayer, downloadArea, progressMonitor);
+    }
+
+    /**
+     * Reads the data of an area from a local store if it covers the area, or else from the OSM server.
+     * The store is chosen in the download task, since checking whether it covers the area loads its index,
+     * and waits for a running import.
+     */
+    private static class AreaReader extends OsmServerReader {
+        private final LocalOsmStore layerStore;
+        private final Bounds downloadArea;
+        private OsmServerReader reader;
+
+        AreaReader(LocalOsmStore layerStore, Bounds downloadArea) {
+            this.layerStore = layerStore;
+            this.downloadArea = downloadArea;
+        }
+
+        private LocalOsmStore getLocalStore() {
+            if (!Main.pref.getBoolean("local-store.download", true)) {
+                return null;
+            }
+            if (layerStore != null && layerStore.covers(downloadArea)) {
+                return layerStore;
+            }
+            return LocalOsmStore.getInstance().covers(downloadArea) ? LocalOsmStore.getInstance() : null;
+        }
+
+        @Override
+        public DataSet parseOsm(ProgressMonitor progressMonitor) throws OsmTransferException {
+            LocalOsmStore store = getLocalStore();
+            OsmServerReader r = store != null ? new LocalOsmStoreReader(store, downloadArea) : new BoundingBoxDownloader(downloadArea);
+            synchronized (this) {
+                if (isCanceled()) {
+                    throw new OsmTransferCanceledException("Operation canceled");
+                }
+                reader = r;
+            }
+            return r.parseOsm(progressMonitor);
+        }
+
+        @Override
+        public synchronized void cancel() {
+            super.cancel();
+            if (reader != null) {
+                reader.cancel();
+            }
+        }
     }
 
     /**
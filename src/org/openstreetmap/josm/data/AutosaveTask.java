@@ -13,21 +13,30 @@ import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.regex.Pattern;
 
+import javax.swing.JOptionPane;
+
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.OpenFileAction.OpenFileTask;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
@@ -38,8 +47,10 @@ import org.openstreetmap.josm.gui.Notification;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmExporter;
 import org.openstreetmap.josm.io.OsmImporter;
+import org.openstreetmap.josm.io.OsmJournal;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -57,6 +68,10 @@ import org.openstreetmap.josm.tools.Utils;
  *      open with another versions of JOSM or fix the problem manually.
  *
  *      The deleted layers dir keeps at most PROP_DELETED_LAYERS files.
+ *
+ * Once a copy of a layer has been saved, the following changes of the layer are appended to
+ * an {@link OsmJournal} next to the copy, until the journal grows larger than PROP_JOURNAL_MAX_SIZE
+ * percent of the copy. A new copy is then saved. The journal is applied to the copy before it is recovered.
  */
 public class AutosaveTask extends TimerTask implements LayerChangeListener, Listener {
 
@@ -71,16 +86,30 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     public static final IntegerProperty PROP_INDEX_LIMIT = new IntegerProperty("autosave.index-limit", 1000);
     /** Defines if a notification should be displayed after each autosave */
     public static final BooleanProperty PROP_NOTIFICATION = new BooleanProperty("autosave.notification", false);
+    /** Defines if the changes are appended to a journal instead of saving a new copy of the layer each time */
+    public static final BooleanProperty PROP_JOURNAL = new BooleanProperty("autosave.journal", true);
+    /** Size of the journal, in percent of the size of the saved copy, above which a new copy of the layer is saved */
+    public static final IntegerProperty PROP_JOURNAL_MAX_SIZE = new IntegerProperty("autosave.journal.max-size-percent", 50);
 
     private static class AutosaveLayerInfo {
         private OsmDataLayer layer;
         private String layerName;
         private String layerFileName;
         private final Deque<File> backupFiles = new LinkedList<>();
+        /** Journal of the last backup file, null if no backup file has been written */
+        private OsmJournal journal;
+        /** Ids of the new primitives in the last backup file and the journal, which change when they are uploaded */
+        private final Map<OsmPrimitive, PrimitiveId> newIds = new HashMap<>();
+        private int dataSourceCount;
     }
 
     private final DataSetListenerAdapter datasetAdapter = new DataSetListenerAdapter(this);
+    /** Data sets changed since the last autosave, guards the two following fields too */
     private final Set<DataSet> changedDatasets = new HashSet<>();
+    /** Changed primitives of the data sets, which are appended to the journals */
+    private final Map<DataSet, Set<OsmPrimitive>> changedPrimitives = new HashMap<>();
+    /** Data sets whose changes are not known, and which must be saved entirely */
+    private final Set<DataSet> unknownChanges = new HashSet<>();
     private final List<AutosaveLayerInfo> layersInfo = new ArrayList<>();
     private Timer timer;
     private final Object layersLock = new Object();
@@ -181,34 +210,120 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         }
     }
 
-    private void savelayer(AutosaveLayerInfo info) {
+    /**
+     * Saves the changes of a layer, to its journal if possible or else to a new backup file.
+     * @param info the layer
+     * @param compact if true, a new backup file is saved if the journal contains changes
+     */
+    private void savelayer(AutosaveLayerInfo info, boolean compact) {
+        DataSet ds = info.layer.data;
+        boolean changed;
+        boolean unknown;
+        Set<OsmPrimitive> primitives;
+        synchronized (changedDatasets) {
+            changed = changedDatasets.remove(ds);
+            unknown = unknownChanges.remove(ds);
+            primitives = changedPrimitives.remove(ds);
+        }
         if (!info.layer.getName().equals(info.layerName)) {
             setLayerFileName(info);
             info.layerName = info.layer.getName();
+            // the next backup file is named after the layer
+            unknown = true;
         }
-        if (changedDatasets.remove(info.layer.data)) {
+        if (changed && !unknown && !compact && canAppendToJournal(info)) {
+            try {
+                appendToJournal(info, primitives != null ? primitives : Collections.<OsmPrimitive>emptySet());
+                changed = false;
+            } catch (IOException e) {
+                Main.warn(tr("Unable to append to the autosave journal {0}: {1}", info.journal.getFile(), e.getMessage()));
+            }
+        }
+        if (changed || (compact && info.journal != null && info.journal.length() > 0)) {
             File file = getNewLayerFile(info);
             if (file != null) {
                 info.backupFiles.add(file);
+                info.journal = null;
+                info.newIds.clear();
+                ds.getReadLock().lock();
+                try {
+                    for (OsmPrimitive p : ds.allPrimitives()) {
+                        if (p.isNew()) {
+                            info.newIds.put(p, p.getPrimitiveId());
+                        }
+                    }
+                    info.dataSourceCount = ds.dataSources.size();
+                } finally {
+                    ds.getReadLock().unlock();
+                }
                 new OsmExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+                info.journal = new OsmJournal(getJournalFile(file));
             }
         }
         while (info.backupFiles.size() > PROP_FILES_PER_LAYER.get()) {
             File oldFile = info.backupFiles.remove();
             if (Utils.deleteFile(oldFile, marktr("Unable to delete old backup file {0}"))) {
                 Utils.deleteFile(getPidFile(oldFile), marktr("Unable to delete old backup file {0}"));
+                deleteJournal(oldFile);
             }
         }
     }
 
+    private static boolean canAppendToJournal(AutosaveLayerInfo info) {
+        if (!PROP_JOURNAL.get() || info.journal == null || info.dataSourceCount != info.layer.data.dataSources.size())
+            return false;
+        File file = info.backupFiles.peekLast();
+        return file != null && info.journal.length() * 100 <= file.length() * PROP_JOURNAL_MAX_SIZE.get();
+    }
+
+    /**
+     * Appends the current state of the changed primitives to the journal of a layer, and the ids they had in the
+     * backup file or the journal if they have been removed or their id has changed. The primitives referring to
+     * a primitive whose id has changed are written too.
+     */
+    private static void appendToJournal(AutosaveLayerInfo info, Set<OsmPrimitive> primitives) throws IOException {
+        DataSet ds = info.layer.data;
+        Set<OsmPrimitive> written = new LinkedHashSet<>(primitives.size());
+        List<PrimitiveId> removed = new ArrayList<>();
+        ds.getReadLock().lock();
+        try {
+            for (OsmPrimitive p : primitives) {
+                PrimitiveId id = p.getPrimitiveId();
+                PrimitiveId oldId = info.newIds.containsKey(p) ? info.newIds.get(p) : id;
+                // new deleted primitives are not saved, see OsmWriter
+                boolean write = p.getDataSet() == ds && !(p.isNewOrUndeleted() && p.isDeleted());
+                if (!write || !oldId.equals(id)) {
+                    removed.add(oldId);
+                }
+                if (write && !oldId.equals(id)) {
+                    for (OsmPrimitive referrer : p.getReferrers()) {
+                        if (!(referrer.isNewOrUndeleted() && referrer.isDeleted())) {
+                            written.add(referrer);
+                        }
+                    }
+                }
+                if (write) {
+                    written.add(p);
+                }
+                if (write && p.isNew()) {
+                    info.newIds.put(p, id);
+                } else {
+                    info.newIds.remove(p);
+                }
+            }
+            info.journal.append(written, removed);
+        } finally {
+            ds.getReadLock().unlock();
+        }
+    }
+
     @Override
     public void run() {
         synchronized (layersLock) {
             try {
                 for (AutosaveLayerInfo info: layersInfo) {
-                    savelayer(info);
+                    savelayer(info, false);
                 }
-                changedDatasets.clear();
                 if (PROP_NOTIFICATION.get() && !layersInfo.isEmpty()) {
                     displayNotification();
                 }
@@ -263,7 +378,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                     AutosaveLayerInfo info = it.next();
                     if (info.layer == osmLayer) {
 
-                        savelayer(info);
+                        savelayer(info, true);
                         File lastFile = info.backupFiles.pollLast();
                         if (lastFile != null) {
                             moveToDeletedLayersFolder(lastFile);
@@ -271,6 +386,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                         for (File file: info.backupFiles) {
                             if (Utils.deleteFile(file)) {
                                 Utils.deleteFile(getPidFile(file));
+                                deleteJournal(file);
                             }
                         }
 
@@ -283,13 +399,82 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
-        changedDatasets.add(event.getDataset());
+        synchronized (changedDatasets) {
+            changedDatasets.add(event.getDataset());
+            addChanges(event);
+        }
+    }
+
+    private void addChanges(AbstractDatasetChangedEvent event) {
+        DataSet ds = event.getDataset();
+        if (unknownChanges.contains(ds)) {
+            return;
+        }
+        if (event instanceof DataChangedEvent) {
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                unknownChanges.add(ds);
+                changedPrimitives.remove(ds);
+            } else {
+                for (AbstractDatasetChangedEvent e : events) {
+                    addChanges(e);
+                }
+            }
+            return;
+        }
+        Set<OsmPrimitive> primitives = changedPrimitives.get(ds);
+        if (primitives == null) {
+            primitives = new HashSet<>();
+            changedPrimitives.put(ds, primitives);
+        }
+        primitives.addAll(event.getPrimitives());
     }
 
     private File getPidFile(File osmFile) {
         return new File(autosaveDir, osmFile.getName().replaceFirst("[.][^.]+$", ".pid"));
     }
 
+    private static File getJournalFile(File osmFile) {
+        return new File(osmFile.getParentFile(), osmFile.getName().replaceFirst("[.][^.]+$", ".journal"));
+    }
+
+    private static void deleteJournal(File osmFile) {
+        File journalFile = getJournalFile(osmFile);
+        if (journalFile.exists()) {
+            Utils.deleteFile(journalFile, marktr("Unable to delete old backup file {0}"));
+        }
+    }
+
+    /**
+     * Applies the journal of a backup file, if any, so that the file contains the last saved changes.
+     * @param osmFile the backup file
+     * @param notify if {@code true}, the user is notified if the journal cannot be applied
+     * @return {@code true} if there is no journal or if it has been applied
+     */
+    private static boolean applyJournal(final File osmFile, boolean notify) {
+        try {
+            new OsmJournal(getJournalFile(osmFile)).applyTo(osmFile);
+            return true;
+        } catch (IOException | IllegalDataException e) {
+            final String msg = tr("Unable to apply the autosave journal of {0}: {1}", osmFile, e.getMessage());
+            Main.error(msg);
+            if (notify) {
+                GuiHelper.runInEDT(new Runnable() {
+                    @Override
+                    public void run() {
+                        new Notification("<html>" + msg + "<br>"
+                                + tr("The recovered layer does not contain the changes saved after the last full backup.")
+                                + "</html>")
+                        .setIcon(JOptionPane.WARNING_MESSAGE)
+                        .setDuration(Notification.TIME_LONG)
+                        .show();
+                    }
+                });
+            }
+            return false;
+        }
+    }
+
     /**
      * Replies the list of .osm files still present in autosave dir, that are not currently managed by another instance of JOSM.
      * These files are hence unsaved layers from an old instance of JOSM that crashed and may be recovered by this instance.
@@ -338,7 +523,15 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     }
 
     public void recoverUnsavedLayers() {
-        List<File> files = getUnsavedLayersFiles();
+        final List<File> files = getUnsavedLayersFiles();
+        Main.worker.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (File f: files) {
+                    applyJournal(f, true);
+                }
+            }
+        });
         final OpenFileTask openFileTsk = new OpenFileTask(files, null, tr("Restoring files"));
         Main.worker.submit(openFileTsk);
         Main.worker.submit(new Runnable() {
@@ -362,11 +555,21 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     private void moveToDeletedLayersFolder(File f) {
         File backupFile = new File(deletedLayersDir, f.getName());
         File pidFile = getPidFile(f);
-
         if (backupFile.exists()) {
             deletedLayers.remove(backupFile);
             Utils.deleteFile(backupFile, marktr("Unable to delete old backup file {0}"));
         }
+        deleteJournal(backupFile);
+        // the archived file is complete, in case it is opened later
+        if (!applyJournal(f, false)) {
+            // keep the journal next to the archived file rather than losing the changes it contains
+            File journalFile = getJournalFile(f);
+            if (!journalFile.renameTo(getJournalFile(backupFile))) {
+                Main.warn(String.format("Could not move autosave journal %s to %s folder", journalFile.getName(),
+                        deletedLayersDir.getName()));
+            }
+        }
+
         if (f.renameTo(backupFile)) {
             deletedLayers.add(backupFile);
             Utils.deleteFile(pidFile);
@@ -383,6 +586,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                 break;
             }
             Utils.deleteFile(next, marktr("Unable to delete archived backup file {0}"));
+            deleteJournal(next);
         }
     }
 
@@ -1328,6 +1328,9 @@ public class Preferences {
         }
         Utils.updateSystemProperty("http.agent", Version.getInstance().getAgentString());
         Utils.updateSystemProperty("user.language", get("language"));
+        // Number of idle persistent (keep-alive) connections kept per host, default Java value (5) is lower than
+        // the number of concurrent tile downloads per host, causing connections to be closed and reopened constantly
+        Utils.updateSystemProperty("http.maxConnections", Integer.toString(getInteger("socket.keepalive.maxconnections", 8)));
         // Workaround to fix a Java bug. This ugly hack comes from Sun bug database: https://bugs.openjdk.java.net/browse/JDK-6292739
         // Force AWT toolkit to update its internal preferences (fix #6345).
         if (!GraphicsEnvironment.isHeadless()) {
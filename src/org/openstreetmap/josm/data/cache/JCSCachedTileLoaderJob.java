@@ -324,6 +324,8 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
                 // If isModifiedSince or If-None-Match has been set
                 // and the server answers with a HTTP 304 = "Not Modified"
                 log.log(Level.FINE, "JCS - If-Modified-Since/ETag test: local version is up to date: {0}", getUrl());
+                urlConn.consume();
+                refreshCacheElement(urlConn);
                 return true;
             } else if (isObjectLoadable() // we have an object in cache, but we haven't received 304 response code
                     && (
@@ -353,6 +355,7 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
                     raw = Utils.readBytesFromStream(urlConn.getContent());
                 } else {
                     raw = new byte[]{};
+                    urlConn.consume();
                 }
 
                 if (isResponseLoadable(urlConn.getHeaderFields(), urlConn.getResponseCode(), raw)) {
@@ -470,9 +473,30 @@ public abstract class JCSCachedTileLoaderJob<K, V extends CacheEntry> implements
 
     private boolean isCacheValidUsingHead() throws IOException {
         final HttpClient.Response urlConn = getRequest("HEAD", false).connect();
+        urlConn.consume();
         long lastModified = urlConn.getLastModified();
-        return (attributes.getEtag() != null && attributes.getEtag().equals(urlConn.getHeaderField("ETag"))) ||
+        boolean valid = (attributes.getEtag() != null && attributes.getEtag().equals(urlConn.getHeaderField("ETag"))) ||
                 (lastModified != 0 && lastModified <= attributes.getLastModification());
+        if (valid) {
+            refreshCacheElement(urlConn);
+        }
+        return valid;
+    }
+
+    /**
+     * Updates the expiration time of the cached object after the server confirmed that it has not changed,
+     * so that it is not checked again before the new expiration time.
+     * @param urlConn response confirming that the cached object is still valid
+     */
+    private void refreshCacheElement(HttpClient.Response urlConn) {
+        CacheEntryAttributes refreshed = parseHeaders(urlConn);
+        attributes.setExpirationTime(refreshed.getExpirationTime());
+        attributes.setLastModification(refreshed.getLastModification());
+        // a 304 response does not need to repeat the ETag, which is still sent in the next revalidation
+        if (refreshed.getEtag() != null) {
+            attributes.setEtag(refreshed.getEtag());
+        }
+        cache.put(getCacheKey(), cacheData, attributes);
     }
 
     /**
@@ -3,6 +3,7 @@ package org.openstreetmap.josm.data.gpx;
 
 import java.awt.geom.Area;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
@@ -17,7 +18,10 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.Data;
 import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -29,6 +33,11 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public class GpxData extends WithAttributes implements Data {
 
+    /**
+     * Maximum number of points projected at once when the projection changes.
+     */
+    private static final int PROJECTION_BATCH_SIZE = 1 << 18;
+
     public File storageFile;
     public boolean fromServer;
 
@@ -85,7 +94,7 @@ public class GpxData extends WithAttributes implements Data {
     public boolean hasTrackPoints() {
         for (GpxTrack trk : tracks) {
             for (GpxTrackSegment trkseg : trk.getSegments()) {
-                if (!trkseg.getWayPoints().isEmpty())
+                if (ImmutableGpxTrackSegment.of(trkseg).size() > 0)
                     return true;
             }
         }
@@ -193,23 +202,25 @@ public class GpxData extends WithAttributes implements Data {
      * @return  minimum and maximum dates in array of 2 elements
      */
     public static Date[] getMinMaxTimeForTrack(GpxTrack trk) {
-        WayPoint earliest = null, latest = null;
+        double earliest = Double.NaN, latest = Double.NaN;
 
         for (GpxTrackSegment seg : trk.getSegments()) {
-            for (WayPoint pnt : seg.getWayPoints()) {
-                if (latest == null) {
-                    latest = earliest = pnt;
+            ImmutableGpxTrackSegment points = ImmutableGpxTrackSegment.of(seg);
+            for (int i = 0; i < points.size(); i++) {
+                double t = points.time(i);
+                if (Double.isNaN(latest)) {
+                    latest = earliest = t;
                 } else {
-                    if (pnt.compareTo(earliest) < 0) {
-                        earliest = pnt;
+                    if (Double.compare(t, earliest) < 0) {
+                        earliest = t;
                     } else {
-                        latest = pnt;
+                        latest = t;
                     }
                 }
             }
         }
-        if (earliest == null || latest == null) return null;
-        return new Date[]{earliest.getTime(), latest.getTime()};
+        if (Double.isNaN(earliest) || Double.isNaN(latest)) return null;
+        return new Date[]{new Date((long) (earliest * 1000)), new Date((long) (latest * 1000))};
     }
 
     /**
@@ -225,8 +236,9 @@ public class GpxData extends WithAttributes implements Data {
         double now = System.currentTimeMillis()/1000.0;
         for (GpxTrack trk: tracks) {
             for (GpxTrackSegment seg : trk.getSegments()) {
-                for (WayPoint pnt : seg.getWayPoints()) {
-                    double t = pnt.time;
+                ImmutableGpxTrackSegment points = ImmutableGpxTrackSegment.of(seg);
+                for (int i = 0; i < points.size(); i++) {
+                    double t = points.time(i);
                     if (t > 0 && t <= now) {
                         if (t > max) max = t;
                         if (t < min) min = t;
@@ -279,26 +291,34 @@ public class GpxData extends WithAttributes implements Data {
         double rx = 0.0, ry = 0.0, sx, sy, x, y;
         if (tracks == null)
             return null;
+        // only the lines near p can be closer than tolerance
+        ProjectionBounds box = new ProjectionBounds(px - tolerance, py - tolerance, px + tolerance, py + tolerance);
         for (GpxTrack track : tracks) {
             for (GpxTrackSegment seg : track.getSegments()) {
-                WayPoint r = null;
-                for (WayPoint S : seg.getWayPoints()) {
-                    EastNorth en = S.getEastNorth();
-                    if (r == null) {
-                        r = S;
-                        rx = en.east();
-                        ry = en.north();
+                ImmutableGpxTrackSegment.ProjectedPoints points = ImmutableGpxTrackSegment.of(seg).getProjectedPoints();
+                ImmutableGpxTrackSegment segment = points.getSegment();
+                int last = segment.size() - 1;
+                if (last < 0) {
+                    continue;
+                }
+                int[] ranges = points.getRanges(box);
+                for (int k = 0; k < ranges.length; k += 2) {
+                    int r = ranges[k];
+                    rx = points.east(r);
+                    ry = points.north(r);
+                    if (r == 0) {
                         x = px - rx;
                         y = py - ry;
                         double pRsq = x * x + y * y;
                         if (pRsq < pnminsq) {
                             pnminsq = pRsq;
-                            bestEN = en;
-                            bestTime = r.time;
+                            bestEN = new EastNorth(rx, ry);
+                            bestTime = segment.time(r);
                         }
-                    } else {
-                        sx = en.east();
-                        sy = en.north();
+                    }
+                    for (int s = r + 1; s <= ranges[k + 1]; s++) {
+                        sx = points.east(s);
+                        sy = points.north(s);
                         double a = sy - ry;
                         double b = rx - sx;
                         double c = -a * rx - b * ry;
@@ -320,28 +340,25 @@ public class GpxData extends WithAttributes implements Data {
                                 double nx = rx - rnoverRS * b;
                                 double ny = ry + rnoverRS * a;
                                 bestEN = new EastNorth(nx, ny);
-                                bestTime = r.time + rnoverRS * (S.time - r.time);
+                                bestTime = segment.time(r) + rnoverRS * (segment.time(s) - segment.time(r));
                                 pnminsq = pnsq;
                             }
                         }
-                        r = S;
+                        r = s;
                         rx = sx;
                         ry = sy;
                     }
                 }
-                if (r != null) {
-                    EastNorth c = r.getEastNorth();
-                    /* if there is only one point in the seg, it will do this twice, but no matter */
-                    rx = c.east();
-                    ry = c.north();
-                    x = px - rx;
-                    y = py - ry;
-                    double prsq = x * x + y * y;
-                    if (prsq < pnminsq) {
-                        pnminsq = prsq;
-                        bestEN = c;
-                        bestTime = r.time;
-                    }
+                /* if there is only one point in the seg, it will do this twice, but no matter */
+                rx = points.east(last);
+                ry = points.north(last);
+                x = px - rx;
+                y = py - ry;
+                double prsq = x * x + y * y;
+                if (prsq < pnminsq) {
+                    pnminsq = prsq;
+                    bestEN = new EastNorth(rx, ry);
+                    bestTime = segment.time(last);
                 }
             }
         }
@@ -371,18 +388,20 @@ public class GpxData extends WithAttributes implements Data {
 
     /**
      * Resets the internal caches of east/north coordinates.
+     * The points are reprojected at once, in batches, with the current projection.
      */
     public void resetEastNorthCache() {
+        List<WayPoint> points = new ArrayList<>();
         if (waypoints != null) {
-            for (WayPoint wp : waypoints) {
-                wp.invalidateEastNorthCache();
-            }
+            points.addAll(waypoints);
         }
         if (tracks != null) {
             for (GpxTrack track: tracks) {
                 for (GpxTrackSegment segment: track.getSegments()) {
-                    for (WayPoint wp: segment.getWayPoints()) {
-                        wp.invalidateEastNorthCache();
+                    if (segment instanceof ImmutableGpxTrackSegment) {
+                        ((ImmutableGpxTrackSegment) segment).resetEastNorthCache();
+                    } else {
+                        points.addAll(segment.getWayPoints());
                     }
                 }
             }
@@ -392,9 +411,34 @@ public class GpxData extends WithAttributes implements Data {
                 if (route.routePoints == null) {
                     continue;
                 }
-                for (WayPoint wp: route.routePoints) {
-                    wp.invalidateEastNorthCache();
+                points.addAll(route.routePoints);
+            }
+        }
+        Projection projection = Main.getProjection();
+        for (int from = 0; from < points.size(); from += PROJECTION_BATCH_SIZE) {
+            List<WayPoint> batch = points.subList(from, Math.min(points.size(), from + PROJECTION_BATCH_SIZE));
+            if (projection != null) {
+                double[] coords = new double[2 * batch.size()];
+                int i = 0;
+                for (WayPoint wp : batch) {
+                    coords[i++] = wp.lat();
+                    coords[i++] = wp.lon();
                 }
+                try {
+                    Projections.project(projection, coords);
+                    i = 0;
+                    for (WayPoint wp : batch) {
+                        wp.setEastNorthCache(coords[i], coords[i + 1]);
+                        i += 2;
+                    }
+                    continue;
+                } catch (RuntimeException e) {
+                    // leave the projection of these points to WayPoint#getEastNorth()
+                    Main.warn(e);
+                }
+            }
+            for (WayPoint wp : batch) {
+                wp.invalidateEastNorthCache();
             }
         }
     }
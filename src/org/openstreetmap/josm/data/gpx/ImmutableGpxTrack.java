@@ -38,6 +38,31 @@ public class ImmutableGpxTrack extends WithAttributes implements GpxTrack {
         this.bounds = calculateBounds();
     }
 
+    /**
+     * Constructs a new {@code ImmutableGpxTrack} from existing track segments.
+     * @param trackSegs track segments, empty segments are ignored
+     * @param attributes track attributes
+     */
+    public ImmutableGpxTrack(List<GpxTrackSegment> trackSegs, Map<String, Object> attributes) {
+        List<GpxTrackSegment> newSegments = new ArrayList<>(trackSegs.size());
+        for (GpxTrackSegment trackSeg : trackSegs) {
+            if (trackSeg != null && !isEmpty(trackSeg)) {
+                newSegments.add(trackSeg);
+            }
+        }
+        this.attr = Collections.unmodifiableMap(new HashMap<>(attributes));
+        this.segments = Collections.unmodifiableCollection(newSegments);
+        this.length = calculateLength();
+        this.bounds = calculateBounds();
+    }
+
+    private static boolean isEmpty(GpxTrackSegment segment) {
+        if (segment instanceof ImmutableGpxTrackSegment) {
+            return ((ImmutableGpxTrackSegment) segment).size() == 0;
+        }
+        return segment.getWayPoints().isEmpty();
+    }
+
     private double calculateLength() {
         double result = 0.0; // in meters
 
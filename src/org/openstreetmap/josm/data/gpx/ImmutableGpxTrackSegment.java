@@ -1,31 +1,122 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.gpx;
 
+import java.lang.ref.SoftReference;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.tools.UncheckedParseException;
+import org.openstreetmap.josm.tools.date.DateUtils;
 
+/**
+ * Immutable GPX track segment.
+ * <p>
+ * The points are stored in columns of primitive arrays (latitude, longitude, time, elevation, HDOP), the other
+ * attributes of the points are only kept for the few points having some. The columns are the only stored data:
+ * {@link WayPoint} objects are created on demand by {@link #getWayPoints()}, and changes made to them are not stored
+ * in the segment. Code handling many points should use the index based accessors ({@link #lat(int)},
+ * {@link #time(int)}, ...) and {@link #getProjectedPoints()} instead.
+ */
 public class ImmutableGpxTrackSegment implements GpxTrackSegment {
 
-    private final Collection<WayPoint> wayPoints;
+    /** Number of consecutive points sharing the same bounding box in the spatial index */
+    private static final int CHUNK_SIZE = 32;
+
+    private final int size;
+    private final double[] lat;
+    private final double[] lon;
+    /** seconds since the epoch, see {@link WayPoint#time} */
+    private final double[] time;
+    /** points whose {@link GpxConstants#PT_TIME} attribute is rebuilt from {@link #time}, {@code null} if none */
+    private final BitSet timeAttribute;
+    /** elevations, {@code null} if no point has a numeric elevation */
+    private final double[] ele;
+    /** number of fraction digits of the elevation attributes, -1 if not rebuilt from {@link #ele} */
+    private final byte[] eleDecimals;
+    /** HDOP values, {@link Float#NaN} if absent, {@code null} if no point has one */
+    private final float[] hdop;
+    /** indexes of the points having other attributes, in ascending order */
+    private final int[] extrasIndex;
+    private final Map<String, Object>[] extras;
+
     private final Bounds bounds;
     private final double length;
 
+    private volatile ProjectedPoints projected;
+    private volatile SoftReference<List<WayPoint>> wayPoints;
+
+    /**
+     * Constructs a new {@code ImmutableGpxTrackSegment}.
+     * @param wayPoints the segment waypoints
+     */
     public ImmutableGpxTrackSegment(Collection<WayPoint> wayPoints) {
-        this.wayPoints = Collections.unmodifiableCollection(new ArrayList<>(wayPoints));
-        this.bounds = calculateBounds();
-        this.length = calculateLength();
+        this(builderOf(wayPoints));
+    }
+
+    private ImmutableGpxTrackSegment(Builder builder) {
+        size = builder.size;
+        lat = Arrays.copyOf(builder.lat, size);
+        lon = Arrays.copyOf(builder.lon, size);
+        time = Arrays.copyOf(builder.time, size);
+        timeAttribute = builder.timeAttribute;
+        ele = builder.ele == null ? null : Arrays.copyOf(builder.ele, size);
+        eleDecimals = builder.eleDecimals == null ? null : Arrays.copyOf(builder.eleDecimals, size);
+        hdop = builder.hdop == null ? null : Arrays.copyOf(builder.hdop, size);
+        extrasIndex = Arrays.copyOf(builder.extrasIndex, builder.extrasCount);
+        extras = Arrays.copyOf(builder.extras, builder.extrasCount);
+        bounds = calculateBounds();
+        length = calculateLength();
+    }
+
+    private static Builder builderOf(Collection<WayPoint> wayPoints) {
+        Builder builder = new Builder(wayPoints.size());
+        for (WayPoint wp : wayPoints) {
+            builder.addPoint(wp.lat(), wp.lon());
+            builder.setTime(wp.time);
+            for (Map.Entry<String, Object> e : wp.attr.entrySet()) {
+                builder.put(e.getKey(), e.getValue());
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Returns the given segment as an {@code ImmutableGpxTrackSegment}, in order to access its points by index.
+     * @param segment track segment
+     * @return {@code segment} itself if it is an {@code ImmutableGpxTrackSegment}, a copy of its points otherwise
+     */
+    public static ImmutableGpxTrackSegment of(GpxTrackSegment segment) {
+        if (segment instanceof ImmutableGpxTrackSegment) {
+            return (ImmutableGpxTrackSegment) segment;
+        }
+        return new ImmutableGpxTrackSegment(segment.getWayPoints());
     }
 
     private Bounds calculateBounds() {
         Bounds result = null;
-        for (WayPoint wpt: wayPoints) {
+        for (int i = 0; i < size; i++) {
+            if (Double.isNaN(lat[i]) || Double.isNaN(lon[i])) {
+                continue;
+            }
             if (result == null) {
-                result = new Bounds(wpt.getCoor());
+                result = new Bounds(lat[i], lon[i], true);
             } else {
-                result.extend(wpt.getCoor());
+                result.extend(lat[i], lon[i]);
             }
         }
         return result;
@@ -33,19 +124,209 @@ public class ImmutableGpxTrackSegment implements GpxTrackSegment {
 
     private double calculateLength() {
         double result = 0.0; // in meters
-        WayPoint last = null;
-        for (WayPoint tpt : wayPoints) {
+        LatLon last = null;
+        for (int i = 0; i < size; i++) {
+            LatLon c = new LatLon(lat[i], lon[i]);
             if (last != null) {
-                Double d = last.getCoor().greatCircleDistance(tpt.getCoor());
-                if (!d.isNaN() && !d.isInfinite()) {
+                double d = last.greatCircleDistance(c);
+                if (!Double.isNaN(d) && !Double.isInfinite(d)) {
                     result += d;
                 }
             }
-            last = tpt;
+            last = c;
         }
         return result;
     }
 
+    /**
+     * Formats a time as a {@link GpxConstants#PT_TIME} attribute, in UTC. Points whose attribute has exactly this
+     * format do not need to keep it, it is rebuilt from their time.
+     * @param time seconds since the epoch
+     * @return the time in {@code yyyy-MM-ddTHH:mm:ss[.SSS]Z} format, or {@code null} if it cannot be formatted by
+     * {@link DateUtils#formatTimestamp}
+     */
+    static String formatTime(double time) {
+        char[] buffer = new char[24];
+        int length = DateUtils.formatTimestamp(Math.round(time * 1000), buffer, 0);
+        return length > 0 ? new String(buffer, 0, length) : null;
+    }
+
+    /**
+     * Parses a {@link GpxConstants#PT_TIME} attribute having exactly the format of {@link #formatTime(double)}.
+     * @param s time in {@code yyyy-MM-ddTHH:mm:ss[.SSS]Z} format
+     * @return seconds since the epoch, or {@link Double#NaN} if {@code s} is not in this exact format
+     */
+    static double parseTime(String s) {
+        int n = s.length();
+        // formatTime writes no time zone offset and omits zero milliseconds
+        if (n == 20 ? s.charAt(19) != 'Z'
+                : n != 24 || s.charAt(19) != '.' || s.charAt(23) != 'Z' || s.startsWith("000", 20)) {
+            return Double.NaN;
+        }
+        long millis = DateUtils.parseFixedTimestamp(s, 0, n);
+        return millis == Long.MIN_VALUE ? Double.NaN : millis / 1000.0;
+    }
+
+    /**
+     * Determines how many fraction digits a decimal number has, if it can be rebuilt exactly from its {@code double} value.
+     * @param s decimal number, such as {@code 123.40}
+     * @return the number of fraction digits, or -1 if {@code s} cannot be rebuilt exactly from its value
+     */
+    static int decimals(String s) {
+        int n = s.length();
+        int i = n > 0 && s.charAt(0) == '-' ? 1 : 0;
+        int intStart = i;
+        while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+            i++;
+        }
+        int intDigits = i - intStart;
+        if (intDigits == 0 || (intDigits > 1 && s.charAt(intStart) == '0')) {
+            return -1;
+        }
+        int dec = 0;
+        if (i < n) {
+            if (s.charAt(i++) != '.') {
+                return -1;
+            }
+            int fracStart = i;
+            while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+                i++;
+            }
+            dec = i - fracStart;
+            if (i != n || dec == 0) {
+                return -1;
+            }
+        }
+        // up to 15 significant digits survive the conversion to double; no negative zero in BigDecimal
+        if (intDigits + dec > 15 || (intStart == 1 && Double.parseDouble(s) == 0)) {
+            return -1;
+        }
+        return dec;
+    }
+
+    /**
+     * Returns the number of points of this segment.
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the latitude of a point.
+     * @param index index of the point
+     * @return the latitude
+     */
+    public double lat(int index) {
+        return lat[index];
+    }
+
+    /**
+     * Returns the longitude of a point.
+     * @param index index of the point
+     * @return the longitude
+     */
+    public double lon(int index) {
+        return lon[index];
+    }
+
+    /**
+     * Returns the time of a point.
+     * @param index index of the point
+     * @return the seconds (not milliseconds!) since 1970-01-01, as in {@link WayPoint#time}
+     */
+    public double time(int index) {
+        return time[index];
+    }
+
+    /**
+     * Returns the elevation of a point.
+     * @param index index of the point
+     * @return the elevation, or {@link Double#NaN} if the point has no numeric elevation
+     */
+    public double elevation(int index) {
+        return ele == null ? Double.NaN : ele[index];
+    }
+
+    /**
+     * Returns the HDOP value of a point.
+     * @param index index of the point
+     * @return the HDOP value, or {@link Float#NaN} if the point has none
+     */
+    public float hdop(int index) {
+        return hdop == null ? Float.NaN : hdop[index];
+    }
+
+    /**
+     * Determines if the time of a point comes from a {@link GpxConstants#PT_TIME} attribute in the canonical UTC format,
+     * so that the attribute is exactly {@link #time(int)}. Other time attributes are returned by {@link #get(int, String)}.
+     * @param index index of the point
+     * @return {@code true} if the point has a canonical time attribute
+     */
+    public boolean hasCanonicalTime(int index) {
+        return timeAttribute != null && timeAttribute.get(index);
+    }
+
+    /**
+     * Returns an attribute of a point, as it is in the {@link WayPoint#attr} of {@link #getWayPoint(int)}, without
+     * creating the waypoint. Time and elevation attributes stored as numbers are formatted again, so {@link #time(int)}
+     * and {@link #elevation(int)} should be preferred.
+     * @param index index of the point
+     * @param key the attribute key
+     * @return the attribute value, or {@code null} if the point has no such attribute
+     */
+    public Object get(int index, String key) {
+        if (GpxConstants.PT_TIME.equals(key) && hasCanonicalTime(index)) {
+            return formatTime(time[index]);
+        } else if (GpxConstants.PT_ELE.equals(key) && eleDecimals != null && eleDecimals[index] >= 0) {
+            return BigDecimal.valueOf(ele[index]).setScale(eleDecimals[index], RoundingMode.HALF_UP).toPlainString();
+        } else if (GpxConstants.PT_HDOP.equals(key) && hdop != null && !Float.isNaN(hdop[index])) {
+            return hdop[index];
+        }
+        int e = Arrays.binarySearch(extrasIndex, index);
+        return e >= 0 ? extras[e].get(key) : null;
+    }
+
+    /**
+     * Returns the {@link WayPoint} of a point of this segment.
+     * @param index index of the point
+     * @return the waypoint returned by {@link #getWayPoints()} if they are still in memory, or else a new waypoint,
+     * with all the attributes of the point
+     */
+    public WayPoint getWayPoint(int index) {
+        List<WayPoint> list = cachedWayPoints();
+        return list != null ? list.get(index) : createWayPoint(index);
+    }
+
+    private List<WayPoint> cachedWayPoints() {
+        SoftReference<List<WayPoint>> ref = wayPoints;
+        return ref != null ? ref.get() : null;
+    }
+
+    private WayPoint createWayPoint(int index) {
+        WayPoint wp = new WayPoint(new LatLon(lat[index], lon[index]));
+        int e = Arrays.binarySearch(extrasIndex, index);
+        if (e >= 0) {
+            wp.attr.putAll(extras[e]);
+        }
+        if (timeAttribute != null && timeAttribute.get(index)) {
+            wp.attr.put(GpxConstants.PT_TIME, formatTime(time[index]));
+        }
+        if (eleDecimals != null && eleDecimals[index] >= 0) {
+            wp.attr.put(GpxConstants.PT_ELE,
+                    BigDecimal.valueOf(ele[index]).setScale(eleDecimals[index], RoundingMode.HALF_UP).toPlainString());
+        }
+        if (hdop != null && !Float.isNaN(hdop[index])) {
+            wp.attr.put(GpxConstants.PT_HDOP, hdop[index]);
+        }
+        wp.time = time[index];
+        ProjectedPoints p = projected;
+        if (p != null && p.projection == Main.getProjection()) {
+            wp.setEastNorthCache(p.east(index), p.north(index));
+        }
+        return wp;
+    }
+
     @Override
     public Bounds getBounds() {
         if (bounds == null)
@@ -54,9 +335,29 @@ public class ImmutableGpxTrackSegment implements GpxTrackSegment {
             return new Bounds(bounds);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The waypoints are created from the columns on demand, and only softly cached: the same instances are
+     * returned as long as they are in memory. Changes made to them are not stored in this segment.
+     */
     @Override
     public Collection<WayPoint> getWayPoints() {
-        return wayPoints;
+        List<WayPoint> result = cachedWayPoints();
+        if (result == null) {
+            synchronized (this) {
+                result = cachedWayPoints();
+                if (result == null) {
+                    List<WayPoint> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(createWayPoint(i));
+                    }
+                    result = Collections.unmodifiableList(list);
+                    wayPoints = new SoftReference<>(result);
+                }
+            }
+        }
+        return result;
     }
 
     @Override
@@ -69,4 +370,371 @@ public class ImmutableGpxTrackSegment implements GpxTrackSegment {
         return 0;
     }
 
+    /**
+     * Returns the points of this segment projected with the current projection.
+     * The projected points are computed on first use and cached until the projection changes.
+     * @return the projected points
+     */
+    public ProjectedPoints getProjectedPoints() {
+        Projection projection = Main.getProjection();
+        ProjectedPoints p = projected;
+        if (p == null || p.projection != projection) {
+            p = new ProjectedPoints(projection);
+            projected = p;
+        }
+        return p;
+    }
+
+    /**
+     * Projects the points of this segment again, after the projection changed.
+     * Invalidates the east/north cache of the waypoints returned by {@link #getWayPoints()}, if they are still in memory.
+     */
+    public void resetEastNorthCache() {
+        projected = null;
+        List<WayPoint> list = cachedWayPoints();
+        if (list != null) {
+            for (WayPoint wp : list) {
+                wp.invalidateEastNorthCache();
+            }
+        }
+        if (Main.getProjection() != null) {
+            getProjectedPoints();
+        }
+    }
+
+    /**
+     * Builds {@code ImmutableGpxTrackSegment}s point by point, directly into columns, without creating a
+     * {@link WayPoint} for each point. Used by the readers of large GPX files.
+     * <p>
+     * Points are added by {@link #addPoint(double, double)}, the other methods set the attributes of the last
+     * added point. The builder is reset by {@link #build()} and can then be used for the next segment.
+     */
+    public static final class Builder {
+        private int size;
+        private double[] lat;
+        private double[] lon;
+        private double[] time;
+        private BitSet timeAttribute;
+        private double[] ele;
+        private byte[] eleDecimals;
+        private float[] hdop;
+        private int[] extrasIndex;
+        private Map<String, Object>[] extras;
+        private int extrasCount;
+
+        /**
+         * Constructs a new {@code Builder}.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Constructs a new {@code Builder} with the given initial capacity.
+         * @param initialCapacity the number of points that can be added without growing the columns
+         */
+        public Builder(int initialCapacity) {
+            init(Math.max(initialCapacity, 1));
+        }
+
+        @SuppressWarnings("unchecked")
+        private void init(int capacity) {
+            size = 0;
+            lat = new double[capacity];
+            lon = new double[capacity];
+            time = new double[capacity];
+            timeAttribute = null;
+            ele = null;
+            eleDecimals = null;
+            hdop = null;
+            extrasIndex = new int[0];
+            extras = (Map<String, Object>[]) new Map<?, ?>[0];
+            extrasCount = 0;
+        }
+
+        private void grow() {
+            int capacity = lat.length + (lat.length >> 1) + 1;
+            lat = Arrays.copyOf(lat, capacity);
+            lon = Arrays.copyOf(lon, capacity);
+            time = Arrays.copyOf(time, capacity);
+            if (ele != null) {
+                ele = Arrays.copyOf(ele, capacity);
+                Arrays.fill(ele, size, capacity, Double.NaN);
+                eleDecimals = Arrays.copyOf(eleDecimals, capacity);
+                Arrays.fill(eleDecimals, size, capacity, (byte) -1);
+            }
+            if (hdop != null) {
+                hdop = Arrays.copyOf(hdop, capacity);
+                Arrays.fill(hdop, size, capacity, Float.NaN);
+            }
+        }
+
+        /**
+         * Adds a point, without time and without attributes.
+         * @param lat latitude of the point
+         * @param lon longitude of the point
+         */
+        public void addPoint(double lat, double lon) {
+            if (size == this.lat.length) {
+                grow();
+            }
+            this.lat[size] = lat;
+            this.lon[size] = lon;
+            size++;
+        }
+
+        private int current() {
+            if (size == 0)
+                throw new IllegalStateException("No point added");
+            return size - 1;
+        }
+
+        /**
+         * Sets the time of the last point, without setting its {@link GpxConstants#PT_TIME} attribute.
+         * @param seconds seconds since the epoch, see {@link WayPoint#time}
+         */
+        public void setTime(double seconds) {
+            time[current()] = seconds;
+        }
+
+        /**
+         * Sets the {@link GpxConstants#PT_TIME} attribute of the last point and parses it to set its time,
+         * as {@link WayPoint#setTime()} does. Timestamps in the canonical UTC format are parsed without
+         * allocation, the others by {@link DateUtils}.
+         * @param value the timestamp
+         */
+        public void putTime(String value) {
+            int i = current();
+            double t = parseTime(value);
+            if (!Double.isNaN(t)) {
+                time[i] = t;
+                setTimeAttribute(i);
+                Map<String, Object> attr = currentExtras();
+                if (attr != null) {
+                    attr.remove(GpxConstants.PT_TIME);
+                }
+                return;
+            }
+            try {
+                time[i] = DateUtils.tsFromString(value) / 1000.;
+            } catch (UncheckedParseException e) {
+                Main.warn(e);
+                time[i] = 0;
+            }
+            if (timeAttribute != null) {
+                timeAttribute.clear(i);
+            }
+            putExtra(i, GpxConstants.PT_TIME, value);
+        }
+
+        /**
+         * Sets an attribute of the last point.
+         * A {@link GpxConstants#PT_TIME} value does not change the time of the point, see {@link #putTime(String)}.
+         * @param key the attribute key
+         * @param value the attribute value
+         */
+        public void put(String key, Object value) {
+            int i = current();
+            if (GpxConstants.PT_TIME.equals(key) && value instanceof String && value.equals(formatTime(time[i]))) {
+                setTimeAttribute(i);
+                return;
+            } else if (GpxConstants.PT_ELE.equals(key) && value instanceof String) {
+                int dec = decimals((String) value);
+                if (dec >= 0) {
+                    if (ele == null) {
+                        ele = new double[lat.length];
+                        Arrays.fill(ele, Double.NaN);
+                        eleDecimals = new byte[lat.length];
+                        Arrays.fill(eleDecimals, (byte) -1);
+                    }
+                    ele[i] = Double.parseDouble((String) value);
+                    eleDecimals[i] = (byte) dec;
+                    return;
+                }
+            } else if (GpxConstants.PT_HDOP.equals(key) && value instanceof Float && !((Float) value).isNaN()) {
+                if (hdop == null) {
+                    hdop = new float[lat.length];
+                    Arrays.fill(hdop, Float.NaN);
+                }
+                hdop[i] = (Float) value;
+                return;
+            }
+            putExtra(i, key, value);
+        }
+
+        private void setTimeAttribute(int i) {
+            if (timeAttribute == null) {
+                timeAttribute = new BitSet(lat.length);
+            }
+            timeAttribute.set(i);
+        }
+
+        private Map<String, Object> currentExtras() {
+            return extrasCount > 0 && extrasIndex[extrasCount - 1] == size - 1 ? extras[extrasCount - 1] : null;
+        }
+
+        private void putExtra(int i, String key, Object value) {
+            Map<String, Object> attr = currentExtras();
+            if (attr == null) {
+                if (extrasCount == extrasIndex.length) {
+                    extrasIndex = Arrays.copyOf(extrasIndex, extrasCount * 2 + 1);
+                    extras = Arrays.copyOf(extras, extrasCount * 2 + 1);
+                }
+                attr = new HashMap<>(4);
+                extrasIndex[extrasCount] = i;
+                extras[extrasCount++] = attr;
+            }
+            attr.put(key, value);
+        }
+
+        /**
+         * Returns the number of points added so far.
+         * @return the number of points
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Creates the segment from the points added so far, and resets this builder.
+         * @return the new segment
+         */
+        public ImmutableGpxTrackSegment build() {
+            ImmutableGpxTrackSegment segment = new ImmutableGpxTrackSegment(this);
+            init(16);
+            return segment;
+        }
+    }
+
+    /**
+     * The points of a segment projected with a given projection, with a spatial index of chunks of consecutive points.
+     */
+    public final class ProjectedPoints {
+        private final Projection projection;
+        /** interleaved east/north coordinates */
+        private final double[] en;
+        /** minEast, minNorth, maxEast, maxNorth of each chunk */
+        private final double[] chunks;
+        private final ProjectionBounds projectionBounds;
+
+        private ProjectedPoints(Projection projection) {
+            this.projection = projection;
+            en = new double[2 * size];
+            for (int i = 0; i < size; i++) {
+                en[2 * i] = lat[i];
+                en[2 * i + 1] = lon[i];
+            }
+            Projections.project(projection, en);
+            int count = size <= 1 ? size : (size - 2) / CHUNK_SIZE + 1;
+            chunks = new double[4 * count];
+            ProjectionBounds pb = null;
+            for (int c = 0; c < count; c++) {
+                double minE = Double.POSITIVE_INFINITY;
+                double minN = Double.POSITIVE_INFINITY;
+                double maxE = Double.NEGATIVE_INFINITY;
+                double maxN = Double.NEGATIVE_INFINITY;
+                // a chunk includes the first point of the next one, so that it contains all its lines
+                int end = Math.min(size - 1, (c + 1) * CHUNK_SIZE);
+                for (int i = c * CHUNK_SIZE; i <= end; i++) {
+                    double e = en[2 * i];
+                    double n = en[2 * i + 1];
+                    if (e < minE) minE = e;
+                    if (e > maxE) maxE = e;
+                    if (n < minN) minN = n;
+                    if (n > maxN) maxN = n;
+                }
+                chunks[4 * c] = minE;
+                chunks[4 * c + 1] = minN;
+                chunks[4 * c + 2] = maxE;
+                chunks[4 * c + 3] = maxN;
+                if (minE <= maxE && minN <= maxN) {
+                    if (pb == null) {
+                        pb = new ProjectionBounds(minE, minN, maxE, maxN);
+                    } else {
+                        pb.extend(new EastNorth(minE, minN));
+                        pb.extend(new EastNorth(maxE, maxN));
+                    }
+                }
+            }
+            projectionBounds = pb;
+        }
+
+        /**
+         * Returns the projection used to compute these coordinates.
+         * @return the projection
+         */
+        public Projection getProjection() {
+            return projection;
+        }
+
+        /**
+         * Returns the segment to which these points belong.
+         * @return the segment
+         */
+        public ImmutableGpxTrackSegment getSegment() {
+            return ImmutableGpxTrackSegment.this;
+        }
+
+        /**
+         * Returns the projected east coordinate of a point.
+         * @param index index of the point
+         * @return the east coordinate, {@link Double#NaN} if the point has no valid coordinates
+         */
+        public double east(int index) {
+            return en[2 * index];
+        }
+
+        /**
+         * Returns the projected north coordinate of a point.
+         * @param index index of the point
+         * @return the north coordinate, {@link Double#NaN} if the point has no valid coordinates
+         */
+        public double north(int index) {
+            return en[2 * index + 1];
+        }
+
+        /**
+         * Returns the projected bounds of the segment.
+         * @return the projected bounds, or {@code null} if the segment has no line
+         */
+        public ProjectionBounds getBounds() {
+            return projectionBounds == null ? null
+                    : new ProjectionBounds(projectionBounds.minEast, projectionBounds.minNorth,
+                            projectionBounds.maxEast, projectionBounds.maxNorth);
+        }
+
+        /**
+         * Finds the ranges of consecutive points whose lines may intersect the given bounds.
+         * Only points of the returned ranges have to be considered when painting the given area, or when searching
+         * for a line near a point.
+         * @param box projected bounds
+         * @return pairs of first and last (inclusive) point indexes, in ascending order
+         */
+        public int[] getRanges(ProjectionBounds box) {
+            if (projectionBounds == null || !projectionBounds.intersects(box)) {
+                return new int[0];
+            }
+            int[] ranges = new int[8];
+            int n = 0;
+            int count = chunks.length / 4;
+            for (int c = 0; c < count; c++) {
+                if (chunks[4 * c] > box.maxEast || chunks[4 * c + 2] < box.minEast
+                        || chunks[4 * c + 1] > box.maxNorth || chunks[4 * c + 3] < box.minNorth) {
+                    continue;
+                }
+                int from = c * CHUNK_SIZE;
+                int to = Math.min(size - 1, (c + 1) * CHUNK_SIZE);
+                if (n > 0 && ranges[n - 1] == from) {
+                    ranges[n - 1] = to;
+                } else {
+                    if (n == ranges.length) {
+                        ranges = Arrays.copyOf(ranges, 2 * n);
+                    }
+                    ranges[n++] = from;
+                    ranges[n++] = to;
+                }
+            }
+            return Arrays.copyOf(ranges, n);
+        }
+    }
 }
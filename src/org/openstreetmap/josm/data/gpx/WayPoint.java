@@ -20,8 +20,24 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
      * The seconds (not milliseconds!) since 1970-01-01.
      */
     public double time;
+    /**
+     * Color of the track line drawn to this point.
+     * @deprecated not set anymore, {@link org.openstreetmap.josm.gui.layer.gpx.GpxDrawHelper} keeps the colors of
+     * the points of each track segment, which are not created as waypoints when drawn
+     */
+    @Deprecated
     public Color customColoring;
+    /**
+     * Whether a track line is drawn to this point.
+     * @deprecated not set anymore, see {@link #customColoring}
+     */
+    @Deprecated
     public boolean drawLine;
+    /**
+     * Direction of the track line drawn to this point.
+     * @deprecated not set anymore, see {@link #customColoring}
+     */
+    @Deprecated
     public int dir;
 
     public WayPoint(WayPoint p) {
@@ -62,10 +78,37 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
         this.north = Double.NaN;
     }
 
+    /**
+     * Sets the internal cache of projected east/north coordinates.
+     * To be used only by {@link GpxData#resetEastNorthCache()}, after projecting many waypoints at once.
+     * @param east projected east coordinate of this waypoint, using the current projection
+     * @param north projected north coordinate of this waypoint, using the current projection
+     */
+    void setEastNorthCache(double east, double north) {
+        this.east = east;
+        this.north = north;
+    }
+
     public final LatLon getCoor() {
         return new LatLon(lat, lon);
     }
 
+    /**
+     * Replies the latitude of this waypoint, without allocating a {@link LatLon}.
+     * @return the latitude
+     */
+    public final double lat() {
+        return lat;
+    }
+
+    /**
+     * Replies the longitude of this waypoint, without allocating a {@link LatLon}.
+     * @return the longitude
+     */
+    public final double lon() {
+        return lon;
+    }
+
     /**
      * <p>Replies the projected east/north coordinates.</p>
      *
@@ -105,6 +148,17 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
         this.attr.put(PT_TIME, DateUtils.fromDate(time));
     }
 
+    /**
+     * Sets the {@link #time} field as well as the {@link #PT_TIME} attribute to the specified time,
+     * without creating a {@link Date}.
+     *
+     * @param millis the time to set, in milliseconds since the epoch
+     */
+    public void setTimeInMillis(long millis) {
+        this.time = millis / 1000.;
+        this.attr.put(PT_TIME, DateUtils.fromMillis(millis));
+    }
+
     /**
      * Convert the time stamp of the waypoint into seconds from the epoch
      */
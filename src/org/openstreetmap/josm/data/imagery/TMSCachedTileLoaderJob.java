@@ -322,7 +322,12 @@ public class TMSCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, Buffe
         if (object != null) {
             byte[] content = object.getContent();
             if (content != null && content.length > 0) {
-                tile.loadImage(new ByteArrayInputStream(content));
+                if (object instanceof BufferedImageCacheEntry) {
+                    // reuse the image decoded (once) by the cache entry
+                    tile.setImage(((BufferedImageCacheEntry) object).getImage());
+                } else {
+                    tile.loadImage(new ByteArrayInputStream(content));
+                }
                 if (tile.getImage() == null) {
                     tile.setError(tr("Could not load image from tile server"));
                     return false;
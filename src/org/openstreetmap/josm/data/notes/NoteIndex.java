@@ -0,0 +1,251 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.notes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.coor.QuadTiling;
+
+/**
+ * An immutable spatial index of notes.
+ * <p>
+ * Notes are sorted by their {@link QuadTiling#quadTile quad tile}, so that the notes of any tile, at any level,
+ * are stored next to each other and are found by binary search. Prefix sums of the coordinates give the number and
+ * the mean position of the notes of a tile without iterating over them, which makes clustering independent of the
+ * number of notes.
+ */
+public final class NoteIndex {
+
+    /**
+     * A group of notes in a quad tile.
+     */
+    public static final class Cluster {
+        private final Bounds bounds;
+        private final LatLon latLon;
+        private final int count;
+        private final Note note;
+
+        Cluster(Bounds bounds, LatLon latLon, int count, Note note) {
+            this.bounds = bounds;
+            this.latLon = latLon;
+            this.count = count;
+            this.note = note;
+        }
+
+        /**
+         * Returns the bounds of the quad tile.
+         * @return the bounds of the quad tile
+         */
+        public Bounds getBounds() {
+            return bounds;
+        }
+
+        /**
+         * Returns the mean position of the notes.
+         * @return the mean position of the notes
+         */
+        public LatLon getLatLon() {
+            return latLon;
+        }
+
+        /**
+         * Returns the number of notes.
+         * @return the number of notes, at least 1
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the note, if there is only one.
+         * @return the note of the cluster if it contains only one, {@code null} otherwise
+         */
+        public Note getNote() {
+            return note;
+        }
+    }
+
+    private static final int MAX_LEVEL = QuadTiling.NR_LEVELS;
+
+    private final Note[] notes;
+    private final long[] tiles;
+    private final double[] latSums;
+    private final double[] lonSums;
+
+    /**
+     * Constructs a new {@code NoteIndex}. Notes without position are not indexed.
+     * @param notes the notes to index
+     */
+    public NoteIndex(Collection<Note> notes) {
+        final List<Note> located = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            if (note.getLatLon() != null && note.getLatLon().isValid()) {
+                located.add(note);
+            }
+        }
+        final int n = located.size();
+        final long[] unsorted = new long[n];
+        final Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            unsorted[i] = QuadTiling.quadTile(located.get(i).getLatLon());
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return Long.compare(unsorted[i1], unsorted[i2]);
+            }
+        });
+        this.notes = new Note[n];
+        this.tiles = new long[n];
+        this.latSums = new double[n + 1];
+        this.lonSums = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            Note note = located.get(order[i]);
+            this.notes[i] = note;
+            this.tiles[i] = unsorted[order[i]];
+            this.latSums[i + 1] = this.latSums[i] + note.getLatLon().lat();
+            this.lonSums[i + 1] = this.lonSums[i] + note.getLatLon().lon();
+        }
+    }
+
+    /**
+     * Returns the number of indexed notes.
+     * @return the number of indexed notes
+     */
+    public int size() {
+        return notes.length;
+    }
+
+    /**
+     * Returns the quad tiling level of the smallest tiles that are at least as wide as the given width.
+     * @param width the minimal width of the tiles, in degrees of longitude
+     * @return the quad tiling level, between 0 (one tile for the whole world) and {@link QuadTiling#NR_LEVELS}
+     */
+    public static int getLevel(double width) {
+        if (!(width > 0)) {
+            return MAX_LEVEL;
+        }
+        int level = (int) Math.floor(Math.log(QuadTiling.X_PARTS / width) / Math.log(2));
+        return Math.max(0, Math.min(MAX_LEVEL, level));
+    }
+
+    /**
+     * Returns the notes within the given bounds.
+     * @param bounds the bounds
+     * @return the notes within {@code bounds}, in no particular order
+     */
+    public List<Note> search(Bounds bounds) {
+        Collector collector = new Collector(-1);
+        search(bounds, collector);
+        return collector.notes;
+    }
+
+    /**
+     * Groups the notes of the quad tiles of the given level that intersect the given bounds.
+     * @param bounds the bounds
+     * @param level the quad tiling level, see {@link #getLevel(double)}
+     * @return one cluster for each tile of {@code level} that intersects {@code bounds} and contains notes
+     */
+    public List<Cluster> cluster(Bounds bounds, int level) {
+        Collector collector = new Collector(Math.max(0, Math.min(MAX_LEVEL, level)));
+        search(bounds, collector);
+        return collector.clusters;
+    }
+
+    private void search(Bounds bounds, Collector collector) {
+        if (bounds.crosses180thMeridian()) {
+            collect(0, 0, 0, 0, 0, notes.length,
+                    bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), 180, collector);
+            collect(0, 0, 0, 0, 0, notes.length,
+                    bounds.getMinLat(), -180, bounds.getMaxLat(), bounds.getMaxLon(), collector);
+        } else {
+            collect(0, 0, 0, 0, 0, notes.length,
+                    bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), bounds.getMaxLon(), collector);
+        }
+    }
+
+    /**
+     * Collects the notes of a quad tile that are within the given bounds.
+     * @param level the level of the tile
+     * @param prefix the quad tile index of the tile, at its level
+     * @param x the column of the tile, at its level
+     * @param y the row of the tile, at its level
+     * @param from the index of the first note of the tile
+     * @param to the index after the last note of the tile
+     */
+    private void collect(int level, long prefix, long x, long y, int from, int to,
+            double minLat, double minLon, double maxLat, double maxLon, Collector collector) {
+        if (from >= to) {
+            return;
+        }
+        final double tileWidth = (double) QuadTiling.X_PARTS / (1L << level);
+        final double tileHeight = (double) QuadTiling.Y_PARTS / (1L << level);
+        final double tileMinLon = QuadTiling.X_BIAS + x * tileWidth;
+        final double tileMinLat = QuadTiling.Y_BIAS + y * tileHeight;
+        final double tileMaxLon = tileMinLon + tileWidth;
+        final double tileMaxLat = tileMinLat + tileHeight;
+        if (tileMinLon > maxLon || tileMaxLon < minLon || tileMinLat > maxLat || tileMaxLat < minLat) {
+            return;
+        }
+        if (level == collector.clusterLevel) {
+            final int count = to - from;
+            collector.clusters.add(new Cluster(new Bounds(tileMinLat, tileMinLon, tileMaxLat, tileMaxLon),
+                    new LatLon((latSums[to] - latSums[from]) / count, (lonSums[to] - lonSums[from]) / count),
+                    count, count == 1 ? notes[from] : null));
+        } else if (collector.clusterLevel < 0
+                && tileMinLon >= minLon && tileMaxLon <= maxLon && tileMinLat >= minLat && tileMaxLat <= maxLat) {
+            collector.notes.addAll(Arrays.asList(notes).subList(from, to));
+        } else if (level == MAX_LEVEL) {
+            for (int i = from; i < to; i++) {
+                LatLon ll = notes[i].getLatLon();
+                if (ll.lat() >= minLat && ll.lat() <= maxLat && ll.lon() >= minLon && ll.lon() <= maxLon) {
+                    collector.notes.add(notes[i]);
+                }
+            }
+        } else {
+            // children are sorted by their index: (x bit, y bit) = sw, nw, se, ne
+            final int shift = 2 * (MAX_LEVEL - level - 1);
+            int start = from;
+            for (int child = 0; child < QuadTiling.TILES_PER_LEVEL; child++) {
+                final long childPrefix = (prefix << QuadTiling.TILES_PER_LEVEL_SHIFT) | child;
+                final int end = child == QuadTiling.TILES_PER_LEVEL - 1 ? to : lowerBound(start, to, (childPrefix + 1) << shift);
+                collect(level + 1, childPrefix, 2 * x + (child >> 1), 2 * y + (child & 1), start, end,
+                        minLat, minLon, maxLat, maxLon, collector);
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first note whose tile is not lower than the given tile.
+     */
+    private int lowerBound(int from, int to, long tile) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tiles[mid] < tile) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Collector {
+        private final int clusterLevel;
+        private final List<Note> notes = new ArrayList<>();
+        private final List<Cluster> clusters = new ArrayList<>();
+
+        Collector(int clusterLevel) {
+            this.clusterLevel = clusterLevel;
+        }
+    }
+}
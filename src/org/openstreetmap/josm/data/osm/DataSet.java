@@ -43,6 +43,7 @@ import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
+import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.tagging.ac.AutoCompletionManager;
 import org.openstreetmap.josm.tools.FilteredCollection;
@@ -102,6 +103,11 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
      */
     private static final int MAX_SINGLE_EVENTS = 30;
 
+    /**
+     * Maximum number of nodes projected at once when the projection changes.
+     */
+    private static final int PROJECTION_BATCH_SIZE = 1 << 18;
+
     /**
      * Maximum number of events to kept between beginUpdate/endUpdate. When more events are created, that simple DatasetChangedEvent is sent)
      */
@@ -1237,20 +1243,52 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
      * Invalidates the internal cache of projected east/north coordinates.
      *
      * This method can be invoked after the globally configured projection method
-     * changed.
+     * changed. The nodes are reprojected at once, in batches, with the current projection.
      */
     public void invalidateEastNorthCache() {
-        if (Main.getProjection() == null) return; // sanity check
+        Projection projection = Main.getProjection();
+        if (projection == null) return; // sanity check
         try {
             beginUpdate();
-            for (Node n: Utils.filteredCollection(allPrimitives, Node.class)) {
-                n.invalidateEastNorthCache();
+            Node[] batch = new Node[Math.min(PROJECTION_BATCH_SIZE, allPrimitives.size())];
+            double[] coords = new double[2 * batch.length];
+            int n = 0;
+            for (Node node: Utils.filteredCollection(allPrimitives, Node.class)) {
+                if (!node.isLatLonKnown()) {
+                    node.invalidateEastNorthCache();
+                    continue;
+                }
+                batch[n] = node;
+                coords[2 * n] = node.lat();
+                coords[2 * n + 1] = node.lon();
+                if (++n == batch.length) {
+                    projectBatch(projection, batch, coords, n);
+                    n = 0;
+                }
             }
+            projectBatch(projection, batch, coords, n);
         } finally {
             endUpdate();
         }
     }
 
+    private static void projectBatch(Projection projection, Node[] batch, double[] coords, int n) {
+        if (n == 0) return;
+        double[] en = n == batch.length ? coords : Arrays.copyOf(coords, 2 * n);
+        try {
+            Projections.project(projection, en);
+            for (int i = 0; i < n; i++) {
+                batch[i].setEastNorthCache(en[2 * i], en[2 * i + 1]);
+            }
+        } catch (RuntimeException e) {
+            // leave the projection of these nodes to Node#getEastNorth()
+            Main.warn(e);
+            for (int i = 0; i < n; i++) {
+                batch[i].invalidateEastNorthCache();
+            }
+        }
+    }
+
     /**
      * Cleanups all deleted primitives (really delete them from the dataset).
      */
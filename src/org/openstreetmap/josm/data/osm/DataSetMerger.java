@@ -17,6 +17,8 @@ import org.openstreetmap.josm.data.conflict.Conflict;
 import org.openstreetmap.josm.data.conflict.ConflictCollection;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.LongHashSet;
+import org.openstreetmap.josm.tools.LongObjectHashMap;
 
 /**
  * A dataset merger which takes a target and a source dataset and merges the source data set
@@ -34,14 +36,17 @@ public class DataSetMerger {
     private final DataSet sourceDataSet;
 
     /**
-     * A map of all primitives that got replaced with other primitives.
-     * Key is the PrimitiveId in their dataset, the value is the PrimitiveId in my dataset
+     * Maps of all primitives that got replaced with other primitives, one per primitive type.
+     * Key is the unique id in their dataset, the value is the primitive in my dataset
      */
-    private final Map<PrimitiveId, PrimitiveId> mergedMap;
-    /** a set of primitive ids for which we have to fix references (to nodes and
+    private final LongObjectHashMap<OsmPrimitive> mergedNodes;
+    private final LongObjectHashMap<OsmPrimitive> mergedWays;
+    private final LongObjectHashMap<OsmPrimitive> mergedRelations;
+    /** sets of unique ids of ways and relations for which we have to fix references (to nodes and
      * to relation members) after the first phase of merging
      */
-    private final Set<PrimitiveId> objectsWithChildrenToMerge;
+    private final LongHashSet waysWithChildrenToMerge;
+    private final LongHashSet relationsWithChildrenToMerge;
     private final Set<OsmPrimitive> objectsToDelete;
 
     /**
@@ -58,11 +63,35 @@ public class DataSetMerger {
         this.targetDataSet = targetDataSet;
         this.sourceDataSet = sourceDataSet;
         conflicts = new ConflictCollection();
-        mergedMap = new HashMap<>();
-        objectsWithChildrenToMerge = new HashSet<>();
+        mergedNodes = new LongObjectHashMap<>();
+        mergedWays = new LongObjectHashMap<>();
+        mergedRelations = new LongObjectHashMap<>();
+        waysWithChildrenToMerge = new LongHashSet();
+        relationsWithChildrenToMerge = new LongHashSet();
         objectsToDelete = new HashSet<>();
     }
 
+    private LongObjectHashMap<OsmPrimitive> getMergedMap(OsmPrimitiveType type) {
+        switch (type) {
+        case NODE: return mergedNodes;
+        case WAY: return mergedWays;
+        default: return mergedRelations;
+        }
+    }
+
+    private void rememberMerged(OsmPrimitive source, OsmPrimitive target) {
+        getMergedMap(source.getType()).put(source.getUniqueId(), target);
+    }
+
+    private void rememberChildrenToMerge(OsmPrimitive source) {
+        // nodes have no children
+        if (source instanceof Way) {
+            waysWithChildrenToMerge.add(source.getUniqueId());
+        } else if (source instanceof Relation) {
+            relationsWithChildrenToMerge.add(source.getUniqueId());
+        }
+    }
+
     /**
      * Merges a primitive onto primitives dataset.
      *
@@ -95,13 +124,13 @@ public class DataSetMerger {
                     continue;
                 }
                 if (target.hasEqualSemanticAttributes(source)) {
-                    mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+                    rememberMerged(source, target);
                     // copy the technical attributes from other version
                     target.setVisible(source.isVisible());
                     target.setUser(source.getUser());
                     target.setRawTimestamp(source.getRawTimestamp());
                     target.setModified(source.isModified());
-                    objectsWithChildrenToMerge.add(source.getPrimitiveId());
+                    rememberChildrenToMerge(source);
                     return;
                 }
             }
@@ -119,19 +148,15 @@ public class DataSetMerger {
         }
         target.mergeFrom(source);
         targetDataSet.addPrimitive(target);
-        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
-        objectsWithChildrenToMerge.add(source.getPrimitiveId());
+        rememberMerged(source, target);
+        rememberChildrenToMerge(source);
     }
 
     protected OsmPrimitive getMergeTarget(OsmPrimitive mergeSource) {
-        PrimitiveId targetId = mergedMap.get(mergeSource.getPrimitiveId());
-        if (targetId == null)
-            return null;
-        return targetDataSet.getPrimitiveById(targetId);
+        return getMergedMap(mergeSource.getType()).get(mergeSource.getUniqueId());
     }
 
     protected void addConflict(Conflict<?> c) {
-        c.setMergedMap(mergedMap);
         conflicts.add(c);
     }
 
@@ -151,13 +176,13 @@ public class DataSetMerger {
      */
     public void fixReferences() {
         for (Way w : sourceDataSet.getWays()) {
-            if (!conflicts.hasConflictForTheir(w) && objectsWithChildrenToMerge.contains(w.getPrimitiveId())) {
+            if (!conflicts.hasConflictForTheir(w) && waysWithChildrenToMerge.contains(w.getUniqueId())) {
                 mergeNodeList(w);
                 fixIncomplete(w);
             }
         }
         for (Relation r : sourceDataSet.getRelations()) {
-            if (!conflicts.hasConflictForTheir(r) && objectsWithChildrenToMerge.contains(r.getPrimitiveId())) {
+            if (!conflicts.hasConflictForTheir(r) && relationsWithChildrenToMerge.contains(r.getUniqueId())) {
                 mergeRelationMembers(r);
             }
         }
@@ -293,7 +318,7 @@ public class DataSetMerger {
         if (target == null)
             return false;
         // found a corresponding target, remember it
-        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+        rememberMerged(source, target);
 
         if (target.getVersion() > source.getVersion())
             // target.version > source.version => keep target version
@@ -304,7 +329,7 @@ public class DataSetMerger {
             // => merge source into target
             //
             target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            rememberChildrenToMerge(source);
         } else if (!target.isIncomplete() && source.isIncomplete()) {
             // target is complete and source is incomplete
             // => keep target, it has more information already
@@ -342,17 +367,17 @@ public class DataSetMerger {
             // target not modified. We can assume that source is the most recent version.
             // clone it into target.
             target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            rememberChildrenToMerge(source);
         } else if (!target.isModified() && !source.isModified() && target.getVersion() == source.getVersion()) {
             // both not modified. Merge nevertheless.
             // This helps when updating "empty" relations, see #4295
             target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            rememberChildrenToMerge(source);
         } else if (!target.isModified() && !source.isModified() && target.getVersion() < source.getVersion()) {
             // my not modified but other is newer. clone other onto mine.
             //
             target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            rememberChildrenToMerge(source);
         } else if (target.isModified() && !source.isModified() && target.getVersion() == source.getVersion()) {
             // target is same as source but target is modified
             // => keep target and reset modified flag if target and source are semantically equal
@@ -375,7 +400,7 @@ public class DataSetMerger {
             // attributes should already be equal if we get here.
             //
             target.mergeFrom(source);
-            objectsWithChildrenToMerge.add(source.getPrimitiveId());
+            rememberChildrenToMerge(source);
         }
         return true;
     }
@@ -433,11 +458,41 @@ public class DataSetMerger {
         } finally {
             targetDataSet.endUpdate();
         }
+        setConflictMergedMaps();
         if (progressMonitor != null) {
             progressMonitor.finishTask();
         }
     }
 
+    /**
+     * Gives each conflict the merged primitives it may need to resolve the nodes or the members of
+     * their primitive. Only these entries are copied, so that the conflicts do not keep this merger
+     * and all merged primitives alive.
+     */
+    private void setConflictMergedMaps() {
+        for (Conflict<?> c : conflicts) {
+            Map<PrimitiveId, PrimitiveId> map = new HashMap<>();
+            OsmPrimitive their = c.getTheir();
+            if (their instanceof Way) {
+                for (Node n : ((Way) their).getNodes()) {
+                    putMergeTarget(map, n);
+                }
+            } else if (their instanceof Relation) {
+                for (RelationMember m : ((Relation) their).getMembers()) {
+                    putMergeTarget(map, m.getMember());
+                }
+            }
+            c.setMergedMap(map);
+        }
+    }
+
+    private void putMergeTarget(Map<PrimitiveId, PrimitiveId> map, OsmPrimitive source) {
+        OsmPrimitive target = getMergeTarget(source);
+        if (target != null) {
+            map.put(source.getPrimitiveId(), target.getPrimitiveId());
+        }
+    }
+
     /**
      * replies my dataset
      *
@@ -72,6 +72,60 @@ public final class Node extends OsmPrimitive implements INode {
         return new LatLon(lat, lon);
     }
 
+    /**
+     * Replies the latitude of this node, without allocating a {@link LatLon}.
+     * @return the latitude, or {@link Double#NaN} if this node doesn't know lat/lon-coordinates
+     * @see #getCoor()
+     */
+    public double lat() {
+        return lat;
+    }
+
+    /**
+     * Replies the longitude of this node, without allocating a {@link LatLon}.
+     * @return the longitude, or {@link Double#NaN} if this node doesn't know lat/lon-coordinates
+     * @see #getCoor()
+     */
+    public double lon() {
+        return lon;
+    }
+
+    /**
+     * Replies the projected east coordinate, without allocating an {@link EastNorth}
+     * as long as the node belongs to a dataset. Same caching rules as {@link #getEastNorth()}.
+     * @return the east coordinate, or {@link Double#NaN} if this node doesn't know lat/lon-coordinates
+     * @see #getEastNorth()
+     */
+    public double east() {
+        if (!isLatLonKnown()) return Double.NaN;
+        if (getDataSet() == null) return getEastNorth().east();
+        updateEastNorthCache();
+        return east;
+    }
+
+    /**
+     * Replies the projected north coordinate, without allocating an {@link EastNorth}
+     * as long as the node belongs to a dataset. Same caching rules as {@link #getEastNorth()}.
+     * @return the north coordinate, or {@link Double#NaN} if this node doesn't know lat/lon-coordinates
+     * @see #getEastNorth()
+     */
+    public double north() {
+        if (!isLatLonKnown()) return Double.NaN;
+        if (getDataSet() == null) return getEastNorth().north();
+        updateEastNorthCache();
+        return north;
+    }
+
+    private void updateEastNorthCache() {
+        if (Double.isNaN(east) || Double.isNaN(north)) {
+            // projected coordinates haven't been calculated yet,
+            // so fill the cache of the projected node coordinates
+            EastNorth en = Projections.project(new LatLon(lat, lon));
+            this.east = en.east();
+            this.north = en.north();
+        }
+    }
+
     /**
      * <p>Replies the projected east/north coordinates.</p>
      *
@@ -96,13 +150,7 @@ public final class Node extends OsmPrimitive implements INode {
             // and invalidates the cache, so we don't use the cache at all
             return Projections.project(new LatLon(lat, lon));
 
-        if (Double.isNaN(east) || Double.isNaN(north)) {
-            // projected coordinates haven't been calculated yet,
-            // so fill the cache of the projected node coordinates
-            EastNorth en = Projections.project(new LatLon(lat, lon));
-            this.east = en.east();
-            this.north = en.north();
-        }
+        updateEastNorthCache();
         return new EastNorth(east, north);
     }
 
@@ -347,6 +395,17 @@ public final class Node extends OsmPrimitive implements INode {
         this.north = Double.NaN;
     }
 
+    /**
+     * Sets the internal cache of projected east/north coordinates.
+     * To be used only by {@link DataSet#invalidateEastNorthCache()}, after projecting many nodes at once.
+     * @param east projected east coordinate of this node, using the current projection
+     * @param north projected north coordinate of this node, using the current projection
+     */
+    void setEastNorthCache(double east, double north) {
+        this.east = east;
+        this.north = north;
+    }
+
     @Override
     public boolean concernsArea() {
         // A node cannot be an area
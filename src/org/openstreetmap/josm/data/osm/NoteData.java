@@ -10,8 +10,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.notes.Note;
+import org.openstreetmap.josm.data.notes.NoteIndex;
+import org.openstreetmap.josm.data.notes.NoteIndex.Cluster;
 import org.openstreetmap.josm.data.notes.Note.State;
 import org.openstreetmap.josm.data.notes.NoteComment;
 import org.openstreetmap.josm.gui.JosmUserIdentityManager;
@@ -26,6 +29,8 @@ public class NoteData {
     private long newNoteId = -1;
 
     private final Storage<Note> noteList;
+    /** The spatial index of {@link #noteList}, {@code null} until needed again after a modification */
+    private NoteIndex index;
     private Note selectedNote;
     private Comparator<Note> comparator = DEFAULT_COMPARATOR;
 
@@ -110,6 +115,32 @@ public class NoteData {
         return Collections.unmodifiableCollection(noteList);
     }
 
+    /**
+     * Returns the notes stored in this layer within the given bounds.
+     * @param bounds the bounds
+     * @return the notes within {@code bounds}, in no particular order
+     */
+    public List<Note> searchNotes(Bounds bounds) {
+        return getIndex().search(bounds);
+    }
+
+    /**
+     * Groups the notes stored in this layer by quad tile.
+     * @param bounds the bounds
+     * @param level the quad tiling level of the tiles, see {@link NoteIndex#getLevel(double)}
+     * @return one cluster for each tile that intersects {@code bounds} and contains notes
+     */
+    public List<Cluster> clusterNotes(Bounds bounds, int level) {
+        return getIndex().cluster(bounds, level);
+    }
+
+    private synchronized NoteIndex getIndex() {
+        if (index == null) {
+            index = new NoteIndex(noteList);
+        }
+        return index;
+    }
+
     /**
      * Returns the notes stored in this layer sorted according to {@link #comparator}
      * @return sorted collection of notes
@@ -185,6 +216,7 @@ public class NoteData {
                 newNoteId = newNote.getId() - 1;
             }
         }
+        index = null;
         dataUpdated();
     }
 
@@ -207,6 +239,7 @@ public class NoteData {
             Main.debug("Created note {0} with comment: {1}", note.getId(), text);
         }
         noteList.add(note);
+        index = null;
         dataUpdated();
     }
 
@@ -303,6 +336,7 @@ public class NoteData {
                 noteList.add(oldNote);
             }
         }
+        index = null;
         dataUpdated();
     }
 
@@ -16,7 +16,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 
 import org.openstreetmap.josm.Main;
@@ -1387,7 +1386,7 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         OsmPrimitive that = (OsmPrimitive) obj;
-        return Objects.equals(id, that.id);
+        return id == that.id;
     }
 
     /**
@@ -1397,7 +1396,8 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        // same value as Objects.hash(id), without boxing and varargs array (called for every primitive while painting)
+        return 31 + (int) (id ^ (id >>> 32));
     }
 
     /**
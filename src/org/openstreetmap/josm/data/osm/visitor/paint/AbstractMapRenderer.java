@@ -214,9 +214,11 @@ public abstract class AbstractMapRenderer implements Rendering {
     public void visitVirtual(GeneralPath path, Way w) {
         Iterator<Node> it = w.getNodes().iterator();
         if (it.hasNext()) {
-            Point lastP = nc.getPoint(it.next());
+            // two point buffers swapped at each step, to avoid allocations per node
+            Point lastP = nc.getPoint(it.next(), new Point());
+            Point p = new Point();
             while (it.hasNext()) {
-                Point p = nc.getPoint(it.next());
+                nc.getPoint(it.next(), p);
                 if (isSegmentVisible(lastP, p) && isLargeSegment(lastP, p, virtualNodeSpace)) {
                     int x = (p.x+lastP.x)/2;
                     int y = (p.y+lastP.y)/2;
@@ -225,7 +227,9 @@ public abstract class AbstractMapRenderer implements Rendering {
                     path.moveTo(x, y-virtualNodeSize);
                     path.lineTo(x, y+virtualNodeSize);
                 }
+                Point tmp = lastP;
                 lastP = p;
+                p = tmp;
             }
         }
     }
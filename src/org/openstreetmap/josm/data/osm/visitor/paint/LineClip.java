@@ -42,14 +42,14 @@ public class LineClip {
     }
 
     /**
-     * @return start point of the clipped line
+     * @return start point of the clipped line, same instance as the given one if it is not clipped
      */
     public Point getP1() {
         return p1;
     }
 
     /**
-     * @return end point of the clipped line
+     * @return end point of the clipped line, same instance as the given one if it is not clipped
      */
     public Point getP2() {
         return p2;
@@ -112,8 +112,13 @@ public class LineClip {
         while (!done);
 
         if (accept) {
-            p1 = new Point((int) x1, (int) y1);
-            p2 = new Point((int) x2, (int) y2);
+            // keep the given points if they are not clipped
+            if (x1 != p1.x || y1 != p1.y) {
+                p1 = new Point((int) x1, (int) y1);
+            }
+            if (x2 != p2.x || y2 != p2.y) {
+                p2 = new Point((int) x2, (int) y2);
+            }
             return true;
         }
         return false;
@@ -95,6 +95,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
      *
      * There is no intention, to handle consecutive duplicate Nodes in a
      * perfect way, but it should not throw an exception.
+     *
+     * Without offset, the returned points are recycled to avoid allocations per node:
+     * a point is only valid until the second following call to {@link #next()}.
      */
     private class OffsetIterator implements Iterator<Point> {
 
@@ -108,6 +111,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
          * 'prev' to the next point.
          */
         private int xPrev0, yPrev0;
+        private final Point[] buffers = {new Point(), new Point()};
 
         OffsetIterator(List<Node> nodes, double offset) {
             this.nodes = nodes;
@@ -125,8 +129,11 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             if (!hasNext())
                 throw new NoSuchElementException();
 
-            if (Math.abs(offset) < 0.1d)
-                return nc.getPoint(nodes.get(idx++));
+            if (Math.abs(offset) < 0.1d) {
+                Point p = nc.getPoint(nodes.get(idx), buffers[idx & 1]);
+                idx++;
+                return p;
+            }
 
             Point current = nc.getPoint(nodes.get(idx));
 
@@ -371,6 +378,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private boolean leftHandTraffic;
     private Object antialiasing;
 
+    /** reused by the node drawing methods, to avoid allocations per node */
+    private final Point nodePoint = new Point();
+
     /**
      * Constructs a new {@code StyledMapRenderer}.
      *
@@ -711,7 +721,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         if (!isShowNames() || bs == null)
             return;
 
-        Point p = nc.getPoint(n);
+        Point p = nc.getPoint(n, nodePoint);
         TextLabel text = bs.text;
         String s = text.labelCompositionStrategy.compose(n);
         if (s == null) return;
@@ -862,7 +872,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         if (size <= 0 && !n.isHighlighted())
             return;
 
-        Point p = nc.getPoint(n);
+        Point p = nc.getPoint(n, nodePoint);
 
         if (n.isHighlighted()) {
             drawPointHighlight(p, size);
@@ -886,7 +896,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     }
 
     public void drawNodeIcon(Node n, MapImage img, boolean disabled, boolean selected, boolean member, double theta) {
-        Point p = nc.getPoint(n);
+        Point p = nc.getPoint(n, nodePoint);
 
         final int w = img.getWidth(), h = img.getHeight();
         if (n.isHighlighted()) {
@@ -917,7 +927,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     }
 
     public void drawNodeSymbol(Node n, Symbol s, Color fillColor, Color strokeColor) {
-        Point p = nc.getPoint(n);
+        Point p = nc.getPoint(n, nodePoint);
         int radius = s.size / 2;
 
         if (n.isHighlighted()) {
@@ -1606,13 +1616,14 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         Path2D.Double path = new Path2D.Double();
         boolean initial = true;
         for (Node n : w.getNodes()) {
-            EastNorth p = n.getEastNorth();
-            if (p != null) {
+            double east = n.east();
+            double north = n.north();
+            if (!Double.isNaN(east) && !Double.isNaN(north)) {
                 if (initial) {
-                    path.moveTo(p.getX(), p.getY());
+                    path.moveTo(east, north);
                     initial = false;
                 } else {
-                    path.lineTo(p.getX(), p.getY());
+                    path.lineTo(east, north);
                 }
             }
         }
@@ -1656,13 +1667,14 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private static void buildPFClip(Path2D.Double clip, List<Node> nodes, double extent) {
         boolean initial = true;
         for (Node n : nodes) {
-            EastNorth p = n.getEastNorth();
-            if (p != null) {
+            double east = n.east();
+            double north = n.north();
+            if (!Double.isNaN(east) && !Double.isNaN(north)) {
                 if (initial) {
-                    clip.moveTo(p.getX(), p.getY());
+                    clip.moveTo(east, north);
                     initial = false;
                 } else {
-                    clip.lineTo(p.getX(), p.getY());
+                    clip.lineTo(east, north);
                 }
             }
         }
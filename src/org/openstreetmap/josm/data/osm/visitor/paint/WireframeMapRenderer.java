@@ -88,6 +88,12 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
     /** Helper variable for {@link #drawSegment} */
     private static final double sinPHI = Math.sin(PHI);
 
+    /** Helper variable for {@link #drawSegment}, reused to avoid allocations per segment */
+    private final Rectangle clipBounds = new Rectangle();
+
+    /** Helper variable for {@link #drawNode}, reused to avoid allocations per node */
+    private final Point nodePoint = new Point();
+
     /** Helper variable for {@link #visit(Relation)} */
     private final Stroke relatedWayStroke = new BasicStroke(
             4, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_BEVEL);
@@ -314,15 +320,19 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
 
         Iterator<Node> it = w.getNodes().iterator();
         if (it.hasNext()) {
-            Point lastP = nc.getPoint(it.next());
+            // two point buffers swapped at each step, to avoid allocations per node
+            Point lastP = nc.getPoint(it.next(), new Point());
+            Point p = new Point();
             for (int orderNumber = 1; it.hasNext(); orderNumber++) {
-                Point p = nc.getPoint(it.next());
+                nc.getPoint(it.next(), p);
                 drawSegment(lastP, p, wayColor,
                         showOnlyHeadArrowOnly ? !it.hasNext() : showThisDirectionArrow);
                 if (showOrderNumber && !isInactiveMode) {
                     drawOrderNumber(lastP, p, orderNumber, g.getColor());
                 }
+                Point tmp = lastP;
                 lastP = p;
+                p = tmp;
             }
         }
     }
@@ -364,11 +374,12 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
                 GeneralPath path = new GeneralPath();
 
                 boolean first = true;
+                Point p = new Point();
                 for (Node n : m.getWay().getNodes()) {
                     if (!n.isDrawable()) {
                         continue;
                     }
-                    Point p = nc.getPoint(n);
+                    nc.getPoint(n, p);
                     if (first) {
                         path.moveTo(p.x, p.y);
                         first = false;
@@ -393,7 +404,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
     public void drawNode(Node n, Color color, int size, boolean fill) {
         if (size > 1) {
             int radius = size / 2;
-            Point p = nc.getPoint(n);
+            Point p = nc.getPoint(n, nodePoint);
             if ((p.x < 0) || (p.y < 0) || (p.x > nc.getWidth())
                     || (p.y > nc.getHeight()))
                 return;
@@ -416,25 +427,27 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
      * @param showDirection <code>true</code> if segment direction should be indicated
      */
     protected void drawSegment(GeneralPath path, Point p1, Point p2, boolean showDirection) {
-        Rectangle bounds = g.getClipBounds();
+        Rectangle bounds = g.getClipBounds(clipBounds);
         bounds.grow(100, 100);                  // avoid arrow heads at the border
-        LineClip clip = new LineClip(p1, p2, bounds);
-        if (clip.execute()) {
+        if (!bounds.contains(p1) || !bounds.contains(p2)) {
+            LineClip clip = new LineClip(p1, p2, bounds);
+            if (!clip.execute())
+                return;
             p1 = clip.getP1();
             p2 = clip.getP2();
-            path.moveTo(p1.x, p1.y);
-            path.lineTo(p2.x, p2.y);
+        }
+        path.moveTo(p1.x, p1.y);
+        path.lineTo(p2.x, p2.y);
 
-            if (showDirection) {
-                final double l =  10. / p1.distance(p2);
+        if (showDirection) {
+            final double l =  10. / p1.distance(p2);
 
-                final double sx = l * (p1.x - p2.x);
-                final double sy = l * (p1.y - p2.y);
+            final double sx = l * (p1.x - p2.x);
+            final double sy = l * (p1.y - p2.y);
 
-                path.lineTo(p2.x + (int) Math.round(cosPHI * sx - sinPHI * sy), p2.y + (int) Math.round(sinPHI * sx + cosPHI * sy));
-                path.moveTo(p2.x + (int) Math.round(cosPHI * sx + sinPHI * sy), p2.y + (int) Math.round(-sinPHI * sx + cosPHI * sy));
-                path.lineTo(p2.x, p2.y);
-            }
+            path.lineTo(p2.x + (int) Math.round(cosPHI * sx - sinPHI * sy), p2.y + (int) Math.round(sinPHI * sx + cosPHI * sy));
+            path.moveTo(p2.x + (int) Math.round(cosPHI * sx + sinPHI * sy), p2.y + (int) Math.round(-sinPHI * sx + cosPHI * sy));
+            path.lineTo(p2.x, p2.y);
         }
     }
 
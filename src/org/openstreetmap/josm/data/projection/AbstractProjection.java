@@ -5,8 +5,10 @@ import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.datum.AbstractDatum;
 import org.openstreetmap.josm.data.projection.datum.Datum;
 import org.openstreetmap.josm.data.projection.proj.Proj;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Implementation of the Projection interface that represents a coordinate reference system and delegates
@@ -93,6 +95,43 @@ public abstract class AbstractProjection implements Projection {
         return new EastNorth((ellps.a * k0 * en[0] + x0) / toMeter, (ellps.a * k0 * en[1] + y0) / toMeter);
     }
 
+    /**
+     * Convert many lat/lon coordinates to east/north, in place.
+     *
+     * Gives the same results as {@link #latlon2eastNorth(LatLon)}, but converts the datum once
+     * per batch and does not allocate a {@link LatLon} and an {@link EastNorth} per coordinate.
+     * If a subclass overrides {@link #latlon2eastNorth(LatLon)}, that method is called for each coordinate.
+     * @param coords lat/lon pairs (latitude at even index, longitude at odd index),
+     * replaced by east/north pairs (east at even index, north at odd index)
+     * @param from index of the first pair to convert (inclusive)
+     * @param to index of the last pair to convert (exclusive)
+     */
+    public void latlon2eastNorth(double[] coords, int from, int to) {
+        if (Utils.isOverridden(getClass(), AbstractProjection.class, "latlon2eastNorth", LatLon.class)) {
+            for (int i = 2 * from; i < 2 * to; i += 2) {
+                EastNorth en = latlon2eastNorth(new LatLon(coords[i], coords[i + 1]));
+                coords[i] = en.east();
+                coords[i + 1] = en.north();
+            }
+            return;
+        }
+        if (datum instanceof AbstractDatum) {
+            ((AbstractDatum) datum).fromWGS84(coords, from, to);
+        } else {
+            for (int i = 2 * from; i < 2 * to; i += 2) {
+                LatLon ll = datum.fromWGS84(new LatLon(coords[i], coords[i + 1]));
+                coords[i] = ll.lat();
+                coords[i + 1] = ll.lon();
+            }
+        }
+        final double a = ellps.a * k0;
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            double[] en = proj.project(Math.toRadians(coords[i]), Math.toRadians(LatLon.normalizeLon(coords[i + 1] - lon0 - pm)));
+            coords[i] = (a * en[0] + x0) / toMeter;
+            coords[i + 1] = (a * en[1] + y0) / toMeter;
+        }
+    }
+
     @Override
     public LatLon eastNorth2latlon(EastNorth en) {
         double[] latlonRad = proj.invproject((en.east() * toMeter - x0) / ellps.a / k0, (en.north() * toMeter - y0) / ellps.a / k0);
@@ -326,6 +326,23 @@ public final class Ellipsoid {
     }
 
     public LatLon cart2LatLon(double[] xyz, double epsilon) {
+        double[] latlon = new double[2];
+        cart2LatLon(xyz, epsilon, latlon, 0);
+        return new LatLon(latlon[0], latlon[1]);
+    }
+
+    /**
+     * convert cartesian coordinates to ellipsoidal coordinates, without creating a {@link LatLon}
+     *
+     * @param xyz the coordinates in meters (X, Y, Z)
+     * @param latlon receives the latitude in degrees at {@code index} and the longitude in degrees at {@code index + 1}
+     * @param index position of the latitude in {@code latlon}
+     */
+    public void cart2LatLon(double[] xyz, double[] latlon, int index) {
+        cart2LatLon(xyz, 1e-11, latlon, index);
+    }
+
+    private void cart2LatLon(double[] xyz, double epsilon, double[] latlon, int index) {
         double norm = Math.sqrt(xyz[0] * xyz[0] + xyz[1] * xyz[1]);
         double lg = 2.0 * Math.atan(xyz[1] / (xyz[0] + norm));
         double lt = Math.atan(xyz[2] / (norm * (1.0 - (a * e2 / Math.sqrt(xyz[0] * xyz[0] + xyz[1] * xyz[1] + xyz[2] * xyz[2])))));
@@ -338,7 +355,8 @@ public final class Ellipsoid {
             delta = Math.abs(l - lt);
             lt = l;
         }
-        return new LatLon(Math.toDegrees(lt), Math.toDegrees(lg));
+        latlon[index] = Math.toDegrees(lt);
+        latlon[index + 1] = Math.toDegrees(lg);
     }
 
     /**
@@ -348,11 +366,22 @@ public final class Ellipsoid {
      * @return the corresponding (X, Y Z) cartesian coordinates in meters.
      */
     public double[] latLon2Cart(LatLon coord) {
-        double phi = Math.toRadians(coord.lat());
-        double lambda = Math.toRadians(coord.lon());
+        return latLon2Cart(coord.lat(), coord.lon(), new double[3]);
+    }
+
+    /**
+     * convert ellipsoidal coordinates to cartesian coordinates, without creating a {@link LatLon}
+     *
+     * @param lat The latitude in degrees
+     * @param lon The longitude in degrees
+     * @param xyz receives the corresponding (X, Y Z) cartesian coordinates in meters
+     * @return {@code xyz}
+     */
+    public double[] latLon2Cart(double lat, double lon, double[] xyz) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
 
         double rn = a / Math.sqrt(1 - e2 * Math.pow(Math.sin(phi), 2));
-        double[] xyz = new double[3];
         xyz[0] = rn * Math.cos(phi) * Math.cos(lambda);
         xyz[1] = rn * Math.cos(phi) * Math.sin(lambda);
         xyz[2] = rn * (1 - e2) * Math.sin(phi);
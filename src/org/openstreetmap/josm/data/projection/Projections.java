@@ -16,6 +16,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,6 +48,7 @@ import org.openstreetmap.josm.data.projection.proj.TransverseMercator;
 import org.openstreetmap.josm.gui.preferences.projection.ProjectionChoice;
 import org.openstreetmap.josm.gui.preferences.projection.ProjectionPreference;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -180,6 +183,73 @@ public final class Projections {
         return Main.getProjection().latlon2eastNorth(ll);
     }
 
+    /**
+     * Convert many coordinates from lat/lon to easting/northing using the current projection, in place.
+     *
+     * @param coords lat/lon pairs (latitude at even index, longitude at odd index),
+     * replaced by east/north pairs (east at even index, north at odd index)
+     * @see #project(Projection, double[])
+     */
+    public static void project(double[] coords) {
+        project(Main.getProjection(), coords);
+    }
+
+    /**
+     * Convert many coordinates from lat/lon to easting/northing using the given projection, in place.
+     *
+     * Gives the same results as {@link Projection#latlon2eastNorth(LatLon)} for each coordinate.
+     * Large arrays are split and converted in parallel.
+     *
+     * @param projection the projection to use
+     * @param coords lat/lon pairs (latitude at even index, longitude at odd index),
+     * replaced by east/north pairs (east at even index, north at odd index)
+     */
+    public static void project(Projection projection, double[] coords) {
+        CheckParameterUtil.ensureParameterNotNull(projection, "projection");
+        int count = coords.length / 2;
+        if (count < 2 * BatchProjection.THRESHOLD) {
+            new BatchProjection(projection, coords, 0, count).compute();
+        } else {
+            BatchProjection.POOL.invoke(new BatchProjection(projection, coords, 0, count));
+        }
+    }
+
+    private static final class BatchProjection extends RecursiveAction {
+        /** number of coordinates under which a batch is not split anymore */
+        static final int THRESHOLD = 16 * 1024;
+        static final ForkJoinPool POOL = Utils.newForkJoinPool(
+                "projection.batch.numberOfThreads", "batch-projection-%d", Thread.NORM_PRIORITY);
+
+        private final Projection projection;
+        private final double[] coords;
+        private final int from;
+        private final int to;
+
+        BatchProjection(Projection projection, double[] coords, int from, int to) {
+            this.projection = projection;
+            this.coords = coords;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from >= 2 * THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchProjection(projection, coords, from, middle),
+                          new BatchProjection(projection, coords, middle, to));
+            } else if (projection instanceof AbstractProjection) {
+                ((AbstractProjection) projection).latlon2eastNorth(coords, from, to);
+            } else {
+                for (int i = 2 * from; i < 2 * to; i += 2) {
+                    EastNorth en = projection.latlon2eastNorth(new LatLon(coords[i], coords[i + 1]));
+                    coords[i] = en.east();
+                    coords[i + 1] = en.north();
+                }
+            }
+        }
+    }
+
     /**
      * Convert from easting/norting to lat/lon using the current projection.
      *
@@ -1,7 +1,9 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.projection.datum;
 
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.projection.Ellipsoid;
+import org.openstreetmap.josm.tools.Utils;
 
 public abstract class AbstractDatum implements Datum {
 
@@ -35,4 +37,32 @@ public abstract class AbstractDatum implements Datum {
     public Ellipsoid getEllipsoid() {
         return ellps;
     }
+
+    /**
+     * Convert many lat/lon coordinates from {@link Ellipsoid#WGS84} to this datum, in place.
+     *
+     * The default implementation calls {@link #fromWGS84(LatLon)} for every coordinate.
+     * Subclasses may override it to do the per-datum setup only once per batch. Such an override
+     * must call this implementation if a further subclass overrides {@link #fromWGS84(LatLon)},
+     * see {@link #isFromWGS84Overridden(Class)}.
+     * @param coords lat/lon pairs, in WGS84: latitude at even index, longitude at odd index
+     * @param from index of the first pair to convert (inclusive)
+     * @param to index of the last pair to convert (exclusive)
+     */
+    public void fromWGS84(double[] coords, int from, int to) {
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            LatLon ll = fromWGS84(new LatLon(coords[i], coords[i + 1]));
+            coords[i] = ll.lat();
+            coords[i + 1] = ll.lon();
+        }
+    }
+
+    /**
+     * Determines if {@link #fromWGS84(LatLon)} is overridden below the given class.
+     * @param base the class providing an optimized {@link #fromWGS84(double[], int, int)}
+     * @return {@code true} if the batch conversion of {@code base} cannot be used for this datum
+     */
+    protected final boolean isFromWGS84Overridden(Class<? extends AbstractDatum> base) {
+        return Utils.isOverridden(getClass(), base, "fromWGS84", LatLon.class);
+    }
 }
@@ -24,6 +24,18 @@ public class CentricDatum extends AbstractDatum {
         return this.ellps.cart2LatLon(Ellipsoid.WGS84.latLon2Cart(ll));
     }
 
+    @Override
+    public void fromWGS84(double[] coords, int from, int to) {
+        if (isFromWGS84Overridden(CentricDatum.class)) {
+            super.fromWGS84(coords, from, to);
+            return;
+        }
+        double[] xyz = new double[3];
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            this.ellps.cart2LatLon(Ellipsoid.WGS84.latLon2Cart(coords[i], coords[i + 1], xyz), coords, i);
+        }
+    }
+
     @Override
     public String toString() {
         return "CentricDatum{ellipsoid="+ellps+'}';
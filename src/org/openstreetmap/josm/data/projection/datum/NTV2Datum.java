@@ -29,4 +29,24 @@ public class NTV2Datum extends AbstractDatum {
         nadgrids.getShiftFile().gridShiftReverse(gs);
         return new LatLon(ll.lat() + gs.getLatShiftDegrees(), ll.lon() + gs.getLonShiftPositiveEastDegrees());
     }
+
+    @Override
+    public void fromWGS84(double[] coords, int from, int to) {
+        if (isFromWGS84Overridden(NTV2Datum.class)) {
+            super.fromWGS84(coords, from, to);
+            return;
+        }
+        NTV2GridShiftFile shiftFile = nadgrids.getShiftFile();
+        NTV2GridShift gs = new NTV2GridShift();
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            gs.setLatDegrees(coords[i]);
+            gs.setLonPositiveEastDegrees(coords[i + 1]);
+            // coordinates outside of the grid are not shifted
+            gs.setLatShiftSeconds(0);
+            gs.setLonShiftPositiveWestSeconds(0);
+            shiftFile.gridShiftReverse(gs);
+            coords[i] += gs.getLatShiftDegrees();
+            coords[i + 1] += gs.getLonShiftPositiveEastDegrees();
+        }
+    }
 }
@@ -24,4 +24,12 @@ public class NullDatum extends AbstractDatum {
         return ll;
     }
 
+    @Override
+    public void fromWGS84(double[] coords, int from, int to) {
+        if (isFromWGS84Overridden(NullDatum.class)) {
+            super.fromWGS84(coords, from, to);
+        }
+        // otherwise nothing to convert
+    }
+
 }
@@ -61,4 +61,23 @@ public class SevenParameterDatum extends AbstractDatum {
         double z = (1-s)*(-dz + xyz[2] + ((-dy+xyz[1])*(-rx) - (-dx+xyz[0])*(-ry)));
         return this.ellps.cart2LatLon(new double[] {x, y, z});
     }
+
+    @Override
+    public void fromWGS84(double[] coords, int from, int to) {
+        if (isFromWGS84Overridden(SevenParameterDatum.class)) {
+            super.fromWGS84(coords, from, to);
+            return;
+        }
+        double[] xyz = new double[3];
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            Ellipsoid.WGS84.latLon2Cart(coords[i], coords[i + 1], xyz);
+            double x = (1-s)*(-dx + xyz[0] + ((-dz+xyz[2])*(-ry) - (-dy+xyz[1])*(-rz)));
+            double y = (1-s)*(-dy + xyz[1] + ((-dx+xyz[0])*(-rz) - (-dz+xyz[2])*(-rx)));
+            double z = (1-s)*(-dz + xyz[2] + ((-dy+xyz[1])*(-rx) - (-dx+xyz[0])*(-ry)));
+            xyz[0] = x;
+            xyz[1] = y;
+            xyz[2] = z;
+            this.ellps.cart2LatLon(xyz, coords, i);
+        }
+    }
 }
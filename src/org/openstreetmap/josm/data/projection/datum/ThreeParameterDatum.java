@@ -36,4 +36,20 @@ public class ThreeParameterDatum extends AbstractDatum {
         return this.ellps.cart2LatLon(xyz);
     }
 
+    @Override
+    public void fromWGS84(double[] coords, int from, int to) {
+        if (isFromWGS84Overridden(ThreeParameterDatum.class)) {
+            super.fromWGS84(coords, from, to);
+            return;
+        }
+        double[] xyz = new double[3];
+        for (int i = 2 * from; i < 2 * to; i += 2) {
+            Ellipsoid.WGS84.latLon2Cart(coords[i], coords[i + 1], xyz);
+            xyz[0] -= dx;
+            xyz[1] -= dy;
+            xyz[2] -= dz;
+            this.ellps.cart2LatLon(xyz, coords, i);
+        }
+    }
+
 }
@@ -12,6 +12,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -348,34 +349,86 @@ public class DefaultNameFormatter implements NameFormatter, HistoryNameFormatter
         return result;
     }
 
-    private final Comparator<Relation> relationComparator = new Comparator<Relation>() {
+    /**
+     * The names of a relation used to sort relations, formatted when first needed.
+     */
+    private static final class RelationSortKey {
+        private final Relation relation;
+        private final TaggingPreset preset;
+        private String nameAndType;
+        private String typeName;
+        private String name;
+        private boolean nameFormatted;
+
+        RelationSortKey(Relation relation) {
+            this.relation = relation;
+            this.preset = TaggingPresetNameTemplateList.getInstance().findPresetTemplate(relation);
+        }
+
+        String getNameAndType() {
+            if (nameAndType == null) {
+                nameAndType = formatRelationNameAndType(relation, new StringBuilder(), preset).toString();
+            }
+            return nameAndType;
+        }
+
+        String getTypeName() {
+            if (typeName == null) {
+                typeName = getRelationTypeName(relation);
+            }
+            return typeName;
+        }
+
+        String getName() {
+            // the name may be null
+            if (!nameFormatted) {
+                name = getRelationName(relation);
+                nameFormatted = true;
+            }
+            return name;
+        }
+    }
+
+    /**
+     * Compares relations by their names, then their members.
+     */
+    private static final class RelationComparator implements Comparator<Relation> {
+        /** The sort keys of the compared relations, {@code null} if they are not kept */
+        private final Map<Relation, RelationSortKey> cache;
+
+        RelationComparator(boolean caching) {
+            cache = caching ? new HashMap<Relation, RelationSortKey>() : null;
+        }
+
+        private RelationSortKey getKey(Relation r) {
+            if (cache == null) {
+                return new RelationSortKey(r);
+            }
+            RelationSortKey key = cache.get(r);
+            if (key == null) {
+                key = new RelationSortKey(r);
+                cache.put(r, key);
+            }
+            return key;
+        }
+
         @Override
         public int compare(Relation r1, Relation r2) {
             //TODO This doesn't work correctly with formatHooks
 
-            TaggingPreset preset1 = TaggingPresetNameTemplateList.getInstance().findPresetTemplate(r1);
-            TaggingPreset preset2 = TaggingPresetNameTemplateList.getInstance().findPresetTemplate(r2);
-
-            if (preset1 != null || preset2 != null) {
-                String name1 = formatRelationNameAndType(r1, new StringBuilder(), preset1).toString();
-                String name2 = formatRelationNameAndType(r2, new StringBuilder(), preset2).toString();
+            RelationSortKey key1 = getKey(r1);
+            RelationSortKey key2 = getKey(r2);
 
-                int comp = AlphanumComparator.getInstance().compare(name1, name2);
+            if (key1.preset != null || key2.preset != null) {
+                int comp = AlphanumComparator.getInstance().compare(key1.getNameAndType(), key2.getNameAndType());
                 if (comp != 0)
                     return comp;
             } else {
-
-                String type1 = getRelationTypeName(r1);
-                String type2 = getRelationTypeName(r2);
-
-                int comp = AlphanumComparator.getInstance().compare(type1, type2);
+                int comp = AlphanumComparator.getInstance().compare(key1.getTypeName(), key2.getTypeName());
                 if (comp != 0)
                     return comp;
 
-                String name1 = getRelationName(r1);
-                String name2 = getRelationName(r2);
-
-                comp = AlphanumComparator.getInstance().compare(name1, name2);
+                comp = AlphanumComparator.getInstance().compare(key1.getName(), key2.getName());
                 if (comp != 0)
                     return comp;
             }
@@ -391,13 +444,25 @@ public class DefaultNameFormatter implements NameFormatter, HistoryNameFormatter
 
             return Long.compare(r1.getUniqueId(), r2.getUniqueId());
         }
-    };
+    }
+
+    private final Comparator<Relation> relationComparator = new RelationComparator(false);
 
     @Override
     public Comparator<Relation> getRelationComparator() {
         return relationComparator;
     }
 
+    /**
+     * Returns a new comparator of relations, sorting as {@link #getRelationComparator()}, which formats the names of
+     * each relation only once. It is meant to sort many relations, and must not be used any more once the tags of the
+     * compared relations may have changed.
+     * @return a new comparator of relations
+     */
+    public Comparator<Relation> newCachingRelationComparator() {
+        return new RelationComparator(true);
+    }
+
     private static String getRelationTypeName(IRelation relation) {
         String name = trc("Relation type", relation.get("type"));
         if (name == null) {
@@ -27,6 +27,7 @@ import javax.swing.event.MenuListener;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.AboutAction;
 import org.openstreetmap.josm.actions.AddNodeAction;
+import org.openstreetmap.josm.actions.AddToLocalStoreAction;
 import org.openstreetmap.josm.actions.AlignInCircleAction;
 import org.openstreetmap.josm.actions.AlignInLineAction;
 import org.openstreetmap.josm.actions.AutoScaleAction;
@@ -161,6 +162,8 @@ public class MainMenu extends JMenuBar {
     public final OverpassDownloadAction overpassDownload = new OverpassDownloadAction();
     /** File / Download object... **/
     public final DownloadPrimitiveAction downloadPrimitive = new DownloadPrimitiveAction();
+    /** File / Add to local store... **/
+    public final AddToLocalStoreAction addToLocalStore = new AddToLocalStoreAction();
     /** File / Download notes in current view **/
     public final DownloadNotesInViewAction downloadNotesInView = DownloadNotesInViewAction.newActionWithNoteIcon();
     /** File / Search Notes... **/
@@ -650,6 +653,7 @@ public class MainMenu extends JMenuBar {
         add(fileMenu, download);
         add(fileMenu, overpassDownload, true);
         add(fileMenu, downloadPrimitive);
+        add(fileMenu, addToLocalStore, true);
         add(fileMenu, searchNotes);
         add(fileMenu, downloadNotesInView);
         add(fileMenu, downloadReferrers);
@@ -480,7 +480,33 @@ public class NavigatableComponent extends JComponent implements Helpful {
     }
 
     public Point2D getPoint2D(Node n) {
-        return getPoint2D(n.getEastNorth());
+        return getPoint2D(n, new Point2D.Double());
+    }
+
+    /**
+     * Return the point on the screen where this node would be, without allocating any object.
+     * @param n The node
+     * @param result The point to store the screen coordinates in
+     * @return {@code result}, set to the screen coordinates of the node, or to (0,0) if it has no coordinates
+     */
+    public Point2D.Double getPoint2D(Node n, Point2D.Double result) {
+        return getPoint2D(n.east(), n.north(), result);
+    }
+
+    /**
+     * Return the point on the screen where the given projected coordinates would be, without allocating any object.
+     * @param east east coordinate
+     * @param north north coordinate
+     * @param result The point to store the screen coordinates in
+     * @return {@code result}, set to the screen coordinates, or to (0,0) if a coordinate is {@link Double#NaN}
+     */
+    public Point2D.Double getPoint2D(double east, double north, Point2D.Double result) {
+        if (Double.isNaN(east) || Double.isNaN(north)) {
+            result.setLocation(0, 0);
+        } else {
+            result.setLocation((east-center.east())/scale + getWidth()/2d, (center.north()-north)/scale + getHeight()/2d);
+        }
+        return result;
     }
 
     // looses precision, may overflow (depends on p and current scale)
@@ -500,8 +526,27 @@ public class NavigatableComponent extends JComponent implements Helpful {
     // looses precision, may overflow (depends on p and current scale)
     //@Deprecated
     public Point getPoint(Node n) {
-        Point2D d = getPoint2D(n);
-        return new Point((int) d.getX(), (int) d.getY());
+        return getPoint(n, new Point());
+    }
+
+    /**
+     * Return the point on the screen where this node would be, without allocating any object.
+     * Looses precision and may overflow like {@link #getPoint(Node)}.
+     * @param n The node
+     * @param result The point to store the screen coordinates in
+     * @return {@code result}, set to the screen coordinates of the node, or to (0,0) if it has no coordinates
+     */
+    public Point getPoint(Node n, Point result) {
+        double east = n.east();
+        double north = n.north();
+        if (Double.isNaN(east) || Double.isNaN(north)) {
+            result.setLocation(0, 0);
+        } else {
+            // same truncation as getPoint(Node), Point.setLocation(double, double) would round
+            result.x = (int) ((east-center.east())/scale + getWidth()/2d);
+            result.y = (int) ((center.north()-north)/scale + getHeight()/2d);
+        }
+        return result;
     }
 
     /**
@@ -799,10 +844,11 @@ public class NavigatableComponent extends JComponent implements Helpful {
         if (ds != null) {
             double dist, snapDistanceSq = PROP_SNAP_DISTANCE.get();
             snapDistanceSq *= snapDistanceSq;
+            Point2D.Double np = new Point2D.Double();
 
             for (Node n : ds.searchNodes(getBBox(p, PROP_SNAP_DISTANCE.get()))) {
                 if (predicate.evaluate(n)
-                        && (dist = getPoint2D(n).distanceSq(p)) < snapDistanceSq) {
+                        && (dist = getPoint2D(n, np).distanceSq(p)) < snapDistanceSq) {
                     List<Node> nlist;
                     if (nearestMap.containsKey(dist)) {
                         nlist = nearestMap.get(dist);
@@ -1008,6 +1054,8 @@ public class NavigatableComponent extends JComponent implements Helpful {
         if (ds != null) {
             double snapDistanceSq = Main.pref.getInteger("mappaint.segment.snap-distance", 10);
             snapDistanceSq *= snapDistanceSq;
+            Point2D.Double pA = new Point2D.Double();
+            Point2D.Double pB = new Point2D.Double();
 
             for (Way w : ds.searchWays(getBBox(p, Main.pref.getInteger("mappaint.segment.snap-distance", 10)))) {
                 if (!predicate.evaluate(w)) {
@@ -1025,8 +1073,8 @@ public class NavigatableComponent extends JComponent implements Helpful {
                         continue;
                     }
 
-                    Point2D pA = getPoint2D(lastN);
-                    Point2D pB = getPoint2D(n);
+                    getPoint2D(lastN, pA);
+                    getPoint2D(n, pB);
                     double c = pA.distanceSq(pB);
                     double a = p.distanceSq(pB);
                     double b = p.distanceSq(pA);
@@ -14,9 +14,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.AbstractAction;
 import javax.swing.AbstractListModel;
@@ -95,6 +98,16 @@ public class RelationListDialog extends ToggleDialog
     /** the list model used */
     private final RelationListModel model;
 
+    /** Lists of relations up to this size are sorted at once, larger ones in the background */
+    private static final int SYNCHRONOUS_SORT_MAX = 1000;
+
+    /** Up to this number of relations added at once are inserted in the sorted list */
+    private static final int INCREMENTAL_UPDATE_MAX = 1000;
+
+    /** Sorts large lists of relations, so that the EDT is not blocked while the relation names are formatted */
+    private static final ExecutorService SORTER =
+            Executors.newSingleThreadExecutor(Utils.newThreadFactory("relation-list-sorter-%d", Thread.NORM_PRIORITY));
+
     private final NewAction newAction;
 
     /** the popup menu and its handler */
@@ -148,6 +161,8 @@ public class RelationListDialog extends ToggleDialog
                 return null;
             }
         });
+        // fixed cell sizes, so that only the visible rows are formatted instead of all rows to compute the list size
+        displaylist.setPrototypeCellValue(new Relation());
         displaylist.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         displaylist.addMouseListener(new MouseEventHandler());
 
@@ -389,20 +404,79 @@ public class RelationListDialog extends ToggleDialog
      *
      */
     private class RelationListModel extends AbstractListModel<Relation> {
-        private final transient List<Relation> relations = new ArrayList<>();
+        private transient List<Relation> relations = new ArrayList<>();
         private transient List<Relation> filteredRelations;
         private final DefaultListSelectionModel selectionModel;
         private transient SearchCompiler.Match filter;
+        /** Whether {@link #relations} is sorted, {@code false} while it is sorted in the background */
+        private boolean sorted = true;
+        /** Incremented at each change of {@link #relations}, to discard outdated results of background sorting */
+        private int generation;
 
         RelationListModel(DefaultListSelectionModel selectionModel) {
             this.selectionModel = selectionModel;
         }
 
+        /**
+         * Sorts the relations. Large lists are sorted in the background, they are shown unsorted until sorting
+         * is finished.
+         */
         public void sort() {
-            Collections.sort(
-                    relations,
-                    DefaultNameFormatter.getInstance().getRelationComparator()
-                    );
+            generation++;
+            final Comparator<Relation> comparator = DefaultNameFormatter.getInstance().newCachingRelationComparator();
+            if (relations.size() <= SYNCHRONOUS_SORT_MAX) {
+                Collections.sort(relations, comparator);
+                sorted = true;
+                return;
+            }
+            sorted = false;
+            final List<Relation> toSort = new ArrayList<>(relations);
+            final int sortedGeneration = generation;
+            SORTER.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Collections.sort(toSort, comparator);
+                    GuiHelper.runInEDT(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (sortedGeneration != generation) {
+                                // the relations have changed in the meantime and are sorted again
+                                return;
+                            }
+                            List<Relation> sel = getSelectedRelations();
+                            relations = toSort;
+                            sorted = true;
+                            updateFilteredRelations();
+                            fireContentsChanged(RelationListModel.this, 0, getSize());
+                            setSelectedRelations(sel);
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * Moves a relation whose name may have changed to its sorted position.
+         * @param r the relation
+         */
+        public void sort(Relation r) {
+            if (!sorted) {
+                sort();
+                return;
+            }
+            if (relations.remove(r)) {
+                generation++;
+                insertSorted(Collections.singletonList(r));
+                updateFilteredRelations();
+            }
+        }
+
+        private void insertSorted(Collection<Relation> toInsert) {
+            final Comparator<Relation> comparator = DefaultNameFormatter.getInstance().newCachingRelationComparator();
+            for (Relation r : toInsert) {
+                int i = Collections.binarySearch(relations, r, comparator);
+                relations.add(i < 0 ? -i - 1 : i, r);
+            }
         }
 
         private boolean isValid(Relation r) {
@@ -414,6 +488,8 @@ public class RelationListDialog extends ToggleDialog
             this.relations.clear();
             this.filteredRelations = null;
             if (relations == null) {
+                generation++;
+                sorted = true;
                 selectionModel.clearSelection();
                 fireContentsChanged(this, 0, getSize());
                 return;
@@ -437,24 +513,34 @@ public class RelationListDialog extends ToggleDialog
          * ways, and relations.
          */
         public void addRelations(Collection<? extends OsmPrimitive> addedPrimitives) {
-            boolean added = false;
+            Set<Relation> existing = null;
+            List<Relation> added = new ArrayList<>();
             for (OsmPrimitive p: addedPrimitives) {
                 if (!(p instanceof Relation)) {
                     continue;
                 }
+                if (existing == null) {
+                    existing = new HashSet<>(relations);
+                }
 
                 Relation r = (Relation) p;
-                if (relations.contains(r)) {
+                if (existing.contains(r)) {
                     continue;
                 }
                 if (isValid(r)) {
-                    relations.add(r);
-                    added = true;
+                    added.add(r);
+                    existing.add(r);
                 }
             }
-            if (added) {
+            if (!added.isEmpty()) {
                 List<Relation> sel = getSelectedRelations();
-                sort();
+                if (sorted && added.size() <= INCREMENTAL_UPDATE_MAX) {
+                    generation++;
+                    insertSorted(added);
+                } else {
+                    relations.addAll(added);
+                    sort();
+                }
                 updateFilteredRelations();
                 fireIntervalAdded(this, 0, getSize());
                 setSelectedRelations(sel);
@@ -487,7 +573,12 @@ public class RelationListDialog extends ToggleDialog
             }
             if (size != relations.size()) {
                 List<Relation> sel = getSelectedRelations();
-                sort();
+                // removing relations keeps the others sorted
+                if (sorted) {
+                    generation++;
+                } else {
+                    sort();
+                }
                 fireContentsChanged(this, 0, getSize());
                 setSelectedRelations(sel);
             }
@@ -542,7 +633,11 @@ public class RelationListDialog extends ToggleDialog
          */
         public List<Relation> getSelectedRelations() {
             List<Relation> ret = new ArrayList<>();
-            for (int i = 0; i < getSize(); i++) {
+            if (selectionModel.isSelectionEmpty()) {
+                return ret;
+            }
+            int max = Math.min(getSize() - 1, selectionModel.getMaxSelectionIndex());
+            for (int i = selectionModel.getMinSelectionIndex(); i <= max; i++) {
                 if (!selectionModel.isSelectedIndex(i)) {
                     continue;
                 }
@@ -560,15 +655,24 @@ public class RelationListDialog extends ToggleDialog
             selectionModel.clearSelection();
             if (sel == null || sel.isEmpty())
                 return;
-            if (!getVisibleRelations().containsAll(sel)) {
+            Set<Relation> set = new HashSet<>(sel);
+            int visible = 0;
+            for (Relation r : getVisibleRelations()) {
+                if (set.contains(r)) {
+                    visible++;
+                }
+            }
+            if (visible < set.size()) {
                 resetFilter();
             }
-            for (Relation r: sel) {
-                Integer i = getVisibleRelationIndex(r);
-                if (i != null) {
+            List<Relation> list = getVisibleRelations();
+            selectionModel.setValueIsAdjusting(true);
+            for (int i = 0; i < list.size(); i++) {
+                if (set.contains(list.get(i))) {
                     selectionModel.addSelectionInterval(i, i);
                 }
             }
+            selectionModel.setValueIsAdjusting(false);
         }
 
         private Integer getVisibleRelationIndex(Relation rel) {
@@ -663,7 +767,7 @@ public class RelationListDialog extends ToggleDialog
     @Override
     public void relationMembersChanged(final RelationMembersChangedEvent event) {
         List<Relation> sel = model.getSelectedRelations();
-        model.sort();
+        model.sort(event.getRelation());
         model.setSelectedRelations(sel);
         displaylist.repaint();
     }
@@ -676,7 +780,7 @@ public class RelationListDialog extends ToggleDialog
         // trigger a sort of the relation list because the display name may have changed
         //
         List<Relation> sel = model.getSelectedRelations();
-        model.sort();
+        model.sort((Relation) prim);
         model.setSelectedRelations(sel);
         displaylist.repaint();
     }
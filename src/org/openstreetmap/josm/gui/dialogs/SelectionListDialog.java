@@ -21,6 +21,8 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.AbstractAction;
 import javax.swing.AbstractListModel;
@@ -112,6 +114,8 @@ public class SelectionListDialog extends ToggleDialog  {
         lstPrimitives.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         lstPrimitives.setSelectionModel(selectionModel);
         lstPrimitives.setCellRenderer(new OsmPrimitivRenderer());
+        // fixed cell sizes, so that only the visible rows are formatted instead of all rows to compute the list size
+        lstPrimitives.setPrototypeCellValue(new Node());
         lstPrimitives.setTransferHandler(new SelectionTransferHandler());
         if (!GraphicsEnvironment.isHeadless()) {
             lstPrimitives.setDragEnabled(true);
@@ -483,9 +487,23 @@ public class SelectionListDialog extends ToggleDialog  {
 
         private static final int SELECTION_HISTORY_SIZE = 10;
 
+        /** Selections up to this size are sorted at once, larger ones in the background */
+        private static final int SYNCHRONOUS_SORT_MAX = 1000;
+
+        /** Changes of the selection up to this number of added primitives are inserted in the sorted list */
+        private static final int INCREMENTAL_UPDATE_MAX = 1000;
+
+        /** Sorts large selections, so that the EDT is not blocked while the names of the primitives are formatted */
+        private static final ExecutorService SORTER =
+                Executors.newSingleThreadExecutor(Utils.newThreadFactory("selection-list-sorter-%d", Thread.NORM_PRIORITY));
+
         // Variable to store history from currentDataSet()
         private LinkedList<Collection<? extends OsmPrimitive>> history;
-        private final transient List<OsmPrimitive> selection = new ArrayList<>();
+        private transient List<OsmPrimitive> selection = new ArrayList<>();
+        /** The comparator {@link #selection} is sorted with, {@code null} if it is not sorted */
+        private transient OsmPrimitiveComparator comparator;
+        /** Incremented at each change of {@link #selection}, to discard outdated results of background sorting */
+        private int generation;
         private final DefaultListSelectionModel selectionModel;
 
         /**
@@ -570,7 +588,11 @@ public class SelectionListDialog extends ToggleDialog  {
          */
         public synchronized Collection<OsmPrimitive> getSelected() {
             Set<OsmPrimitive> sel = new HashSet<>();
-            for (int i = 0; i < getSize(); i++) {
+            if (selectionModel.isSelectionEmpty()) {
+                return sel;
+            }
+            int max = Math.min(getSize() - 1, selectionModel.getMaxSelectionIndex());
+            for (int i = selectionModel.getMinSelectionIndex(); i <= max; i++) {
                 if (selectionModel.isSelectedIndex(i)) {
                     sel.add(selection.get(i));
                 }
@@ -585,13 +607,21 @@ public class SelectionListDialog extends ToggleDialog  {
          */
         public synchronized void setSelected(Collection<OsmPrimitive> sel) {
             selectionModel.clearSelection();
-            if (sel == null) return;
-            for (OsmPrimitive p: sel) {
-                int i = selection.indexOf(p);
-                if (i >= 0) {
-                    selectionModel.addSelectionInterval(i, i);
+            if (sel == null || sel.isEmpty()) return;
+            Set<OsmPrimitive> set = sel instanceof Set ? (Set<OsmPrimitive>) sel : new HashSet<>(sel);
+            selectionModel.setValueIsAdjusting(true);
+            // select consecutive rows at once
+            for (int i = 0; i < selection.size(); i++) {
+                if (set.contains(selection.get(i))) {
+                    int j = i + 1;
+                    while (j < selection.size() && set.contains(selection.get(j))) {
+                        j++;
+                    }
+                    selectionModel.addSelectionInterval(i, j - 1);
+                    i = j;
                 }
             }
+            selectionModel.setValueIsAdjusting(false);
         }
 
         @Override
@@ -608,9 +638,14 @@ public class SelectionListDialog extends ToggleDialog  {
          */
         public void setJOSMSelection(final Collection<? extends OsmPrimitive> selection) {
             synchronized (this) {
-                this.selection.clear();
-                if (selection != null) {
-                    this.selection.addAll(selection);
+                generation++;
+                if (selection == null || selection.isEmpty()) {
+                    this.selection = new ArrayList<>();
+                    // do not keep the primitives in the cache of the comparator
+                    this.comparator = null;
+                } else if (!updateSorted(selection)) {
+                    this.selection = new ArrayList<>(selection);
+                    this.comparator = null;
                     sort();
                 }
             }
@@ -649,23 +684,90 @@ public class SelectionListDialog extends ToggleDialog  {
         public synchronized void update(Collection<? extends OsmPrimitive> toUpdate) {
             if (toUpdate == null) return;
             if (toUpdate.isEmpty()) return;
-            Collection<OsmPrimitive> sel = getSelected();
-            for (OsmPrimitive p: toUpdate) {
-                int i = selection.indexOf(p);
-                if (i >= 0) {
-                    super.fireContentsChanged(this, i, i);
+            Set<? extends OsmPrimitive> set = toUpdate instanceof Set ? (Set<? extends OsmPrimitive>) toUpdate : new HashSet<>(toUpdate);
+            int first = -1;
+            int last = -1;
+            for (int i = 0; i < selection.size(); i++) {
+                if (set.contains(selection.get(i))) {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
                 }
             }
-            setSelected(sel);
+            if (first >= 0) {
+                Collection<OsmPrimitive> sel = getSelected();
+                super.fireContentsChanged(this, first, last);
+                setSelected(sel);
+            }
+        }
+
+        /**
+         * Updates the sorted elements in the selection with the primitives added to and removed from the selection,
+         * instead of sorting the whole selection again.
+         * @param newSelection the new selection
+         * @return {@code true} if the selection has been updated, {@code false} if it has to be sorted again
+         */
+        private synchronized boolean updateSorted(Collection<? extends OsmPrimitive> newSelection) {
+            if (comparator == null) {
+                return false;
+            }
+            Set<OsmPrimitive> oldSet = new HashSet<>(selection);
+            List<OsmPrimitive> added = new ArrayList<>();
+            for (OsmPrimitive p : newSelection) {
+                if (!oldSet.contains(p)) {
+                    added.add(p);
+                    if (added.size() > INCREMENTAL_UPDATE_MAX) {
+                        return false;
+                    }
+                }
+            }
+            selection.retainAll(newSelection instanceof Set ? newSelection : new HashSet<>(newSelection));
+            for (OsmPrimitive p : added) {
+                int i = Collections.binarySearch(selection, p, comparator);
+                selection.add(i < 0 ? -i - 1 : i, p);
+            }
+            return true;
         }
 
         /**
-         * Sorts the current elements in the selection
+         * Sorts the current elements in the selection. Large selections are sorted in the background, the list shows
+         * them unsorted until sorting is finished.
          */
         public synchronized void sort() {
             if (this.selection.size() <= Main.pref.getInteger("selection.no_sort_above", 100000)) {
                 boolean quick = this.selection.size() > Main.pref.getInteger("selection.fast_sort_above", 10000);
-                Collections.sort(this.selection, new OsmPrimitiveComparator(quick, false));
+                final OsmPrimitiveComparator c = new OsmPrimitiveComparator(quick, false);
+                if (this.selection.size() <= SYNCHRONOUS_SORT_MAX) {
+                    Collections.sort(this.selection, c);
+                    comparator = c;
+                    return;
+                }
+                final List<OsmPrimitive> toSort = new ArrayList<>(this.selection);
+                final int sortedGeneration = generation;
+                SORTER.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Collections.sort(toSort, c);
+                        GuiHelper.runInEDT(new Runnable() {
+                            @Override
+                            public void run() {
+                                synchronized (SelectionListModel.this) {
+                                    if (sortedGeneration != generation) {
+                                        // the selection has changed in the meantime
+                                        return;
+                                    }
+                                    // the highlighted rows must follow their primitives to the new order
+                                    Collection<OsmPrimitive> sel = getSelected();
+                                    selection = toSort;
+                                    comparator = c;
+                                    fireContentsChanged(SelectionListModel.this, 0, getSize() - 1);
+                                    setSelected(sel);
+                                }
+                            }
+                        });
+                    }
+                });
             }
         }
 
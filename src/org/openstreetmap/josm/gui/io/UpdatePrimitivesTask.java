@@ -5,14 +5,19 @@ import static org.openstreetmap.josm.tools.CheckParameterUtil.ensureParameterNot
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.DataSetMerger;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.ExceptionDialogUtil;
@@ -33,8 +38,9 @@ public class UpdatePrimitivesTask extends PleaseWaitRunnable {
     private DataSet ds;
     private boolean canceled;
     private Exception lastException;
-    private final Collection<? extends OsmPrimitive> toUpdate;
+    private Collection<? extends OsmPrimitive> toUpdate;
     private final OsmDataLayer layer;
+    private final boolean onlyStale;
     private MultiFetchServerObjectReader multiObjectReader;
     private OsmServerObjectReader objectReader;
 
@@ -47,6 +53,20 @@ public class UpdatePrimitivesTask extends PleaseWaitRunnable {
      * @throws IllegalArgumentException if layer is null.
      */
     public UpdatePrimitivesTask(OsmDataLayer layer, Collection<? extends OsmPrimitive> toUpdate) {
+        this(layer, toUpdate, false);
+    }
+
+    /**
+     * Creates the  task
+     *
+     * @param layer the layer in which primitives are updated. Must not be null.
+     * @param toUpdate a collection of primitives to update from the server. Set to
+     * the empty collection if null.
+     * @param onlyStale if {@code true}, the current versions of the primitives are checked first, and only
+     * the primitives which have been changed on the server are downloaded
+     * @throws IllegalArgumentException if layer is null.
+     */
+    public UpdatePrimitivesTask(OsmDataLayer layer, Collection<? extends OsmPrimitive> toUpdate, boolean onlyStale) {
         super(tr("Update objects"), false /* don't ignore exception */);
         ensureParameterNotNull(layer, "layer");
         if (toUpdate == null) {
@@ -54,6 +74,7 @@ public class UpdatePrimitivesTask extends PleaseWaitRunnable {
         }
         this.layer = layer;
         this.toUpdate = toUpdate;
+        this.onlyStale = onlyStale;
     }
 
     @Override
@@ -115,11 +136,51 @@ public class UpdatePrimitivesTask extends PleaseWaitRunnable {
         }
     }
 
+    /**
+     * Determines the primitives whose version on the server differs from their version in the layer.
+     * Only the current versions are downloaded, which is much faster than downloading the primitives.
+     * @return the primitives which have been changed or deleted on the server since they were downloaded
+     * @throws OsmTransferException if an error occurs while communicating with the API server
+     */
+    protected List<OsmPrimitive> getStalePrimitives() throws OsmTransferException {
+        getProgressMonitor().indeterminateSubTask(tr("Checking versions of objects to update ..."));
+        List<OsmPrimitive> known = new ArrayList<>(toUpdate.size());
+        for (OsmPrimitive primitive : toUpdate) {
+            if (!primitive.isNew()) {
+                known.add(primitive);
+            }
+        }
+        Map<PrimitiveId, Integer> versions;
+        synchronized (this) {
+            if (canceled) return Collections.emptyList();
+            multiObjectReader = MultiFetchServerObjectReader.create();
+        }
+        multiObjectReader.appendIds(known);
+        versions = multiObjectReader.parseVersions(progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+        synchronized (this) {
+            multiObjectReader = null;
+        }
+        List<OsmPrimitive> stale = new ArrayList<>();
+        for (OsmPrimitive primitive : known) {
+            // primitives missing from the reply are gone, or in a package with a gone primitive
+            Integer version = versions.get(primitive.getPrimitiveId());
+            if (version == null || version != primitive.getVersion()) {
+                stale.add(primitive);
+            }
+        }
+        Main.info(tr("{0} of {1} objects have been changed on the server", stale.size(), known.size()));
+        return stale;
+    }
+
     @Override
     protected void realRun() throws SAXException, IOException, OsmTransferException {
         this.ds = new DataSet();
         DataSet theirDataSet;
         try {
+            if (onlyStale) {
+                toUpdate = getStalePrimitives();
+                if (toUpdate.isEmpty()) return;
+            }
             synchronized (this) {
                 if (canceled) return;
                 multiObjectReader = MultiFetchServerObjectReader.create();
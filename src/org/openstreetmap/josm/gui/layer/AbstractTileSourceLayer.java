@@ -17,7 +17,6 @@ import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.io.File;
 import java.io.IOException;
@@ -152,6 +151,8 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener {
      *  Use per-layer tileCache instance, as the more layers there are, the more tiles needs to be cached
      */
     protected TileCache tileCache; // initialized together with tileSource
+    /** tile images converted and filtered by the image processors, ready to be painted */
+    protected ProcessedTileImageCache processedImages; // initialized together with tileSource
     protected T tileSource;
     protected TileLoader tileLoader;
 
@@ -207,6 +208,16 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener {
             tileLoader = new OsmTileLoader(this, headers);
 
         tileCache = new MemoryTileCache(estimateTileCacheSize());
+        // the tile cache keeps twice the visible tiles, processed images are only needed for those on screen
+        processedImages = new ProcessedTileImageCache(this, Math.max(1, tileCache.getCacheSize() / 2), new Runnable() {
+            @Override
+            public void run() {
+                needRedraw = true;
+                if (Main.map != null) {
+                    Main.map.repaint(100);
+                }
+            }
+        });
     }
 
     @Override
@@ -216,6 +227,9 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener {
             tile.setImage(null);
         }
         tile.setLoaded(success);
+        if (success && processedImages != null) {
+            processedImages.prefetch(tile);
+        }
         needRedraw = true;
         if (Main.map != null) {
             Main.map.repaint(100);
@@ -239,6 +253,7 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener {
             ((CachedTileLoader) tileLoader).clearCache(tileSource);
         }
         tileCache.clear();
+        processedImages.clear();
     }
 
     /**
@@ -258,6 +273,12 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener {
         redraw();
     }
 
+    @Override
+    public void imageProcessorsChanged() {
+        super.imageProcessorsChanged();
+        needRedraw = true;
+    }
+
     /**
      * Marks layer as needing redraw on offset change
      */
@@ -1069,8 +1090,8 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener {
                 continue;
             }
 
-            // applying all filters to this layer
-            img = applyImageProcessors((BufferedImage) img);
+            // filters of this layer are applied in background, only blit the ready image here
+            img = processedImages.getImage(tile);
 
             Rectangle sourceRect = tileToRect(tile);
             if (borderRect != null && !sourceRect.intersects(borderRect)) {
@@ -16,8 +16,8 @@ import java.awt.image.ConvolveOp;
 import java.awt.image.Kernel;
 import java.awt.image.LookupOp;
 import java.awt.image.ShortLookupTable;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.swing.AbstractAction;
 import javax.swing.Icon;
@@ -50,7 +50,8 @@ public abstract class ImageryLayer extends Layer {
     public static final IntegerProperty PROP_FADE_AMOUNT = new IntegerProperty("imagery.fade_amount", 0);
     public static final IntegerProperty PROP_SHARPEN_LEVEL = new IntegerProperty("imagery.sharpen_level", 0);
 
-    private final List<ImageProcessor> imageProcessors = new ArrayList<>();
+    private final List<ImageProcessor> imageProcessors = new CopyOnWriteArrayList<>();
+    private volatile int imageProcessorsVersion;
 
     public static Color getFadeColor() {
         return PROP_FADE_COLOR.get();
@@ -249,19 +250,31 @@ public abstract class ImageryLayer extends Layer {
      * An image processor which adjusts the gamma value of an image.
      */
     public static class GammaImageProcessor implements ImageProcessor {
-        private double gamma = 1;
-        final short[] gammaChange = new short[256];
-        private final LookupOp op3 = new LookupOp(
-                new ShortLookupTable(0, new short[][]{gammaChange, gammaChange, gammaChange}), null);
-        private final LookupOp op4 = new LookupOp(
-                new ShortLookupTable(0, new short[][]{gammaChange, gammaChange, gammaChange, gammaChange}), null);
+        /** lookup operations of the current gamma value, replaced as a whole as they may be in use by tile processing threads */
+        private volatile GammaLookup lookup = new GammaLookup(1);
+
+        private static final class GammaLookup {
+            private final double gamma;
+            private final LookupOp op3;
+            private final LookupOp op4;
+
+            GammaLookup(double gamma) {
+                this.gamma = gamma;
+                short[] gammaChange = new short[256];
+                for (int i = 0; i < 256; i++) {
+                    gammaChange[i] = (short) (255 * Math.pow(i / 255., gamma));
+                }
+                op3 = new LookupOp(new ShortLookupTable(0, new short[][]{gammaChange, gammaChange, gammaChange}), null);
+                op4 = new LookupOp(new ShortLookupTable(0, new short[][]{gammaChange, gammaChange, gammaChange, gammaChange}), null);
+            }
+        }
 
         /**
          * Returns the currently set gamma value.
          * @return the currently set gamma value
          */
         public double getGamma() {
-            return gamma;
+            return lookup.gamma;
         }
 
         /**
@@ -269,23 +282,24 @@ public abstract class ImageryLayer extends Layer {
          * @param gamma new gamma value
          */
         public void setGamma(double gamma) {
-            this.gamma = gamma;
-            for (int i = 0; i < 256; i++) {
-                gammaChange[i] = (short) (255 * Math.pow(i / 255., gamma));
-            }
+            lookup = new GammaLookup(gamma);
         }
 
         @Override
         public BufferedImage process(BufferedImage image) {
-            if (gamma == 1) {
+            return process(image, lookup);
+        }
+
+        private static BufferedImage process(BufferedImage image, GammaLookup lookup) {
+            if (lookup.gamma == 1) {
                 return image;
             }
             try {
                 final int bands = image.getRaster().getNumBands();
                 if (image.getType() != BufferedImage.TYPE_CUSTOM && bands == 3) {
-                    return op3.filter(image, null);
+                    return lookup.op3.filter(image, null);
                 } else if (image.getType() != BufferedImage.TYPE_CUSTOM && bands == 4) {
-                    return op4.filter(image, null);
+                    return lookup.op4.filter(image, null);
                 }
             } catch (IllegalArgumentException ignore) {
                 if (Main.isTraceEnabled()) {
@@ -295,7 +309,7 @@ public abstract class ImageryLayer extends Layer {
             final int type = image.getTransparency() == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
             final BufferedImage to = new BufferedImage(image.getWidth(), image.getHeight(), type);
             to.getGraphics().drawImage(image, 0, 0, null);
-            return process(to);
+            return process(to, lookup);
         }
     }
 
@@ -313,6 +327,7 @@ public abstract class ImageryLayer extends Layer {
      */
     public void setGamma(double gamma) {
         gammaImageProcessor.setGamma(gamma);
+        imageProcessorsChanged();
     }
 
     /**
@@ -323,7 +338,11 @@ public abstract class ImageryLayer extends Layer {
      * @return true if processor was added, false otherwise
      */
     public boolean addImageProcessor(ImageProcessor processor) {
-        return processor != null && imageProcessors.add(processor);
+        if (processor != null && imageProcessors.add(processor)) {
+            imageProcessorsChanged();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -334,7 +353,28 @@ public abstract class ImageryLayer extends Layer {
      * @return true if processor was removed
      */
     public boolean removeImageProcessor(ImageProcessor processor) {
-        return imageProcessors.remove(processor);
+        if (imageProcessors.remove(processor)) {
+            imageProcessorsChanged();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Notifies this layer that the settings of one of its {@link ImageProcessor}s have changed,
+     * so that images processed with the previous settings are discarded.
+     */
+    public void imageProcessorsChanged() {
+        imageProcessorsVersion++;
+    }
+
+    /**
+     * Returns a number identifying the current image processors and their settings.
+     * It changes each time {@link #imageProcessorsChanged()} is called.
+     * @return the version of the image processor settings
+     */
+    public int getImageProcessorsVersion() {
+        return imageProcessorsVersion;
     }
 
     /**
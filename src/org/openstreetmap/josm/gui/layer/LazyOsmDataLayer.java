@@ -0,0 +1,115 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.gui.NavigatableComponent.ZoomChangeListener;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.LocalOsmStore;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A data layer of an OSM file which is too large to be loaded at once.
+ * <p>
+ * The file is split into the tiles of a {@link LocalOsmStore} when it is opened, and the layer only contains the
+ * tiles which have been viewed: the tiles of the visible area are loaded when the map view is moved or zoomed,
+ * unless the view contains more than {@code osm.lazy-load.max-tiles} tiles.
+ */
+public class LazyOsmDataLayer extends OsmDataLayer implements ZoomChangeListener {
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(
+            Utils.newThreadFactory("lazy-osm-loader-%d", Thread.NORM_PRIORITY));
+
+    private final LocalOsmStore store;
+    private final Set<Integer> loadedTiles = new HashSet<>();
+
+    /**
+     * Constructs a new {@code LazyOsmDataLayer}, without data.
+     * @param store the store of the data
+     * @param name the name of the layer
+     */
+    public LazyOsmDataLayer(LocalOsmStore store, String name) {
+        super(new DataSet(), name, null);
+        CheckParameterUtil.ensureParameterNotNull(store, "store");
+        this.store = store;
+        MapView.addZoomChangeListener(this);
+    }
+
+    /**
+     * Returns the store of the data of this layer.
+     * @return the store of the data of this layer
+     */
+    public LocalOsmStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void zoomChanged() {
+        if (isVisible() && Main.isDisplayingMapView() && Main.map.mapView.hasLayer(this)) {
+            loadArea(Main.map.mapView.getRealBounds());
+        }
+    }
+
+    /**
+     * Loads the data of an area into this layer, in the background.
+     * Nothing is loaded if the area contains more than {@code osm.lazy-load.max-tiles} tiles.
+     * @param bounds the area
+     * @return the future of the loading, or {@code null} if nothing needs to be loaded
+     */
+    public Future<?> loadArea(Bounds bounds) {
+        final List<Integer> tiles = LocalOsmStore.getTiles(bounds);
+        if (tiles.size() > Main.pref.getInteger("osm.lazy-load.max-tiles", 64)) {
+            return null;
+        }
+        synchronized (loadedTiles) {
+            tiles.removeAll(loadedTiles);
+            loadedTiles.addAll(tiles);
+        }
+        if (tiles.isEmpty()) {
+            return null;
+        }
+        return LOADER.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final DataSet ds = store.readTiles(tiles, NullProgressMonitor.INSTANCE);
+                    for (int tile : tiles) {
+                        ds.dataSources.add(new DataSource(LocalOsmStore.getTileBounds(tile), getName()));
+                    }
+                    GuiHelper.runInEDTAndWait(new Runnable() {
+                        @Override
+                        public void run() {
+                            mergeFrom(ds);
+                            onPostLoadFromFile();
+                        }
+                    });
+                } catch (IOException | IllegalDataException e) {
+                    Main.error(e);
+                    synchronized (loadedTiles) {
+                        loadedTiles.removeAll(tiles);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        MapView.removeZoomChangeListener(this);
+    }
+}
@@ -1,11 +1,16 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.layer;
 
+import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.File;
@@ -27,8 +32,11 @@ import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.notes.Note;
 import org.openstreetmap.josm.data.notes.Note.State;
 import org.openstreetmap.josm.data.notes.NoteComment;
+import org.openstreetmap.josm.data.notes.NoteIndex;
+import org.openstreetmap.josm.data.notes.NoteIndex.Cluster;
 import org.openstreetmap.josm.data.osm.NoteData;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.projection.Ellipsoid;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.dialogs.LayerListDialog;
 import org.openstreetmap.josm.gui.dialogs.LayerListPopup;
@@ -49,8 +57,14 @@ import org.openstreetmap.josm.tools.date.DateUtils;
  */
 public class NoteLayer extends AbstractModifiableLayer implements MouseListener, UploadToServer, SaveToFile {
 
+    /** The length of one degree of longitude at the equator, in meters */
+    private static final double METERS_PER_DEGREE = Ellipsoid.WGS84.a * Math.PI / 180;
+
     private final NoteData noteData;
 
+    /** The groups of notes painted last, empty if the notes have been painted individually */
+    private volatile List<Cluster> paintedClusters = Collections.emptyList();
+
     /**
      * Create a new note layer with a set of notes
      * @param notes A list of notes to show in this layer
@@ -106,20 +120,33 @@ public class NoteLayer extends AbstractModifiableLayer implements MouseListener,
 
     @Override
     public void paint(Graphics2D g, MapView mv, Bounds box) {
-        for (Note note : noteData.getNotes()) {
-            Point p = mv.getPoint(note.getLatLon());
-
-            ImageIcon icon = null;
-            if (note.getId() < 0) {
-                icon = NotesDialog.ICON_NEW_SMALL;
-            } else if (note.getState() == State.closed) {
-                icon = NotesDialog.ICON_CLOSED_SMALL;
-            } else {
-                icon = NotesDialog.ICON_OPEN_SMALL;
+        // icons are drawn above their position, also search the notes slightly outside of the painted area
+        Rectangle clip = g.getClipBounds() != null ? g.getClipBounds() : new Rectangle(mv.getWidth(), mv.getHeight());
+        clip.grow(NotesDialog.ICON_SMALL_SIZE, NotesDialog.ICON_SMALL_SIZE);
+        Bounds searchBox = mv.getLatLonBounds(clip);
+
+        // group the notes in tiles of at least this size on screen
+        int clusterSize = Main.pref.getInteger("notes.cluster.size", 48);
+        int level = NoteIndex.getLevel(mv.getDist100Pixel() * clusterSize / 100 / METERS_PER_DEGREE);
+        List<Cluster> clusters = noteData.clusterNotes(searchBox, level);
+        int count = 0;
+        for (Cluster cluster : clusters) {
+            count += cluster.getCount();
+        }
+        if (count <= Main.pref.getInteger("notes.cluster.threshold", 500)) {
+            for (Note note : noteData.searchNotes(searchBox)) {
+                paintNote(g, mv, note);
             }
-            int width = icon.getIconWidth();
-            int height = icon.getIconHeight();
-            g.drawImage(icon.getImage(), p.x - (width / 2), p.y - height, Main.map.mapView);
+            paintedClusters = Collections.emptyList();
+        } else {
+            for (Cluster cluster : clusters) {
+                if (cluster.getNote() != null) {
+                    paintNote(g, mv, cluster.getNote());
+                } else {
+                    paintCluster(g, mv, cluster);
+                }
+            }
+            paintedClusters = clusters;
         }
         if (noteData.getSelectedNote() != null) {
             StringBuilder sb = new StringBuilder("<html>");
@@ -177,6 +204,37 @@ public class NoteLayer extends AbstractModifiableLayer implements MouseListener,
         }
     }
 
+    private static void paintNote(Graphics2D g, MapView mv, Note note) {
+        Point p = mv.getPoint(note.getLatLon());
+
+        ImageIcon icon = null;
+        if (note.getId() < 0) {
+            icon = NotesDialog.ICON_NEW_SMALL;
+        } else if (note.getState() == State.closed) {
+            icon = NotesDialog.ICON_CLOSED_SMALL;
+        } else {
+            icon = NotesDialog.ICON_OPEN_SMALL;
+        }
+        int width = icon.getIconWidth();
+        int height = icon.getIconHeight();
+        g.drawImage(icon.getImage(), p.x - (width / 2), p.y - height, mv);
+    }
+
+    private static void paintCluster(Graphics2D g, MapView mv, Cluster cluster) {
+        Point p = mv.getPoint(cluster.getLatLon());
+        String text = Integer.toString(cluster.getCount());
+        FontMetrics metrics = g.getFontMetrics();
+        int size = Math.max(NotesDialog.ICON_SMALL_SIZE + 8, metrics.stringWidth(text) + 10);
+        Object antialiasing = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Main.pref.getColor(marktr("notes cluster"), new Color(255, 128, 0)));
+        g.fillOval(p.x - size / 2, p.y - size / 2, size, size);
+        g.setColor(Color.WHITE);
+        g.drawOval(p.x - size / 2, p.y - size / 2, size, size);
+        g.drawString(text, p.x - metrics.stringWidth(text) / 2, p.y + (metrics.getAscent() - metrics.getDescent()) / 2);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+    }
+
     @Override
     public Icon getIcon() {
         return NotesDialog.ICON_OPEN_SMALL;
@@ -239,12 +297,23 @@ public class NoteLayer extends AbstractModifiableLayer implements MouseListener,
         } else if (!SwingUtilities.isLeftMouseButton(e)) {
             return;
         }
+        MapView mv = Main.map.mapView;
         Point clickPoint = e.getPoint();
-        double snapDistance = 10;
+        // zoom into a group of notes to show them individually
+        for (Cluster cluster : paintedClusters) {
+            if (cluster.getNote() == null && clickPoint.distance(mv.getPoint(cluster.getLatLon())) < NotesDialog.ICON_SMALL_SIZE) {
+                mv.zoomTo(cluster.getBounds());
+                return;
+            }
+        }
+        int snapDistance = 10;
+        // notes are drawn above their position
+        Rectangle searchRect = new Rectangle(clickPoint.x - snapDistance, clickPoint.y - snapDistance,
+                2 * snapDistance, 2 * snapDistance + NotesDialog.ICON_SMALL_SIZE);
         double minDistance = Double.MAX_VALUE;
         Note closestNote = null;
-        for (Note note : noteData.getNotes()) {
-            Point notePoint = Main.map.mapView.getPoint(note.getLatLon());
+        for (Note note : noteData.searchNotes(mv.getLatLonBounds(searchRect))) {
+            Point notePoint = mv.getPoint(note.getLatLon());
             //move the note point to the center of the icon where users are most likely to click when selecting
             notePoint.setLocation(notePoint.getX(), notePoint.getY() - NotesDialog.ICON_SMALL_SIZE / 2);
             double dist = clickPoint.distanceSq(notePoint);
@@ -0,0 +1,207 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Cache of tile images that have been converted to a screen compatible image type and
+ * filtered by the {@link ImageProcessor}s of an {@link ImageryLayer}.
+ *
+ * Processing is done once per tile and filter settings on a dedicated worker pool, so that
+ * painting only has to blit ready images. As long as the processed image for the current
+ * settings is not available, the last processed image (or the raw tile image) is returned.
+ */
+public class ProcessedTileImageCache {
+
+    /** number of worker threads used to process tile images */
+    public static final IntegerProperty THREAD_LIMIT = new IntegerProperty("imagery.processing.maxjobs",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static final ThreadPoolExecutor PROCESSING_EXECUTOR = newProcessingExecutor();
+
+    private final ImageryLayer layer;
+    private final Runnable onProcessed;
+    private final Map<String, CacheEntry> entries;
+
+    private static final class CacheEntry {
+        /** raw tile image, owned by the tile (weakly referenced so that it does not outlive the tile cache) */
+        private final WeakReference<BufferedImage> source;
+        /** processed image, or {@code null} if processing did not change the raw image */
+        private volatile BufferedImage processed;
+        private volatile int processedVersion = -1;
+        private volatile int pendingVersion = -1;
+
+        CacheEntry(BufferedImage source) {
+            this.source = new WeakReference<>(source);
+        }
+    }
+
+    /**
+     * Constructs a new {@code ProcessedTileImageCache}.
+     * @param layer imagery layer providing the image processors
+     * @param maxEntries maximum number of processed images kept in memory, in addition to the raw tile images.
+     * Usually the number of tiles visible at once, as processing is fast enough to redo it for tiles that come back into view
+     * @param onProcessed called (from a worker thread) each time a tile image has been processed, usually to trigger a repaint
+     */
+    public ProcessedTileImageCache(ImageryLayer layer, final int maxEntries, Runnable onProcessed) {
+        this.layer = layer;
+        this.onProcessed = onProcessed;
+        this.entries = new LinkedHashMap<String, CacheEntry>(Utils.hashMapInitialCapacity(maxEntries), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private static ThreadPoolExecutor newProcessingExecutor() {
+        int workers = Math.max(1, THREAD_LIMIT.get());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), Utils.newThreadFactory("tile-image-processor-%d", Thread.NORM_PRIORITY));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns the image to paint for the given tile. If the processed image for the current filter settings
+     * is not available yet, its computation is scheduled and the most recent available image is returned.
+     * @param tile tile to paint
+     * @return the image to paint, or {@code null} if the tile has no image
+     */
+    public BufferedImage getImage(Tile tile) {
+        BufferedImage source = tile.getImage();
+        if (source == null) {
+            return null;
+        }
+        CacheEntry entry = getEntry(tile.getKey(), source);
+        int version = layer.getImageProcessorsVersion();
+        if (entry.processedVersion != version) {
+            schedule(tile.getKey(), entry, version);
+        }
+        BufferedImage processed = entry.processed;
+        return processed != null ? processed : source;
+    }
+
+    /**
+     * Schedules the processing of the given tile image without waiting for it to be painted.
+     * @param tile tile whose image has been loaded
+     */
+    public void prefetch(Tile tile) {
+        BufferedImage source = tile.getImage();
+        if (source != null) {
+            CacheEntry entry = getEntry(tile.getKey(), source);
+            int version = layer.getImageProcessorsVersion();
+            if (entry.processedVersion != version) {
+                schedule(tile.getKey(), entry, version);
+            }
+        }
+    }
+
+    /**
+     * Removes all processed images.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private CacheEntry getEntry(String key, BufferedImage source) {
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null || entry.source.get() != source) {
+                entry = new CacheEntry(source);
+                entries.put(key, entry);
+            }
+            return entry;
+        }
+    }
+
+    private void remove(String key, CacheEntry entry) {
+        synchronized (entries) {
+            if (entries.get(key) == entry) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    private void schedule(final String key, final CacheEntry entry, final int version) {
+        synchronized (entry) {
+            if (entry.pendingVersion == version) {
+                return;
+            }
+            entry.pendingVersion = version;
+        }
+        PROCESSING_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (layer.getImageProcessorsVersion() != version) {
+                    // settings changed in between, a newer job has been or will be scheduled
+                    return;
+                }
+                BufferedImage source = entry.source.get();
+                if (source == null) {
+                    // tile is not in memory anymore
+                    remove(key, entry);
+                    return;
+                }
+                try {
+                    BufferedImage img = toCompatibleImage(layer.applyImageProcessors(toCompatibleImage(source)));
+                    synchronized (entry) {
+                        if (version >= entry.processedVersion) {
+                            // do not keep a second reference to an unchanged image
+                            entry.processed = img == source ? null : img;
+                            entry.processedVersion = version;
+                        }
+                    }
+                    onProcessed.run();
+                } catch (RuntimeException e) {
+                    Main.warn(e);
+                    // forget the failed attempt, so that the tile is processed again the next time it is painted
+                    remove(key, entry);
+                }
+            }
+        });
+    }
+
+    /**
+     * Converts the image into the format best suited for drawing on the default screen, so that drawing it
+     * does not need any conversion.
+     * @param img image to convert
+     * @return compatible image, or {@code img} itself if it is already compatible or no screen is available
+     */
+    public static BufferedImage toCompatibleImage(BufferedImage img) {
+        if (img == null || GraphicsEnvironment.isHeadless()) {
+            return img;
+        }
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        int transparency = img.getColorModel().getTransparency();
+        if (img.getColorModel().equals(gc.getColorModel(transparency))) {
+            return img;
+        }
+        BufferedImage compatible = gc.createCompatibleImage(img.getWidth(), img.getHeight(),
+                transparency == Transparency.OPAQUE ? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+        Graphics2D g = compatible.createGraphics();
+        try {
+            g.drawImage(img, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return compatible;
+    }
+}
@@ -64,11 +64,7 @@ import javax.swing.filechooser.FileFilter;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.DiskAccessAction;
-import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
-import org.openstreetmap.josm.data.gpx.GpxTrack;
-import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
-import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
@@ -214,6 +210,7 @@ public class CorrelateGpxWithImages extends AbstractAction {
         private final String name;
         private final GpxData data;
         private final File file;
+        private GpxTimeIndex timeIndex;
 
         GpxDataWrapper(String name, GpxData data, File file) {
             this.name = name;
@@ -221,6 +218,18 @@ public class CorrelateGpxWithImages extends AbstractAction {
             this.file = file;
         }
 
+        /**
+         * Returns the time index of the track points, built on first use, so that changing the offset does not
+         * parse the track point times again.
+         * @return the time index of {@link #data}
+         */
+        GpxTimeIndex getTimeIndex() {
+            if (timeIndex == null) {
+                timeIndex = GpxTimeIndex.of(data);
+            }
+            return timeIndex;
+        }
+
         @Override
         public String toString() {
             return name;
@@ -840,7 +849,7 @@ public class CorrelateGpxWithImages extends AbstractAction {
                 return tr("No gpx selected");
 
             final long offsetMs = ((long) (timezone.getHours() * 3600 * 1000)) + delta.getMilliseconds(); // in milliseconds
-            lastNumMatched = matchGpxTrack(dateImgLst, selGpx.data, offsetMs);
+            lastNumMatched = selGpx.getTimeIndex().match(dateImgLst, offsetMs);
 
             return trn("<html>Matched <b>{0}</b> of <b>{1}</b> photo to GPX track.</html>",
                     "<html>Matched <b>{0}</b> of <b>{1}</b> photos to GPX track.</html>",
@@ -1003,25 +1012,9 @@ public class CorrelateGpxWithImages extends AbstractAction {
         // Init variables
         long firstExifDate = imgs.get(0).getExifTime().getTime();
 
-        long firstGPXDate = -1;
         // Finds first GPX point
-        outer: for (GpxTrack trk : gpx.tracks) {
-            for (GpxTrackSegment segment : trk.getSegments()) {
-                for (WayPoint curWp : segment.getWayPoints()) {
-                    try {
-                        final Date parsedTime = curWp.setTimeFromAttribute();
-                        if (parsedTime != null) {
-                            firstGPXDate = parsedTime.getTime();
-                            break outer;
-                        }
-                    } catch (Exception e) {
-                        Main.warn(e);
-                    }
-                }
-            }
-        }
-
-        if (firstGPXDate < 0) {
+        long firstGPXDate = GpxTimeIndex.getFirstTime(gpx);
+        if (firstGPXDate == GpxTimeIndex.NO_TIME) {
             throw new NoGpxTimestamps();
         }
 
@@ -1134,157 +1127,7 @@ public class CorrelateGpxWithImages extends AbstractAction {
      * @return number of matched points
      */
     static int matchGpxTrack(List<ImageEntry> images, GpxData selectedGpx, long offset) {
-        int ret = 0;
-
-        for (GpxTrack trk : selectedGpx.tracks) {
-            for (GpxTrackSegment segment : trk.getSegments()) {
-
-                long prevWpTime = 0;
-                WayPoint prevWp = null;
-
-                for (WayPoint curWp : segment.getWayPoints()) {
-                    try {
-                        final Date parsedTime = curWp.setTimeFromAttribute();
-                        if (parsedTime != null) {
-                            final long curWpTime = parsedTime.getTime() + offset;
-                            ret += matchPoints(images, prevWp, prevWpTime, curWp, curWpTime, offset);
-
-                            prevWp = curWp;
-                            prevWpTime = curWpTime;
-                            continue;
-                        }
-                    } catch (Exception e) {
-                        Main.warn(e);
-                    }
-                    prevWp = null;
-                    prevWpTime = 0;
-                }
-            }
-        }
-        return ret;
-    }
-
-    private static Double getElevation(WayPoint wp) {
-        String value = wp.getString(GpxConstants.PT_ELE);
-        if (value != null && !value.isEmpty()) {
-            try {
-                return new Double(value);
-            } catch (NumberFormatException e) {
-                Main.warn(e);
-            }
-        }
-        return null;
-    }
-
-    static int matchPoints(List<ImageEntry> images, WayPoint prevWp, long prevWpTime,
-            WayPoint curWp, long curWpTime, long offset) {
-        // Time between the track point and the previous one, 5 sec if first point, i.e. photos take
-        // 5 sec before the first track point can be assumed to be take at the starting position
-        long interval = prevWpTime > 0 ? Math.abs(curWpTime - prevWpTime) : 5*1000;
-        int ret = 0;
-
-        // i is the index of the timewise last photo that has the same or earlier EXIF time
-        int i = getLastIndexOfListBefore(images, curWpTime);
-
-        // no photos match
-        if (i < 0)
-            return 0;
-
-        Double speed = null;
-        Double prevElevation = null;
-
-        if (prevWp != null) {
-            double distance = prevWp.getCoor().greatCircleDistance(curWp.getCoor());
-            // This is in km/h, 3.6 * m/s
-            if (curWpTime > prevWpTime) {
-                speed = 3600 * distance / (curWpTime - prevWpTime);
-            }
-            prevElevation = getElevation(prevWp);
-        }
-
-        Double curElevation = getElevation(curWp);
-
-        // First trackpoint, then interval is set to five seconds, i.e. photos up to five seconds
-        // before the first point will be geotagged with the starting point
-        if (prevWpTime == 0 || curWpTime <= prevWpTime) {
-            while (i >= 0) {
-                final ImageEntry curImg = images.get(i);
-                long time = curImg.getExifTime().getTime();
-                if (time > curWpTime || time < curWpTime - interval) {
-                    break;
-                }
-                if (curImg.tmp.getPos() == null) {
-                    curImg.tmp.setPos(curWp.getCoor());
-                    curImg.tmp.setSpeed(speed);
-                    curImg.tmp.setElevation(curElevation);
-                    curImg.tmp.setGpsTime(new Date(curImg.getExifTime().getTime() - offset));
-                    curImg.flagNewGpsData();
-                    ret++;
-                }
-                i--;
-            }
-            return ret;
-        }
-
-        // This code gives a simple linear interpolation of the coordinates between current and
-        // previous track point assuming a constant speed in between
-        while (i >= 0) {
-            ImageEntry curImg = images.get(i);
-            long imgTime = curImg.getExifTime().getTime();
-            if (imgTime < prevWpTime) {
-                break;
-            }
-
-            if (curImg.tmp.getPos() == null && prevWp != null) {
-                // The values of timeDiff are between 0 and 1, it is not seconds but a dimensionless variable
-                double timeDiff = (double) (imgTime - prevWpTime) / interval;
-                curImg.tmp.setPos(prevWp.getCoor().interpolate(curWp.getCoor(), timeDiff));
-                curImg.tmp.setSpeed(speed);
-                if (curElevation != null && prevElevation != null) {
-                    curImg.tmp.setElevation(prevElevation + (curElevation - prevElevation) * timeDiff);
-                }
-                curImg.tmp.setGpsTime(new Date(curImg.getExifTime().getTime() - offset));
-                curImg.flagNewGpsData();
-
-                ret++;
-            }
-            i--;
-        }
-        return ret;
-    }
-
-    private static int getLastIndexOfListBefore(List<ImageEntry> images, long searchedTime) {
-        int lstSize = images.size();
-
-        // No photos or the first photo taken is later than the search period
-        if (lstSize == 0 || searchedTime < images.get(0).getExifTime().getTime())
-            return -1;
-
-        // The search period is later than the last photo
-        if (searchedTime > images.get(lstSize - 1).getExifTime().getTime())
-            return lstSize-1;
-
-        // The searched index is somewhere in the middle, do a binary search from the beginning
-        int curIndex = 0;
-        int startIndex = 0;
-        int endIndex = lstSize-1;
-        while (endIndex - startIndex > 1) {
-            curIndex = (endIndex + startIndex) / 2;
-            if (searchedTime > images.get(curIndex).getExifTime().getTime()) {
-                startIndex = curIndex;
-            } else {
-                endIndex = curIndex;
-            }
-        }
-        if (searchedTime < images.get(endIndex).getExifTime().getTime())
-            return startIndex;
-
-        // This final loop is to check if photos with the exact same EXIF time follows
-        while ((endIndex < (lstSize-1)) && (images.get(endIndex).getExifTime().getTime()
-                == images.get(endIndex + 1).getExifTime().getTime())) {
-            endIndex++;
-        }
-        return endIndex;
+        return GpxTimeIndex.of(selectedGpx).match(images, offset);
     }
 
     static final class Timezone {
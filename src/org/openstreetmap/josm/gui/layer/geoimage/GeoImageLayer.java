@@ -30,8 +30,11 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.Action;
 import javax.swing.Icon;
@@ -152,7 +155,7 @@ public class GeoImageLayer extends AbstractModifiableLayer implements PropertyCh
      */
     static final class Loader extends PleaseWaitRunnable {
 
-        private boolean canceled;
+        private volatile boolean canceled;
         private GeoImageLayer layer;
         private final Collection<File> selection;
         private final Set<String> loadedDirectories = new HashSet<>();
@@ -189,21 +192,46 @@ public class GeoImageLayer extends AbstractModifiableLayer implements PropertyCh
             progressMonitor.subTask(tr("Read photos..."));
             progressMonitor.setTicksCount(files.size());
 
-            // read the image files
+            // read the image files, the EXIF headers of several files are read concurrently
             List<ImageEntry> entries = new ArrayList<>(files.size());
-
-            for (File f : files) {
-
-                if (canceled) {
-                    break;
+            int threads = Math.max(1, Main.pref.getInteger("geoimage.exif.threads", Runtime.getRuntime().availableProcessors()));
+            ExecutorService exec = Executors.newFixedThreadPool(threads,
+                    Utils.newThreadFactory("geoimage-exif-reader-%d", Thread.NORM_PRIORITY));
+            try {
+                List<Future<ImageEntry>> jobs = new ArrayList<>(files.size());
+                for (final File f : files) {
+                    jobs.add(exec.submit(new Callable<ImageEntry>() {
+                        @Override
+                        public ImageEntry call() {
+                            ImageEntry e = new ImageEntry(f);
+                            if (!canceled) {
+                                e.extractExif();
+                            }
+                            return e;
+                        }
+                    }));
                 }
+                // collect the entries in the order of the files
+                for (Future<ImageEntry> job : jobs) {
 
-                progressMonitor.subTask(tr("Reading {0}...", f.getName()));
-                progressMonitor.worked(1);
+                    if (canceled) {
+                        break;
+                    }
 
-                ImageEntry e = new ImageEntry(f);
-                e.extractExif();
-                entries.add(e);
+                    try {
+                        ImageEntry e = job.get();
+                        progressMonitor.subTask(tr("Reading {0}...", e.getFile().getName()));
+                        progressMonitor.worked(1);
+                        entries.add(e);
+                    } catch (ExecutionException e) {
+                        Main.error(e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Main.warn(e);
+                Thread.currentThread().interrupt();
+            } finally {
+                exec.shutdownNow();
             }
             layer = new GeoImageLayer(entries, gpxLayer);
             files.clear();
@@ -650,6 +678,26 @@ public class GeoImageLayer extends AbstractModifiableLayer implements PropertyCh
         Main.map.repaint();
     }
 
+    /**
+     * Returns the photos shown by {@link #showNextPhoto()} and {@link #showPreviousPhoto()} from the given one.
+     * @param entry the displayed photo
+     * @return the next and the previous photos, those that exist
+     */
+    List<ImageEntry> getAdjacentPhotos(ImageEntry entry) {
+        List<ImageEntry> result = new ArrayList<>(2);
+        if (data != null) {
+            int index = currentPhoto >= 0 && currentPhoto < data.size() && data.get(currentPhoto) == entry
+                    ? currentPhoto : data.indexOf(entry);
+            if (index >= 0 && index + 1 < data.size()) {
+                result.add(data.get(index + 1));
+            }
+            if (index > 0) {
+                result.add(data.get(index - 1));
+            }
+        }
+        return result;
+    }
+
     public void checkPreviousNextButtons() {
         ImageViewerDialog.setNextEnabled(data != null && currentPhoto < data.size() - 1);
         ImageViewerDialog.setPreviousEnabled(currentPhoto > 0);
@@ -0,0 +1,291 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.GpxConstants;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * The track points of GPX data, in primitive arrays, to correlate photos with them by time.
+ * <p>
+ * The time attributes of the points are parsed once, so that matching the photos with another offset only has to
+ * go through the arrays. Points are kept in track order, the end of a segment is marked by {@link #segmentEnds}
+ * and a point without a valid time by {@link #NO_TIME}.
+ */
+final class GpxTimeIndex {
+
+    /** Time of a point without (valid) time attribute */
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    /** milliseconds since the epoch, or {@link #NO_TIME} */
+    private final long[] time;
+    private final double[] lat;
+    private final double[] lon;
+    /** elevations, {@link Double#NaN} if absent */
+    private final double[] ele;
+    /** index after the last point of each segment, in ascending order */
+    private final int[] segmentEnds;
+
+    private GpxTimeIndex(int size, int segments) {
+        time = new long[size];
+        lat = new double[size];
+        lon = new double[size];
+        ele = new double[size];
+        segmentEnds = new int[segments];
+    }
+
+    /**
+     * Builds the time index of the given GPX data.
+     * @param gpx GPX data
+     * @return the time index of all track points of {@code gpx}
+     */
+    static GpxTimeIndex of(GpxData gpx) {
+        int size = 0;
+        int segments = 0;
+        for (GpxTrack trk : gpx.tracks) {
+            for (GpxTrackSegment segment : trk.getSegments()) {
+                size += ImmutableGpxTrackSegment.of(segment).size();
+                segments++;
+            }
+        }
+        GpxTimeIndex index = new GpxTimeIndex(size, segments);
+        int n = 0;
+        int s = 0;
+        for (GpxTrack trk : gpx.tracks) {
+            for (GpxTrackSegment segment : trk.getSegments()) {
+                ImmutableGpxTrackSegment seg = ImmutableGpxTrackSegment.of(segment);
+                for (int i = 0; i < seg.size(); i++, n++) {
+                    index.time[n] = getTime(seg, i);
+                    index.lat[n] = seg.lat(i);
+                    index.lon[n] = seg.lon(i);
+                    index.ele[n] = getElevation(seg, i);
+                }
+                index.segmentEnds[s++] = n;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the time of the first track point of the given GPX data having one, without building its time index.
+     * @param gpx GPX data
+     * @return milliseconds since the epoch, or {@link #NO_TIME} if no point has a time
+     */
+    static long getFirstTime(GpxData gpx) {
+        for (GpxTrack trk : gpx.tracks) {
+            for (GpxTrackSegment segment : trk.getSegments()) {
+                ImmutableGpxTrackSegment seg = ImmutableGpxTrackSegment.of(segment);
+                for (int i = 0; i < seg.size(); i++) {
+                    long t = getTime(seg, i);
+                    if (t != NO_TIME) {
+                        return t;
+                    }
+                }
+            }
+        }
+        return NO_TIME;
+    }
+
+    /**
+     * Returns the time of a point as {@link org.openstreetmap.josm.data.gpx.WayPoint#setTimeFromAttribute()} does.
+     */
+    private static long getTime(ImmutableGpxTrackSegment seg, int i) {
+        if (seg.hasCanonicalTime(i)) {
+            return Math.round(seg.time(i) * 1000);
+        }
+        Object value = seg.get(i, GpxConstants.PT_TIME);
+        if (value != null) {
+            try {
+                return DateUtils.tsFromString(value.toString());
+            } catch (RuntimeException e) {
+                Main.warn(e);
+            }
+        }
+        return NO_TIME;
+    }
+
+    private static double getElevation(ImmutableGpxTrackSegment seg, int i) {
+        double result = seg.elevation(i);
+        if (Double.isNaN(result)) {
+            Object value = seg.get(i, GpxConstants.PT_ELE);
+            if (value instanceof String && !((String) value).isEmpty()) {
+                try {
+                    result = Double.parseDouble((String) value);
+                } catch (NumberFormatException e) {
+                    Main.warn(e);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the time of the first track point having one.
+     * @return milliseconds since the epoch, or {@link #NO_TIME} if no point has a time
+     */
+    long getFirstTime() {
+        for (long t : time) {
+            if (t != NO_TIME) {
+                return t;
+            }
+        }
+        return NO_TIME;
+    }
+
+    /**
+     * Match a list of photos to the track points with a given offset.
+     * All images need a exifTime attribute and the List must be sorted according to these times.
+     * Only images whose temporary position is not set yet are matched.
+     * @param images images to match
+     * @param offset offset in milliseconds, added to the time of the track points
+     * @return number of matched images
+     */
+    int match(List<ImageEntry> images, long offset) {
+        long[] imageTimes = new long[images.size()];
+        for (int i = 0; i < imageTimes.length; i++) {
+            imageTimes[i] = images.get(i).getExifTime().getTime();
+        }
+        int ret = 0;
+        int start = 0;
+        // index of the last photo not after the previous track point, track points are usually in ascending time
+        // order so that the next index is found by moving forward from there
+        int last = -1;
+        long lastTime = Long.MIN_VALUE;
+        for (int end : segmentEnds) {
+            long prevWpTime = 0;
+            int prev = -1;
+            for (int cur = start; cur < end; cur++) {
+                if (time[cur] == NO_TIME) {
+                    prev = -1;
+                    prevWpTime = 0;
+                    continue;
+                }
+                final long curWpTime = time[cur] + offset;
+                if (curWpTime >= lastTime) {
+                    while (last + 1 < imageTimes.length && imageTimes[last + 1] <= curWpTime) {
+                        last++;
+                    }
+                } else {
+                    last = getLastIndexBefore(imageTimes, curWpTime);
+                }
+                lastTime = curWpTime;
+                ret += matchPoints(images, imageTimes, last, prev, prevWpTime, cur, curWpTime, offset);
+                prev = cur;
+                prevWpTime = curWpTime;
+            }
+            start = end;
+        }
+        return ret;
+    }
+
+    /**
+     * Matches the photos with the track point {@code cur}, and with the segment from the track point {@code prev}.
+     * @param i the index of the timewise last photo that has the same or earlier EXIF time
+     */
+    private int matchPoints(List<ImageEntry> images, long[] imageTimes, int i, int prev, long prevWpTime,
+            int cur, long curWpTime, long offset) {
+        // no photos match
+        if (i < 0)
+            return 0;
+
+        // Time between the track point and the previous one, 5 sec if first point, i.e. photos take
+        // 5 sec before the first track point can be assumed to be take at the starting position
+        long interval = prevWpTime > 0 ? Math.abs(curWpTime - prevWpTime) : 5*1000;
+        int ret = 0;
+
+        // coordinates and speed are only computed once a photo has to be matched, most track points match none
+        LatLon curCoor = null;
+        LatLon prevCoor = null;
+        Double speed = null;
+
+        // First trackpoint, then interval is set to five seconds, i.e. photos up to five seconds
+        // before the first point will be geotagged with the starting point
+        if (prevWpTime == 0 || curWpTime <= prevWpTime) {
+            while (i >= 0) {
+                long imgTime = imageTimes[i];
+                if (imgTime > curWpTime || imgTime < curWpTime - interval) {
+                    break;
+                }
+                final ImageEntry curImg = images.get(i);
+                if (curImg.tmp.getPos() == null) {
+                    if (curCoor == null) {
+                        curCoor = new LatLon(lat[cur], lon[cur]);
+                        speed = getSpeed(prev, prevWpTime, cur, curWpTime);
+                    }
+                    curImg.tmp.setPos(curCoor);
+                    curImg.tmp.setSpeed(speed);
+                    curImg.tmp.setElevation(Double.isNaN(ele[cur]) ? null : ele[cur]);
+                    curImg.tmp.setGpsTime(new Date(imgTime - offset));
+                    curImg.flagNewGpsData();
+                    ret++;
+                }
+                i--;
+            }
+            return ret;
+        }
+
+        // This code gives a simple linear interpolation of the coordinates between current and
+        // previous track point assuming a constant speed in between
+        while (i >= 0) {
+            long imgTime = imageTimes[i];
+            if (imgTime < prevWpTime) {
+                break;
+            }
+            final ImageEntry curImg = images.get(i);
+            if (curImg.tmp.getPos() == null && prev >= 0) {
+                if (curCoor == null) {
+                    curCoor = new LatLon(lat[cur], lon[cur]);
+                    prevCoor = new LatLon(lat[prev], lon[prev]);
+                    speed = getSpeed(prev, prevWpTime, cur, curWpTime);
+                }
+                // The values of timeDiff are between 0 and 1, it is not seconds but a dimensionless variable
+                double timeDiff = (double) (imgTime - prevWpTime) / interval;
+                curImg.tmp.setPos(prevCoor.interpolate(curCoor, timeDiff));
+                curImg.tmp.setSpeed(speed);
+                if (!Double.isNaN(ele[cur]) && !Double.isNaN(ele[prev])) {
+                    curImg.tmp.setElevation(ele[prev] + (ele[cur] - ele[prev]) * timeDiff);
+                }
+                curImg.tmp.setGpsTime(new Date(imgTime - offset));
+                curImg.flagNewGpsData();
+                ret++;
+            }
+            i--;
+        }
+        return ret;
+    }
+
+    private Double getSpeed(int prev, long prevWpTime, int cur, long curWpTime) {
+        if (prev < 0 || curWpTime <= prevWpTime)
+            return null;
+        double distance = new LatLon(lat[prev], lon[prev]).greatCircleDistance(new LatLon(lat[cur], lon[cur]));
+        // This is in km/h, 3.6 * m/s
+        return 3600 * distance / (curWpTime - prevWpTime);
+    }
+
+    /**
+     * Returns the index of the last time not after the given one.
+     * @param times times in ascending order
+     * @param searchedTime searched time
+     * @return the highest index {@code i} such that {@code times[i] <= searchedTime}, or -1 if there is none
+     */
+    static int getLastIndexBefore(long[] times, long searchedTime) {
+        int i = Arrays.binarySearch(times, searchedTime);
+        if (i < 0) {
+            return -i - 2;
+        }
+        // skip photos with the exact same EXIF time
+        while (i < times.length - 1 && times[i + 1] == searchedTime) {
+            i++;
+        }
+        return i;
+    }
+}
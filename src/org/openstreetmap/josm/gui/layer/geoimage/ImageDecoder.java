@@ -0,0 +1,207 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.MediaTracker;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.JPanel;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.tools.ExifReader;
+
+/**
+ * Decodes images at the resolution they are displayed at.
+ * <p>
+ * Images are decoded by {@link ImageIO} with source subsampling, so that only every n-th pixel of each n-th line
+ * is kept, and possibly only a region of the image. Images {@code ImageIO} cannot decode (e.g. CMYK JPEG files) are
+ * decoded by the AWT {@link Toolkit} at full resolution.
+ */
+final class ImageDecoder {
+
+    /**
+     * An image, or a region of an image, decoded at a lower resolution.
+     */
+    static final class DecodedImage {
+        /** The decoded pixels, with the EXIF orientation applied */
+        final BufferedImage image;
+        /** The width of the image at full resolution, after orientation */
+        final int width;
+        /** The height of the image at full resolution, after orientation */
+        final int height;
+        /** The part of the full resolution image (after orientation) covered by {@link #image} */
+        final Rectangle region;
+        /** The number of full resolution pixels per decoded pixel, in each direction */
+        final int subsampling;
+
+        DecodedImage(BufferedImage image, int width, int height, Rectangle region, int subsampling) {
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.region = region;
+            this.subsampling = subsampling;
+        }
+    }
+
+    private ImageDecoder() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Returns the subsampling to decode an image of the given size, so that it still covers the given size.
+     * @param width the width of the full resolution image
+     * @param height the height of the full resolution image
+     * @param maxSize the size the decoded image must cover, in at least one direction
+     * @return the subsampling, at least 1
+     */
+    static int getSubsampling(int width, int height, Dimension maxSize) {
+        return Math.max(1, Math.max(width / Math.max(1, maxSize.width), height / Math.max(1, maxSize.height)));
+    }
+
+    /**
+     * Decodes an image so that it covers the given size, e.g. the size of the screen.
+     * @param file the image file
+     * @param orientation the EXIF orientation, or {@code null}
+     * @param maxSize the size the decoded image must cover, in at least one direction
+     * @return the decoded image
+     * @throws IOException if the image cannot be decoded
+     */
+    static DecodedImage decode(File file, Integer orientation, Dimension maxSize) throws IOException {
+        return decode(file, orientation, null, maxSize, 0);
+    }
+
+    /**
+     * Decodes a region of an image.
+     * @param file the image file
+     * @param orientation the EXIF orientation, or {@code null}
+     * @param region the region to decode, in full resolution image coordinates after orientation
+     * @param subsampling the number of full resolution pixels per decoded pixel, in each direction
+     * @return the decoded region
+     * @throws IOException if the region cannot be decoded
+     */
+    static DecodedImage decodeRegion(File file, Integer orientation, Rectangle region, int subsampling) throws IOException {
+        return decode(file, orientation, region, null, subsampling);
+    }
+
+    private static DecodedImage decode(File file, Integer orientation, Rectangle region, Dimension maxSize, int subsampling)
+            throws IOException {
+        final int o = orientation == null ? -1 : orientation;
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    final int w = reader.getWidth(0);
+                    final int h = reader.getHeight(0);
+                    final boolean switched = ExifReader.orientationSwitchesDimensions(o);
+                    final int ww = switched ? h : w;
+                    final int hh = switched ? w : h;
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    Rectangle target = new Rectangle(0, 0, ww, hh);
+                    int s = subsampling;
+                    if (region != null) {
+                        target = target.intersection(region);
+                        if (target.isEmpty())
+                            throw new IOException("Region " + region + " outside of image " + file);
+                        if (ExifReader.orientationNeedsCorrection(o)) {
+                            AffineTransform t = ExifReader.getRestoreOrientationTransform(o, w, h).createInverse();
+                            param.setSourceRegion(t.createTransformedShape(target).getBounds().intersection(
+                                    new Rectangle(0, 0, w, h)));
+                        } else {
+                            param.setSourceRegion(target);
+                        }
+                    } else {
+                        s = getSubsampling(ww, hh, maxSize);
+                    }
+                    if (s > 1) {
+                        param.setSourceSubsampling(s, s, 0, 0);
+                    }
+                    BufferedImage img = rotate(reader.read(0, param), o);
+                    return new DecodedImage(img, ww, hh, target, s);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (NoninvertibleTransformException e) {
+            throw new IOException(e);
+        } catch (IOException | RuntimeException e) {
+            if (region != null) {
+                throw e;
+            }
+            // e.g. CMYK JPEG files, the toolkit may still be able to read them
+            Main.warn("Failed to decode " + file + " with ImageIO: " + e);
+        }
+        if (region != null) {
+            throw new IOException("No reader for " + file);
+        }
+        BufferedImage img = rotate(readImage(file), o);
+        return new DecodedImage(img, img.getWidth(), img.getHeight(), new Rectangle(0, 0, img.getWidth(), img.getHeight()), 1);
+    }
+
+    private static BufferedImage readImage(File file) throws IOException {
+        Image img = Toolkit.getDefaultToolkit().createImage(file.getPath());
+        MediaTracker tracker = new MediaTracker(new JPanel());
+        tracker.addImage(img, 0);
+        try {
+            tracker.waitForID(0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            tracker.removeImage(img);
+        }
+        final int w = img.getWidth(null);
+        final int h = img.getHeight(null);
+        if (tracker.isErrorID(0) || w <= 0 || h <= 0) {
+            throw new IOException("Invalid image " + file);
+        }
+        BufferedImage result = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+        img.flush();
+        return result;
+    }
+
+    /**
+     * Applies the EXIF orientation to an image.
+     * @param img the image, as stored in the file
+     * @param orientation the EXIF orientation
+     * @return the image as it should be displayed, {@code img} itself if the orientation needs no correction
+     */
+    static BufferedImage rotate(BufferedImage img, int orientation) {
+        if (!ExifReader.orientationNeedsCorrection(orientation)) {
+            return img;
+        }
+        final int w = img.getWidth();
+        final int h = img.getHeight();
+        final int hh, ww;
+        if (ExifReader.orientationSwitchesDimensions(orientation)) {
+            ww = h;
+            hh = w;
+        } else {
+            ww = w;
+            hh = h;
+        }
+        final BufferedImage rot = new BufferedImage(ww, hh, BufferedImage.TYPE_INT_RGB);
+        final AffineTransform xform = ExifReader.getRestoreOrientationTransform(orientation, w, h);
+        final Graphics2D g = rot.createGraphics();
+        g.drawImage(img, xform, null);
+        g.dispose();
+        return rot;
+    }
+}
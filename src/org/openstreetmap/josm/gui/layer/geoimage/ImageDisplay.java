@@ -8,33 +8,63 @@ import java.awt.Dimension;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.MediaTracker;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.Toolkit;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 import javax.swing.JComponent;
 
 import org.openstreetmap.josm.Main;
-import org.openstreetmap.josm.tools.ExifReader;
-
+import org.openstreetmap.josm.gui.layer.geoimage.ImageDecoder.DecodedImage;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.Pair;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Displays an image, zoomable and movable with the mouse.
+ * <p>
+ * Images are decoded at the resolution of the screen, regions of the image are decoded again at a higher resolution
+ * when the user zooms in. The decoded images are kept in a small cache, and the images the user is likely to display
+ * next can be decoded in advance by {@link #prefetch(File, Integer)}.
+ */
 public class ImageDisplay extends JComponent {
 
+    /** Loads the displayed images, and the regions to display at a higher resolution */
+    private static final ExecutorService LOADER =
+            Executors.newSingleThreadExecutor(Utils.newThreadFactory("image-display-loader-%d", Thread.NORM_PRIORITY));
+    /** Loads the images that may be displayed next */
+    private static final ExecutorService PREFETCHER =
+            Executors.newSingleThreadExecutor(Utils.newThreadFactory("image-display-prefetcher-%d", Thread.MIN_PRIORITY));
+
     /** The file that is currently displayed */
     private File file;
 
-    /** The image currently displayed */
-    private transient Image image;
+    /** The EXIF orientation of the file that is currently displayed */
+    private Integer orientation;
+
+    /** The image currently displayed, decoded at the resolution of the screen */
+    private transient DecodedImage image;
+
+    /** A region of the image currently displayed, decoded at a higher resolution, or {@code null} */
+    private transient DecodedImage detail;
+
+    /** The region of the image requested at a higher resolution, or {@code null} */
+    private transient DetailRequest detailRequest;
 
     /** The image currently displayed */
     private boolean errorLoading;
@@ -46,88 +76,120 @@ public class ImageDisplay extends JComponent {
     /** When a selection is done, the rectangle of the selection (in image coordinates) */
     private Rectangle selectedRect;
 
-    /** The tracker to load the images */
-    private final MediaTracker tracker = new MediaTracker(this);
+    /** The decoded images of the last displayed and prefetched files, the least recently used first */
+    private final transient Map<Pair<File, Integer>, FutureTask<DecodedImage>> cache =
+            new LinkedHashMap<Pair<File, Integer>, FutureTask<DecodedImage>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Pair<File, Integer>, FutureTask<DecodedImage>> eldest) {
+            if (size() > Main.pref.getInteger("geoimage.viewer.cache.size", 5)) {
+                eldest.getValue().cancel(false);
+                return true;
+            }
+            return false;
+        }
+    };
 
     private String osdText;
 
     private static final int DRAG_BUTTON = Main.pref.getBoolean("geoimage.agpifo-style-drag-and-zoom", false) ? 1 : 3;
     private static final int ZOOM_BUTTON = DRAG_BUTTON == 1 ? 3 : 1;
 
+    /** A region of the image to decode at a higher resolution */
+    private static final class DetailRequest {
+        private final Rectangle region;
+        private final int subsampling;
+
+        DetailRequest(Rectangle region, int subsampling) {
+            this.region = region;
+            this.subsampling = subsampling;
+        }
+    }
+
+    /** The task that decodes an image at the resolution of the screen. */
+    private static final class DecodeImageCallable implements Callable<DecodedImage> {
+
+        private final File file;
+        private final Integer orientation;
+
+        DecodeImageCallable(File file, Integer orientation) {
+            this.file = file;
+            this.orientation = orientation;
+        }
+
+        @Override
+        public DecodedImage call() throws IOException {
+            return ImageDecoder.decode(file, orientation, GuiHelper.getMaxiumScreenSize());
+        }
+    }
+
     /** The thread that reads the images. */
     private class LoadImageRunnable implements Runnable {
 
         private final File file;
-        private final int orientation;
+        private final FutureTask<DecodedImage> task;
 
-        LoadImageRunnable(File file, Integer orientation) {
+        LoadImageRunnable(File file, FutureTask<DecodedImage> task) {
             this.file = file;
-            this.orientation = orientation == null ? -1 : orientation;
+            this.task = task;
         }
 
         @Override
         public void run() {
-            Image img = Toolkit.getDefaultToolkit().createImage(file.getPath());
-            tracker.addImage(img, 1);
-
-            // Wait for the end of loading
-            while (!tracker.checkID(1, true)) {
-                if (this.file != ImageDisplay.this.file) {
-                    // The file has changed
-                    tracker.removeImage(img);
-                    return;
-                }
-                try {
-                    Thread.sleep(5);
-                } catch (InterruptedException e) {
-                    Main.warn("InterruptedException in "+getClass().getSimpleName()+" while loading image "+file.getPath());
-                }
+            if (this.file != ImageDisplay.this.file) {
+                // The file has changed before loading started
+                return;
             }
-
-            boolean error = tracker.isErrorID(1);
-            if (img.getWidth(null) < 0 || img.getHeight(null) < 0) {
-                error = true;
+            // Does nothing if the image has been prefetched, waits for the end of loading if it is being prefetched
+            task.run();
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Main.warn("InterruptedException in "+getClass().getSimpleName()+" while loading image "+file.getPath());
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | CancellationException e) {
+                // reported by setLoadedImage
+                Main.trace(e.toString());
             }
+            setLoadedImage(file, task);
+            ImageDisplay.this.repaint();
+        }
+    }
 
+    /** The thread that reads a region of the image at a higher resolution. */
+    private class LoadDetailRunnable implements Runnable {
+
+        private final File file;
+        private final Integer orientation;
+        private final DetailRequest request;
+
+        LoadDetailRunnable(File file, Integer orientation, DetailRequest request) {
+            this.file = file;
+            this.orientation = orientation;
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
             synchronized (ImageDisplay.this) {
-                if (this.file != ImageDisplay.this.file) {
-                    // The file has changed
-                    tracker.removeImage(img);
+                if (request != detailRequest) {
+                    // The file or the visible region has changed
                     return;
                 }
-
-                if (!error) {
-                    ImageDisplay.this.image = img;
-                    visibleRect = new Rectangle(0, 0, img.getWidth(null), img.getHeight(null));
-
-                    final int w = (int) visibleRect.getWidth();
-                    final int h = (int) visibleRect.getHeight();
-
-                    if (ExifReader.orientationNeedsCorrection(orientation)) {
-                        final int hh, ww;
-                        if (ExifReader.orientationSwitchesDimensions(orientation)) {
-                            ww = h;
-                            hh = w;
-                        } else {
-                            ww = w;
-                            hh = h;
-                        }
-                        final BufferedImage rot = new BufferedImage(ww, hh, BufferedImage.TYPE_INT_RGB);
-                        final AffineTransform xform = ExifReader.getRestoreOrientationTransform(orientation, w, h);
-                        final Graphics2D g = rot.createGraphics();
-                        g.drawImage(image, xform, null);
-                        g.dispose();
-
-                        visibleRect.setSize(ww, hh);
-                        image.flush();
-                        ImageDisplay.this.image = rot;
-                    }
+            }
+            DecodedImage img;
+            try {
+                img = ImageDecoder.decodeRegion(file, orientation, request.region, request.subsampling);
+            } catch (IOException e) {
+                Main.warn("Failed to decode region of "+file.getPath()+": "+e);
+                return;
+            }
+            synchronized (ImageDisplay.this) {
+                if (request != detailRequest) {
+                    return;
                 }
-
-                selectedRect = null;
-                errorLoading = error;
+                detail = img;
             }
-            tracker.removeImage(img);
             ImageDisplay.this.repaint();
         }
     }
@@ -143,7 +205,7 @@ public class ImageDisplay extends JComponent {
         @Override
         public void mouseWheelMoved(MouseWheelEvent e) {
             File file;
-            Image image;
+            DecodedImage image;
             Rectangle visibleRect;
 
             synchronized (ImageDisplay.this) {
@@ -217,7 +279,7 @@ public class ImageDisplay extends JComponent {
         public void mouseClicked(MouseEvent e) {
             // Move the center to the clicked point.
             File file;
-            Image image;
+            DecodedImage image;
             Rectangle visibleRect;
 
             synchronized (ImageDisplay.this) {
@@ -259,7 +321,7 @@ public class ImageDisplay extends JComponent {
                 return;
             }
 
-            Image image;
+            DecodedImage image;
             Rectangle visibleRect;
 
             synchronized (ImageDisplay.this) {
@@ -292,7 +354,7 @@ public class ImageDisplay extends JComponent {
                 return;
 
             File file;
-            Image image;
+            DecodedImage image;
             Rectangle visibleRect;
 
             synchronized (ImageDisplay.this) {
@@ -341,7 +403,7 @@ public class ImageDisplay extends JComponent {
                 return;
 
             File file;
-            Image image;
+            DecodedImage image;
 
             synchronized (ImageDisplay.this) {
                 file = ImageDisplay.this.file;
@@ -434,19 +496,112 @@ public class ImageDisplay extends JComponent {
         addMouseMotionListener(mouseListener);
     }
 
+    /**
+     * Sets the image to display.
+     * @param file the image file, or {@code null} to display no image
+     * @param orientation the EXIF orientation of the image, or {@code null}
+     */
     public void setImage(File file, Integer orientation) {
+        FutureTask<DecodedImage> task = null;
         synchronized (this) {
             this.file = file;
+            this.orientation = orientation;
             image = null;
+            detail = null;
+            detailRequest = null;
             selectedRect = null;
             errorLoading = false;
+            if (file != null) {
+                task = getTask(file, orientation);
+            } else {
+                for (FutureTask<DecodedImage> t : cache.values()) {
+                    t.cancel(false);
+                }
+                cache.clear();
+            }
+        }
+        if (task != null && task.isDone()) {
+            // prefetched, display it at once
+            setLoadedImage(file, task);
+        } else if (task != null) {
+            LOADER.execute(new LoadImageRunnable(file, task));
         }
         repaint();
-        if (file != null) {
-            new Thread(new LoadImageRunnable(file, orientation), LoadImageRunnable.class.getName()).start();
+    }
+
+    /**
+     * Decodes an image in the background, so that it is displayed without delay if it is set by
+     * {@link #setImage(File, Integer)} later. Only the last few images are kept.
+     * @param file the image file
+     * @param orientation the EXIF orientation of the image, or {@code null}
+     */
+    public void prefetch(File file, Integer orientation) {
+        FutureTask<DecodedImage> task;
+        synchronized (this) {
+            task = getTask(file, orientation);
+        }
+        if (!task.isDone()) {
+            PREFETCHER.execute(task);
         }
     }
 
+    private synchronized FutureTask<DecodedImage> getTask(File file, Integer orientation) {
+        Pair<File, Integer> key = new Pair<>(file, orientation);
+        FutureTask<DecodedImage> task = cache.get(key);
+        if (task == null) {
+            task = new FutureTask<>(new DecodeImageCallable(file, orientation));
+            cache.put(key, task);
+        }
+        return task;
+    }
+
+    private synchronized void setLoadedImage(File file, FutureTask<DecodedImage> task) {
+        if (file != this.file) {
+            // The file has changed
+            return;
+        }
+        try {
+            image = task.get();
+            visibleRect = new Rectangle(0, 0, image.width, image.height);
+            errorLoading = false;
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            Main.warn("Failed to load image "+file.getPath()+": "+e);
+            cache.remove(new Pair<>(file, orientation));
+            image = null;
+            errorLoading = true;
+        }
+        detail = null;
+        detailRequest = null;
+        selectedRect = null;
+    }
+
+    /**
+     * Decodes the visible region again at a higher resolution, if the displayed image is not precise enough.
+     * @param image the displayed image
+     * @param visibleRect the visible rectangle, in image coordinates
+     * @param subsampling the number of image pixels per screen pixel
+     */
+    private void requestDetail(DecodedImage image, Rectangle visibleRect, int subsampling) {
+        DetailRequest request;
+        File file;
+        Integer orientation;
+        synchronized (this) {
+            if (image != this.image || (detailRequest != null
+                    && detailRequest.subsampling <= subsampling && detailRequest.region.contains(visibleRect))) {
+                return;
+            }
+            // add a margin of half the visible size on each side, so that moving the image does not
+            // require decoding again at once
+            Rectangle region = new Rectangle(visibleRect.x - visibleRect.width / 2, visibleRect.y - visibleRect.height / 2,
+                    visibleRect.width * 2, visibleRect.height * 2).intersection(new Rectangle(0, 0, image.width, image.height));
+            request = new DetailRequest(region, subsampling);
+            detailRequest = request;
+            file = this.file;
+            orientation = this.orientation;
+        }
+        LOADER.execute(new LoadDetailRunnable(file, orientation, request));
+    }
+
     public void setOsdText(String text) {
         this.osdText = text;
         repaint();
@@ -454,13 +609,15 @@ public class ImageDisplay extends JComponent {
 
     @Override
     public void paintComponent(Graphics g) {
-        Image image;
+        DecodedImage image;
+        DecodedImage detail;
         File file;
         Rectangle visibleRect;
         boolean errorLoading;
 
         synchronized (this) {
             image = this.image;
+            detail = this.detail;
             file = this.file;
             visibleRect = this.visibleRect;
             errorLoading = this.errorLoading;
@@ -489,10 +646,26 @@ public class ImageDisplay extends JComponent {
                     (int) ((size.height - noImageSize.getHeight()) / 2));
         } else {
             Rectangle target = calculateDrawImageRectangle(visibleRect);
-            g.drawImage(image,
-                    target.x, target.y, target.x + target.width, target.y + target.height,
-                    visibleRect.x, visibleRect.y, visibleRect.x + visibleRect.width, visibleRect.y + visibleRect.height,
-                    null);
+            // number of image pixels per screen pixel
+            int subsampling = Math.max(1, visibleRect.width / Math.max(1, target.width));
+            DecodedImage source = image;
+            if (detail != null && detail.subsampling < image.subsampling && detail.region.contains(visibleRect)) {
+                source = detail;
+            }
+            if (source.subsampling > subsampling) {
+                requestDetail(image, visibleRect, subsampling);
+            }
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.clip(target);
+            // from image coordinates to component coordinates
+            g2.translate(target.x, target.y);
+            g2.scale((double) target.width / visibleRect.width, (double) target.height / visibleRect.height);
+            g2.translate(-visibleRect.x, -visibleRect.y);
+            // from decoded pixels to image coordinates
+            g2.translate(source.region.x, source.region.y);
+            g2.scale(source.subsampling, source.subsampling);
+            g2.drawImage(source.image, 0, 0, null);
+            g2.dispose();
             if (selectedRect != null) {
                 Point topLeft = img2compCoord(visibleRect, selectedRect.x, selectedRect.y);
                 Point bottomRight = img2compCoord(visibleRect,
@@ -596,7 +769,7 @@ public class ImageDisplay extends JComponent {
 
     public void zoomBestFitOrOne() {
         File file;
-        Image image;
+        DecodedImage image;
         Rectangle visibleRect;
 
         synchronized (this) {
@@ -608,9 +781,9 @@ public class ImageDisplay extends JComponent {
         if (image == null)
             return;
 
-        if (visibleRect.width != image.getWidth(null) || visibleRect.height != image.getHeight(null)) {
+        if (visibleRect.width != image.width || visibleRect.height != image.height) {
             // The display is not at best fit. => Zoom to best fit
-            visibleRect = new Rectangle(0, 0, image.getWidth(null), image.getHeight(null));
+            visibleRect = new Rectangle(0, 0, image.width, image.height);
 
         } else {
             // The display is at best fit => zoom to 1:1
@@ -628,27 +801,27 @@ public class ImageDisplay extends JComponent {
         repaint();
     }
 
-    private static void checkVisibleRectPos(Image image, Rectangle visibleRect) {
+    private static void checkVisibleRectPos(DecodedImage image, Rectangle visibleRect) {
         if (visibleRect.x < 0) {
             visibleRect.x = 0;
         }
         if (visibleRect.y < 0) {
             visibleRect.y = 0;
         }
-        if (visibleRect.x + visibleRect.width > image.getWidth(null)) {
-            visibleRect.x = image.getWidth(null) - visibleRect.width;
+        if (visibleRect.x + visibleRect.width > image.width) {
+            visibleRect.x = image.width - visibleRect.width;
         }
-        if (visibleRect.y + visibleRect.height > image.getHeight(null)) {
-            visibleRect.y = image.getHeight(null) - visibleRect.height;
+        if (visibleRect.y + visibleRect.height > image.height) {
+            visibleRect.y = image.height - visibleRect.height;
         }
     }
 
-    private static void checkVisibleRectSize(Image image, Rectangle visibleRect) {
-        if (visibleRect.width > image.getWidth(null)) {
-            visibleRect.width = image.getWidth(null);
+    private static void checkVisibleRectSize(DecodedImage image, Rectangle visibleRect) {
+        if (visibleRect.width > image.width) {
+            visibleRect.width = image.width;
         }
-        if (visibleRect.height > image.getHeight(null)) {
-            visibleRect.height = image.getHeight(null);
+        if (visibleRect.height > image.height) {
+            visibleRect.height = image.height;
         }
     }
 }
@@ -16,7 +16,6 @@ import org.openstreetmap.josm.data.coor.CachedLatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.tools.ExifReader;
 
-import com.drew.imaging.jpeg.JpegMetadataReader;
 import com.drew.lang.CompoundException;
 import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
@@ -443,25 +442,26 @@ public final class ImageEntry implements Comparable<ImageEntry>, Cloneable {
             return;
         }
 
-        // Changed to silently cope with no time info in exif. One case
-        // of person having time that couldn't be parsed, but valid GPS info
-        try {
-            setExifTime(ExifReader.readTime(file));
-        } catch (RuntimeException ex) {
-            setExifTime(null);
-        }
-
         try {
-            metadata = JpegMetadataReader.readMetadata(file);
+            metadata = ExifReader.readExif(file);
             dirExif = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
             dirGps = metadata.getFirstDirectoryOfType(GpsDirectory.class);
         } catch (CompoundException | IOException p) {
             Main.warn(p);
+            setExifTime(null);
             setExifCoor(null);
             setPos(null);
             return;
         }
 
+        // Changed to silently cope with no time info in exif. One case
+        // of person having time that couldn't be parsed, but valid GPS info
+        try {
+            setExifTime(ExifReader.readTime(metadata));
+        } catch (RuntimeException ex) {
+            setExifTime(null);
+        }
+
         try {
             if (dirExif != null) {
                 int orientation = dirExif.getInt(ExifIFD0Directory.TAG_ORIENTATION);
@@ -312,6 +312,14 @@ public final class ImageViewerDialog extends ToggleDialog implements LayerChange
                 // Set only if the image is new to preserve zoom and position if the same image is redisplayed
                 // (e.g. to update the OSD).
                 imgDisplay.setImage(entry.getFile(), entry.getExifOrientation());
+                // Decode the photos the user is likely to step to next in the background
+                if (layer != null) {
+                    for (ImageEntry e : layer.getAdjacentPhotos(entry)) {
+                        if (e.getFile() != null) {
+                            imgDisplay.prefetch(e.getFile(), e.getExifOrientation());
+                        }
+                    }
+                }
             }
             setTitle(tr("Geotagged Images") + (entry.getFile() != null ? " - " + entry.getFile().getName() : ""));
             StringBuilder osd = new StringBuilder(entry.getFile() != null ? entry.getFile().getName() : "");
@@ -5,30 +5,54 @@ import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.MediaTracker;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.Toolkit;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
 import org.openstreetmap.josm.data.cache.JCSCacheManager;
 import org.openstreetmap.josm.tools.ExifReader;
+import org.openstreetmap.josm.tools.Utils;
 
+import com.drew.lang.CompoundException;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifThumbnailDirectory;
+import com.drew.metadata.jpeg.JpegDirectory;
+
+/**
+ * Loads the thumbnails of images.
+ * <p>
+ * Thumbnails are taken from the disk cache if the image file has not been modified since, otherwise from the
+ * thumbnail embedded in the EXIF data if it is large enough, otherwise from a subsampled decoding of the image.
+ * Several thumbnails are created concurrently.
+ */
 public class ThumbsLoader implements Runnable {
     public static final int maxSize = 120;
     public static final int minSize = 22;
     public volatile boolean stop;
     private final Collection<ImageEntry> data;
     private final GeoImageLayer layer;
-    private MediaTracker tracker;
     private ICacheAccess<String, BufferedImageCacheEntry> cache;
     private final boolean cacheOff = Main.pref.getBoolean("geoimage.noThumbnailCache", false);
 
@@ -72,20 +96,51 @@ public class ThumbsLoader implements Runnable {
     @Override
     public void run() {
         Main.debug("Load Thumbnails");
-        tracker = new MediaTracker(Main.map.mapView);
+        // Do not load thumbnails that were loaded before.
+        List<ImageEntry> todo = new ArrayList<>(data.size());
         for (ImageEntry entry : data) {
-            if (stop) return;
-
-            // Do not load thumbnails that were loaded before.
             if (!entry.hasThumbnail()) {
+                todo.add(entry);
+            }
+        }
+        int threads = Math.min(todo.size(),
+                Math.max(1, Main.pref.getInteger("geoimage.thumbnail.threads", Runtime.getRuntime().availableProcessors())));
+        if (threads <= 1) {
+            for (ImageEntry entry : todo) {
+                if (stop) return;
                 entry.setThumbnail(loadThumb(entry));
-
-                if (layer != null && Main.isDisplayingMapView()) {
-                    layer.updateOffscreenBuffer = true;
-                    Main.map.mapView.repaint();
+                thumbnailLoaded();
+            }
+        } else {
+            ExecutorService exec = Executors.newFixedThreadPool(threads,
+                    Utils.newThreadFactory("thumbnail-loader-worker-%d", Thread.MIN_PRIORITY));
+            try {
+                CompletionService<ImageEntry> ecs = new ExecutorCompletionService<>(exec);
+                for (final ImageEntry entry : todo) {
+                    ecs.submit(new Callable<ImageEntry>() {
+                        @Override
+                        public ImageEntry call() {
+                            if (!stop) {
+                                entry.setThumbnail(loadThumb(entry));
+                            }
+                            return entry;
+                        }
+                    });
                 }
+                for (int i = 0; i < todo.size(); i++) {
+                    if (stop) return;
+                    ecs.take();
+                    thumbnailLoaded();
+                }
+            } catch (InterruptedException e) {
+                Main.warn("InterruptedException while loading thumbs");
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                exec.shutdownNow();
             }
         }
+        if (stop) return;
         if (layer != null) {
             layer.thumbsLoaded();
             layer.updateOffscreenBuffer = true;
@@ -93,8 +148,17 @@ public class ThumbsLoader implements Runnable {
         }
     }
 
+    private void thumbnailLoaded() {
+        if (layer != null && Main.isDisplayingMapView()) {
+            layer.updateOffscreenBuffer = true;
+            Main.map.mapView.repaint();
+        }
+    }
+
     private BufferedImage loadThumb(ImageEntry entry) {
-        final String cacheIdent = entry.getFile()+":"+maxSize;
+        final File file = entry.getFile();
+        // the modification time invalidates the cached thumbnail when the image is edited
+        final String cacheIdent = file + ":" + file.lastModified() + ":" + maxSize;
 
         if (!cacheOff && cache != null) {
             try {
@@ -108,23 +172,119 @@ public class ThumbsLoader implements Runnable {
             }
         }
 
-        Image img = Toolkit.getDefaultToolkit().createImage(entry.getFile().getPath());
+        Image img = readExifThumbnail(file);
+        if (img == null) {
+            img = readSubsampledImage(file);
+        }
+        if (img == null) {
+            img = readImage(file);
+        }
+        if (img == null) {
+            return null;
+        }
+
+        BufferedImage scaledBI = scale(img, entry.getExifOrientation());
+        if (scaledBI == null) {
+            return null;
+        }
+
+        if (!cacheOff && cache != null) {
+            try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+                ImageIO.write(scaledBI, "png", output);
+                cache.put(cacheIdent, new BufferedImageCacheEntry(output.toByteArray()));
+            } catch (IOException e) {
+                Main.warn("Failed to save geoimage thumb to cache");
+                Main.warn(e);
+            }
+        }
+
+        return scaledBI;
+    }
+
+    /**
+     * Reads the thumbnail embedded in the EXIF data of the image.
+     * @param file image file
+     * @return the embedded thumbnail, or {@code null} if there is none, if it is too small, or if its aspect ratio
+     * differs from the one of the image (some cameras add black borders)
+     */
+    private static BufferedImage readExifThumbnail(File file) {
+        try {
+            Metadata metadata = ExifReader.readExif(file);
+            ExifThumbnailDirectory dirThumb = metadata.getFirstDirectoryOfType(ExifThumbnailDirectory.class);
+            JpegDirectory dirJpeg = metadata.getFirstDirectoryOfType(JpegDirectory.class);
+            if (dirThumb == null || !dirThumb.hasThumbnailData() || dirJpeg == null) {
+                return null;
+            }
+            BufferedImage thumb = ImageIO.read(new ByteArrayInputStream(dirThumb.getThumbnailData()));
+            if (thumb == null || Math.max(thumb.getWidth(), thumb.getHeight()) < maxSize) {
+                return null;
+            }
+            double ratio = (double) dirJpeg.getImageWidth() / dirJpeg.getImageHeight();
+            double thumbRatio = (double) thumb.getWidth() / thumb.getHeight();
+            return Math.abs(thumbRatio - ratio) <= 0.02 * ratio ? thumb : null;
+        } catch (CompoundException | IOException | RuntimeException e) {
+            if (Main.isDebugEnabled()) {
+                Main.debug("No EXIF thumbnail in " + file + ": " + e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Decodes only every n-th pixel of each n-th line of the image, so that it is still about twice the size of
+     * the thumbnail.
+     * @param file image file
+     * @return the subsampled image, or {@code null} if it cannot be decoded by {@link ImageIO}
+     */
+    private static BufferedImage readSubsampledImage(File file) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(reader.getWidth(0), reader.getHeight(0)) / (2 * maxSize);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // e.g. CMYK JPEG files, the toolkit may still be able to read them
+            Main.warn("Failed to decode " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static Image readImage(File file) {
+        Image img = Toolkit.getDefaultToolkit().createImage(file.getPath());
+        MediaTracker tracker = new MediaTracker(Main.map.mapView);
         tracker.addImage(img, 0);
         try {
             tracker.waitForID(0);
         } catch (InterruptedException e) {
             Main.error(" InterruptedException while loading thumb");
+            Thread.currentThread().interrupt();
             return null;
+        } finally {
+            tracker.removeImage(img);
         }
-        if (tracker.isErrorID(1) || img.getWidth(null) <= 0 || img.getHeight(null) <= 0) {
+        if (tracker.isErrorID(0) || img.getWidth(null) <= 0 || img.getHeight(null) <= 0) {
             Main.error(" Invalid image");
             return null;
         }
+        return img;
+    }
 
+    private static BufferedImage scale(Image img, Integer exifOrientation) {
         final int w = img.getWidth(null);
         final int h = img.getHeight(null);
         final int hh, ww;
-        final Integer exifOrientation = entry.getExifOrientation();
         if (exifOrientation != null && ExifReader.orientationSwitchesDimensions(exifOrientation)) {
             ww = h;
             hh = w;
@@ -136,8 +296,13 @@ public class ThumbsLoader implements Runnable {
         Rectangle targetSize = ImageDisplay.calculateDrawImageRectangle(
                 new Rectangle(0, 0, ww, hh),
                 new Rectangle(0, 0, maxSize, maxSize));
+        if (targetSize.width <= 0 || targetSize.height <= 0) {
+            Main.error(" Invalid image");
+            return null;
+        }
         BufferedImage scaledBI = new BufferedImage(targetSize.width, targetSize.height, BufferedImage.TYPE_INT_RGB);
         Graphics2D g = scaledBI.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
 
         final AffineTransform scale = AffineTransform.getScaleInstance((double) targetSize.width / ww, (double) targetSize.height / hh);
         if (exifOrientation != null) {
@@ -153,23 +318,6 @@ public class ThumbsLoader implements Runnable {
             }
         }
         g.dispose();
-        tracker.removeImage(img);
-
-        if (scaledBI.getWidth() <= 0 || scaledBI.getHeight() <= 0) {
-            Main.error(" Invalid image");
-            return null;
-        }
-
-        if (!cacheOff && cache != null) {
-            try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-                ImageIO.write(scaledBI, "png", output);
-                cache.put(cacheIdent, new BufferedImageCacheEntry(output.toByteArray()));
-            } catch (IOException e) {
-                Main.warn("Failed to save geoimage thumb to cache");
-                Main.warn(e);
-            }
-        }
-
         return scaledBI;
     }
 }
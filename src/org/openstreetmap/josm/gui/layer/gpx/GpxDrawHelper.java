@@ -7,21 +7,30 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
-import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.tools.ColorScale;
 
@@ -54,6 +63,128 @@ public class GpxDrawHelper {
 
     private static final double PHI = Math.toRadians(15);
 
+    /**
+     * Colors and line directions of the points of a track segment or route.
+     */
+    private static final class SegmentStyle {
+        private final ImmutableGpxTrackSegment points;
+        private final Color[] colors;
+        /** direction of the line drawn to each point (index of {@link GpxDrawHelper#dir}), -1 if no line is drawn */
+        private final byte[] dirs;
+
+        SegmentStyle(ImmutableGpxTrackSegment points) {
+            this.points = points;
+            this.colors = new Color[points.size()];
+            this.dirs = new byte[points.size()];
+        }
+    }
+
+    /** styles of the track segments and routes, computed by {@link #calculateColors()} */
+    private final Map<Object, SegmentStyle> styles = new IdentityHashMap<>();
+    /** incremented each time the styles are computed */
+    private int stylesVersion;
+
+    /**
+     * Lines and small points of the visible tracks, decimated for a given scale. The coordinates are in pixels
+     * relative to an origin, so that the cache can be painted again while the map is panned at the same scale.
+     * The lines are grouped by color in a few large paths.
+     */
+    private static final class RenderCache {
+        private final double scale;
+        private final Projection projection;
+        private final List<Object> lines;
+        private final int stylesVersion;
+        private final boolean drawLines;
+        private final boolean large;
+        /** area covered by the cache */
+        private final ProjectionBounds extent;
+        private final double originEast;
+        private final double originNorth;
+
+        private final Map<Color, Path2D.Double> paths = new LinkedHashMap<>();
+        private int pointCount;
+        private int[] pointX = new int[16];
+        private int[] pointY = new int[16];
+        private Color[] pointColors = new Color[16];
+
+        RenderCache(MapView mv, List<Object> lines, int stylesVersion, boolean drawLines, boolean large, ProjectionBounds extent) {
+            this.scale = mv.getScale();
+            this.projection = Main.getProjection();
+            this.lines = lines;
+            this.stylesVersion = stylesVersion;
+            this.drawLines = drawLines;
+            this.large = large;
+            this.extent = extent;
+            EastNorth origin = mv.getCenter();
+            this.originEast = origin.east();
+            this.originNorth = origin.north();
+        }
+
+        boolean isValid(MapView mv, List<Object> lines, int stylesVersion, boolean drawLines, boolean large) {
+            return scale == mv.getScale() && projection == Main.getProjection() && this.stylesVersion == stylesVersion
+                    && this.drawLines == drawLines && this.large == large && sameLines(lines);
+        }
+
+        private boolean sameLines(List<Object> other) {
+            if (lines.size() != other.size()) {
+                return false;
+            }
+            for (int i = 0; i < lines.size(); i++) {
+                if (lines.get(i) != other.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isEmpty() {
+            return paths.isEmpty() && pointCount == 0;
+        }
+
+        void addPoint(int x, int y, Color color) {
+            if (pointCount == pointX.length) {
+                int n = 2 * pointCount;
+                pointX = Arrays.copyOf(pointX, n);
+                pointY = Arrays.copyOf(pointY, n);
+                pointColors = Arrays.copyOf(pointColors, n);
+            }
+            pointX[pointCount] = x;
+            pointY[pointCount] = y;
+            pointColors[pointCount++] = color;
+        }
+
+        /**
+         * Returns the horizontal offset from cached coordinates to screen coordinates.
+         * Rounded, so that the drawn pixels do not change when the map is panned.
+         * @param mv map view
+         * @return the horizontal offset
+         */
+        int getOffsetX(MapView mv) {
+            return (int) Math.round((originEast - mv.getCenter().east()) / scale + mv.getWidth() / 2d);
+        }
+
+        /**
+         * Returns the vertical offset from cached coordinates to screen coordinates.
+         * Rounded, so that the drawn pixels do not change when the map is panned.
+         * @param mv map view
+         * @return the vertical offset
+         */
+        int getOffsetY(MapView mv) {
+            return (int) Math.round((mv.getCenter().north() - originNorth) / scale + mv.getHeight() / 2d);
+        }
+    }
+
+    private RenderCache renderCache;
+
+    //// Points drawn by the current paint, see listVisiblePoints
+    private int visibleCount;
+    private int[] visibleX = new int[64];
+    private int[] visibleY = new int[64];
+    private byte[] visibleDirs = new byte[64];
+    private SegmentStyle[] visibleStyles = new SegmentStyle[64];
+    private int[] visibleIndexes = new int[64];
+    private final Point2D.Double screen2D = new Point2D.Double();
+
     //// Variables used only to check cache validity
     private boolean computeCacheInSync;
     private int computeCacheMaxLineLengthUsed;
@@ -202,7 +333,26 @@ public class GpxDrawHelper {
         largesize += lineWidth;
     }
 
+    /**
+     * Draws all tracks and routes.
+     * @param g graphics
+     * @param mv map view
+     * @param visibleSegments not used anymore, the points to draw are determined from the map view
+     * @deprecated use {@link #drawAll(Graphics2D, MapView, boolean[])}
+     */
+    @Deprecated
     public void drawAll(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+        drawAll(g, mv, (boolean[]) null);
+    }
+
+    /**
+     * Draws the visible tracks and routes.
+     * @param g graphics
+     * @param mv map view
+     * @param trackVisibility An array indicating which tracks should be drawn. Can be null, then all tracks are drawn.
+     * @return {@code true} if at least one point was drawn
+     */
+    public boolean drawAll(Graphics2D g, MapView mv, boolean[] trackVisibility) {
 
         checkCache();
 
@@ -211,6 +361,23 @@ public class GpxDrawHelper {
             calculateColors();
         }
 
+        List<Object> visibleLines = getLines(trackVisibility);
+        for (Object line : visibleLines) {
+            if (!styles.containsKey(line)) {
+                // data changed since the colors were computed
+                calculateColors();
+                break;
+            }
+        }
+        RenderCache cache = getRenderCache(mv, visibleLines);
+        visibleCount = 0;
+        if ((lines && direction) || large || hdopCircle) {
+            listVisiblePoints(mv, visibleLines);
+        }
+        if (cache.isEmpty() && visibleCount == 0) {
+            return false;
+        }
+
         Stroke storedStroke = g.getStroke();
 
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
@@ -220,54 +387,105 @@ public class GpxDrawHelper {
         if (lineWidth != 0) {
             g.setStroke(new BasicStroke(lineWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
         }
-        fixColors(visibleSegments);
-        drawLines(g, mv, visibleSegments);
-        drawArrows(g, mv, visibleSegments);
-        drawPoints(g, mv, visibleSegments);
+        drawLines(g, mv, cache);
+        drawArrows(g);
+        drawPoints(g, mv, cache);
         if (lineWidth != 0) {
             g.setStroke(storedStroke);
         }
+        return true;
+    }
+
+    /**
+     * Returns the track segments and routes, in the order of {@link GpxData#getLinesIterable(boolean[])}.
+     * @param trackVisibility An array indicating which tracks should be included. Can be null, then all tracks are included.
+     * @return the {@link GpxTrackSegment}s of visible tracks, then the {@link GpxRoute}s
+     */
+    private List<Object> getLines(boolean[] trackVisibility) {
+        List<Object> result = new ArrayList<>();
+        int i = 0;
+        for (GpxTrack trk : data.tracks) {
+            if (trackVisibility == null || i >= trackVisibility.length || trackVisibility[i]) {
+                result.addAll(trk.getSegments());
+            }
+            i++;
+        }
+        result.addAll(data.routes);
+        return result;
+    }
+
+    private static ImmutableGpxTrackSegment getPoints(Object line) {
+        if (line instanceof GpxRoute) {
+            return new ImmutableGpxTrackSegment(((GpxRoute) line).routePoints);
+        }
+        return ImmutableGpxTrackSegment.of((GpxTrackSegment) line);
+    }
+
+    /**
+     * Returns the color of a point, as computed by {@link #calculateColors()}.
+     * @param segment track segment
+     * @param index index of the point in the segment
+     * @return the color of the point, or {@code null} if colors have not been computed for this segment
+     */
+    Color getColor(GpxTrackSegment segment, int index) {
+        SegmentStyle style = styles.get(segment);
+        return style == null ? null : style.colors[index];
     }
 
     public void calculateColors() {
         double minval = +1e10;
         double maxval = -1e10;
-        WayPoint oldWp = null;
 
+        styles.clear();
+        stylesVersion++;
+        List<SegmentStyle> lines = new ArrayList<>();
+        for (Object line : getLines(null)) {
+            SegmentStyle style = new SegmentStyle(getPoints(line));
+            styles.put(line, style);
+            lines.add(style);
+        }
+
+        LatLon oldC = null;
+        double oldTime = 0;
         if (colorModeDynamic) {
             if (colored == ColorMode.VELOCITY) {
-                final List<Double> velocities = new ArrayList<>();
-                for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
+                double[] velocities = new double[1024];
+                int count = 0;
+                for (SegmentStyle line : lines) {
                     if (!forceLines) {
-                        oldWp = null;
+                        oldC = null;
                     }
-                    for (WayPoint trkPnt : segment) {
-                        LatLon c = trkPnt.getCoor();
-                        if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+                    ImmutableGpxTrackSegment points = line.points;
+                    for (int i = 0; i < points.size(); i++) {
+                        if (Double.isNaN(points.lat(i)) || Double.isNaN(points.lon(i))) {
                             continue;
                         }
-                        if (oldWp != null && trkPnt.time > oldWp.time) {
-                            double vel = c.greatCircleDistance(oldWp.getCoor())
-                                    / (trkPnt.time - oldWp.time);
-                            velocities.add(vel);
+                        LatLon c = new LatLon(points.lat(i), points.lon(i));
+                        double t = points.time(i);
+                        if (oldC != null && t > oldTime) {
+                            if (count == velocities.length) {
+                                velocities = Arrays.copyOf(velocities, 2 * count);
+                            }
+                            velocities[count++] = c.greatCircleDistance(oldC) / (t - oldTime);
                         }
-                        oldWp = trkPnt;
+                        oldC = c;
+                        oldTime = t;
                     }
                 }
-                Collections.sort(velocities);
-                if (velocities.isEmpty()) {
+                Arrays.sort(velocities, 0, count);
+                if (count == 0) {
                     velocityScale.setRange(0, 120/3.6);
                 } else {
-                    minval = velocities.get(velocities.size() / 20); // 5% percentile to remove outliers
-                    maxval = velocities.get(velocities.size() * 19 / 20); // 95% percentile to remove outliers
+                    minval = velocities[count / 20]; // 5% percentile to remove outliers
+                    maxval = velocities[count * 19 / 20]; // 95% percentile to remove outliers
                     velocityScale.setRange(minval, maxval);
                 }
             } else if (colored == ColorMode.HDOP) {
-                for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
-                    for (WayPoint trkPnt : segment) {
-                        Object val = trkPnt.get(GpxConstants.PT_HDOP);
-                        if (val != null) {
-                            double hdop = ((Float) val).doubleValue();
+                for (SegmentStyle line : lines) {
+                    ImmutableGpxTrackSegment points = line.points;
+                    for (int i = 0; i < points.size(); i++) {
+                        float hdop = points.hdop(i);
+                        if (!Float.isNaN(hdop)) {
                             if (hdop > maxval) {
                                 maxval = hdop;
                             }
@@ -283,7 +501,7 @@ public class GpxDrawHelper {
                     hdopScale.setRange(minval, maxval);
                 }
             }
-            oldWp = null;
+            oldC = null;
         } else { // color mode not dynamic
             velocityScale.setRange(0, colorTracksTune);
             hdopScale.setRange(0, 1.0/hdopfactor);
@@ -303,29 +521,31 @@ public class GpxDrawHelper {
 
 
         // Now the colors for all the points will be assigned
-        for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
+        for (SegmentStyle line : lines) {
             if (!forceLines) { // don't draw lines between segments, unless forced to
-                oldWp = null;
+                oldC = null;
             }
-            for (WayPoint trkPnt : segment) {
-                LatLon c = trkPnt.getCoor();
-                trkPnt.customColoring = neutralColor;
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            ImmutableGpxTrackSegment points = line.points;
+            for (int i = 0; i < points.size(); i++) {
+                line.colors[i] = neutralColor;
+                line.dirs[i] = -1;
+                if (Double.isNaN(points.lat(i)) || Double.isNaN(points.lon(i))) {
                     continue;
                 }
+                LatLon c = new LatLon(points.lat(i), points.lon(i));
+                double t = points.time(i);
                 // now we are sure some color will be assigned
                 Color color = null;
 
                 if (colored == ColorMode.HDOP) {
-                    Float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
-                    color = hdopScale.getColor(hdop);
+                    color = hdopScale.getColor(points.hdop(i));
                 }
-                if (oldWp != null) { // other coloring modes need segment for calcuation
-                    double dist = c.greatCircleDistance(oldWp.getCoor());
-                    boolean noDraw = false;
+                if (oldC != null) { // other coloring modes need segment for calcuation
+                    double dist = c.greatCircleDistance(oldC);
+                    double bearing = oldC.bearing(c);
                     switch (colored) {
                     case VELOCITY:
-                        double dtime = trkPnt.time - oldWp.time;
+                        double dtime = t - oldTime;
                         if (dtime > 0) {
                             color = velocityScale.getColor(dist / dtime);
                         } else {
@@ -333,11 +553,9 @@ public class GpxDrawHelper {
                         }
                         break;
                     case DIRECTION:
-                        double dirColor = oldWp.getCoor().bearing(trkPnt.getCoor());
-                        color = directionScale.getColor(dirColor);
+                        color = directionScale.getColor(bearing);
                         break;
                     case TIME:
-                        double t = trkPnt.time;
                         // skip bad timestamps and very short tracks
                         if (t > 0 && t <= now && maxval - minval > minTrackDurationForTimeColoring) {
                             color = dateScale.getColor(t);
@@ -346,73 +564,230 @@ public class GpxDrawHelper {
                         }
                         break;
                     }
-                    if (!noDraw && (maxLineLength == -1 || dist <= maxLineLength)) {
-                        trkPnt.drawLine = true;
-                        double bearing = oldWp.getCoor().bearing(trkPnt.getCoor());
-                        trkPnt.dir = ((int) (bearing / Math.PI * 4 + 1.5)) % 8;
-                    } else {
-                        trkPnt.drawLine = false;
+                    if (maxLineLength == -1 || dist <= maxLineLength) {
+                        line.dirs[i] = (byte) (((int) (bearing / Math.PI * 4 + 1.5)) % 8);
                     }
                 } else { // make sure we reset outdated data
-                    trkPnt.drawLine = false;
                     color = neutralColor;
                 }
                 if (color != null) {
-                    trkPnt.customColoring = color;
+                    line.colors[i] = color;
                 }
-                oldWp = trkPnt;
+                oldC = c;
+                oldTime = t;
             }
         }
 
         computeCacheInSync = true;
     }
 
-    private void drawLines(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
-        if (lines) {
-            Point old = null;
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
-                    continue;
+    /**
+     * Collects the points to draw in the visible* arrays, with their screen coordinates.
+     * A point is visible if a line from or to it may intersect the view.
+     * Only used for the arrows and large points, lines and small points are drawn from the {@link RenderCache}.
+     * @param mv map view
+     * @param visibleLines the visible track segments and routes
+     */
+    private void listVisiblePoints(MapView mv, List<Object> visibleLines) {
+        visibleCount = 0;
+        ProjectionBounds box = mv.getProjectionBounds();
+        SegmentStyle previous = null;
+        for (Object line : visibleLines) {
+            SegmentStyle style = styles.get(line);
+            ImmutableGpxTrackSegment.ProjectedPoints points = style.points.getProjectedPoints();
+            int[] ranges = points.getRanges(box);
+            for (int k = 0; k < ranges.length; k += 2) {
+                int from = ranges[k];
+                if (from == 0 && style.dirs[0] >= 0 && previous != null && previous.points.size() > 0) {
+                    // line from the end of the previous segment
+                    int last = previous.points.size() - 1;
+                    if (visibleCount == 0 || visibleStyles[visibleCount - 1] != previous || visibleIndexes[visibleCount - 1] != last) {
+                        addVisiblePoint(mv, previous, last, (byte) -1);
+                    }
+                }
+                // no line is drawn to the first point of a range, it lies outside of the view
+                addVisiblePoint(mv, style, from, from == 0 ? style.dirs[0] : (byte) -1);
+                for (int i = from + 1; i <= ranges[k + 1]; i++) {
+                    addVisiblePoint(mv, style, i, style.dirs[i]);
+                }
+            }
+            previous = style;
+        }
+        // do not retain the styles of a previous data set
+        Arrays.fill(visibleStyles, visibleCount, visibleStyles.length, null);
+    }
+
+    private void addVisiblePoint(MapView mv, SegmentStyle style, int index, byte dir) {
+        ImmutableGpxTrackSegment.ProjectedPoints points = style.points.getProjectedPoints();
+        double east = points.east(index);
+        double north = points.north(index);
+        if (Double.isNaN(east) || Double.isNaN(north)) {
+            return;
+        }
+        if (visibleCount == visibleX.length) {
+            int n = 2 * visibleCount;
+            visibleX = Arrays.copyOf(visibleX, n);
+            visibleY = Arrays.copyOf(visibleY, n);
+            visibleDirs = Arrays.copyOf(visibleDirs, n);
+            visibleStyles = Arrays.copyOf(visibleStyles, n);
+            visibleIndexes = Arrays.copyOf(visibleIndexes, n);
+        }
+        mv.getPoint2D(east, north, screen2D);
+        visibleX[visibleCount] = (int) screen2D.x;
+        visibleY[visibleCount] = (int) screen2D.y;
+        visibleDirs[visibleCount] = dir;
+        visibleStyles[visibleCount] = style;
+        visibleIndexes[visibleCount] = index;
+        visibleCount++;
+    }
+
+    private Color getVisibleColor(int i) {
+        return visibleStyles[i].colors[visibleIndexes[i]];
+    }
+
+    /**
+     * Returns the render cache for the current view, building it again if the scale, the projection, the colors
+     * or the visible tracks changed, or if the view left the cached area.
+     * @param mv map view
+     * @param visibleLines the visible track segments and routes
+     * @return the render cache
+     */
+    private RenderCache getRenderCache(MapView mv, List<Object> visibleLines) {
+        ProjectionBounds view = mv.getProjectionBounds();
+        RenderCache cache = renderCache;
+        if (cache == null || !cache.isValid(mv, visibleLines, stylesVersion, lines, large)
+                || view.minEast < cache.extent.minEast || view.maxEast > cache.extent.maxEast
+                || view.minNorth < cache.extent.minNorth || view.maxNorth > cache.extent.maxNorth) {
+            // cache the view and its surroundings, so that small pans do not require a new cache
+            double w = view.maxEast - view.minEast;
+            double h = view.maxNorth - view.minNorth;
+            ProjectionBounds extent = new ProjectionBounds(view.minEast - w, view.minNorth - h, view.maxEast + w, view.maxNorth + h);
+            cache = new RenderCache(mv, visibleLines, stylesVersion, lines, large, extent);
+            buildRenderCache(cache, visibleLines);
+            renderCache = cache;
+        }
+        return cache;
+    }
+
+    private void buildRenderCache(RenderCache cache, List<Object> visibleLines) {
+        double scale = cache.scale;
+        // line currently drawn: end point, color and whether it can be continued
+        double lastX = 0;
+        double lastY = 0;
+        boolean hasLast = false;
+        Color lastColor = null;
+        boolean continued = false;
+        // last cached point, to skip points drawn on the same pixel
+        int lastPointX = 0;
+        int lastPointY = 0;
+        Color lastPointColor = null;
+        SegmentStyle previous = null;
+        for (Object line : visibleLines) {
+            SegmentStyle style = styles.get(line);
+            ImmutableGpxTrackSegment.ProjectedPoints points = style.points.getProjectedPoints();
+            int size = style.points.size();
+            int[] ranges = points.getRanges(cache.extent);
+            for (int k = 0; k < ranges.length; k += 2) {
+                int from = ranges[k];
+                if (from == 0 && style.dirs[0] >= 0 && previous != null && previous.points.size() > 0) {
+                    // line from the end of the previous segment
+                    ImmutableGpxTrackSegment.ProjectedPoints previousPoints = previous.points.getProjectedPoints();
+                    int last = previous.points.size() - 1;
+                    double x = (previousPoints.east(last) - cache.originEast) / scale;
+                    double y = (cache.originNorth - previousPoints.north(last)) / scale;
+                    if (!hasLast || x != lastX || y != lastY) {
+                        lastX = x;
+                        lastY = y;
+                        hasLast = !Double.isNaN(x) && !Double.isNaN(y);
+                        continued = false;
+                    }
+                } else {
+                    hasLast = false;
                 }
-                Point screen = mv.getPoint(trkPnt.getEastNorth());
-                // skip points that are on the same screenposition
-                if (trkPnt.drawLine && old != null && ((old.x != screen.x) || (old.y != screen.y))) {
-                    g.setColor(trkPnt.customColoring);
-                    g.drawLine(old.x, old.y, screen.x, screen.y);
+                for (int i = from; i <= ranges[k + 1]; i++) {
+                    double x = (points.east(i) - cache.originEast) / scale;
+                    double y = (cache.originNorth - points.north(i)) / scale;
+                    if (Double.isNaN(x) || Double.isNaN(y)) {
+                        hasLast = false;
+                        continue;
+                    }
+                    byte dir = i == from && from > 0 ? -1 : style.dirs[i];
+                    if (lines && dir >= 0 && hasLast) {
+                        // decimation: skip lines shorter than half a pixel, unless they end the segment
+                        if (Math.abs(x - lastX) < 0.5 && Math.abs(y - lastY) < 0.5 && i < size - 1) {
+                            continue;
+                        }
+                        Color color = style.colors[i];
+                        Path2D.Double path = cache.paths.get(color);
+                        if (path == null) {
+                            path = new Path2D.Double();
+                            cache.paths.put(color, path);
+                        }
+                        if (!continued || color != lastColor) {
+                            path.moveTo(lastX, lastY);
+                        }
+                        path.lineTo(x, y);
+                        lastColor = color;
+                        continued = true;
+                    } else {
+                        continued = false;
+                        Color color = lines ? neutralColor : style.colors[i];
+                        if (!large && (!lines || dir < 0)) {
+                            int px = (int) Math.floor(x);
+                            int py = (int) Math.floor(y);
+                            if (cache.pointCount == 0 || px != lastPointX || py != lastPointY || color != lastPointColor) {
+                                cache.addPoint(px, py, color);
+                                lastPointX = px;
+                                lastPointY = py;
+                                lastPointColor = color;
+                            }
+                        }
+                    }
+                    lastX = x;
+                    lastY = y;
+                    hasLast = true;
                 }
-                old = screen;
             }
+            previous = style;
+        }
+    }
+
+    private void drawLines(Graphics2D g, MapView mv, RenderCache cache) {
+        if (lines && !cache.paths.isEmpty()) {
+            AffineTransform storedTransform = g.getTransform();
+            g.translate(cache.getOffsetX(mv), cache.getOffsetY(mv));
+            for (Map.Entry<Color, Path2D.Double> e : cache.paths.entrySet()) {
+                g.setColor(e.getKey());
+                g.draw(e.getValue());
+            }
+            g.setTransform(storedTransform);
         }
     }
 
-    private void drawArrows(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawArrows(Graphics2D g) {
         /****************************************************************
          ********** STEP 3b - DRAW NICE ARROWS **************************
          ****************************************************************/
         if (lines && direction && !alternateDirection) {
-            Point old = null;
-            Point oldA = null; // last arrow painted
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
-                    continue;
-                }
-                if (trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt.getEastNorth());
+            int old = -1;
+            int oldA = -1; // last arrow painted
+            for (int i = 0; i < visibleCount; i++) {
+                if (visibleDirs[i] >= 0) {
+                    int x = visibleX[i];
+                    int y = visibleY[i];
                     // skip points that are on the same screenposition
-                    if (old != null
-                            && (oldA == null || screen.x < oldA.x - delta || screen.x > oldA.x + delta
-                            || screen.y < oldA.y - delta || screen.y > oldA.y + delta)) {
-                        g.setColor(trkPnt.customColoring);
-                        double t = Math.atan2(screen.y - old.y, screen.x - old.x) + Math.PI;
-                        g.drawLine(screen.x, screen.y, (int) (screen.x + 10 * Math.cos(t - PHI)),
-                                (int) (screen.y + 10 * Math.sin(t - PHI)));
-                        g.drawLine(screen.x, screen.y, (int) (screen.x + 10 * Math.cos(t + PHI)),
-                                (int) (screen.y + 10 * Math.sin(t + PHI)));
-                        oldA = screen;
+                    if (old >= 0
+                            && (oldA < 0 || x < visibleX[oldA] - delta || x > visibleX[oldA] + delta
+                            || y < visibleY[oldA] - delta || y > visibleY[oldA] + delta)) {
+                        g.setColor(getVisibleColor(i));
+                        double t = Math.atan2(y - visibleY[old], x - visibleX[old]) + Math.PI;
+                        g.drawLine(x, y, (int) (x + 10 * Math.cos(t - PHI)),
+                                (int) (y + 10 * Math.sin(t - PHI)));
+                        g.drawLine(x, y, (int) (x + 10 * Math.cos(t + PHI)),
+                                (int) (y + 10 * Math.sin(t + PHI)));
+                        oldA = i;
                     }
-                    old = screen;
+                    old = i;
                 }
             } // end for trkpnt
         }
@@ -421,70 +796,63 @@ public class GpxDrawHelper {
          ********** STEP 3c - DRAW FAST ARROWS **************************
          ****************************************************************/
         if (lines && direction && alternateDirection) {
-            Point old = null;
-            Point oldA = null; // last arrow painted
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
-                    continue;
-                }
-                if (trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt.getEastNorth());
+            int old = -1;
+            int oldA = -1; // last arrow painted
+            for (int i = 0; i < visibleCount; i++) {
+                if (visibleDirs[i] >= 0) {
+                    int x = visibleX[i];
+                    int y = visibleY[i];
                     // skip points that are on the same screenposition
-                    if (old != null
-                            && (oldA == null || screen.x < oldA.x - delta || screen.x > oldA.x + delta
-                            || screen.y < oldA.y - delta || screen.y > oldA.y + delta)) {
-                        g.setColor(trkPnt.customColoring);
-                        g.drawLine(screen.x, screen.y, screen.x + dir[trkPnt.dir][0], screen.y
-                                + dir[trkPnt.dir][1]);
-                        g.drawLine(screen.x, screen.y, screen.x + dir[trkPnt.dir][2], screen.y
-                                + dir[trkPnt.dir][3]);
-                        oldA = screen;
+                    if (old >= 0
+                            && (oldA < 0 || x < visibleX[oldA] - delta || x > visibleX[oldA] + delta
+                            || y < visibleY[oldA] - delta || y > visibleY[oldA] + delta)) {
+                        g.setColor(getVisibleColor(i));
+                        int[] d = dir[visibleDirs[i]];
+                        g.drawLine(x, y, x + d[0], y + d[1]);
+                        g.drawLine(x, y, x + d[2], y + d[3]);
+                        oldA = i;
                     }
-                    old = screen;
+                    old = i;
                 }
             } // end for trkpnt
         }
     }
 
-    private void drawPoints(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawPoints(Graphics2D g, MapView mv, RenderCache cache) {
         /****************************************************************
          ********** STEP 3d - DRAW LARGE POINTS AND HDOP CIRCLE *********
          ****************************************************************/
         if (large || hdopCircle) {
             final int halfSize = largesize/2;
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
-                    continue;
-                }
-                Point screen = mv.getPoint(trkPnt.getEastNorth());
-
-
-                if (hdopCircle && trkPnt.get(GpxConstants.PT_HDOP) != null) {
+            for (int i = 0; i < visibleCount; i++) {
+                int x = visibleX[i];
+                int y = visibleY[i];
+                Color color = getVisibleColor(i);
+                ImmutableGpxTrackSegment points = visibleStyles[i].points;
+                int index = visibleIndexes[i];
+
+                if (hdopCircle && !Float.isNaN(points.hdop(index))) {
                     // hdop value
-                    float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
+                    float hdop = points.hdop(index);
                     if (hdop < 0) {
                         hdop = 0;
                     }
-                    Color customColoringTransparent = hdopAlpha < 0 ? trkPnt.customColoring :
-                        new Color(trkPnt.customColoring.getRGB() & 0x00ffffff | hdopAlpha << 24, true);
+                    Color customColoringTransparent = hdopAlpha < 0 ? color :
+                        new Color(color.getRGB() & 0x00ffffff | hdopAlpha << 24, true);
                     g.setColor(customColoringTransparent);
                     // hdop cirles
                     int hdopp = mv.getPoint(new LatLon(
-                            trkPnt.getCoor().lat(),
-                            trkPnt.getCoor().lon() + 2*6*hdop*360/40000000d)).x - screen.x;
-                    g.drawArc(screen.x-hdopp/2, screen.y-hdopp/2, hdopp, hdopp, 0, 360);
+                            points.lat(index),
+                            points.lon(index) + 2*6*hdop*360/40000000d)).x - x;
+                    g.drawArc(x-hdopp/2, y-hdopp/2, hdopp, hdopp, 0, 360);
                 }
                 if (large) {
                     // color the large GPS points like the gps lines
-                    if (trkPnt.customColoring != null) {
-                        Color customColoringTransparent = largePointAlpha < 0 ? trkPnt.customColoring :
-                            new Color(trkPnt.customColoring.getRGB() & 0x00ffffff | largePointAlpha << 24, true);
+                    Color customColoringTransparent = largePointAlpha < 0 ? color :
+                        new Color(color.getRGB() & 0x00ffffff | largePointAlpha << 24, true);
 
-                        g.setColor(customColoringTransparent);
-                    }
-                    g.fillRect(screen.x-halfSize, screen.y-halfSize, largesize, largesize);
+                    g.setColor(customColoringTransparent);
+                    g.fillRect(x-halfSize, y-halfSize, largesize, largesize);
                 }
             } // end for trkpnt
         } // end if large || hdopcircle
@@ -494,15 +862,10 @@ public class GpxDrawHelper {
          ****************************************************************/
         if (!large && lines) {
             g.setColor(neutralColor);
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
-                    continue;
-                }
-                if (!trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt.getEastNorth());
-                    g.drawRect(screen.x, screen.y, 0, 0);
-                }
+            int dx = cache.getOffsetX(mv);
+            int dy = cache.getOffsetY(mv);
+            for (int i = 0; i < cache.pointCount; i++) {
+                g.drawRect(cache.pointX[i] + dx, cache.pointY[i] + dy, 0, 0);
             } // end for trkpnt
         } // end if large
 
@@ -511,26 +874,15 @@ public class GpxDrawHelper {
          ****************************************************************/
         if (!large && !lines) {
             g.setColor(neutralColor);
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
-                    continue;
-                }
-                Point screen = mv.getPoint(trkPnt.getEastNorth());
-                g.setColor(trkPnt.customColoring);
-                g.drawRect(screen.x, screen.y, 0, 0);
+            int dx = cache.getOffsetX(mv);
+            int dy = cache.getOffsetY(mv);
+            for (int i = 0; i < cache.pointCount; i++) {
+                g.setColor(cache.pointColors[i]);
+                g.drawRect(cache.pointX[i] + dx, cache.pointY[i] + dy, 0, 0);
             } // end for trkpnt
         } // end if large
     }
 
-    private void fixColors(List<WayPoint> visibleSegments) {
-        for (WayPoint trkPnt : visibleSegments) {
-            if (trkPnt.customColoring == null) {
-                trkPnt.customColoring = neutralColor;
-            }
-        }
-    }
-
     /**
      * Check cache validity set necessary flags
      */
@@ -549,6 +901,7 @@ public class GpxDrawHelper {
 
     public void dataChanged() {
         computeCacheInSync = false;
+        renderCache = null;
     }
 
     public void drawColorBar(Graphics2D g, MapView mv) {
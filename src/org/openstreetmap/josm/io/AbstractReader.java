@@ -22,6 +22,7 @@ import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
 import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.tools.LongList;
 
 /**
  * Abstract Reader, allowing other implementations than OsmReader (PbfReader in PBF plugin for example)
@@ -85,8 +86,9 @@ public abstract class AbstractReader {
         for (Entry<Long, Collection<Long>> entry : ways.entrySet()) {
             Long externalWayId = entry.getKey();
             Way w = (Way) externalIdMap.get(new SimplePrimitiveId(externalWayId, OsmPrimitiveType.WAY));
-            List<Node> wayNodes = new ArrayList<>();
-            for (long id : entry.getValue()) {
+            long[] nodeIds = toLongArray(entry.getValue());
+            List<Node> wayNodes = new ArrayList<>(nodeIds.length);
+            for (long id : nodeIds) {
                 Node n = (Node) externalIdMap.get(new SimplePrimitiveId(id, OsmPrimitiveType.NODE));
                 if (n == null) {
                     if (id <= 0)
@@ -116,6 +118,18 @@ public abstract class AbstractReader {
         }
     }
 
+    private static long[] toLongArray(Collection<Long> ids) {
+        if (ids instanceof LongList) {
+            return ((LongList) ids).toLongArray();
+        }
+        long[] result = new long[ids.size()];
+        int i = 0;
+        for (long id : ids) {
+            result[i++] = id;
+        }
+        return result;
+    }
+
     /**
      * Completes the parsed relations with its members.
      *
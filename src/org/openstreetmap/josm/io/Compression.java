@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -97,7 +98,8 @@ public enum Compression {
      */
     @SuppressWarnings("resource")
     public static InputStream getUncompressedFileInputStream(File file) throws IOException {
-        return byExtension(file.getName()).getUncompressedInputStream(new FileInputStream(file));
+        // the bzip2 decompressor reads its input byte by byte
+        return byExtension(file.getName()).getUncompressedInputStream(new BufferedInputStream(new FileInputStream(file)));
     }
 
     /**
@@ -24,7 +24,9 @@ import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxLink;
 import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.tools.Utils;
 import org.xml.sax.Attributes;
@@ -37,7 +39,9 @@ import org.xml.sax.helpers.DefaultHandler;
  * Read a gpx file.
  *
  * Bounds are read, even if we calculate them, see {@link GpxData#recalculateBounds}.<br>
- * Both GPX version 1.0 and 1.1 are supported.
+ * Both GPX version 1.0 and 1.1 are supported.<br>
+ * Track points are stored directly into the columns of {@link ImmutableGpxTrackSegment}, without creating
+ * a {@link WayPoint} for each of them.
  *
  * @author imi, ramack
  */
@@ -48,6 +52,7 @@ public class GpxReader implements GpxConstants {
         gpx,
         metadata,
         wpt,
+        trkpt,
         rte,
         trk,
         ext,
@@ -65,9 +70,12 @@ public class GpxReader implements GpxConstants {
     private class Parser extends DefaultHandler {
 
         private GpxData data;
-        private Collection<Collection<WayPoint>> currentTrack;
+        private List<GpxTrackSegment> currentTrack;
         private Map<String, Object> currentTrackAttr;
-        private Collection<WayPoint> currentTrackSeg;
+        /** track points are written directly into the columns of the segment */
+        private final ImmutableGpxTrackSegment.Builder currentTrackSeg = new ImmutableGpxTrackSegment.Builder(1024);
+        /** links of the current track point, usually empty */
+        private final Map<String, Object> currentTrackPointAttr = new HashMap<>();
         private GpxRoute currentRoute;
         private WayPoint currentWayPoint;
 
@@ -197,7 +205,6 @@ public class GpxReader implements GpxConstants {
                 case "trkseg":
                     states.push(currentState);
                     currentState = State.trkseg;
-                    currentTrackSeg = new ArrayList<>();
                     break;
                 case "link":
                     states.push(currentState);
@@ -213,11 +220,12 @@ public class GpxReader implements GpxConstants {
             case trkseg:
                 if ("trkpt".equals(localName)) {
                     states.push(currentState);
-                    currentState = State.wpt;
-                    currentWayPoint = new WayPoint(parseLatLon(atts));
+                    currentState = State.trkpt;
+                    currentTrackSeg.addPoint(parseCoord(atts.getValue("lat")), parseCoord(atts.getValue("lon")));
                 }
                 break;
             case wpt:
+            case trkpt:
                 switch (localName) {
                 case "link":
                     states.push(currentState);
@@ -278,6 +286,7 @@ public class GpxReader implements GpxConstants {
             case rte: return currentRoute.attr;
             case metadata: return data.attr;
             case wpt: return currentWayPoint.attr;
+            case trkpt: return currentTrackPointAttr;
             case trk: return currentTrackAttr;
             default: return null;
             }
@@ -423,11 +432,6 @@ public class GpxReader implements GpxConstants {
                     convertUrlToLink(currentWayPoint.attr);
                     currentRoute.routePoints.add(currentWayPoint);
                     break;
-                case "trkpt":
-                    currentState = states.pop();
-                    convertUrlToLink(currentWayPoint.attr);
-                    currentTrackSeg.add(currentWayPoint);
-                    break;
                 case "wpt":
                     currentState = states.pop();
                     convertUrlToLink(currentWayPoint.attr);
@@ -438,10 +442,51 @@ public class GpxReader implements GpxConstants {
                     break;
                 }
                 break;
+            case trkpt:
+                switch (localName) {
+                case "ele":
+                case "magvar":
+                case "name":
+                case "src":
+                case "geoidheight":
+                case "type":
+                case "sym":
+                case "cmt":
+                case "desc":
+                    currentTrackSeg.put(localName, accumulator.toString());
+                    break;
+                case "url":
+                case "urlname":
+                    currentTrackPointAttr.put(localName, accumulator.toString());
+                    break;
+                case "hdop":
+                case "vdop":
+                case "pdop":
+                    try {
+                        currentTrackSeg.put(localName, Float.valueOf(accumulator.toString()));
+                    } catch (Exception e) {
+                        currentTrackSeg.put(localName, 0f);
+                    }
+                    break;
+                case "time":
+                    currentTrackSeg.putTime(accumulator.toString());
+                    break;
+                case "trkpt":
+                    currentState = states.pop();
+                    if (!currentTrackPointAttr.isEmpty()) {
+                        convertUrlToLink(currentTrackPointAttr);
+                        for (Map.Entry<String, Object> e : currentTrackPointAttr.entrySet()) {
+                            currentTrackSeg.put(e.getKey(), e.getValue());
+                        }
+                        currentTrackPointAttr.clear();
+                    }
+                    break;
+                }
+                break;
             case trkseg:
                 if ("trkseg".equals(localName)) {
                     currentState = states.pop();
-                    currentTrack.add(currentTrackSeg);
+                    currentTrack.add(currentTrackSeg.build());
                 }
                 break;
             case trk:
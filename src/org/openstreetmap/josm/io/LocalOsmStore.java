@@ -0,0 +1,1066 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetMerger;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A store of OSM data on disk, for working in a region without downloading from the OSM server.
+ * <p>
+ * The store is filled by {@link #importFile importing} OSM files, for instance extracts of a region, and the data of
+ * an area is {@link #read(Bounds, ProgressMonitor) read} like the OSM API {@code map} call returns it: the nodes of
+ * the area, the ways using these nodes with all their nodes, and the relations using these nodes and ways.
+ * <p>
+ * Data is stored in compressed OSM files of {@link #TILE_SIZE} degrees. A way is stored in every tile of its nodes,
+ * a relation in every tile of its member nodes and ways. An index gives the tile of each primitive, to
+ * {@link #read(Collection, ProgressMonitor) read primitives} by id, and to complete ways whose nodes are stored in
+ * other tiles.
+ */
+public class LocalOsmStore {
+
+    /**
+     * The width and height of a tile, in degrees.
+     */
+    public static final double TILE_SIZE = 0.05;
+
+    /** the origin of the data sources of the data read from the store */
+    private static final String ORIGIN = "JOSM local store";
+
+    /** the tile of relations without located members */
+    private static final int NO_TILE = -1;
+
+    /** the number of rows of tiles, from the south to the north pole */
+    private static final int ROWS = getRow(90) + 1;
+
+    private static final int INDEX_MAGIC = 0x4a4c5332; // JLS2
+
+    private static LocalOsmStore instance;
+
+    private final File dir;
+    private List<Bounds> extracts;
+    private final Map<OsmPrimitiveType, TileIndex> indexes = new HashMap<>();
+
+    /**
+     * Constructs a new {@code LocalOsmStore}.
+     * @param dir the directory of the store. It is created when data is imported
+     */
+    public LocalOsmStore(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the store in the directory {@code local-store.dir}, by default the {@code osm-store} directory of the
+     * user data directory.
+     * @return the store of the user
+     */
+    public static synchronized LocalOsmStore getInstance() {
+        File dir = new File(Main.pref.get("local-store.dir", new File(Main.pref.getUserDataDirectory(), "osm-store").getPath()));
+        if (instance == null || !instance.dir.equals(dir)) {
+            instance = new LocalOsmStore(dir);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the directory of the store.
+     * @return the directory of the store
+     */
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Determines whether data has been imported into the store, in this or an earlier session.
+     * An import which has been interrupted leaves the store as it was before.
+     * @return {@code true} if data has been imported
+     */
+    public boolean isImported() {
+        return new File(dir, "extracts.txt").isFile();
+    }
+
+    /**
+     * Returns the areas of the imported data.
+     * @return the bounds of the imported files, or of their nodes if the files have no bounds
+     * @throws IOException if the store cannot be read
+     */
+    public synchronized List<Bounds> getExtracts() throws IOException {
+        load();
+        return new ArrayList<>(extracts);
+    }
+
+    /**
+     * Determines whether the store contains all data of an area.
+     * @param bounds the area
+     * @return {@code true} if the area is within the bounds of an imported file
+     */
+    public synchronized boolean covers(Bounds bounds) {
+        try {
+            load();
+        } catch (IOException e) {
+            Main.warn(e);
+            return false;
+        }
+        for (Bounds extract : extracts) {
+            if (extract.contains(bounds.getMin()) && extract.contains(bounds.getMax())
+                    && extract.crosses180thMeridian() == bounds.crosses180thMeridian()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Imports an OSM file, without reading it into memory. Primitives which are already in the store are replaced.
+     * New and deleted primitives of the file are ignored, and modified primitives are stored as they are, with a warning.
+     * @param file the OSM file, possibly compressed, see {@link Compression}
+     * @param progressMonitor the progress monitor
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the file is not a valid OSM file
+     * @see #importStream
+     */
+    public void importFile(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        progressMonitor.beginTask(tr("Adding {0} to the local store", file.getName()), 1);
+        try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+            importStream(in, progressMonitor.createSubTaskMonitor(1, false));
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * Imports OSM data. Primitives which are already in the store are replaced.
+     * New and deleted primitives are ignored.
+     * @param ds the data
+     * @param progressMonitor the progress monitor
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void importData(DataSet ds, ProgressMonitor progressMonitor) throws IOException {
+        load();
+        progressMonitor.beginTask(tr("Splitting data into tiles"));
+        try {
+            final Map<Integer, Set<OsmPrimitive>> tiles = new HashMap<>();
+            final Map<OsmPrimitiveType, TileIndex> added = createIndexes();
+            for (Node n : ds.getNodes()) {
+                if (isStored(n) && n.getCoor() != null) {
+                    int tile = getTile(n.getCoor());
+                    addToTile(tiles, tile, n);
+                    added.get(OsmPrimitiveType.NODE).add(n.getId(), tile);
+                }
+            }
+            for (Way w : ds.getWays()) {
+                if (!isStored(w)) {
+                    continue;
+                }
+                Set<Integer> wayTiles = getWayTiles(w);
+                for (int tile : wayTiles) {
+                    addToTile(tiles, tile, w);
+                    for (Node n : w.getNodes()) {
+                        if (isStored(n)) {
+                            addToTile(tiles, tile, n);
+                        }
+                    }
+                }
+                if (!wayTiles.isEmpty()) {
+                    added.get(OsmPrimitiveType.WAY).add(w.getId(), wayTiles.iterator().next());
+                }
+            }
+            for (Relation r : ds.getRelations()) {
+                if (!isStored(r)) {
+                    continue;
+                }
+                Set<Integer> relationTiles = new LinkedHashSet<>();
+                for (RelationMember m : r.getMembers()) {
+                    if (m.isNode() && m.getNode().getCoor() != null) {
+                        relationTiles.add(getTile(m.getNode().getCoor()));
+                    } else if (m.isWay()) {
+                        relationTiles.addAll(getWayTiles(m.getWay()));
+                    }
+                }
+                if (relationTiles.isEmpty()) {
+                    relationTiles.add(NO_TILE);
+                }
+                for (int tile : relationTiles) {
+                    addToTile(tiles, tile, r);
+                }
+                added.get(OsmPrimitiveType.RELATION).add(r.getId(), relationTiles.iterator().next());
+            }
+
+            progressMonitor.setTicksCount(tiles.size());
+            progressMonitor.subTask(tr("Writing {0} tiles", tiles.size()));
+            new File(dir, "tiles").mkdirs();
+            for (Map.Entry<Integer, Set<OsmPrimitive>> e : tiles.entrySet()) {
+                writeTile(e.getKey(), e.getValue(), ds, added);
+                progressMonitor.worked(1);
+            }
+            commit(added, ds.dataSources.isEmpty() ? getBounds(ds) : null, ds.dataSources);
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * Imports OSM data from a stream, in one pass which only keeps the index of the primitives in memory.
+     * This allows to import files which are too large to be read into a data set.
+     * Primitives which are already in the store are replaced. New and deleted primitives are ignored.
+     * <p>
+     * Unlike {@link #importData}, nodes are only stored in their own tile, and completed when ways are read. Relations
+     * are stored in the tiles of their member nodes, but only in the first tile of their member ways.
+     * @param in the uncompressed OSM data
+     * @param progressMonitor the progress monitor
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the data is not valid OSM data
+     */
+    public void importStream(InputStream in, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        importStream(in, false, progressMonitor);
+    }
+
+    /**
+     * Imports OSM data from a stream, like {@link #importStream(InputStream, ProgressMonitor)}.
+     * @param in the uncompressed OSM data
+     * @param rejectChanges if {@code true}, the import fails as soon as a new, deleted or modified primitive is read,
+     * since the store would lose the local changes. Otherwise they are ignored with a warning
+     * @param progressMonitor the progress monitor
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the data is not valid OSM data
+     * @throws LocalChangesException if {@code rejectChanges} is set and the data contains local changes
+     */
+    public synchronized void importStream(InputStream in, boolean rejectChanges, ProgressMonitor progressMonitor)
+            throws IOException, IllegalDataException {
+        load();
+        File tilesDir = new File(dir, "tiles");
+        if (!tilesDir.isDirectory() && !tilesDir.mkdirs()) {
+            throw new IOException(tr("Cannot create directory {0}", tilesDir));
+        }
+        deletePartFiles(tilesDir);
+        progressMonitor.beginTask(tr("Splitting data into tiles"), 2);
+        try {
+            TilingReader reader = new TilingReader(Main.pref.getInteger("local-store.import.buffer-size", 64) * 1024 * 1024,
+                    rejectChanges);
+            DataSet ds;
+            try {
+                ds = reader.doParseDataSet(in, progressMonitor.createSubTaskMonitor(1, false));
+                reader.flush();
+            } catch (IllegalDataException e) {
+                if (reader.ioException != null) {
+                    throw reader.ioException;
+                } else if (reader.changed != null) {
+                    throw new LocalChangesException(tr("The data contains local changes, for instance {0}",
+                            reader.changed), e);
+                }
+                throw e;
+            }
+            if (reader.ignoredChanges > 0) {
+                Main.warn(tr("{0} new, deleted or modified primitives have not been added to the local store {1}",
+                        reader.ignoredChanges, dir));
+            }
+
+            ProgressMonitor writeMonitor = progressMonitor.createSubTaskMonitor(1, false);
+            writeMonitor.beginTask(tr("Writing {0} tiles", reader.parts.size()), reader.parts.size());
+            try {
+                for (int tile : reader.parts) {
+                    finishTile(tile, reader.header, reader.footer, reader.added);
+                    writeMonitor.worked(1);
+                }
+            } finally {
+                writeMonitor.finishTask();
+            }
+            commit(reader.added, reader.bounds, ds.dataSources);
+        } finally {
+            deletePartFiles(tilesDir);
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * Adds the index of imported primitives and the imported area to the store.
+     * @param added the index of the imported primitives
+     * @param bounds the bounds of the imported nodes, used if there is no data source
+     * @param dataSources the data sources of the imported data
+     */
+    private void commit(Map<OsmPrimitiveType, TileIndex> added, Bounds bounds, Collection<DataSource> dataSources)
+            throws IOException {
+        for (OsmPrimitiveType type : OsmPrimitiveType.dataValues()) {
+            indexes.get(type).putAll(added.get(type));
+        }
+        writeIndex();
+        if (dataSources.isEmpty()) {
+            if (bounds != null) {
+                extracts.add(bounds);
+            }
+        } else {
+            for (DataSource source : dataSources) {
+                extracts.add(source.bounds);
+            }
+        }
+        writeExtracts();
+    }
+
+    /**
+     * Returns the tiles of an area.
+     * @param bounds the area
+     * @return the tiles which intersect the area
+     * @see #readTiles
+     */
+    public static List<Integer> getTiles(Bounds bounds) {
+        List<Integer> tiles = new ArrayList<>();
+        if (bounds.crosses180thMeridian()) {
+            addTiles(tiles, bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), 180);
+            addTiles(tiles, bounds.getMinLat(), -180, bounds.getMaxLat(), bounds.getMaxLon());
+        } else {
+            addTiles(tiles, bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), bounds.getMaxLon());
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the area of a tile.
+     * @param tile the tile, see {@link #getTiles}
+     * @return the bounds of the tile
+     */
+    public static Bounds getTileBounds(int tile) {
+        int x = tile / ROWS;
+        int y = tile % ROWS;
+        return new Bounds(y * TILE_SIZE - 90, x * TILE_SIZE - 180, Math.min(90, (y + 1) * TILE_SIZE - 90),
+                Math.min(180, (x + 1) * TILE_SIZE - 180));
+    }
+
+    /**
+     * Reads the data of an area.
+     * @param bounds the area
+     * @param progressMonitor the progress monitor
+     * @return the nodes of the area, the ways using these nodes with all their nodes, and the relations using these
+     * nodes and ways, with a data source for {@code bounds}. The data set may contain other primitives close to the area
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if a tile of the store is invalid
+     */
+    public synchronized DataSet read(Bounds bounds, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        DataSet ds = readTiles(getTiles(bounds), progressMonitor);
+        ds.dataSources.add(new DataSource(bounds, ORIGIN));
+        return ds;
+    }
+
+    /**
+     * Reads the data of tiles, without data source.
+     * @param tiles the tiles, see {@link #getTiles}
+     * @param progressMonitor the progress monitor
+     * @return the primitives stored in the tiles, with all nodes of the ways
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if a tile of the store is invalid
+     */
+    public synchronized DataSet readTiles(Collection<Integer> tiles, ProgressMonitor progressMonitor)
+            throws IOException, IllegalDataException {
+        load();
+        progressMonitor.beginTask(tr("Reading from the local store"), tiles.size() + 1);
+        try {
+            DataSet ds = new DataSet();
+            for (int tile : tiles) {
+                File file = getTileFile(tile);
+                if (file.isFile()) {
+                    new DataSetMerger(ds, readTile(file)).merge();
+                }
+                progressMonitor.worked(1);
+            }
+            completeWays(ds, new HashSet<>(tiles));
+            progressMonitor.worked(1);
+            return ds;
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * Reads primitives by id.
+     * @param ids the ids of the primitives
+     * @param progressMonitor the progress monitor
+     * @return the primitives which are in the store, with the nodes of ways and the members of relations
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if a tile of the store is invalid
+     */
+    public synchronized DataSet read(Collection<? extends PrimitiveId> ids, ProgressMonitor progressMonitor)
+            throws IOException, IllegalDataException {
+        load();
+        Set<Integer> tiles = new LinkedHashSet<>();
+        for (PrimitiveId id : ids) {
+            Integer tile = indexes.get(id.getType()).get(id.getUniqueId());
+            if (tile != null) {
+                tiles.add(tile);
+            }
+        }
+        DataSet ds = readTiles(tiles, progressMonitor);
+        // keep the requested primitives and what they refer to, remove the rest of the tiles
+        Set<OsmPrimitive> keep = new LinkedHashSet<>();
+        Deque<OsmPrimitive> toKeep = new ArrayDeque<>();
+        for (PrimitiveId id : ids) {
+            OsmPrimitive p = ds.getPrimitiveById(id);
+            if (p != null) {
+                toKeep.add(p);
+            }
+        }
+        while (!toKeep.isEmpty()) {
+            OsmPrimitive p = toKeep.poll();
+            if (!keep.add(p)) {
+                continue;
+            }
+            if (p instanceof Way) {
+                keep.addAll(((Way) p).getNodes());
+            } else if (p instanceof Relation) {
+                toKeep.addAll(((Relation) p).getMemberPrimitivesList());
+            }
+        }
+        removeAllBut(ds, keep);
+        return ds;
+    }
+
+    /**
+     * Reads the nodes of ways which are stored in other tiles than the ways.
+     * @param ds the data read from tiles
+     * @param read the tiles which have been read
+     */
+    private void completeWays(DataSet ds, Set<Integer> read) throws IOException, IllegalDataException {
+        Map<Integer, Set<Long>> missing = new HashMap<>();
+        TileIndex nodeIndex = indexes.get(OsmPrimitiveType.NODE);
+        for (Way w : ds.getWays()) {
+            if (!w.hasIncompleteNodes()) {
+                continue;
+            }
+            for (Node n : w.getNodes()) {
+                Integer tile = n.isIncomplete() ? nodeIndex.get(n.getUniqueId()) : null;
+                if (tile != null && !read.contains(tile)) {
+                    Set<Long> ids = missing.get(tile);
+                    if (ids == null) {
+                        ids = new HashSet<>();
+                        missing.put(tile, ids);
+                    }
+                    ids.add(n.getUniqueId());
+                }
+            }
+        }
+        for (Map.Entry<Integer, Set<Long>> e : missing.entrySet()) {
+            File file = getTileFile(e.getKey());
+            if (!file.isFile()) {
+                continue;
+            }
+            DataSet other = readTile(file);
+            Set<OsmPrimitive> keep = new HashSet<>();
+            for (long id : e.getValue()) {
+                OsmPrimitive n = other.getPrimitiveById(id, OsmPrimitiveType.NODE);
+                if (n != null) {
+                    keep.add(n);
+                }
+            }
+            removeAllBut(other, keep);
+            new DataSetMerger(ds, other).merge();
+        }
+    }
+
+    private static void removeAllBut(DataSet ds, Set<OsmPrimitive> keep) {
+        List<OsmPrimitive> remove = new ArrayList<>();
+        remove.addAll(ds.getRelations());
+        remove.addAll(ds.getWays());
+        remove.addAll(ds.getNodes());
+        for (OsmPrimitive p : remove) {
+            if (!keep.contains(p)) {
+                ds.removePrimitive(p.getPrimitiveId());
+            }
+        }
+    }
+
+    private static DataSet readTile(File file) throws IOException, IllegalDataException {
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    /**
+     * Writes a tile. Primitives of the existing tile are kept, unless they have been imported again.
+     * @param tile the tile
+     * @param primitives the imported primitives of the tile
+     * @param ds the imported data, to replace the nodes of the kept ways
+     * @param added the index of the imported primitives
+     */
+    private void writeTile(int tile, Collection<OsmPrimitive> primitives, DataSet ds, Map<OsmPrimitiveType, TileIndex> added)
+            throws IOException {
+        final File file = getTileFile(tile);
+        final List<Node> nodes = new ArrayList<>();
+        final List<Way> ways = new ArrayList<>();
+        final List<Relation> relations = new ArrayList<>();
+        final Set<OsmPrimitive> all = new LinkedHashSet<>(primitives);
+        if (file.isFile()) {
+            try {
+                DataSet old = readTile(file);
+                for (OsmPrimitive p : old.allPrimitives()) {
+                    if (p.isIncomplete() || isAdded(added, p)) {
+                        continue;
+                    }
+                    all.add(p);
+                    if (p instanceof Way) {
+                        // the way keeps its nodes, in their new state if they have been replaced
+                        for (Node n : ((Way) p).getNodes()) {
+                            if (!isAdded(added, n)) {
+                                all.add(n);
+                            } else if (ds.getPrimitiveById(n) != null) {
+                                all.add(ds.getPrimitiveById(n));
+                            }
+                        }
+                    }
+                }
+            } catch (IllegalDataException e) {
+                Main.warn(tr("Replacing invalid tile {0}: {1}", file, e.getMessage()));
+            }
+        }
+        for (OsmPrimitive p : all) {
+            if (p instanceof Node) {
+                nodes.add((Node) p);
+            } else if (p instanceof Way) {
+                ways.add((Way) p);
+            } else if (p instanceof Relation) {
+                relations.add((Relation) p);
+            }
+        }
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))), StandardCharsets.UTF_8));
+             OsmWriter w = OsmWriterFactory.createOsmWriter(out, true, OsmWriter.DEFAULT_API_VERSION)) {
+            w.header();
+            w.writeNodes(nodes);
+            w.writeWays(ways);
+            w.writeRelations(relations);
+            w.footer();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Turns the part file of a tile written by {@link TilingReader} into a tile.
+     */
+    private void finishTile(int tile, String header, String footer, Map<OsmPrimitiveType, TileIndex> added)
+            throws IOException, IllegalDataException {
+        final File file = getTileFile(tile);
+        final File part = getPartFile(tile);
+        final File tmp = new File(file.getPath() + ".new");
+        try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.write(header.getBytes(StandardCharsets.UTF_8));
+            Files.copy(part.toPath(), out);
+            out.write(footer.getBytes(StandardCharsets.UTF_8));
+        }
+        if (file.isFile()) {
+            DataSet ds = readTile(tmp);
+            writeTile(tile, ds.allPrimitives(), ds, added);
+            Utils.deleteFile(tmp);
+        } else {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Utils.deleteFile(part);
+    }
+
+    private static void deletePartFiles(File tilesDir) {
+        File[] files = tilesDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.getName().endsWith(".part")) {
+                    Utils.deleteFile(f);
+                }
+            }
+        }
+    }
+
+    private static Map<OsmPrimitiveType, TileIndex> createIndexes() {
+        Map<OsmPrimitiveType, TileIndex> result = new HashMap<>();
+        for (OsmPrimitiveType type : OsmPrimitiveType.dataValues()) {
+            result.put(type, new TileIndex());
+        }
+        return result;
+    }
+
+    private static boolean isAdded(Map<OsmPrimitiveType, TileIndex> added, OsmPrimitive p) {
+        return added.get(p.getType()).get(p.getUniqueId()) != null;
+    }
+
+    private static boolean isStored(OsmPrimitive p) {
+        return !p.isNew() && !p.isDeleted() && !p.isIncomplete();
+    }
+
+    private static void addToTile(Map<Integer, Set<OsmPrimitive>> tiles, int tile, OsmPrimitive p) {
+        Set<OsmPrimitive> primitives = tiles.get(tile);
+        if (primitives == null) {
+            primitives = new LinkedHashSet<>();
+            tiles.put(tile, primitives);
+        }
+        primitives.add(p);
+    }
+
+    private static int getTile(int x, int y) {
+        return x * ROWS + y;
+    }
+
+    private static int getTile(LatLon ll) {
+        return getTile(getColumn(ll.lon()), getRow(ll.lat()));
+    }
+
+    private static int getColumn(double lon) {
+        return (int) Math.floor((lon + 180) / TILE_SIZE);
+    }
+
+    private static int getRow(double lat) {
+        return (int) Math.floor((lat + 90) / TILE_SIZE);
+    }
+
+    private static Set<Integer> getWayTiles(Way w) {
+        Set<Integer> tiles = new LinkedHashSet<>();
+        for (Node n : w.getNodes()) {
+            if (n.getCoor() != null) {
+                tiles.add(getTile(n.getCoor()));
+            }
+        }
+        return tiles;
+    }
+
+    private static void addTiles(List<Integer> tiles, double minLat, double minLon, double maxLat, double maxLon) {
+        for (int x = getColumn(minLon); x <= getColumn(maxLon); x++) {
+            for (int y = getRow(minLat); y <= getRow(maxLat); y++) {
+                tiles.add(getTile(x, y));
+            }
+        }
+    }
+
+    private static String getTileName(int tile) {
+        return tile == NO_TILE ? "other" : (tile / ROWS) + "_" + (tile % ROWS);
+    }
+
+    private File getTileFile(int tile) {
+        return new File(new File(dir, "tiles"), getTileName(tile) + ".osm.gz");
+    }
+
+    private File getPartFile(int tile) {
+        return new File(new File(dir, "tiles"), getTileName(tile) + ".part");
+    }
+
+    private static Bounds getBounds(DataSet ds) {
+        Bounds bounds = null;
+        for (Node n : ds.getNodes()) {
+            if (isStored(n) && n.getCoor() != null) {
+                if (bounds == null) {
+                    bounds = new Bounds(n.getCoor());
+                } else {
+                    bounds.extend(n.getCoor());
+                }
+            }
+        }
+        return bounds;
+    }
+
+    private void load() throws IOException {
+        if (extracts != null) {
+            return;
+        }
+        List<Bounds> list = new ArrayList<>();
+        File extractsFile = new File(dir, "extracts.txt");
+        if (extractsFile.isFile()) {
+            for (String line : Files.readAllLines(extractsFile.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    list.add(new Bounds(line.trim(), ","));
+                }
+            }
+        }
+        File indexFile = new File(dir, "index.bin");
+        if (indexFile.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+                if (in.readInt() != INDEX_MAGIC) {
+                    throw new IOException(tr("Invalid index of local store {0}", dir));
+                }
+                for (OsmPrimitiveType type : OsmPrimitiveType.dataValues()) {
+                    indexes.put(type, TileIndex.read(in));
+                }
+            }
+        } else {
+            indexes.putAll(createIndexes());
+        }
+        extracts = list;
+    }
+
+    private void writeIndex() throws IOException {
+        File indexFile = new File(dir, "index.bin");
+        File tmp = new File(dir, "index.bin.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(INDEX_MAGIC);
+            for (OsmPrimitiveType type : OsmPrimitiveType.dataValues()) {
+                indexes.get(type).write(out);
+            }
+        }
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writeExtracts() throws IOException {
+        List<String> lines = new ArrayList<>(extracts.size());
+        for (Bounds b : extracts) {
+            lines.add(b.encodeAsString(","));
+        }
+        Files.write(new File(dir, "extracts.txt").toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads OSM data and appends each primitive to the part files of its tiles, instead of building a data set.
+     * The parts are buffered in memory up to a number of characters.
+     */
+    private final class TilingReader extends OsmReader {
+        private final Map<OsmPrimitiveType, TileIndex> added = createIndexes();
+        private final Map<Integer, StringBuilder> buffers = new HashMap<>();
+        private final Set<Integer> parts = new LinkedHashSet<>();
+        private final StringWriter buffer = new StringWriter();
+        private final OsmWriter writer = OsmWriterFactory.createOsmWriter(new PrintWriter(buffer), true,
+                OsmWriter.DEFAULT_API_VERSION);
+        private final String header;
+        private final String footer;
+        private final int bufferSize;
+        private final boolean rejectChanges;
+        private int buffered;
+        private Bounds bounds;
+        private IOException ioException;
+        /** The first changed primitive, if the changes are rejected */
+        private PrimitiveId changed;
+        private int ignoredChanges;
+
+        TilingReader(int bufferSize, boolean rejectChanges) {
+            this.bufferSize = bufferSize;
+            this.rejectChanges = rejectChanges;
+            writer.header();
+            header = buffer.toString();
+            buffer.getBuffer().setLength(0);
+            writer.footer();
+            footer = buffer.toString();
+            buffer.getBuffer().setLength(0);
+        }
+
+        /**
+         * Checks whether a primitive has been changed locally, which is lost in the store, since the tiles are
+         * written like the OSM API returns data.
+         */
+        private void checkChanges(OsmPrimitive p, long id) throws XMLStreamException {
+            if (p.isNew() || p.isDeleted() || p.isModified()) {
+                if (rejectChanges) {
+                    changed = new SimplePrimitiveId(id, p.getType());
+                    throw new XMLStreamException(tr("Local changes are not supported"), parser.getLocation());
+                }
+                ignoredChanges++;
+            }
+        }
+
+        /**
+         * Returns the id of the primitive in the file, which differs from the id of the parsed primitive if it is new.
+         */
+        private long getFileId() throws XMLStreamException {
+            try {
+                return Long.parseLong(parser.getAttributeValue(null, "id"));
+            } catch (NumberFormatException e) {
+                throw new XMLStreamException(tr("Illegal value for attribute ''{0}''.", "id"), parser.getLocation(), e);
+            }
+        }
+
+        @Override
+        protected Node parseNode() throws XMLStreamException {
+            long id = getFileId();
+            Node n = super.parseNode();
+            externalIdMap.remove(new SimplePrimitiveId(id, OsmPrimitiveType.NODE));
+            checkChanges(n, id);
+            if (isStored(n) && n.getCoor() != null) {
+                int tile = getTile(n.getCoor());
+                added.get(OsmPrimitiveType.NODE).add(n.getUniqueId(), tile);
+                if (bounds == null) {
+                    bounds = new Bounds(n.getCoor());
+                } else {
+                    bounds.extend(n.getCoor());
+                }
+                writer.visit(n);
+                append(Collections.singleton(tile));
+            }
+            return n;
+        }
+
+        @Override
+        protected Way parseWay() throws XMLStreamException {
+            long id = getFileId();
+            Way w = super.parseWay();
+            externalIdMap.remove(new SimplePrimitiveId(id, OsmPrimitiveType.WAY));
+            Collection<Long> nodeIds = ways.remove(id);
+            checkChanges(w, id);
+            if (isStored(w)) {
+                Set<Integer> tiles = new LinkedHashSet<>();
+                for (long nodeId : nodeIds) {
+                    addIndexedTile(tiles, OsmPrimitiveType.NODE, nodeId);
+                }
+                if (!tiles.isEmpty()) {
+                    added.get(OsmPrimitiveType.WAY).add(w.getUniqueId(), tiles.iterator().next());
+                    WayData wd = w.save();
+                    wd.setNodes(new ArrayList<>(nodeIds));
+                    writer.visit(wd);
+                    append(tiles);
+                }
+            }
+            return w;
+        }
+
+        @Override
+        protected Relation parseRelation() throws XMLStreamException {
+            long id = getFileId();
+            Relation r = super.parseRelation();
+            externalIdMap.remove(new SimplePrimitiveId(id, OsmPrimitiveType.RELATION));
+            Collection<RelationMemberData> members = relations.remove(id);
+            checkChanges(r, id);
+            if (isStored(r)) {
+                Set<Integer> tiles = new LinkedHashSet<>();
+                for (RelationMemberData m : members) {
+                    if (m.getMemberType() != OsmPrimitiveType.RELATION) {
+                        addIndexedTile(tiles, m.getMemberType(), m.getMemberId());
+                    }
+                }
+                if (tiles.isEmpty()) {
+                    tiles.add(NO_TILE);
+                }
+                added.get(OsmPrimitiveType.RELATION).add(r.getUniqueId(), tiles.iterator().next());
+                RelationData rd = r.save();
+                rd.setMembers(new ArrayList<>(members));
+                writer.visit(rd);
+                append(tiles);
+            }
+            return r;
+        }
+
+        /**
+         * Adds the tile of a primitive of the imported data, or else of the store.
+         */
+        private void addIndexedTile(Set<Integer> tiles, OsmPrimitiveType type, long id) {
+            Integer tile = added.get(type).get(id);
+            if (tile == null) {
+                tile = indexes.get(type).get(id);
+            }
+            if (tile != null) {
+                tiles.add(tile);
+            }
+        }
+
+        /**
+         * Appends the primitive written to {@link #buffer} to the part files of tiles.
+         */
+        private void append(Set<Integer> tiles) throws XMLStreamException {
+            StringBuffer written = buffer.getBuffer();
+            for (int tile : tiles) {
+                StringBuilder sb = buffers.get(tile);
+                if (sb == null) {
+                    sb = new StringBuilder();
+                    buffers.put(tile, sb);
+                }
+                sb.append(written);
+                buffered += written.length();
+            }
+            written.setLength(0);
+            if (buffered > bufferSize) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    ioException = e;
+                    throw new XMLStreamException(e);
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            for (Map.Entry<Integer, StringBuilder> e : buffers.entrySet()) {
+                try (Writer out = new OutputStreamWriter(new FileOutputStream(getPartFile(e.getKey()), true),
+                        StandardCharsets.UTF_8)) {
+                    out.append(e.getValue());
+                }
+                parts.add(e.getKey());
+            }
+            buffers.clear();
+            buffered = 0;
+        }
+    }
+
+    /**
+     * Thrown when data with local changes is imported in a store which rejects them.
+     * @see LocalOsmStore#importStream(InputStream, boolean, ProgressMonitor)
+     */
+    public static class LocalChangesException extends IllegalDataException {
+
+        /**
+         * Constructs a new {@code LocalChangesException}.
+         * @param message the detail message
+         * @param cause the cause
+         */
+        public LocalChangesException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * The tile of each primitive of a type, as arrays of ids and tiles sorted by id.
+     */
+    private static final class TileIndex {
+        private long[] ids = new long[16];
+        private int[] tiles = new int[16];
+        private int size;
+        private boolean sorted = true;
+
+        void add(long id, int tile) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+                tiles = Arrays.copyOf(tiles, 2 * size);
+            }
+            sorted &= size == 0 || ids[size - 1] < id;
+            ids[size] = id;
+            tiles[size] = tile;
+            size++;
+        }
+
+        Integer get(long id) {
+            sort();
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            return i >= 0 ? tiles[i] : null;
+        }
+
+        /**
+         * Adds the entries of another index, replacing the entries with the same id.
+         */
+        void putAll(TileIndex other) {
+            sort();
+            other.sort();
+            long[] newIds = new long[Math.max(16, size + other.size)];
+            int[] newTiles = new int[Math.max(16, size + other.size)];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || i < size && ids[i] < other.ids[j]) {
+                    newIds[n] = ids[i];
+                    newTiles[n++] = tiles[i++];
+                } else {
+                    if (i < size && ids[i] == other.ids[j]) {
+                        i++;
+                    }
+                    newIds[n] = other.ids[j];
+                    newTiles[n++] = other.tiles[j++];
+                }
+            }
+            ids = newIds;
+            tiles = newTiles;
+            size = n;
+        }
+
+        /**
+         * Sorts the entries by id with a heap sort, which needs no memory besides the arrays.
+         */
+        private void sort() {
+            if (sorted) {
+                return;
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i, size);
+            }
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+
+        private void siftDown(int i, int end) {
+            int parent = i;
+            while (2 * parent + 1 < end) {
+                int child = 2 * parent + 1;
+                if (child + 1 < end && ids[child + 1] > ids[child]) {
+                    child++;
+                }
+                if (ids[parent] >= ids[child]) {
+                    return;
+                }
+                swap(parent, child);
+                parent = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            int tile = tiles[i];
+            tiles[i] = tiles[j];
+            tiles[j] = tile;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            sort();
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(ids[i]);
+                out.writeInt(tiles[i]);
+            }
+        }
+
+        static TileIndex read(DataInputStream in) throws IOException {
+            TileIndex index = new TileIndex();
+            int size = in.readInt();
+            index.ids = new long[Math.max(16, size)];
+            index.tiles = new int[Math.max(16, size)];
+            for (int i = 0; i < size; i++) {
+                index.ids[i] = in.readLong();
+                index.tiles[i] = in.readInt();
+            }
+            index.size = size;
+            return index;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * Reads the data of an area from a {@link LocalOsmStore}, instead of downloading it from the OSM server.
+ */
+public class LocalOsmStoreReader extends OsmServerReader {
+
+    private final LocalOsmStore store;
+    private final Bounds bounds;
+
+    /**
+     * Constructs a new {@code LocalOsmStoreReader}.
+     * @param store the local store
+     * @param bounds the area to read
+     */
+    public LocalOsmStoreReader(LocalOsmStore store, Bounds bounds) {
+        CheckParameterUtil.ensureParameterNotNull(store, "store");
+        CheckParameterUtil.ensureParameterNotNull(bounds, "bounds");
+        this.store = store;
+        this.bounds = bounds;
+    }
+
+    @Override
+    public DataSet parseOsm(ProgressMonitor progressMonitor) throws OsmTransferException {
+        try {
+            return store.read(bounds, progressMonitor);
+        } catch (IOException | IllegalDataException e) {
+            throw new OsmTransferException(e);
+        }
+    }
+}
@@ -8,12 +8,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -59,18 +62,30 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public class MultiFetchServerObjectReader extends OsmServerReader {
     /**
-     * the max. number of primitives retrieved in one step. Assuming IDs with 7 digits,
-     * this leads to a max. request URL of ~ 1600 Bytes ((7 digits +  1 Separator) * 200),
-     * which should be safe according to the
-     * <a href="http://www.boutell.com/newfaq/misc/urllength.html">WWW FAQ</a>.
+     * the initial max. number of primitives retrieved in one step. It is adapted to the response time of the server,
+     * between {@link #MIN_IDS_PER_REQUEST} and {@code osm.multi-fetch.max-ids}, and packages are further limited by
+     * the length of the request URL, {@code osm.multi-fetch.max-url-length}.
      */
     private static final int MAX_IDS_PER_REQUEST = 200;
 
+    /**
+     * the min. number of primitives retrieved in one step, if the server is slow.
+     */
+    private static final int MIN_IDS_PER_REQUEST = 10;
+
+    /**
+     * The executor shared by all readers. Threads are created when needed and end when idle for a minute.
+     * The number of concurrent requests of a reader is limited by {@code osm.download.threads}.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            Utils.newThreadFactory("multi-fetch-%d", Thread.NORM_PRIORITY));
+
     private final Set<Long> nodes;
     private final Set<Long> ways;
     private final Set<Long> relations;
     private Set<PrimitiveId> missingPrimitives;
     private final DataSet outputDataSet;
+    private int idsPerRequest = MAX_IDS_PER_REQUEST;
 
     /**
      * Constructs a {@code MultiFetchServerObjectReader}.
@@ -237,29 +252,71 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
     }
 
     /**
-     * extracts a subset of max {@link #MAX_IDS_PER_REQUEST} ids from <code>ids</code> and
-     * replies the subset. The extracted subset is removed from <code>ids</code>.
+     * appends a list of primitive ids to the list of ids which will be fetched from the server.
+     * Unlike {@link #append(Collection)}, way nodes and relation members are not added.
+     *
+     * @param ids the primitive ids (ignored, if null)
+     * @return this
+     */
+    public MultiFetchServerObjectReader appendIds(Collection<? extends PrimitiveId> ids) {
+        if (ids == null) return this;
+        for (PrimitiveId id : ids) {
+            remember(id);
+        }
+        return this;
+    }
+
+    /**
+     * extracts a subset of ids from <code>ids</code> and replies the subset. The extracted subset is removed
+     * from <code>ids</code>. The size of the subset depends on the response time of previous requests,
+     * and on the length of the request URL.
      *
      * @param ids a set of ids
+     * @param type The primitive type. Must be one of {@link OsmPrimitiveType#NODE NODE}, {@link OsmPrimitiveType#WAY WAY},
+     * {@link OsmPrimitiveType#RELATION RELATION}
      * @return the subset of ids
      */
-    protected Set<Long> extractIdPackage(Set<Long> ids) {
-        Set<Long> pkg = new HashSet<>();
+    protected Set<Long> extractIdPackage(Set<Long> ids, OsmPrimitiveType type) {
+        Set<Long> pkg = new LinkedHashSet<>();
         if (ids.isEmpty())
             return pkg;
-        if (ids.size() > MAX_IDS_PER_REQUEST) {
-            Iterator<Long> it = ids.iterator();
-            for (int i = 0; i < MAX_IDS_PER_REQUEST; i++) {
-                pkg.add(it.next());
+        final int maxIds = getIdsPerRequest();
+        final int maxLength = Main.pref.getInteger("osm.multi-fetch.max-url-length", 6000);
+        final int baseLength = buildRequestString(type, Collections.<Long>emptySet()).length();
+        int length = getBaseUrl().length() + baseLength;
+        for (Iterator<Long> it = ids.iterator(); it.hasNext() && pkg.size() < maxIds;) {
+            Long id = it.next();
+            // the length of the id in the request, and a separator
+            int idLength = buildRequestString(type, Collections.singleton(id)).length() - baseLength + 1;
+            if (!pkg.isEmpty() && length + idLength > maxLength) {
+                break;
             }
-            ids.removeAll(pkg);
-        } else {
-            pkg.addAll(ids);
-            ids.clear();
+            pkg.add(id);
+            length += idLength;
+            it.remove();
         }
         return pkg;
     }
 
+    private synchronized int getIdsPerRequest() {
+        return idsPerRequest;
+    }
+
+    /**
+     * Adapts the number of ids per request to the response time of a request: it is doubled if the response
+     * was faster than half of {@code osm.multi-fetch.target-latency}, and halved if it was slower.
+     * @param ids the number of ids of the request
+     * @param millis the response time of the request, including parsing
+     */
+    private synchronized void adaptIdsPerRequest(int ids, long millis) {
+        final int targetLatency = Main.pref.getInteger("osm.multi-fetch.target-latency", 5000);
+        if (millis > targetLatency) {
+            idsPerRequest = Math.max(MIN_IDS_PER_REQUEST, Math.min(idsPerRequest, ids) / 2);
+        } else if (2 * millis < targetLatency && ids >= idsPerRequest) {
+            idsPerRequest = Math.min(Main.pref.getInteger("osm.multi-fetch.max-ids", 1000), 2 * idsPerRequest);
+        }
+    }
+
     /**
      * builds the Multi Get request string for a set of ids and a given {@link OsmPrimitiveType}.
      *
@@ -308,7 +365,8 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
      * @param progressMonitor progress monitor
      * @throws OsmTransferException if an error occurs while communicating with the API server
      */
-    protected void fetchPrimitives(Set<Long> ids, OsmPrimitiveType type, ProgressMonitor progressMonitor) throws OsmTransferException {
+    protected void fetchPrimitives(Set<Long> ids, final OsmPrimitiveType type, final ProgressMonitor progressMonitor)
+            throws OsmTransferException {
         String msg = "";
         final String baseUrl = getBaseUrl();
         switch (type) {
@@ -316,26 +374,14 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
             case WAY:      msg = tr("Fetching a package of ways from ''{0}''",      baseUrl); break;
             case RELATION: msg = tr("Fetching a package of relations from ''{0}''", baseUrl); break;
         }
-        progressMonitor.setTicksCount(ids.size());
-        progressMonitor.setTicks(0);
-        // The complete set containing all primitives to fetch
-        Set<Long> toFetch = new HashSet<>(ids);
-        // Build a list of fetchers that will  download smaller sets containing only MAX_IDS_PER_REQUEST (200) primitives each.
-        // we will run up to MAX_DOWNLOAD_THREADS concurrent fetchers.
-        int threadsNumber = Main.pref.getInteger("osm.download.threads", OsmApi.MAX_DOWNLOAD_THREADS);
-        threadsNumber = Math.min(Math.max(threadsNumber, 1), OsmApi.MAX_DOWNLOAD_THREADS);
-        final ExecutorService exec = Executors.newFixedThreadPool(
-                threadsNumber, Utils.newThreadFactory(getClass() + "-%d", Thread.NORM_PRIORITY));
-        CompletionService<FetchResult> ecs = new ExecutorCompletionService<>(exec);
-        List<Future<FetchResult>> jobs = new ArrayList<>();
-        while (!toFetch.isEmpty()) {
-            jobs.add(ecs.submit(new Fetcher(type, extractIdPackage(toFetch), progressMonitor)));
-        }
-        // Run the fetchers
-        for (int i = 0; i < jobs.size() && !isCanceled(); i++) {
-            progressMonitor.subTask(msg + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount());
-            try {
-                FetchResult result = ecs.take().get();
+        fetchPackages(ids, type, msg, progressMonitor, new PackageHandler<FetchResult>() {
+            @Override
+            Callable<FetchResult> createFetcher(Set<Long> pkg) {
+                return new Fetcher(type, pkg, progressMonitor);
+            }
+
+            @Override
+            void handle(FetchResult result) {
                 if (result.missingPrimitives != null) {
                     missingPrimitives.addAll(result.missingPrimitives);
                 }
@@ -343,14 +389,67 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
                     rememberNodesOfIncompleteWaysToLoad(result.dataSet);
                     merge(result.dataSet);
                 }
-            } catch (InterruptedException | ExecutionException e) {
-                Main.error(e);
             }
-        }
-        exec.shutdown();
-        // Cancel requests if the user chose to
-        if (isCanceled()) {
-            for (Future<FetchResult> job : jobs) {
+        });
+    }
+
+    /**
+     * Creates the fetchers of the packages of a set of ids and handles their results.
+     */
+    private abstract static class PackageHandler<T> {
+        abstract Callable<T> createFetcher(Set<Long> pkg);
+
+        abstract void handle(T result) throws OsmTransferException;
+    }
+
+    /**
+     * fetches a set of ids in packages. Packages are created when a request can be started, so that their size
+     * adapts to the response time of the previous requests. The results are handled on the calling thread,
+     * as soon as they are available.
+     */
+    private <T> void fetchPackages(Set<Long> ids, OsmPrimitiveType type, String msg, ProgressMonitor progressMonitor,
+            PackageHandler<T> handler) throws OsmTransferException {
+        progressMonitor.setTicksCount(ids.size());
+        progressMonitor.setTicks(0);
+        if (ids.isEmpty())
+            return;
+        // the base URL includes the API version once initialized, which matters for the length of requests
+        OsmApi.getOsmApi().initialize(NullProgressMonitor.INSTANCE);
+        // The complete set containing all primitives to fetch
+        Set<Long> toFetch = new LinkedHashSet<>(ids);
+        int threadsNumber = Main.pref.getInteger("osm.download.threads", OsmApi.MAX_DOWNLOAD_THREADS);
+        threadsNumber = Math.min(Math.max(threadsNumber, 1), OsmApi.MAX_DOWNLOAD_THREADS);
+        CompletionService<T> ecs = new ExecutorCompletionService<>(EXECUTOR);
+        List<Future<T>> jobs = new ArrayList<>();
+        int running = 0;
+        try {
+            while ((running > 0 || !toFetch.isEmpty()) && !isCanceled()) {
+                while (running < threadsNumber && !toFetch.isEmpty()) {
+                    jobs.add(ecs.submit(handler.createFetcher(extractIdPackage(toFetch, type))));
+                    running++;
+                }
+                progressMonitor.subTask(msg + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount());
+                Future<T> job;
+                try {
+                    job = ecs.take();
+                } catch (InterruptedException e) {
+                    Main.error(e);
+                    break;
+                }
+                running--;
+                try {
+                    handler.handle(job.get());
+                } catch (InterruptedException e) {
+                    Main.error(e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof OsmTransferException)
+                        throw (OsmTransferException) e.getCause();
+                    Main.error(e);
+                }
+            }
+        } finally {
+            // Cancel requests if the user chose to, or if a request failed
+            for (Future<T> job : jobs) {
                 job.cancel(true);
             }
         }
@@ -393,6 +492,64 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         }
     }
 
+    /**
+     * invokes one or more Multi Gets to fetch the current versions of the {@link OsmPrimitive}s, without building
+     * the primitives. This is much faster than {@link #parseOsm} to find out which primitives have been changed
+     * on the server since they were downloaded.
+     *
+     * Primitives which are not available from the server are not included. If a package of ids contains such a
+     * primitive, none of the package is included.
+     *
+     * @param progressMonitor progress monitor
+     * @return the current version of each primitive, by id
+     * @throws OsmTransferException if an error occurs while communicating with the API server
+     * @see OsmVersionReader
+     */
+    public Map<PrimitiveId, Integer> parseVersions(ProgressMonitor progressMonitor) throws OsmTransferException {
+        int n = nodes.size() + ways.size() + relations.size();
+        progressMonitor.beginTask(trn("Checking version of {0} object on ''{1}''",
+                "Checking versions of {0} objects on ''{1}''", n, n, OsmApi.getOsmApi().getBaseUrl()));
+        try {
+            Map<PrimitiveId, Integer> versions = new HashMap<>();
+            if (isCanceled()) return versions;
+            fetchVersions(ways, OsmPrimitiveType.WAY, versions, progressMonitor);
+            if (isCanceled()) return versions;
+            fetchVersions(nodes, OsmPrimitiveType.NODE, versions, progressMonitor);
+            if (isCanceled()) return versions;
+            fetchVersions(relations, OsmPrimitiveType.RELATION, versions, progressMonitor);
+            return versions;
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * fetches the versions of a set of ids of a given {@link OsmPrimitiveType} from the server
+     *
+     * @param ids the set of ids
+     * @param type The primitive type. Must be one of {@link OsmPrimitiveType#NODE NODE}, {@link OsmPrimitiveType#WAY WAY},
+     * {@link OsmPrimitiveType#RELATION RELATION}
+     * @param versions the map to which the versions are added
+     * @param progressMonitor progress monitor
+     * @throws OsmTransferException if an error occurs while communicating with the API server
+     */
+    protected void fetchVersions(Set<Long> ids, final OsmPrimitiveType type, final Map<PrimitiveId, Integer> versions,
+            final ProgressMonitor progressMonitor) throws OsmTransferException {
+        fetchPackages(ids, type, tr("Checking versions on ''{0}''", getBaseUrl()), progressMonitor,
+                new PackageHandler<Map<PrimitiveId, Integer>>() {
+            @Override
+            Callable<Map<PrimitiveId, Integer>> createFetcher(Set<Long> pkg) {
+                return new VersionFetcher(type, pkg);
+            }
+
+            @Override
+            void handle(Map<PrimitiveId, Integer> result) {
+                versions.putAll(result);
+                progressMonitor.worked(result.size());
+            }
+        });
+    }
+
     /**
      * replies the set of ids of all primitives for which a fetch request to the
      * server was submitted but which are not available from the server (the server
@@ -440,6 +597,67 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         }
     }
 
+    /**
+     * Downloads a package of primitives and reads their versions only, see {@link OsmVersionReader}.
+     */
+    protected class VersionFetcher extends OsmServerReader implements Callable<Map<PrimitiveId, Integer>> {
+
+        private final Set<Long> pkg;
+        private final OsmPrimitiveType type;
+
+        /**
+         * Constructs a {@code VersionFetcher}
+         * @param type The primitive type. Must be one of {@link OsmPrimitiveType#NODE NODE}, {@link OsmPrimitiveType#WAY WAY},
+         * {@link OsmPrimitiveType#RELATION RELATION}
+         * @param idsPackage The set of primitives ids to fetch
+         */
+        public VersionFetcher(OsmPrimitiveType type, Set<Long> idsPackage) {
+            this.pkg = idsPackage;
+            this.type = type;
+        }
+
+        /**
+         * Downloads the package of primitives completely. This method is implemented because of the
+         * {@link OsmServerReader} inheritance, but not used, as the main target of this class is the call() method.
+         */
+        @Override
+        public DataSet parseOsm(ProgressMonitor progressMonitor) throws OsmTransferException {
+            try (InputStream in = getInputStream(buildRequestString(type, pkg), progressMonitor.createSubTaskMonitor(1, true))) {
+                if (in == null)
+                    return null;
+                return OsmReader.parseDataSet(in, progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+            } catch (IOException | IllegalDataException e) {
+                throw new OsmTransferException(e);
+            }
+        }
+
+        @Override
+        public Map<PrimitiveId, Integer> call() throws OsmTransferException {
+            try (InputStream in = getInputStream(buildRequestString(type, pkg), NullProgressMonitor.INSTANCE)) {
+                if (in == null) return Collections.emptyMap();
+                try {
+                    return OsmVersionReader.parseVersions(in);
+                } catch (IllegalDataException e) {
+                    throw new OsmTransferException(e);
+                }
+            } catch (OsmApiException e) {
+                if (e.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                    // at least one of the primitives is gone, the caller has to fetch them individually
+                    return Collections.emptyMap();
+                }
+                throw e;
+            } catch (IOException ex) {
+                Main.warn(ex);
+                return Collections.emptyMap();
+            }
+        }
+
+        @Override
+        protected String getBaseUrl() {
+            return MultiFetchServerObjectReader.this.getBaseUrl();
+        }
+    }
+
     /**
      * The class that actually download data from OSM API.
      * Several instances of this class are used by {@link MultiFetchServerObjectReader} (one per set of primitives to fetch).
@@ -484,12 +702,15 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
          * @throws OsmTransferException if an error occurs while communicating with the API server
          */
         protected FetchResult fetch(ProgressMonitor progressMonitor) throws OsmTransferException {
+            long start = System.currentTimeMillis();
             try {
-                return multiGetIdPackage(type, pkg, progressMonitor);
+                FetchResult result = multiGetIdPackage(type, pkg, progressMonitor);
+                adaptIdsPerRequest(pkg.size(), System.currentTimeMillis() - start);
+                return result;
             } catch (OsmApiException e) {
                 if (e.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
-                    Main.info(tr("Server replied with response code 404, retrying with an individual request for each object."));
-                    return singleGetIdPackage(type, pkg, progressMonitor);
+                    Main.info(tr("Server replied with response code 404, retrying with smaller packages of objects."));
+                    return bisectIdPackage(type, pkg, progressMonitor);
                 } else {
                     throw e;
                 }
@@ -531,70 +752,52 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         }
 
         /**
-         * invokes a Multi Get for a single id and a given {@link OsmPrimitiveType}.
-         * The retrieved primitive is merged to {@link #outputDataSet}.
-         *
-         * @param type The primitive type. Must be one of {@link OsmPrimitiveType#NODE NODE}, {@link OsmPrimitiveType#WAY WAY},
-         * {@link OsmPrimitiveType#RELATION RELATION}
-         * @param id the id
-         * @param progressMonitor progress monitor
-         * @return the {@link DataSet} resulting of this operation
-         * @throws OsmTransferException if an error occurs while communicating with the API server
-         */
-        protected DataSet singleGetId(OsmPrimitiveType type, long id, ProgressMonitor progressMonitor) throws OsmTransferException {
-            String request = buildRequestString(type, Collections.singleton(id));
-            DataSet result = null;
-            try (InputStream in = getInputStream(request, NullProgressMonitor.INSTANCE)) {
-                if (in == null) return null;
-                progressMonitor.subTask(tr("Downloading OSM data..."));
-                try {
-                    result = OsmReader.parseDataSet(in, progressMonitor.createSubTaskMonitor(1, false));
-                } catch (Exception e) {
-                    throw new OsmTransferException(e);
-                }
-            } catch (IOException ex) {
-                Main.warn(ex);
-            }
-            return result;
-        }
-
-        /**
-         * invokes a sequence of Multi Gets for individual ids in a set of ids and a given {@link OsmPrimitiveType}.
-         * The retrieved primitives are merged to {@link #outputDataSet}.
+         * invokes Multi Gets for the two halves of a set of ids and a given {@link OsmPrimitiveType}, and
+         * recursively for the halves which fail, until the ids which don't exist are found.
          *
          * This method is used if one of the ids in pkg doesn't exist (the server replies with return code 404).
-         * If the set is fetched with this method it is possible to find out which of the ids doesn't exist.
          * Unfortunately, the server does not provide an error header or an error body for a 404 reply.
+         * Bisecting needs about 2 log(n) requests for each missing id, instead of n requests.
          *
          * @param type The primitive type. Must be one of {@link OsmPrimitiveType#NODE NODE}, {@link OsmPrimitiveType#WAY WAY},
          * {@link OsmPrimitiveType#RELATION RELATION}
-         * @param pkg the set of ids
+         * @param pkg the set of ids, with at least one id that doesn't exist
          * @param progressMonitor progress monitor
          * @return the {@link FetchResult} of this operation
          * @throws OsmTransferException if an error occurs while communicating with the API server
          */
-        protected FetchResult singleGetIdPackage(OsmPrimitiveType type, Set<Long> pkg, ProgressMonitor progressMonitor)
+        protected FetchResult bisectIdPackage(OsmPrimitiveType type, Set<Long> pkg, ProgressMonitor progressMonitor)
                 throws OsmTransferException {
             FetchResult result = new FetchResult(new DataSet(), new HashSet<PrimitiveId>());
-            String baseUrl = OsmApi.getOsmApi().getBaseUrl();
-            for (long id : pkg) {
+            if (pkg.size() == 1) {
+                long id = pkg.iterator().next();
+                Main.info(tr("Server replied with response code 404 for id {0}. Skipping.", Long.toString(id)));
+                result.missingPrimitives.add(new SimplePrimitiveId(id, type));
+                return result;
+            }
+            Set<Long> half = new LinkedHashSet<>();
+            Set<Long> otherHalf = new LinkedHashSet<>();
+            for (Long id : pkg) {
+                (half.size() < pkg.size() / 2 ? half : otherHalf).add(id);
+            }
+            for (Set<Long> part : Arrays.asList(half, otherHalf)) {
+                if (MultiFetchServerObjectReader.this.isCanceled()) break;
+                FetchResult partResult;
                 try {
-                    String msg = "";
-                    switch (type) {
-                        case NODE:     msg = tr("Fetching node with id {0} from ''{1}''",     id, baseUrl); break;
-                        case WAY:      msg = tr("Fetching way with id {0} from ''{1}''",      id, baseUrl); break;
-                        case RELATION: msg = tr("Fetching relation with id {0} from ''{1}''", id, baseUrl); break;
-                    }
-                    progressMonitor.setCustomText(msg);
-                    result.dataSet.mergeFrom(singleGetId(type, id, progressMonitor));
+                    partResult = multiGetIdPackage(type, part, progressMonitor);
                 } catch (OsmApiException e) {
                     if (e.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
-                        Main.info(tr("Server replied with response code 404 for id {0}. Skipping.", Long.toString(id)));
-                        result.missingPrimitives.add(new SimplePrimitiveId(id, type));
+                        partResult = bisectIdPackage(type, part, progressMonitor);
                     } else {
                         throw e;
                     }
                 }
+                if (partResult != null) {
+                    result.dataSet.mergeFrom(partResult.dataSet);
+                    if (partResult.missingPrimitives != null) {
+                        result.missingPrimitives.addAll(partResult.missingPrimitives);
+                    }
+                }
             }
             return result;
         }
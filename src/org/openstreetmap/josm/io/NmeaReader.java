@@ -1,17 +1,17 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
+import java.util.GregorianCalendar;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -128,17 +128,67 @@ public class NmeaReader {
 
     public GpxData data;
 
-    private final SimpleDateFormat rmcTimeFmt = new SimpleDateFormat("ddMMyyHHmmss.SSS");
-    private final SimpleDateFormat rmcTimeFmtStd = new SimpleDateFormat("ddMMyyHHmmss");
+    /** times are read in the default time zone, as {@code SimpleDateFormat} did */
+    private final Calendar calendar = new GregorianCalendar();
+    /** first year of the century used for two digit years, as in {@code SimpleDateFormat} */
+    private final int defaultCenturyStart = calendar.get(Calendar.YEAR) - 80;
+    private String lastDate;
+    private String lastTime;
+    private long lastMillis;
+
+    /**
+     * Reads a date in {@code ddMMyy} and a time in {@code HHmmss[.SSS]} format.
+     * @param date the date
+     * @param time the time
+     * @return the time in milliseconds since the epoch
+     */
+    private long readTime(String date, String time) {
+        if (date.equals(lastDate) && time.equals(lastTime)) {
+            return lastMillis;
+        }
+        int day = parseDigits(date, 0, 2);
+        int month = parseDigits(date, 2, 2);
+        int year = parseDigits(date, 4, 2);
+        int hour = parseDigits(time, 0, 2);
+        int minute = parseDigits(time, 2, 2);
+        int second = parseDigits(time, 4, 2);
+        int millis = 0;
+        if (date.length() != 6 || day < 0 || month < 0 || year < 0 || hour < 0 || minute < 0 || second < 0)
+            throw new IllegalArgumentException("Date is malformed");
+        if (time.length() > 7 && time.charAt(6) == '.') {
+            // fraction of second
+            int factor = 100;
+            for (int i = 7; i < time.length() && factor > 0; i++, factor /= 10) {
+                int d = parseDigits(time, i, 1);
+                if (d < 0)
+                    throw new IllegalArgumentException("Date is malformed");
+                millis += d * factor;
+            }
+        }
+        year += defaultCenturyStart / 100 * 100;
+        if (year < defaultCenturyStart) {
+            year += 100;
+        }
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        lastDate = date;
+        lastTime = time;
+        lastMillis = calendar.getTimeInMillis();
+        return lastMillis;
+    }
 
-    private Date readTime(String p) {
-        Date d = rmcTimeFmt.parse(p, new ParsePosition(0));
-        if (d == null) {
-            d = rmcTimeFmtStd.parse(p, new ParsePosition(0));
+    private static int parseDigits(String s, int offset, int count) {
+        if (s.length() < offset + count)
+            return -1;
+        int v = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            v = 10 * v + c - '0';
         }
-        if (d == null)
-            throw new RuntimeException("Date is malformed"); // malformed
-        return d;
+        return v;
     }
 
     // functons for reading the error stats
@@ -170,33 +220,35 @@ public class NmeaReader {
         data = new GpxData();
         Collection<Collection<WayPoint>> currentTrack = new ArrayList<>();
 
-        try (BufferedReader rd = new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8))) {
+        try (Reader rd = new InputStreamReader(source, StandardCharsets.UTF_8)) {
             StringBuilder sb = new StringBuilder(1024);
-            int loopstartChar = rd.read();
+            char[] buffer = new char[8192];
             ps = new NMEAParserState();
-            if (loopstartChar == -1)
-                //TODO tell user about the problem?
-                return;
-            sb.append((char) loopstartChar);
             ps.pDate = "010100"; // TODO date problem
-            while (true) {
-                // don't load unparsable files completely to memory
+            boolean empty = true;
+            int n;
+            while ((n = rd.read(buffer)) != -1) {
+                int start = 0;
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '$' && (i > 0 || !empty)) {
+                        sb.append(buffer, start, i - start);
+                        parseNMEASentence(sb.toString(), ps);
+                        sb.setLength(0);
+                        start = i;
+                    }
+                }
+                sb.append(buffer, start, n - start);
                 if (sb.length() >= 1020) {
+                    // don't load unparsable files completely to memory
                     sb.delete(0, sb.length()-1);
                 }
-                int c = rd.read();
-                if (c == '$') {
-                    parseNMEASentence(sb.toString(), ps);
-                    sb.delete(0, sb.length());
-                    sb.append('$');
-                } else if (c == -1) {
-                    // EOF: add last WayPoint if it works out
-                    parseNMEASentence(sb.toString(), ps);
-                    break;
-                } else {
-                    sb.append((char) c);
-                }
+                empty = false;
             }
+            if (empty)
+                //TODO tell user about the problem?
+                return;
+            // EOF: add last WayPoint if it works out
+            parseNMEASentence(sb.toString(), ps);
             currentTrack.add(ps.waypoints);
             data.tracks.add(new ImmutableGpxTrack(currentTrack, Collections.<String, Object>emptyMap()));
 
@@ -205,7 +257,53 @@ public class NmeaReader {
         }
     }
 
+    /**
+     * The comma separated fields of a sentence, split without regular expression. Only the fields which are read
+     * are created as strings.
+     */
+    private static final class Fields {
+        private String sentence;
+        /** start index of each field, followed by the end index of the last field + 1 */
+        private int[] starts = new int[32];
+        private int count;
+
+        /**
+         * Splits a sentence, as {@code sentence.substring(0, end).split(",")} does.
+         * @param sentence the sentence
+         * @param end the end index of the fields in the sentence
+         */
+        void split(String sentence, int end) {
+            this.sentence = sentence;
+            count = 0;
+            starts[0] = 0;
+            for (int i = 0; i < end; i++) {
+                if (sentence.charAt(i) == ',') {
+                    add(i + 1);
+                }
+            }
+            add(end + 1);
+            // trailing empty fields are removed by String.split
+            while (count > 0 && starts[count] - starts[count - 1] == 1) {
+                count--;
+            }
+        }
+
+        private void add(int start) {
+            if (++count == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * starts.length);
+            }
+            starts[count] = start;
+        }
+
+        String get(int index) {
+            if (index >= count)
+                throw new ArrayIndexOutOfBoundsException(index);
+            return sentence.substring(starts[index], starts[index + 1] - 1);
+        }
+    }
+
     private static class NMEAParserState {
+        protected final Fields fields = new Fields();
         protected Collection<WayPoint> waypoints = new ArrayList<>();
         protected String pTime;
         protected String pDate;
@@ -232,14 +330,19 @@ public class NmeaReader {
             // the bytes between the $ and the * are xored
             // if there is no * or other meanities it will throw
             // and result in a malformed packet.
-            String[] chkstrings = s.split("\\*");
-            if (chkstrings.length > 1) {
-                byte[] chb = chkstrings[0].getBytes(StandardCharsets.UTF_8);
+            int star = s.indexOf('*');
+            int end = star < 0 ? s.length() : star;
+            if (star >= 0 && star + 1 < s.length()) {
                 int chk = 0;
-                for (int i = 1; i < chb.length; i++) {
-                    chk ^= chb[i];
+                for (int i = 1; i < end; i++) {
+                    char c = s.charAt(i);
+                    if (c >= 0x80) {
+                        chk = checksum(s.substring(0, end).getBytes(StandardCharsets.UTF_8));
+                        break;
+                    }
+                    chk ^= c;
                 }
-                if (Integer.parseInt(chkstrings[1].substring(0, 2), 16) != chk) {
+                if (Integer.parseInt(s.substring(star + 1, star + 3), 16) != chk) {
                     ps.checksumErrors++;
                     ps.pWp = null;
                     return false;
@@ -248,20 +351,22 @@ public class NmeaReader {
                 ps.noChecksum++;
             }
             // now for the content
-            String[] e = chkstrings[0].split(",");
+            Fields e = ps.fields;
+            e.split(s, end);
             String accu;
+            String type = e.get(0);
 
             WayPoint currentwp = ps.pWp;
             String currentDate = ps.pDate;
 
             // handle the packet content
-            if ("$GPGGA".equals(e[0]) || "$GNGGA".equals(e[0])) {
+            if ("$GPGGA".equals(type) || "$GNGGA".equals(type)) {
                 // Position
                 LatLon latLon = parseLatLon(
-                        e[GPGGA.LATITUDE_NAME.position],
-                        e[GPGGA.LONGITUDE_NAME.position],
-                        e[GPGGA.LATITUDE.position],
-                        e[GPGGA.LONGITUDE.position]
+                        e.get(GPGGA.LATITUDE_NAME.position),
+                        e.get(GPGGA.LONGITUDE_NAME.position),
+                        e.get(GPGGA.LATITUDE.position),
+                        e.get(GPGGA.LONGITUDE.position)
                 );
                 if (latLon == null) {
                     throw new IllegalDataException("Malformed lat/lon");
@@ -273,8 +378,8 @@ public class NmeaReader {
                 }
 
                 // time
-                accu = e[GPGGA.TIME.position];
-                Date d = readTime(currentDate+accu);
+                accu = e.get(GPGGA.TIME.position);
+                long d = readTime(currentDate, accu);
 
                 if ((ps.pTime == null) || (currentwp == null) || !ps.pTime.equals(accu)) {
                     // this node is newer than the previous, create a new waypoint.
@@ -285,13 +390,13 @@ public class NmeaReader {
                 if (!currentwp.attr.containsKey("time")) {
                     // As this sentence has no complete time only use it
                     // if there is no time so far
-                    currentwp.setTime(d);
+                    currentwp.setTimeInMillis(d);
                 }
                 // elevation
-                accu = e[GPGGA.HEIGHT_UNTIS.position];
+                accu = e.get(GPGGA.HEIGHT_UNTIS.position);
                 if ("M".equals(accu)) {
                     // Ignore heights that are not in meters for now
-                    accu = e[GPGGA.HEIGHT.position];
+                    accu = e.get(GPGGA.HEIGHT.position);
                     if (!accu.isEmpty()) {
                         Double.parseDouble(accu);
                         // if it throws it's malformed; this should only happen if the
@@ -302,19 +407,19 @@ public class NmeaReader {
                     }
                 }
                 // number of sattelites
-                accu = e[GPGGA.SATELLITE_COUNT.position];
+                accu = e.get(GPGGA.SATELLITE_COUNT.position);
                 int sat = 0;
                 if (!accu.isEmpty()) {
                     sat = Integer.parseInt(accu);
                     currentwp.put(GpxConstants.PT_SAT, accu);
                 }
                 // h-dilution
-                accu = e[GPGGA.HDOP.position];
+                accu = e.get(GPGGA.HDOP.position);
                 if (!accu.isEmpty()) {
                     currentwp.put(GpxConstants.PT_HDOP, Float.valueOf(accu));
                 }
                 // fix
-                accu = e[GPGGA.QUALITY.position];
+                accu = e.get(GPGGA.QUALITY.position);
                 if (!accu.isEmpty()) {
                     int fixtype = Integer.parseInt(accu);
                     switch(fixtype) {
@@ -335,60 +440,60 @@ public class NmeaReader {
                         break;
                     }
                 }
-            } else if ("$GPVTG".equals(e[0]) || "$GNVTG".equals(e[0])) {
+            } else if ("$GPVTG".equals(type) || "$GNVTG".equals(type)) {
                 // COURSE
-                accu = e[GPVTG.COURSE_REF.position];
+                accu = e.get(GPVTG.COURSE_REF.position);
                 if ("T".equals(accu)) {
                     // other values than (T)rue are ignored
-                    accu = e[GPVTG.COURSE.position];
+                    accu = e.get(GPVTG.COURSE.position);
                     if (!accu.isEmpty()) {
                         Double.parseDouble(accu);
                         currentwp.put("course", accu);
                     }
                 }
                 // SPEED
-                accu = e[GPVTG.SPEED_KMH_UNIT.position];
+                accu = e.get(GPVTG.SPEED_KMH_UNIT.position);
                 if (accu.startsWith("K")) {
-                    accu = e[GPVTG.SPEED_KMH.position];
+                    accu = e.get(GPVTG.SPEED_KMH.position);
                     if (!accu.isEmpty()) {
                         double speed = Double.parseDouble(accu);
                         speed /= 3.6; // speed in m/s
                         currentwp.put("speed", Double.toString(speed));
                     }
                 }
-            } else if ("$GPGSA".equals(e[0]) || "$GNGSA".equals(e[0])) {
+            } else if ("$GPGSA".equals(type) || "$GNGSA".equals(type)) {
                 // vdop
-                accu = e[GPGSA.VDOP.position];
+                accu = e.get(GPGSA.VDOP.position);
                 if (!accu.isEmpty()) {
                     currentwp.put(GpxConstants.PT_VDOP, Float.valueOf(accu));
                 }
                 // hdop
-                accu = e[GPGSA.HDOP.position];
+                accu = e.get(GPGSA.HDOP.position);
                 if (!accu.isEmpty()) {
                     currentwp.put(GpxConstants.PT_HDOP, Float.valueOf(accu));
                 }
                 // pdop
-                accu = e[GPGSA.PDOP.position];
+                accu = e.get(GPGSA.PDOP.position);
                 if (!accu.isEmpty()) {
                     currentwp.put(GpxConstants.PT_PDOP, Float.valueOf(accu));
                 }
-            } else if ("$GPRMC".equals(e[0]) || "$GNRMC".equals(e[0])) {
+            } else if ("$GPRMC".equals(type) || "$GNRMC".equals(type)) {
                 // coordinates
                 LatLon latLon = parseLatLon(
-                        e[GPRMC.WIDTH_NORTH_NAME.position],
-                        e[GPRMC.LENGTH_EAST_NAME.position],
-                        e[GPRMC.WIDTH_NORTH.position],
-                        e[GPRMC.LENGTH_EAST.position]
+                        e.get(GPRMC.WIDTH_NORTH_NAME.position),
+                        e.get(GPRMC.LENGTH_EAST_NAME.position),
+                        e.get(GPRMC.WIDTH_NORTH.position),
+                        e.get(GPRMC.LENGTH_EAST.position)
                 );
                 if (LatLon.ZERO.equals(latLon)) {
                     ps.zeroCoord++;
                     return false;
                 }
                 // time
-                currentDate = e[GPRMC.DATE.position];
-                String time = e[GPRMC.TIME.position];
+                currentDate = e.get(GPRMC.DATE.position);
+                String time = e.get(GPRMC.TIME.position);
 
-                Date d = readTime(currentDate+time);
+                long d = readTime(currentDate, time);
 
                 if (ps.pTime == null || currentwp == null || !ps.pTime.equals(time)) {
                     // this node is newer than the previous, create a new waypoint.
@@ -396,16 +501,16 @@ public class NmeaReader {
                     currentwp = new WayPoint(latLon);
                 }
                 // time: this sentence has complete time so always use it.
-                currentwp.setTime(d);
+                currentwp.setTimeInMillis(d);
                 // speed
-                accu = e[GPRMC.SPEED.position];
+                accu = e.get(GPRMC.SPEED.position);
                 if (!accu.isEmpty() && !currentwp.attr.containsKey("speed")) {
                     double speed = Double.parseDouble(accu);
                     speed *= 0.514444444; // to m/s
                     currentwp.put("speed", Double.toString(speed));
                 }
                 // course
-                accu = e[GPRMC.COURSE.position];
+                accu = e.get(GPRMC.COURSE.position);
                 if (!accu.isEmpty() && !currentwp.attr.containsKey("course")) {
                     Double.parseDouble(accu);
                     currentwp.put("course", accu);
@@ -424,9 +529,6 @@ public class NmeaReader {
             }
             ps.pDate = currentDate;
             if (ps.pWp != currentwp) {
-                if (ps.pWp != null) {
-                    ps.pWp.setTime();
-                }
                 ps.pWp = currentwp;
                 ps.waypoints.add(currentwp);
                 ps.success++;
@@ -442,6 +544,14 @@ public class NmeaReader {
         }
     }
 
+    private static int checksum(byte[] bytes) {
+        int chk = 0;
+        for (int i = 1; i < bytes.length; i++) {
+            chk ^= bytes[i];
+        }
+        return chk;
+    }
+
     private static LatLon parseLatLon(String ns, String ew, String dlat, String dlon)
     throws NumberFormatException {
         String widthNorth = dlat.trim();
@@ -2,22 +2,33 @@
 package org.openstreetmap.josm.io;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.notes.Note;
 import org.openstreetmap.josm.gui.layer.NoteLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.NoteReader.NoteHandler;
+import org.openstreetmap.josm.tools.Predicate;
 import org.xml.sax.SAXException;
 
 /**
  * File importer that reads note dump files (*.osn, .osn.gz and .osn.bz2)
+ * <p>
+ * Notes are filtered by position and status while the file is parsed, so that the notes of an area can be imported
+ * from the planet notes dump with bounded memory. The default filter is read from
+ * the preferences {@code notes.import.bbox} (bounds as {@code minlat,minlon,maxlat,maxlon}, all notes if empty)
+ * and {@code notes.import.closed} (whether to import closed notes, {@code true} by default).
  * @since 7538
  */
 public class NoteImporter extends FileImporter {
@@ -25,11 +36,65 @@ public class NoteImporter extends FileImporter {
     private static final ExtensionFileFilter FILE_FILTER = ExtensionFileFilter.newFilterWithArchiveExtensions(
             "osn", "osn", tr("Note Files"), true);
 
+    /** The number of notes parsed between two progress updates */
+    private static final int BATCH_SIZE = 10000;
+
+    private Predicate<Note> filter;
+    private boolean filterSet;
+
     /** Create an importer for note dump files */
     public NoteImporter() {
         super(FILE_FILTER);
     }
 
+    /**
+     * Returns the filter of the notes to import defined by the preferences.
+     * @return the filter, or {@code null} if all notes are imported
+     */
+    private static Predicate<Note> getDefaultFilter() {
+        if (Main.pref == null) {
+            return null;
+        }
+        Bounds bounds = null;
+        String bbox = Main.pref.get("notes.import.bbox");
+        if (!bbox.isEmpty()) {
+            try {
+                bounds = new Bounds(bbox, ",");
+            } catch (IllegalArgumentException e) {
+                Main.warn("Invalid notes.import.bbox: " + e.getMessage());
+            }
+        }
+        return createFilter(bounds, Main.pref.getBoolean("notes.import.closed", true));
+    }
+
+    /**
+     * Creates a filter of notes.
+     * @param bounds the area of the notes to import, or {@code null} to import notes everywhere
+     * @param includeClosed whether to import closed notes
+     * @return the filter, or {@code null} if all notes pass it
+     */
+    public static Predicate<Note> createFilter(final Bounds bounds, final boolean includeClosed) {
+        if (bounds == null && includeClosed) {
+            return null;
+        }
+        return new Predicate<Note>() {
+            @Override
+            public boolean evaluate(Note note) {
+                return (includeClosed || note.getState() != Note.State.closed)
+                    && (bounds == null || bounds.contains(note.getLatLon()));
+            }
+        };
+    }
+
+    /**
+     * Sets the filter of the notes to import, instead of the one defined by the preferences.
+     * @param filter the notes to import, or {@code null} to import all notes
+     */
+    public void setFilter(Predicate<Note> filter) {
+        this.filter = filter;
+        this.filterSet = true;
+    }
+
     @Override
     public void importData(final File file, ProgressMonitor progressMonitor) throws IOException {
         if (Main.isDebugEnabled()) {
@@ -65,7 +130,16 @@ public class NoteImporter extends FileImporter {
      */
     public NoteLayer loadLayer(InputStream in, final File associatedFile, final String layerName, ProgressMonitor progressMonitor)
             throws SAXException, IOException {
-        final List<Note> fileNotes = new NoteReader(in).parse();
+        final List<Note> fileNotes = new ArrayList<>();
+        final ProgressMonitor monitor = progressMonitor != null ? progressMonitor : NullProgressMonitor.INSTANCE;
+        new NoteReader(in).parse(filterSet ? filter : getDefaultFilter(), BATCH_SIZE, new NoteHandler() {
+            @Override
+            public boolean notesParsed(List<Note> notes) {
+                fileNotes.addAll(notes);
+                monitor.indeterminateSubTask(trn("{0} note imported", "{0} notes imported", fileNotes.size(), fileNotes.size()));
+                return !monitor.isCanceled();
+            }
+        });
         List<NoteLayer> noteLayers = null;
         if (Main.map != null) {
             noteLayers = Main.map.mapView.getLayersOfType(NoteLayer.class);
@@ -73,7 +147,13 @@ public class NoteImporter extends FileImporter {
         final NoteLayer layer;
         if (noteLayers != null && !noteLayers.isEmpty()) {
             layer = noteLayers.get(0);
-            layer.getNoteData().addNotes(fileNotes);
+            // add all notes at once, the note dialog and the map view are updated after each addition
+            GuiHelper.runInEDTAndWait(new Runnable() {
+                @Override
+                public void run() {
+                    layer.getNoteData().addNotes(fileNotes);
+                }
+            });
         } else {
             layer = new NoteLayer(fileNotes, associatedFile != null ? associatedFile.getName() : tr("Notes"));
         }
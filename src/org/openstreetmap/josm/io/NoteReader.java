@@ -17,6 +17,8 @@ import org.openstreetmap.josm.data.notes.Note;
 import org.openstreetmap.josm.data.notes.NoteComment;
 import org.openstreetmap.josm.data.notes.NoteComment.Action;
 import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Predicate;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.date.DateUtils;
 import org.xml.sax.Attributes;
@@ -31,6 +33,28 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 public class NoteReader {
 
+    /**
+     * Receives the notes while they are parsed, so that they do not have to be kept all in memory.
+     * @see NoteReader#parse(Predicate, int, NoteHandler)
+     */
+    public interface NoteHandler {
+        /**
+         * Called for each batch of parsed notes.
+         * @param notes the notes parsed since the last call
+         * @return {@code true} to continue parsing, {@code false} to stop it
+         */
+        boolean notesParsed(List<Note> notes);
+    }
+
+    /**
+     * Thrown by the parser to stop parsing when asked by the {@link NoteHandler}.
+     */
+    private static class StopParsingException extends SAXException {
+        StopParsingException() {
+            super("Parsing stopped");
+        }
+    }
+
     private final InputSource inputSource;
     private List<Note> parsedNotes;
 
@@ -50,6 +74,9 @@ public class NoteReader {
      */
     private class Parser extends DefaultHandler {
 
+        private final Predicate<Note> filter;
+        private final int batchSize;
+        private final NoteHandler handler;
         private NoteParseMode parseMode;
         private final StringBuilder buffer = new StringBuilder();
         private Note thisNote;
@@ -61,6 +88,28 @@ public class NoteReader {
         private List<Note> notes;
         private String commentText;
 
+        /**
+         * Constructs a new {@code Parser}.
+         * @param filter the notes to keep, or {@code null} to keep all notes
+         * @param batchSize the number of notes passed at once to {@code handler}
+         * @param handler the handler of parsed notes, or {@code null} to keep all notes in {@link #notes}
+         */
+        Parser(Predicate<Note> filter, int batchSize, NoteHandler handler) {
+            this.filter = filter;
+            this.batchSize = batchSize;
+            this.handler = handler;
+        }
+
+        private void flush() throws StopParsingException {
+            if (handler != null && !notes.isEmpty()) {
+                List<Note> batch = notes;
+                notes = new ArrayList<>(batchSize);
+                if (!handler.notesParsed(batch)) {
+                    throw new StopParsingException();
+                }
+            }
+        }
+
         @Override
         public void characters(char[] ch, int start, int length) throws SAXException {
             buffer.append(ch, start, length);
@@ -72,11 +121,11 @@ public class NoteReader {
             switch(qName) {
             case "osm":
                 parseMode = NoteParseMode.API;
-                notes = new ArrayList<>(100);
+                notes = new ArrayList<>(handler != null ? batchSize : 100);
                 return;
             case "osm-notes":
                 parseMode = NoteParseMode.DUMP;
-                notes = new ArrayList<>(10000);
+                notes = new ArrayList<>(handler != null ? batchSize : 10000);
                 return;
             }
 
@@ -106,8 +155,15 @@ public class NoteReader {
                     thisNote.setClosedAt(DateUtils.fromString(closedTimeStr));
                 }
                 thisNote.setCreatedAt(DateUtils.fromString(attrs.getValue("created_at")));
+                if (filter != null && !filter.evaluate(thisNote)) {
+                    // skip the comments of the note
+                    thisNote = null;
+                }
                 break;
             case "comment":
+                if (thisNote == null) {
+                    return;
+                }
                 String uidStr = attrs.getValue("uid");
                 if (uidStr == null) {
                     commentUid = 0;
@@ -128,9 +184,19 @@ public class NoteReader {
         }
 
         @Override
-        public void endElement(String namespaceURI, String localName, String qName) {
+        public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
             if (notes != null && "note".equals(qName)) {
-                notes.add(thisNote);
+                // in API mode, the status of the note is only known at its end
+                if (thisNote != null && (parseMode == NoteParseMode.DUMP || filter == null || filter.evaluate(thisNote))) {
+                    notes.add(thisNote);
+                    if (notes.size() >= batchSize) {
+                        flush();
+                    }
+                }
+                thisNote = null;
+            }
+            if (thisNote == null) {
+                return;
             }
             if ("comment".equals(qName)) {
                 User commentUser = User.createOsmUser(commentUid, commentUsername);
@@ -192,6 +258,7 @@ public class NoteReader {
 
         @Override
         public void endDocument() throws SAXException  {
+            flush();
             parsedNotes = notes;
         }
     }
@@ -222,13 +289,38 @@ public class NoteReader {
      * @throws IOException if any I/O error occurs
      */
     public List<Note> parse() throws SAXException, IOException {
-        DefaultHandler parser = new Parser();
+        parse(new Parser(null, Integer.MAX_VALUE, null));
+        return parsedNotes;
+    }
+
+    /**
+     * Parses the InputStream given to the constructor and passes the resulting Note objects to {@code handler}
+     * while parsing, so that large files, such as the planet notes dump, can be read with bounded memory.
+     * <p>
+     * In planet dump style XML, the filter is evaluated when the start of a note has been read, before its comments:
+     * only the position, the id, the status and the dates of the note are known. The comments of the notes that do
+     * not pass the filter are not parsed.
+     * @param filter the notes to keep, or {@code null} to keep all notes
+     * @param batchSize the number of notes passed at once to {@code handler}, fewer for the last batch
+     * @param handler the handler of parsed notes
+     * @throws SAXException if any SAX parsing error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    public void parse(Predicate<Note> filter, int batchSize, NoteHandler handler) throws SAXException, IOException {
+        CheckParameterUtil.ensureParameterNotNull(handler, "handler");
+        try {
+            parse(new Parser(filter, Math.max(1, batchSize), handler));
+        } catch (StopParsingException e) {
+            Main.debug(e.getMessage());
+        }
+    }
+
+    private void parse(DefaultHandler parser) throws SAXException, IOException {
         try {
             Utils.parseSafeSAX(inputSource, parser);
         } catch (ParserConfigurationException e) {
             Main.error(e); // broken SAXException chaining
             throw new SAXException(e);
         }
-        return parsedNotes;
     }
 }
@@ -4,7 +4,11 @@ package org.openstreetmap.josm.io;
 import static org.openstreetmap.josm.tools.I18n.tr;
 import static org.openstreetmap.josm.tools.I18n.trn;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -517,7 +521,7 @@ public class OsmApi extends OsmConnection {
      * @return list of processed primitives
      * @throws OsmTransferException if something is wrong
      */
-    public Collection<OsmPrimitive> uploadDiff(Collection<? extends OsmPrimitive> list, ProgressMonitor monitor)
+    public Collection<OsmPrimitive> uploadDiff(final Collection<? extends OsmPrimitive> list, ProgressMonitor monitor)
             throws OsmTransferException {
         try {
             monitor.beginTask("", list.size() * 2);
@@ -526,25 +530,57 @@ public class OsmApi extends OsmConnection {
 
             initialize(monitor);
 
-            // prepare upload request
-            //
-            OsmChangeBuilder changeBuilder = new OsmChangeBuilder(changeset);
-            monitor.subTask(tr("Preparing upload request..."));
-            changeBuilder.start();
-            changeBuilder.append(list);
-            changeBuilder.finish();
-            String diffUploadRequest = changeBuilder.getDocument();
-
-            // Upload to the server
-            //
-            monitor.indeterminateSubTask(
-                    trn("Uploading {0} object...", "Uploading {0} objects...", list.size(), list.size()));
-            String diffUploadResponse = sendRequest("POST", "changeset/" + changeset.getId() + "/upload", diffUploadRequest, monitor);
-
-            // Process the response from the server
-            //
-            DiffResultProcessor reader = new DiffResultProcessor(list);
-            reader.parse(diffUploadResponse, monitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+            final DiffResultProcessor reader = new DiffResultProcessor(list);
+            final String urlSuffix = "changeset/" + changeset.getId() + "/upload";
+            if (Main.pref.getBoolean("osm-server.upload-diff.streaming", true)) {
+                // Serialize the primitives while they are sent and process the response while it is received,
+                // so that neither the request nor the response document are held in memory
+                //
+                final Changeset cs = changeset;
+                monitor.indeterminateSubTask(
+                        trn("Uploading {0} object...", "Uploading {0} objects...", list.size(), list.size()));
+                HttpClient.RequestBodyWriter body = new HttpClient.RequestBodyWriter() {
+                    @Override
+                    public void writeTo(OutputStream out) throws IOException {
+                        PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+                        OsmChangeBuilder changeBuilder = new OsmChangeBuilder(cs, null, writer);
+                        changeBuilder.start();
+                        changeBuilder.append(list);
+                        changeBuilder.finish();
+                        // PrintWriter swallows exceptions, checkError() flushes and reports them
+                        if (writer.checkError())
+                            throw new IOException(tr("Failed to write upload request"));
+                    }
+                };
+                final ProgressMonitor parseMonitor = monitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false);
+                ResponseParser parser = new ResponseParser() {
+                    @Override
+                    public void parse(InputStream in) throws XmlParsingException {
+                        reader.parse(in, parseMonitor);
+                    }
+                };
+                sendRequest("POST", urlSuffix, null, body, Main.pref.getBoolean("osm-server.upload-diff.compress", false),
+                        parser, monitor, true, false);
+            } else {
+                // prepare upload request
+                //
+                OsmChangeBuilder changeBuilder = new OsmChangeBuilder(changeset);
+                monitor.subTask(tr("Preparing upload request..."));
+                changeBuilder.start();
+                changeBuilder.append(list);
+                changeBuilder.finish();
+                String diffUploadRequest = changeBuilder.getDocument();
+
+                // Upload to the server
+                //
+                monitor.indeterminateSubTask(
+                        trn("Uploading {0} object...", "Uploading {0} objects...", list.size(), list.size()));
+                String diffUploadResponse = sendRequest("POST", urlSuffix, diffUploadRequest, monitor);
+
+                // Process the response from the server
+                //
+                reader.parse(diffUploadResponse, monitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+            }
             return reader.postProcess(
                     getChangeset(),
                     monitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false)
@@ -628,6 +664,37 @@ public class OsmApi extends OsmConnection {
      */
     protected final String sendRequest(String requestMethod, String urlSuffix, String requestBody, ProgressMonitor monitor,
             boolean doAuthenticate, boolean fastFail) throws OsmTransferException {
+        return sendRequest(requestMethod, urlSuffix, requestBody, null, false, null, monitor, doAuthenticate, fastFail);
+    }
+
+    /**
+     * Processes the body of a successful response while it is received.
+     */
+    private interface ResponseParser {
+        void parse(InputStream in) throws IOException, XmlParsingException;
+    }
+
+    /**
+     * Sends a request to the OSM API, see {@link #sendRequest(String, String, String, ProgressMonitor, boolean, boolean)}.
+     *
+     * @param requestMethod The http method used when talking with the server.
+     * @param urlSuffix The suffix to add at the server url
+     * @param requestBody the body of the HTTP request, if any.
+     * @param bodyWriter writes the body of the HTTP request while it is sent, instead of {@code requestBody}. Can be null.
+     * @param compressBody whether the body written by {@code bodyWriter} is compressed with gzip
+     * @param responseParser parses the body of the HTTP response while it is received, if the response code was
+     *    "200 OK". Can be null.
+     * @param monitor the progress monitor
+     * @param doAuthenticate set to true, if the request sent to the server shall include authentication credentials
+     * @param fastFail true to request a short timeout
+     * @return the body of the HTTP response, if the response code was "200 OK" and no parser was given,
+     *    the empty string if the response was parsed.
+     * @throws OsmTransferException if the HTTP return code was not 200 (and retries have
+     *    been exhausted), or rewrapping a Java exception.
+     */
+    private String sendRequest(String requestMethod, String urlSuffix, String requestBody,
+            HttpClient.RequestBodyWriter bodyWriter, boolean compressBody, ResponseParser responseParser,
+            ProgressMonitor monitor, boolean doAuthenticate, boolean fastFail) throws OsmTransferException {
         int retries = fastFail ? 0 : getMaxRetries();
 
         while (true) { // the retry loop
@@ -646,7 +713,10 @@ public class OsmApi extends OsmConnection {
                     addAuth(client);
                 }
 
-                if ("PUT".equals(requestMethod) || "POST".equals(requestMethod) || "DELETE".equals(requestMethod)) {
+                if (bodyWriter != null) {
+                    client.setHeader("Content-Type", "text/xml");
+                    client.setRequestBody(bodyWriter, compressBody);
+                } else if ("PUT".equals(requestMethod) || "POST".equals(requestMethod) || "DELETE".equals(requestMethod)) {
                     client.setHeader("Content-Type", "text/xml");
                     // It seems that certain bits of the Ruby API are very unhappy upon
                     // receipt of a PUT/POST message without a Content-length header,
@@ -669,7 +739,17 @@ public class OsmApi extends OsmConnection {
                     }
                 }
 
-                final String responseBody = response.fetchContent();
+                final String responseBody;
+                if (retCode == HttpURLConnection.HTTP_OK && responseParser != null) {
+                    try (InputStream in = response.getContent()) {
+                        responseParser.parse(in);
+                    } catch (XmlParsingException e) {
+                        throw new OsmTransferException(e);
+                    }
+                    responseBody = "";
+                } else {
+                    responseBody = response.fetchContent();
+                }
 
                 String errorHeader = null;
                 // Look for a detailed error message from the server
@@ -679,7 +759,7 @@ public class OsmApi extends OsmConnection {
                 } else if (retCode != HttpURLConnection.HTTP_OK && responseBody.length() > 0) {
                     Main.error("Error body: " + responseBody);
                 }
-                activeConnection.disconnect();
+                client.disconnect();
 
                 errorHeader = errorHeader == null ? null : errorHeader.trim();
                 String errorBody = responseBody.length() == 0 ? null : responseBody.trim();
@@ -695,7 +775,7 @@ public class OsmApi extends OsmConnection {
                         throw new OsmApiException(retCode, errorHeader, errorBody);
                 case HttpURLConnection.HTTP_FORBIDDEN:
                     OsmApiException e = new OsmApiException(retCode, errorHeader, errorBody);
-                    e.setAccessedUrl(activeConnection.getURL().toString());
+                    e.setAccessedUrl(client.getURL().toString());
                     throw e;
                 default:
                     throw new OsmApiException(retCode, errorHeader, errorBody);
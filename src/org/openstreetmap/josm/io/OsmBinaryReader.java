@@ -0,0 +1,337 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.conflict.Conflict;
+import org.openstreetmap.josm.data.conflict.ConflictCollection;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.LongList;
+
+/**
+ * Reads the binary format written by {@link OsmBinaryWriter}.
+ * <p>
+ * The data set is built like {@link OsmReader} builds it from OSM XML: new primitives get new ids, and members
+ * which are not in the data become incomplete primitives. The conflicts are available with {@link #getConflicts()};
+ * their primitives are not in the data set, and only refer to copies of the nodes of the data set or to incomplete
+ * primitives.
+ * @see OsmBinaryWriter
+ */
+public class OsmBinaryReader extends AbstractReader {
+
+    private static final OsmPrimitiveType[] TYPES = {OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION};
+
+    private DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+    private final long[] lastIds = new long[3];
+    private long lastMemberId;
+    private long lastLat;
+    private long lastLon;
+    private long lastTimestamp;
+    private long lastChangeset;
+    private final ConflictCollection conflicts = new ConflictCollection();
+    /** Members of the primitives of the conflicts, which are not in the data set */
+    private final Map<SimplePrimitiveId, OsmPrimitive> theirMembers = new HashMap<>();
+
+    /**
+     * Returns the conflicts which have been read.
+     * @return the conflicts which have been read, between primitives of the data set and primitives outside of it
+     */
+    public ConflictCollection getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Reads the data set.
+     * @param source the source input stream. Must not be null
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @return the data set
+     * @throws IllegalDataException if the data is not in the binary format, or if it is not valid
+     */
+    public DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        ProgressMonitor monitor = progressMonitor != null ? progressMonitor : NullProgressMonitor.INSTANCE;
+        try {
+            monitor.beginTask(tr("Prepare OSM data..."), 2);
+            monitor.indeterminateSubTask(tr("Parsing OSM data..."));
+            in = new DataInputStream(new BufferedInputStream(source, OsmExporter.BUFFER_SIZE));
+            if (in.readInt() != OsmBinaryWriter.MAGIC) {
+                throw new IllegalDataException(tr("Invalid binary OSM data"));
+            }
+            int version = (int) readVarLong();
+            if (version != OsmBinaryWriter.FORMAT_VERSION) {
+                throw new IllegalDataException(tr("Version ''{0}'' of binary OSM data is not supported. Expected: {1}",
+                        version, OsmBinaryWriter.FORMAT_VERSION));
+            }
+            ds.setVersion(readString());
+            ds.setUploadDiscouraged(in.readBoolean());
+            for (long i = readVarLong(); i > 0; i--) {
+                Bounds bounds = new Bounds(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+                ds.dataSources.add(new DataSource(bounds, readString()));
+            }
+            for (int type = OsmBinaryWriter.NODE; type <= OsmBinaryWriter.RELATION; type++) {
+                for (long i = readVarLong(); i > 0; i--) {
+                    PrimitiveData data = readPrimitive(type);
+                    externalIdMap.put(data.getPrimitiveId(), createPrimitive(data));
+                }
+            }
+            monitor.worked(1);
+
+            monitor.indeterminateSubTask(tr("Preparing data set..."));
+            prepareDataSet();
+            readConflicts();
+            monitor.worked(1);
+            return getDataSet();
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            monitor.finishTask();
+        }
+    }
+
+    /**
+     * Creates the primitive of the data set, and records its members by their ids in the data.
+     */
+    private OsmPrimitive createPrimitive(PrimitiveData data) {
+        OsmPrimitive p;
+        if (data instanceof NodeData) {
+            p = new Node(data.getId(), data.getVersion());
+        } else if (data instanceof WayData) {
+            p = new Way(data.getId(), data.getVersion());
+            List<Long> nodeIds = ((WayData) data).getNodes();
+            if (data.isDeleted() && !nodeIds.isEmpty()) {
+                Main.info(tr("Deleted way {0} contains nodes", data.getUniqueId()));
+                nodeIds = new LongList();
+            }
+            ways.put(data.getUniqueId(), nodeIds);
+            // the nodes are set by prepareDataSet(), load() requires them to be in the data set
+            ((WayData) data).setNodes(new LongList());
+        } else {
+            p = new Relation(data.getId(), data.getVersion());
+            List<RelationMemberData> members = ((RelationData) data).getMembers();
+            if (data.isDeleted() && !members.isEmpty()) {
+                Main.info(tr("Deleted relation {0} contains members", data.getUniqueId()));
+                members = new ArrayList<>();
+            }
+            relations.put(data.getUniqueId(), members);
+            ((RelationData) data).setMembers(new ArrayList<RelationMemberData>());
+        }
+        p.setVisible(data.isVisible());
+        p.load(data);
+        return p;
+    }
+
+    private void readConflicts() throws IOException, IllegalDataException {
+        for (long i = readVarLong(); i > 0; i--) {
+            OsmPrimitiveType myType = TYPES[in.readUnsignedByte()];
+            OsmPrimitive my = externalIdMap.get(new SimplePrimitiveId(readSignedVarLong(), myType));
+            boolean isMyDeleted = in.readBoolean();
+            PrimitiveData data = readPrimitive(in.readUnsignedByte());
+            if (my == null) {
+                throw new IllegalDataException(tr("Conflict with missing primitive {0}", data.getPrimitiveId()));
+            }
+            conflicts.add(new Conflict<>(my, createTheirPrimitive(data), isMyDeleted));
+        }
+    }
+
+    /**
+     * Creates a primitive of a conflict, outside of the data set.
+     */
+    private OsmPrimitive createTheirPrimitive(PrimitiveData data) {
+        OsmPrimitive p = data.getType().newInstance(data.getUniqueId(), true);
+        p.setVisible(data.isVisible());
+        if (data instanceof NodeData) {
+            p.load(data);
+        } else if (data instanceof WayData) {
+            List<Node> nodes = new ArrayList<>();
+            for (long id : ((WayData) data).getNodes()) {
+                nodes.add((Node) getTheirMember(OsmPrimitiveType.NODE, id));
+            }
+            // load() requires the nodes to be in a data set
+            ((WayData) data).setNodes(new ArrayList<Long>());
+            p.load(data);
+            ((Way) p).setNodes(nodes);
+        } else {
+            List<RelationMember> members = new ArrayList<>();
+            for (RelationMemberData m : ((RelationData) data).getMembers()) {
+                members.add(new RelationMember(m.getRole(), getTheirMember(m.getMemberType(), m.getMemberId())));
+            }
+            ((RelationData) data).setMembers(new ArrayList<RelationMemberData>());
+            p.load(data);
+            ((Relation) p).setMembers(members);
+        }
+        return p;
+    }
+
+    /**
+     * Returns a member of a primitive of a conflict: a copy of the node of the data set with the same id,
+     * or else an incomplete primitive.
+     */
+    private OsmPrimitive getTheirMember(OsmPrimitiveType type, long id) {
+        SimplePrimitiveId key = new SimplePrimitiveId(id, type);
+        OsmPrimitive member = theirMembers.get(key);
+        if (member == null) {
+            OsmPrimitive mine = externalIdMap.get(key);
+            if (mine instanceof Node && !mine.isIncomplete()) {
+                member = new Node((Node) mine);
+            } else {
+                member = type.newInstance(id, true);
+            }
+            theirMembers.put(key, member);
+        }
+        return member;
+    }
+
+    private PrimitiveData readPrimitive(int type) throws IOException, IllegalDataException {
+        if (type < OsmBinaryWriter.NODE || type > OsmBinaryWriter.RELATION) {
+            throw new IllegalDataException(tr("Invalid binary OSM data"));
+        }
+        PrimitiveData data = type == OsmBinaryWriter.NODE ? new NodeData()
+                : type == OsmBinaryWriter.WAY ? new WayData() : new RelationData();
+        lastIds[type] += readSignedVarLong();
+        data.setId(lastIds[type]);
+        if (data.getUniqueId() == 0) {
+            throw new IllegalDataException(tr("Illegal object with ID=0."));
+        }
+        int flags = in.readUnsignedByte();
+        data.setVisible((flags & OsmBinaryWriter.FLAG_INVISIBLE) == 0);
+        data.setDeleted((flags & OsmBinaryWriter.FLAG_DELETED) != 0);
+        // after setDeleted(), which changes the modified flag
+        data.setModified((flags & OsmBinaryWriter.FLAG_MODIFIED) != 0);
+        data.setVersion((int) readVarLong());
+        lastChangeset += readSignedVarLong();
+        if (!data.isNew()) {
+            data.setChangesetId((int) lastChangeset);
+        }
+        lastTimestamp += readSignedVarLong();
+        data.setRawTimestamp((int) lastTimestamp);
+        data.setUser(readUser());
+
+        long tags = readVarLong();
+        if (tags > 0) {
+            Map<String, String> keys = new HashMap<>();
+            for (; tags > 0; tags--) {
+                keys.put(readString(), readString());
+            }
+            data.setKeys(keys);
+        }
+
+        if ((flags & OsmBinaryWriter.FLAG_COORDINATES) != 0) {
+            lastLat += readSignedVarLong();
+            lastLon += readSignedVarLong();
+            ((NodeData) data).setCoor(new LatLon(lastLat / OsmBinaryWriter.COORDINATE_SCALE,
+                    lastLon / OsmBinaryWriter.COORDINATE_SCALE));
+        } else if (data instanceof WayData) {
+            LongList nodes = new LongList();
+            for (long i = readVarLong(); i > 0; i--) {
+                nodes.add(readMemberId());
+            }
+            ((WayData) data).setNodes(nodes);
+        } else if (data instanceof RelationData) {
+            List<RelationMemberData> members = new ArrayList<>();
+            for (long i = readVarLong(); i > 0; i--) {
+                OsmPrimitiveType memberType = TYPES[in.readUnsignedByte()];
+                long id = readMemberId();
+                members.add(new RelationMemberData(readString(), memberType, id));
+            }
+            ((RelationData) data).setMembers(members);
+        }
+        return data;
+    }
+
+    private long readMemberId() throws IOException {
+        lastMemberId += readSignedVarLong();
+        return lastMemberId;
+    }
+
+    private User readUser() throws IOException, IllegalDataException {
+        long index = readVarLong();
+        if (index == 0) {
+            return null;
+        } else if (index == 1) {
+            long uid = readVarLong();
+            String name = readString();
+            User user = uid == 0 ? User.createLocalUser(name) : User.createOsmUser(uid, name);
+            users.add(user);
+            return user;
+        } else if (index - 2 < users.size()) {
+            return users.get((int) (index - 2));
+        }
+        throw new IllegalDataException(tr("Invalid binary OSM data"));
+    }
+
+    private String readString() throws IOException, IllegalDataException {
+        long index = readVarLong();
+        if (index == 0) {
+            byte[] bytes = new byte[(int) readVarLong()];
+            in.readFully(bytes);
+            String s = new String(bytes, StandardCharsets.UTF_8).intern();
+            strings.add(s);
+            return s;
+        } else if (index - 1 < strings.size()) {
+            return strings.get((int) (index - 1));
+        }
+        throw new IllegalDataException(tr("Invalid binary OSM data"));
+    }
+
+    private long readSignedVarLong() throws IOException {
+        long v = readVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException(tr("Invalid binary OSM data"));
+    }
+
+    /**
+     * Reads a data set in the binary format.
+     * @param source the source input stream. Must not be null
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @return the data set
+     * @throws IllegalDataException if the data is not in the binary format, or if it is not valid
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor)
+            throws IllegalDataException {
+        return new OsmBinaryReader().doParseDataSet(source, progressMonitor);
+    }
+
+}
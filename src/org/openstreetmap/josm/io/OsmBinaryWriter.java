@@ -0,0 +1,282 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.conflict.Conflict;
+import org.openstreetmap.josm.data.conflict.ConflictCollection;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * Writes the data of an OSM data layer in a compact binary format, which is much faster to read than OSM XML.
+ * <p>
+ * The format keeps everything the OSM XML written by {@link OsmWriter} for a layer keeps, that is the state
+ * (modified, deleted, visible) and the metadata of the primitives and the data sources, as well as the conflicts
+ * of the layer. Ids, coordinates, timestamps and changesets are delta-encoded as variable length integers, the
+ * coordinates with the precision of the XML files, and each string (tag, role, origin, user name) is only written
+ * the first time it is used, and then referred to by its index.
+ * It is read by {@link OsmBinaryReader}. The format is meant for files written and read by JOSM, like sessions,
+ * not for data exchange.
+ * @see OsmBinaryReader
+ */
+public class OsmBinaryWriter {
+
+    /** Magic number at the start of the binary format, {@code JOSB} */
+    static final int MAGIC = 0x4a4f5342;
+    /** Version of the binary format */
+    static final int FORMAT_VERSION = 1;
+
+    /** Scale of the fixed-point coordinates, which gives the precision of {@link OsmWriter} */
+    static final double COORDINATE_SCALE = 1e11;
+
+    static final int FLAG_MODIFIED = 1;
+    static final int FLAG_DELETED = 2;
+    static final int FLAG_INVISIBLE = 4;
+    static final int FLAG_COORDINATES = 8;
+
+    static final int NODE = 0;
+    static final int WAY = 1;
+    static final int RELATION = 2;
+
+    private static final Comparator<OsmPrimitive> BY_ID = new Comparator<OsmPrimitive>() {
+        @Override
+        public int compare(OsmPrimitive o1, OsmPrimitive o2) {
+            return Long.compare(o1.getUniqueId(), o2.getUniqueId());
+        }
+    };
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<User, Integer> users = new HashMap<>();
+    private final long[] lastIds = new long[3];
+    private long lastMemberId;
+    private long lastLat;
+    private long lastLon;
+    private long lastTimestamp;
+    private long lastChangeset;
+
+    /**
+     * Constructs a new {@code OsmBinaryWriter}.
+     * @param out the stream to write to. It is buffered by the writer
+     */
+    public OsmBinaryWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, OsmExporter.BUFFER_SIZE));
+    }
+
+    /**
+     * Writes the data and the conflicts of a layer. The caller must hold the read lock of the data set.
+     * @param layer the layer
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeLayer(OsmDataLayer layer) throws IOException {
+        DataSet ds = layer.data;
+        out.writeInt(MAGIC);
+        writeVarLong(FORMAT_VERSION);
+        writeString(ds.getVersion() != null ? ds.getVersion() : OsmWriter.DEFAULT_API_VERSION);
+        out.writeBoolean(layer.isUploadDiscouraged());
+        writeVarLong(ds.dataSources.size());
+        for (DataSource source : ds.dataSources) {
+            out.writeDouble(source.bounds.getMinLat());
+            out.writeDouble(source.bounds.getMinLon());
+            out.writeDouble(source.bounds.getMaxLat());
+            out.writeDouble(source.bounds.getMaxLon());
+            writeString(source.origin != null ? source.origin : "");
+        }
+        writePrimitives(ds.getNodes());
+        writePrimitives(ds.getWays());
+        writePrimitives(ds.getRelations());
+        writeConflicts(layer.getConflicts());
+        out.flush();
+    }
+
+    private void writePrimitives(Collection<? extends OsmPrimitive> primitives) throws IOException {
+        List<OsmPrimitive> written = new ArrayList<>(primitives.size());
+        for (OsmPrimitive p : primitives) {
+            if (isWritten(p)) {
+                written.add(p);
+            }
+        }
+        Collections.sort(written, BY_ID);
+        writeVarLong(written.size());
+        for (OsmPrimitive p : written) {
+            writePrimitive(p);
+        }
+    }
+
+    /**
+     * Determines if a primitive is written, like {@link OsmWriter} does.
+     */
+    private static boolean isWritten(OsmPrimitive p) {
+        return !p.isIncomplete() && !(p.isNewOrUndeleted() && p.isDeleted());
+    }
+
+    private void writeConflicts(ConflictCollection conflicts) throws IOException {
+        List<Conflict<?>> written = new ArrayList<>();
+        for (Conflict<?> c : conflicts) {
+            if (isWritten(c.getMy()) && c.getMy().getDataSet() != null && !c.getTheir().isIncomplete()) {
+                written.add(c);
+            }
+        }
+        writeVarLong(written.size());
+        for (Conflict<?> c : written) {
+            writeType(c.getMy());
+            writeSignedVarLong(c.getMy().getUniqueId());
+            out.writeBoolean(c.isMyDeleted());
+            writeType(c.getTheir());
+            writePrimitive(c.getTheir());
+        }
+    }
+
+    private void writeType(OsmPrimitive p) throws IOException {
+        out.writeByte(getType(p));
+    }
+
+    private static int getType(OsmPrimitive p) {
+        if (p instanceof Node) {
+            return NODE;
+        } else if (p instanceof Way) {
+            return WAY;
+        } else {
+            return RELATION;
+        }
+    }
+
+    private void writePrimitive(OsmPrimitive p) throws IOException {
+        int type = getType(p);
+        writeSignedVarLong(p.getUniqueId() - lastIds[type]);
+        lastIds[type] = p.getUniqueId();
+
+        LatLon coor = p instanceof Node ? ((Node) p).getCoor() : null;
+        int flags = 0;
+        if (p.isModified()) {
+            flags |= FLAG_MODIFIED;
+        }
+        if (p.isDeleted()) {
+            flags |= FLAG_DELETED;
+        }
+        if (!p.isVisible()) {
+            flags |= FLAG_INVISIBLE;
+        }
+        if (coor != null) {
+            flags |= FLAG_COORDINATES;
+        }
+        out.writeByte(flags);
+        writeVarLong(p.getVersion());
+        writeSignedVarLong(p.getChangesetId() - lastChangeset);
+        lastChangeset = p.getChangesetId();
+        writeSignedVarLong(p.getRawTimestamp() - lastTimestamp);
+        lastTimestamp = p.getRawTimestamp();
+        writeUser(p.getUser());
+
+        writeVarLong(p.getNumKeys());
+        for (Map.Entry<String, String> tag : p.getKeys().entrySet()) {
+            writeString(tag.getKey());
+            writeString(tag.getValue());
+        }
+
+        if (coor != null) {
+            long lat = Math.round(coor.lat() * COORDINATE_SCALE);
+            long lon = Math.round(coor.lon() * COORDINATE_SCALE);
+            writeSignedVarLong(lat - lastLat);
+            writeSignedVarLong(lon - lastLon);
+            lastLat = lat;
+            lastLon = lon;
+        } else if (p instanceof Way) {
+            Way w = (Way) p;
+            writeVarLong(w.getNodesCount());
+            for (int i = 0; i < w.getNodesCount(); i++) {
+                writeMemberId(w.getNodeId(i));
+            }
+        } else if (p instanceof Relation) {
+            Relation r = (Relation) p;
+            writeVarLong(r.getMembersCount());
+            for (RelationMember m : r.getMembers()) {
+                writeType(m.getMember());
+                writeMemberId(m.getUniqueId());
+                writeString(m.getRole());
+            }
+        }
+    }
+
+    private void writeMemberId(long id) throws IOException {
+        writeSignedVarLong(id - lastMemberId);
+        lastMemberId = id;
+    }
+
+    /**
+     * Writes a user: {@code 0} for none, {@code 1} followed by the user the first time it is written,
+     * or else its index plus {@code 2}.
+     */
+    private void writeUser(User user) throws IOException {
+        if (user == null || !(user.isLocalUser() || user.isOsmUser())) {
+            writeVarLong(0);
+            return;
+        }
+        Integer index = users.get(user);
+        if (index != null) {
+            writeVarLong(index + 2L);
+        } else {
+            writeVarLong(1);
+            users.put(user, users.size());
+            // local users have no id, see OsmWriter
+            writeVarLong(user.isLocalUser() ? 0 : user.getId());
+            writeString(user.getName());
+        }
+    }
+
+    /**
+     * Writes a string: {@code 0} followed by its UTF-8 length and bytes the first time it is written,
+     * or else its index plus {@code 1}.
+     */
+    private void writeString(String s) throws IOException {
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeVarLong(index + 1L);
+        } else {
+            writeVarLong(0);
+            strings.put(s, strings.size());
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes a signed value as a zigzag-encoded variable length integer, so that small negative values are short too.
+     */
+    private void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes an unsigned value as a variable length integer, 7 bits per byte, least significant bits first.
+     */
+    private void writeVarLong(long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7fL) != 0) {
+            out.writeByte((int) (v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Collection;
 
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
 
 /**
  * Creates an OsmChange document from JOSM edits.
@@ -31,8 +32,25 @@ public class OsmChangeBuilder {
     }
 
     public OsmChangeBuilder(Changeset changeset, String apiVersion) {
+        this(changeset, apiVersion, new StringWriter());
+    }
+
+    private OsmChangeBuilder(Changeset changeset, String apiVersion, StringWriter swriter) {
+        this(changeset, apiVersion, new PrintWriter(swriter));
+        this.swriter = swriter;
+    }
+
+    /**
+     * Constructs a new {@code OsmChangeBuilder} which writes the document directly to the given writer,
+     * e.g. to stream it to the server. {@link #getDocument()} is not available then.
+     * @param changeset the changeset, can be null
+     * @param apiVersion the API version, {@link #DEFAULT_API_VERSION} if null
+     * @param writer the writer the document is written to. Must not be null.
+     */
+    public OsmChangeBuilder(Changeset changeset, String apiVersion, PrintWriter writer) {
+        CheckParameterUtil.ensureParameterNotNull(writer, "writer");
         this.apiVersion = apiVersion == null ? DEFAULT_API_VERSION : apiVersion;
-        writer = new PrintWriter(swriter = new StringWriter());
+        this.writer = writer;
         osmwriter = OsmWriterFactory.createOsmWriter(writer, false, apiVersion);
         osmwriter.setChangeset(changeset);
         osmwriter.setIsOsmChange(true);
@@ -128,7 +146,14 @@ public class OsmChangeBuilder {
         writer.println("</osmChange>");
     }
 
+    /**
+     * Returns the document written so far.
+     * @return the OsmChange document
+     * @throws IllegalStateException if the document is written to a writer given to the constructor
+     */
     public String getDocument() {
+        if (swriter == null)
+            throw new IllegalStateException("OsmChange document written to a stream");
         return swriter.toString();
     }
 }
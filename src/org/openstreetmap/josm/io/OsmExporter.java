@@ -3,6 +3,7 @@ package org.openstreetmap.josm.io;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -27,6 +28,11 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public class OsmExporter extends FileExporter {
 
+    /**
+     * The size of the buffer of the written characters, which are encoded to UTF-8 by blocks of this size.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
     /**
      * Constructs a new {@code OsmExporter}.
      */
@@ -128,7 +134,7 @@ public class OsmExporter extends FileExporter {
         // create outputstream and wrap it with gzip or bzip, if necessary
         try (
             OutputStream out = getOutputStream(file);
-            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
             OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion());
         ) {
             layer.data.getReadLock().lock();
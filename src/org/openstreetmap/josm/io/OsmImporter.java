@@ -8,16 +8,23 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.layer.LazyOsmDataLayer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.Utils;
 
 public class OsmImporter extends FileImporter {
 
@@ -72,6 +79,26 @@ public class OsmImporter extends FileImporter {
      */
     @Override
     public void importData(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        if (isLazyLoaded(file)) {
+            progressMonitor.beginTask(tr("Opening {0}", file.getName()), 2);
+            try {
+                try {
+                    importLazily(file, progressMonitor.createSubTaskMonitor(1, false));
+                    return;
+                } catch (LocalOsmStore.LocalChangesException e) {
+                    // the changes would be lost, the file must be loaded at once
+                    Main.info(tr("Loading the whole file ''{0}'': {1}", file.getName(), e.getMessage()));
+                }
+                importFully(file, progressMonitor.createSubTaskMonitor(1, false));
+            } finally {
+                progressMonitor.finishTask();
+            }
+        } else {
+            importFully(file, progressMonitor);
+        }
+    }
+
+    private void importFully(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
         try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
             importData(in, file, progressMonitor);
         } catch (FileNotFoundException e) {
@@ -80,6 +107,86 @@ public class OsmImporter extends FileImporter {
         }
     }
 
+    /**
+     * Determines whether a file is opened as a {@link LazyOsmDataLayer}, which only loads the viewed areas.
+     * This is the case for files of at least {@code osm.lazy-load.min-size} MB, 512 MB by default, unless they contain
+     * local changes, see {@link #importLazily}.
+     * @param file the file
+     * @return {@code true} if the file is too large to be loaded at once
+     */
+    protected boolean isLazyLoaded(File file) {
+        long minSize = Main.pref.getInteger("osm.lazy-load.min-size", 512) * 1024L * 1024L;
+        return minSize > 0 && file.length() >= minSize;
+    }
+
+    /**
+     * Opens a file as a {@link LazyOsmDataLayer}. The file is split into tiles in the cache directory the first
+     * time it is opened, and the tiles are reused until the file is modified.
+     * <p>
+     * Local changes cannot be kept in the tiles, so a file which contains new, deleted or modified primitives, for
+     * instance a file saved by JOSM, is rejected and must be loaded at once.
+     * @param file the file
+     * @param progressMonitor handler for progress monitoring and canceling
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if an error was found while parsing the OSM data
+     * @throws LocalOsmStore.LocalChangesException if the file contains local changes
+     */
+    protected void importLazily(final File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        // one directory per file, containing the store of its current version
+        File fileDir = new File(new File(Main.pref.getCacheDirectory(), "lazy-osm"), Utils.md5Hex(file.getAbsolutePath()));
+        final LocalOsmStore store = new LocalOsmStore(new File(fileDir, Utils.md5Hex(file.length() + "|" + file.lastModified())));
+        if (!store.isImported()) {
+            // remove the stores of former versions of the file, and what an interrupted import left
+            deleteOtherStores(fileDir, store.getDirectory());
+            Utils.deleteDirectory(store.getDirectory());
+            try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+                store.importStream(in, true, progressMonitor);
+            } catch (LocalOsmStore.LocalChangesException e) {
+                Utils.deleteDirectory(store.getDirectory());
+                throw e;
+            }
+        }
+        final List<Bounds> extracts = store.getExtracts();
+
+        // FIXME: remove UI stuff from IO subsystem
+        GuiHelper.runInEDT(new Runnable() {
+            @Override
+            public void run() {
+                BoundingXYVisitor v = new BoundingXYVisitor();
+                for (Bounds b : extracts) {
+                    v.visit(b);
+                }
+                Main.main.addLayer(new LazyOsmDataLayer(store, file.getName()), v.getBounds());
+                new Notification(tr("The file ''{0}'' is large, its data is only loaded in the areas you zoom in.",
+                        file.getName())).setIcon(JOptionPane.INFORMATION_MESSAGE).show();
+            }
+        });
+    }
+
+    /**
+     * Deletes the stores of former versions of a file, except those still used by a layer.
+     * @param fileDir the directory containing the stores of the file
+     * @param current the directory of the store of the current version
+     */
+    private static void deleteOtherStores(File fileDir, File current) {
+        File[] dirs = fileDir.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        Set<File> used = new HashSet<>();
+        used.add(current);
+        if (Main.map != null) {
+            for (LazyOsmDataLayer layer : Main.map.mapView.getLayersOfType(LazyOsmDataLayer.class)) {
+                used.add(layer.getStore().getDirectory());
+            }
+        }
+        for (File dir : dirs) {
+            if (!used.contains(dir)) {
+                Utils.deleteDirectory(dir);
+            }
+        }
+    }
+
     /**
      * Imports OSM data from stream
      * @param in input stream
@@ -0,0 +1,267 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A journal of the changes of OSM data since a snapshot of the data was written to an OSM file.
+ * <p>
+ * Each record of the journal contains the current state of the changed primitives, as an OSM document, and the ids
+ * of the primitives which have been removed from the data set. The journal is {@link #applyTo applied} to the
+ * snapshot by replacing the primitives with the same ids, before the snapshot is read. A record which has not been
+ * completely written, for instance because of a crash, is ignored.
+ * @see org.openstreetmap.josm.data.AutosaveTask
+ */
+public class OsmJournal {
+
+    private static final String RECORD = "record";
+
+    private final File file;
+
+    /**
+     * Constructs a new {@code OsmJournal}.
+     * @param file the file of the journal. It is created by the first record
+     */
+    public OsmJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the file of the journal.
+     * @return the file of the journal
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the size of the journal.
+     * @return the size of the journal file in bytes, {@code 0} if there is no record
+     */
+    public long length() {
+        return file.length();
+    }
+
+    /**
+     * Appends a record to the journal.
+     * @param primitives the changed primitives, whose current state is recorded
+     * @param removed the ids of the primitives which have been removed from the data set
+     * @throws IOException if an I/O error occurs
+     */
+    public void append(Collection<? extends OsmPrimitive> primitives, Collection<? extends PrimitiveId> removed)
+            throws IOException {
+        List<Node> nodes = new ArrayList<>();
+        List<Way> ways = new ArrayList<>();
+        List<Relation> relations = new ArrayList<>();
+        for (OsmPrimitive p : primitives) {
+            if (p instanceof Node) {
+                nodes.add((Node) p);
+            } else if (p instanceof Way) {
+                ways.add((Way) p);
+            } else if (p instanceof Relation) {
+                relations.add((Relation) p);
+            }
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(content, StandardCharsets.UTF_8))), false, OsmWriter.DEFAULT_API_VERSION)) {
+            w.header();
+            w.writeNodes(nodes);
+            w.writeWays(ways);
+            w.writeRelations(relations);
+            w.footer();
+        }
+        StringBuilder header = new StringBuilder(RECORD).append(' ').append(content.size());
+        for (PrimitiveId id : removed) {
+            header.append(' ').append(id.getType().getAPIName()).append(':').append(id.getUniqueId());
+        }
+        header.append('\n');
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
+            out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+            content.writeTo(out);
+        }
+    }
+
+    /**
+     * Applies the journal to the snapshot it has been written for, and deletes the journal.
+     * Nothing is done if the journal has no record.
+     * @param snapshot the OSM file of the snapshot, possibly compressed, see {@link Compression}
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the snapshot or a record is not valid
+     */
+    public void applyTo(File snapshot) throws IOException, IllegalDataException {
+        if (!file.isFile()) {
+            return;
+        }
+        DataReader snapshotReader = new DataReader();
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(snapshot)) {
+            ds = snapshotReader.doParseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        Map<PrimitiveId, PrimitiveData> data = snapshotReader.data;
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            String header;
+            while ((header = readLine(in)) != null) {
+                String[] fields = header.split(" ");
+                if (fields.length < 2 || !RECORD.equals(fields[0])) {
+                    throw new IllegalDataException(tr("Invalid record in journal {0}: {1}", file, header));
+                }
+                byte[] content = new byte[Integer.parseInt(fields[1])];
+                if (!readFully(in, content)) {
+                    Main.warn(tr("Ignoring incomplete record at the end of journal {0}", file));
+                    break;
+                }
+                for (int i = 2; i < fields.length; i++) {
+                    int colon = fields[i].indexOf(':');
+                    data.remove(new SimplePrimitiveId(Long.parseLong(fields[i].substring(colon + 1)),
+                            OsmPrimitiveType.fromApiTypeName(fields[i].substring(0, colon))));
+                }
+                DataReader recordReader = new DataReader();
+                recordReader.doParseDataSet(new ByteArrayInputStream(content), NullProgressMonitor.INSTANCE);
+                data.putAll(recordReader.data);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalDataException(e);
+        }
+
+        File tmp = new File(snapshot.getPath() + ".tmp");
+        // the compression is given by the extension of the snapshot, not the one of the temporary file
+        Compression compression = Compression.byExtension(snapshot.getName());
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                compression.getCompressedOutputStream(new FileOutputStream(tmp)), StandardCharsets.UTF_8),
+                OsmExporter.BUFFER_SIZE)), false, ds.getVersion())) {
+            w.header(!ds.isUploadDiscouraged());
+            w.writeDataSources(ds);
+            for (OsmPrimitiveType type : OsmPrimitiveType.dataValues()) {
+                for (PrimitiveData p : data.values()) {
+                    if (p.getType() == type) {
+                        p.accept(w);
+                    }
+                }
+            }
+            w.footer();
+        }
+        Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Utils.deleteFile(file);
+    }
+
+    /**
+     * Reads a line of ASCII characters.
+     * @return the line, or {@code null} if the stream ends before the end of the line
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                return null;
+            }
+            sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    private static boolean readFully(InputStream in, byte[] b) throws IOException {
+        int n = 0;
+        while (n < b.length) {
+            int read = in.read(b, n, b.length - n);
+            if (read < 0) {
+                return false;
+            }
+            n += read;
+        }
+        return true;
+    }
+
+    /**
+     * Reads OSM data into primitive data with the ids of the file, instead of a data set where new primitives get
+     * new ids.
+     */
+    private static final class DataReader extends OsmReader {
+        private final Map<PrimitiveId, PrimitiveData> data = new LinkedHashMap<>();
+
+        private long getFileId() throws XMLStreamException {
+            try {
+                return Long.parseLong(parser.getAttributeValue(null, "id"));
+            } catch (NumberFormatException e) {
+                throw new XMLStreamException(tr("Illegal value for attribute ''{0}''.", "id"), parser.getLocation(), e);
+            }
+        }
+
+        private void put(PrimitiveData p, long id) {
+            p.setId(id);
+            externalIdMap.remove(p.getPrimitiveId());
+            data.put(p.getPrimitiveId(), p);
+        }
+
+        @Override
+        protected Node parseNode() throws XMLStreamException {
+            long id = getFileId();
+            Node n = super.parseNode();
+            NodeData nd = n.save();
+            put(nd, id);
+            return n;
+        }
+
+        @Override
+        protected Way parseWay() throws XMLStreamException {
+            long id = getFileId();
+            Way w = super.parseWay();
+            WayData wd = w.save();
+            wd.setNodes(new ArrayList<>(ways.remove(id)));
+            put(wd, id);
+            return w;
+        }
+
+        @Override
+        protected Relation parseRelation() throws XMLStreamException {
+            long id = getFileId();
+            Relation r = super.parseRelation();
+            RelationData rd = r.save();
+            rd.setMembers(new ArrayList<>(relations.remove(id)));
+            put(rd, id);
+            return r;
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.openstreetmap.josm.data.osm.WayData;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.LongList;
 import org.openstreetmap.josm.tools.date.DateUtils;
 
 /**
@@ -236,7 +237,7 @@ public class OsmReader extends AbstractReader {
         w.load(wd);
         externalIdMap.put(wd.getPrimitiveId(), w);
 
-        Collection<Long> nodeIds = new ArrayList<>();
+        LongList nodeIds = new LongList();
         while (true) {
             int event = parser.next();
             if (event == XMLStreamConstants.START_ELEMENT) {
@@ -256,7 +257,7 @@ public class OsmReader extends AbstractReader {
         }
         if (w.isDeleted() && !nodeIds.isEmpty()) {
             Main.info(tr("Deleted way {0} contains nodes", w.getUniqueId()));
-            nodeIds = new ArrayList<>();
+            nodeIds.clear();
         }
         ways.put(wd.getUniqueId(), nodeIds);
         return w;
@@ -5,12 +5,20 @@ import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 import static org.openstreetmap.josm.tools.I18n.trn;
 
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
@@ -19,6 +27,7 @@ import org.openstreetmap.josm.gui.io.UploadStrategySpecification;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Class that uploads all changes to the osm server.
@@ -141,7 +150,17 @@ public class OsmServerWriter {
     }
 
     /**
-     * Upload all changes in one diff upload
+     * Upload all changes in chunks of diff uploads.
+     * <p>
+     * Chunks are uploaded one after another by default. If {@code osm-server.upload-chunks.threads} is greater than 1,
+     * chunks which do not depend on each other (see {@link UploadChunkPlan}) are uploaded concurrently by up to that
+     * many connections. This is opt-in, since the server may lock the changeset and reject concurrent uploads with a
+     * conflict, which is not retried.
+     * <p>
+     * Each request is already retried by {@link OsmApi} on server and connection errors. A chunk whose upload still
+     * failed with such an error is uploaded again up to {@code osm-server.upload-chunks.retries} times, 0 by default,
+     * after the running uploads have finished; the remaining chunks are then uploaded one after another.
+     * If an upload fails, the running uploads are awaited, so that the primitives they processed are reported.
      *
      * @param primitives the collection of primitives to upload
      * @param progressMonitor  the progress monitor
@@ -155,25 +174,72 @@ public class OsmServerWriter {
             throw new IllegalArgumentException(tr("Value >0 expected for parameter ''{0}'', got {1}", "chunkSize", chunkSize));
         try {
             progressMonitor.beginTask(tr("Starting to upload in chunks..."));
-            List<OsmPrimitive> chunk = new ArrayList<>(chunkSize);
-            Iterator<? extends OsmPrimitive> it = primitives.iterator();
-            int numChunks = (int) Math.ceil((double) primitives.size() / (double) chunkSize);
-            int i = 0;
-            while (it.hasNext()) {
-                i++;
-                if (canceled) return;
-                int j = 0;
-                chunk.clear();
-                while (it.hasNext() && j < chunkSize) {
-                    if (canceled) return;
-                    j++;
-                    chunk.add(it.next());
+            final UploadChunkPlan plan = UploadChunkPlan.create(primitives, chunkSize);
+            final int numChunks = plan.size();
+            final int threads = Math.min(numChunks, Math.max(1, Main.pref.getInteger("osm-server.upload-chunks.threads", 1)));
+            final int maxRetries = Math.max(0, Main.pref.getInteger("osm-server.upload-chunks.retries", 0));
+            if (numChunks == 0) return;
+            progressMonitor.setTicksCount(numChunks);
+            final boolean[] uploaded = new boolean[numChunks];
+            final boolean[] started = new boolean[numChunks];
+            final int[] retries = new int[numChunks];
+            int maxRunning = threads;
+            int running = 0;
+            OsmTransferException failure = null;
+            ExecutorService executor = Executors.newFixedThreadPool(threads,
+                    Utils.newThreadFactory("upload-chunk-%d", Thread.NORM_PRIORITY));
+            try {
+                CompletionService<ChunkUpload> ecs = new ExecutorCompletionService<>(executor);
+                while (true) {
+                    for (int i = 0; i < numChunks && running < maxRunning && failure == null && !canceled; i++) {
+                        if (!started[i] && plan.isReady(i, uploaded)) {
+                            started[i] = true;
+                            running++;
+                            List<OsmPrimitive> chunk = plan.getChunk(i);
+                            progressMonitor.setCustomText(
+                                    trn("({0}/{1}) Uploading {2} object...",
+                                            "({0}/{1}) Uploading {2} objects...",
+                                            chunk.size(), i + 1, numChunks, chunk.size()));
+                            // concurrent uploads report their progress in turn, see AbstractProgressMonitor
+                            ecs.submit(new ChunkUpload(i, chunk, progressMonitor.createSubTaskMonitor(1, false)));
+                        }
+                    }
+                    if (running == 0) {
+                        break;
+                    }
+                    ChunkUpload upload;
+                    try {
+                        upload = ecs.take().get();
+                    } catch (ExecutionException e) {
+                        // keep waiting for the running uploads, the server may have processed their primitives
+                        running--;
+                        if (failure == null) {
+                            failure = new OsmTransferException(e.getCause());
+                        }
+                        continue;
+                    }
+                    running--;
+                    if (upload.exception == null) {
+                        uploaded[upload.index] = true;
+                        processed.addAll(upload.processed);
+                    } else if (failure == null && !canceled && retries[upload.index] < maxRetries
+                            && isRetryable(upload.exception)) {
+                        retries[upload.index]++;
+                        Main.warn(tr("Upload of chunk {0} failed, retrying: {1}", upload.index + 1, upload.exception.getMessage()));
+                        started[upload.index] = false;
+                        maxRunning = 1;
+                    } else if (failure == null) {
+                        failure = upload.exception;
+                    }
                 }
-                progressMonitor.setCustomText(
-                        trn("({0}/{1}) Uploading {2} object...",
-                                "({0}/{1}) Uploading {2} objects...",
-                                chunk.size(), i, numChunks, chunk.size()));
-                processed.addAll(api.uploadDiff(chunk, progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OsmTransferCanceledException(e);
+            } finally {
+                executor.shutdownNow();
+            }
+            if (failure != null) {
+                throw failure;
             }
         } catch (OsmTransferException e) {
             throw e;
@@ -182,6 +248,46 @@ public class OsmServerWriter {
         }
     }
 
+    /**
+     * Determines whether the upload of a chunk may be retried after the given error, i.e. whether the server
+     * did not process the upload.
+     * @param e the error
+     * @return {@code true} for server errors (5xx) and connection failures
+     */
+    static boolean isRetryable(OsmTransferException e) {
+        if (e instanceof OsmApiException) {
+            return ((OsmApiException) e).getResponseCode() >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+        }
+        return !(e instanceof OsmTransferCanceledException) && e.getCause() instanceof ConnectException;
+    }
+
+    /**
+     * The upload of one chunk, executed by a worker thread.
+     */
+    private final class ChunkUpload implements Callable<ChunkUpload> {
+        private final int index;
+        private final List<OsmPrimitive> chunk;
+        private final ProgressMonitor monitor;
+        private Collection<OsmPrimitive> processed;
+        private OsmTransferException exception;
+
+        ChunkUpload(int index, List<OsmPrimitive> chunk, ProgressMonitor monitor) {
+            this.index = index;
+            this.chunk = chunk;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public ChunkUpload call() {
+            try {
+                processed = api.uploadDiff(chunk, monitor);
+            } catch (OsmTransferException e) {
+                exception = e;
+            }
+            return this;
+        }
+    }
+
     /**
      * Send the dataset to the server.
      *
@@ -0,0 +1,92 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * Reads the ids and versions of the primitives of an OSM data set, without building the primitives.
+ * <p>
+ * Only the {@code id} and {@code version} attributes of the {@code node}, {@code way} and {@code relation} elements
+ * are read, tags, way nodes and relation members are skipped. This is used to find out which primitives have been
+ * changed on the server, without the cost of parsing and merging their data.
+ * @see MultiFetchServerObjectReader#parseVersions
+ */
+public final class OsmVersionReader {
+
+    private OsmVersionReader() {
+        // Hide default constructor for utilities classes
+    }
+
+    /**
+     * Parses the versions of the primitives of an OSM data set.
+     * @param source the source input stream. Must not be null.
+     * @return the version of each primitive of the data set. Primitives without version are omitted
+     * @throws IllegalDataException if the data is not valid XML, or if an id or version is not a number
+     */
+    public static Map<PrimitiveId, Integer> parseVersions(InputStream source) throws IllegalDataException {
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        Map<PrimitiveId, Integer> versions = new HashMap<>();
+        try (InputStreamReader ir = UTFInputStreamReader.create(source)) {
+            XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(ir);
+            try {
+                int depth = 0;
+                while (parser.hasNext()) {
+                    int event = parser.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        // primitives are the children of the root element
+                        if (++depth == 2) {
+                            parsePrimitive(parser, versions);
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                    }
+                }
+            } finally {
+                parser.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalDataException(e.getMessage(), e);
+        } catch (IllegalDataException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalDataException(e);
+        }
+        return versions;
+    }
+
+    private static void parsePrimitive(XMLStreamReader parser, Map<PrimitiveId, Integer> versions) throws IllegalDataException {
+        OsmPrimitiveType type;
+        switch (parser.getLocalName()) {
+        case "node": type = OsmPrimitiveType.NODE; break;
+        case "way": type = OsmPrimitiveType.WAY; break;
+        case "relation": type = OsmPrimitiveType.RELATION; break;
+        default: return;
+        }
+        String id = parser.getAttributeValue(null, "id");
+        String version = parser.getAttributeValue(null, "version");
+        if (id == null || version == null) {
+            return;
+        }
+        try {
+            versions.put(new SimplePrimitiveId(Long.parseLong(id), type), Integer.valueOf(version));
+        } catch (NumberFormatException e) {
+            throw new IllegalDataException(tr("Illegal value for attributes ''id'' or ''version'' of {0}: ''{1}'', ''{2}''",
+                    type.getAPIName(), id, version), e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -44,6 +45,14 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     private boolean isOsmChange;
     private String version;
     private Changeset changeset;
+    private final char[] timestampBuffer = new char[24];
+    private final char[] numberBuffer = new char[24];
+
+    /** the number of decimals of coordinates, as written by {@link LatLon#cDdHighPecisionFormatter} */
+    private static final int COORDINATE_DECIMALS = 11;
+    private static final double COORDINATE_SCALE = 1e11;
+    /** the largest scaled coordinate whose rounding is exact */
+    private static final double MAX_SCALED_COORDINATE = 1e15;
 
     /**
      * Constructs a new {@code OsmWriter}.
@@ -197,8 +206,11 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             out.println("/>");
         } else {
             if (n.getCoor() != null) {
-                out.print(" lat='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lat())+
-                          "' lon='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lon())+'\'');
+                out.write(" lat='");
+                printCoordinate(n.getCoor().lat());
+                out.write("' lon='");
+                printCoordinate(n.getCoor().lon());
+                out.write('\'');
             }
             addTags(n, "node", true);
         }
@@ -213,7 +225,9 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         } else {
             out.println(">");
             for (int i = 0; i < w.getNodesCount(); ++i) {
-                out.println("    <nd ref='"+w.getNodeId(i) +"' />");
+                out.write("    <nd ref='");
+                printLong(w.getNodeId(i));
+                out.println("' />");
             }
             addTags(w, "way", false);
         }
@@ -228,10 +242,13 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         } else {
             out.println(">");
             for (int i = 0; i < e.getMembersCount(); ++i) {
-                out.print("    <member type='");
-                out.print(e.getMemberType(i).getAPIName());
-                out.println("' ref='"+e.getMemberId(i)+"' role='" +
-                        XmlWriter.encode(e.getRole(i)) + "' />");
+                out.write("    <member type='");
+                out.write(e.getMemberType(i).getAPIName());
+                out.write("' ref='");
+                printLong(e.getMemberId(i));
+                out.write("' role='");
+                writeEncoded(e.getRole(i));
+                out.println("' />");
             }
             addTags(e, "relation", false);
         }
@@ -244,10 +261,10 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             out.print(" uid='"+cs.getUser().getId() +'\'');
         }
         if (cs.getCreatedAt() != null) {
-            out.print(" created_at='"+DateUtils.fromDate(cs.getCreatedAt()) +'\'');
+            printTimestamp("created_at", cs.getCreatedAt().getTime());
         }
         if (cs.getClosedAt() != null) {
-            out.print(" closed_at='"+DateUtils.fromDate(cs.getClosedAt()) +'\'');
+            printTimestamp("closed_at", cs.getClosedAt().getTime());
         }
         out.print(" open='"+ (cs.isOpen() ? "true" : "false") +'\'');
         if (cs.getMin() != null) {
@@ -262,6 +279,79 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         addTags(cs, "changeset", false); // also writes closing </changeset>
     }
 
+    /**
+     * Prints a date attribute in XML UTC format, formatted into a reused buffer.
+     * @param attribute attribute name
+     * @param millis milliseconds since the epoch
+     */
+    private void printTimestamp(String attribute, long millis) {
+        out.print(' ');
+        out.print(attribute);
+        out.print("='");
+        int length = DateUtils.formatTimestamp(millis, timestampBuffer, 0);
+        if (length > 0) {
+            out.write(timestampBuffer, 0, length);
+        } else {
+            out.print(DateUtils.fromMillis(millis));
+        }
+        out.print('\'');
+    }
+
+    /**
+     * Prints a number, without creating a string.
+     * @param value the number
+     */
+    private void printLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            out.print(value);
+            return;
+        }
+        int pos = numberBuffer.length;
+        long digits = Math.abs(value);
+        do {
+            numberBuffer[--pos] = (char) ('0' + digits % 10);
+            digits /= 10;
+        } while (digits != 0);
+        if (value < 0) {
+            numberBuffer[--pos] = '-';
+        }
+        out.write(numberBuffer, pos, numberBuffer.length - pos);
+    }
+
+    /**
+     * Prints a coordinate like {@link LatLon#cDdHighPecisionFormatter}, without creating a string.
+     * @param value the coordinate
+     */
+    private void printCoordinate(double value) {
+        double scaled = value * COORDINATE_SCALE;
+        double rounded = Math.rint(scaled);
+        if (rounded == 0 || !(Math.abs(scaled) < MAX_SCALED_COORDINATE) || Math.abs(Math.abs(scaled - rounded) - 0.5) < 0.01) {
+            // the formatter rounds halfway cases from the exact value, which the scaled value may miss
+            out.print(LatLon.cDdHighPecisionFormatter.format(value));
+            return;
+        }
+        long digits = (long) Math.abs(rounded);
+        int decimals = COORDINATE_DECIMALS;
+        while (decimals > 1 && digits % 10 == 0) {
+            digits /= 10;
+            decimals--;
+        }
+        int pos = numberBuffer.length;
+        for (int i = 0; i < decimals; i++) {
+            numberBuffer[--pos] = (char) ('0' + digits % 10);
+            digits /= 10;
+        }
+        numberBuffer[--pos] = '.';
+        do {
+            numberBuffer[--pos] = (char) ('0' + digits % 10);
+            digits /= 10;
+        } while (digits != 0);
+        if (rounded < 0) {
+            numberBuffer[--pos] = '-';
+        }
+        out.write(numberBuffer, pos, numberBuffer.length - pos);
+    }
+
     protected static final Comparator<Entry<String, String>> byKeyComparator = new Comparator<Entry<String, String>>() {
         @Override
         public int compare(Entry<String, String> o1, Entry<String, String> o2) {
@@ -274,20 +364,29 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             if (tagOpen) {
                 out.println(">");
             }
-            List<Entry<String, String>> entries = new ArrayList<>(osm.getKeys().entrySet());
-            Collections.sort(entries, byKeyComparator);
-            for (Entry<String, String> e : entries) {
-                out.println("    <tag k='"+ XmlWriter.encode(e.getKey()) +
-                        "' v='"+XmlWriter.encode(e.getValue())+ "' />");
+            String[] keys = osm.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            for (String key : keys) {
+                out.write("    <tag k='");
+                writeEncoded(key);
+                out.write("' v='");
+                writeEncoded(osm.get(key));
+                out.println("' />");
             }
-            out.println("  </" + tagname + '>');
+            printEndTag(tagname);
         } else if (tagOpen) {
             out.println(" />");
         } else {
-            out.println("  </" + tagname + '>');
+            printEndTag(tagname);
         }
     }
 
+    private void printEndTag(String tagname) {
+        out.write("  </");
+        out.write(tagname);
+        out.println('>');
+    }
+
     /**
      * Add the common part as the form of the tag as well as the XML attributes
      * id, action, user, and visible.
@@ -295,9 +394,12 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
      * @param tagname XML tag matching osm primitive (node, way, relation)
      */
     protected void addCommon(IPrimitive osm, String tagname) {
-        out.print("  <"+tagname);
+        out.write("  <");
+        out.write(tagname);
         if (osm.getUniqueId() != 0) {
-            out.print(" id='"+ osm.getUniqueId()+'\'');
+            out.write(" id='");
+            printLong(osm.getUniqueId());
+            out.write('\'');
         } else
             throw new IllegalStateException(tr("Unexpected id 0 for osm primitive found"));
         if (!isOsmChange) {
@@ -309,31 +411,47 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
                     action = "modify";
                 }
                 if (action != null) {
-                    out.print(" action='"+action+'\'');
+                    out.write(" action='");
+                    out.write(action);
+                    out.write('\'');
                 }
             }
             if (!osm.isTimestampEmpty()) {
-                out.print(" timestamp='"+DateUtils.fromTimestamp(osm.getRawTimestamp())+'\'');
+                printTimestamp("timestamp", osm.getRawTimestamp() * 1000L);
             }
             // user and visible added with 0.4 API
             if (osm.getUser() != null) {
                 if (osm.getUser().isLocalUser()) {
-                    out.print(" user='"+XmlWriter.encode(osm.getUser().getName())+'\'');
+                    printUserName(osm);
                 } else if (osm.getUser().isOsmUser()) {
                     // uid added with 0.6
-                    out.print(" uid='"+ osm.getUser().getId()+'\'');
-                    out.print(" user='"+XmlWriter.encode(osm.getUser().getName())+'\'');
+                    out.write(" uid='");
+                    printLong(osm.getUser().getId());
+                    out.write('\'');
+                    printUserName(osm);
                 }
             }
-            out.print(" visible='"+osm.isVisible()+'\'');
+            out.write(osm.isVisible() ? " visible='true'" : " visible='false'");
         }
         if (osm.getVersion() != 0) {
-            out.print(" version='"+osm.getVersion()+'\'');
+            out.write(" version='");
+            printLong(osm.getVersion());
+            out.write('\'');
         }
         if (this.changeset != null && this.changeset.getId() != 0) {
-            out.print(" changeset='"+this.changeset.getId()+'\'');
+            out.write(" changeset='");
+            printLong(this.changeset.getId());
+            out.write('\'');
         } else if (osm.getChangesetId() > 0 && !osm.isNew()) {
-            out.print(" changeset='"+osm.getChangesetId()+'\'');
+            out.write(" changeset='");
+            printLong(osm.getChangesetId());
+            out.write('\'');
         }
     }
+
+    private void printUserName(IPrimitive osm) {
+        out.write(" user='");
+        writeEncoded(osm.getUser().getName());
+        out.write('\'');
+    }
 }
@@ -0,0 +1,180 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openstreetmap.josm.data.APIDataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Splits the primitives of an upload into chunks and determines which chunks have to be uploaded before others.
+ * <p>
+ * A chunk depends on an earlier chunk if
+ * <ul>
+ * <li>one of its primitives refers to a new or undeleted primitive of the earlier chunk, which has to exist
+ * on the server first, or</li>
+ * <li>it deletes primitives which may still be referred to by the primitives of the earlier chunk:
+ * deletions are uploaded after all other changes, deleted relations before deleted ways before deleted nodes,
+ * and deleted relations in the given order.</li>
+ * </ul>
+ * Chunks which do not depend on each other can be uploaded concurrently. The primitives are expected in upload
+ * order, see {@link APIDataSet#adjustRelationUploadOrder()}. If they are not, each chunk depends on the previous one.
+ */
+final class UploadChunkPlan {
+
+    private final List<List<OsmPrimitive>> chunks;
+    private final List<Set<Integer>> dependencies;
+
+    private UploadChunkPlan(List<List<OsmPrimitive>> chunks, List<Set<Integer>> dependencies) {
+        this.chunks = chunks;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Splits the primitives into chunks, keeping their order.
+     * @param primitives the primitives to upload, in upload order
+     * @param chunkSize the maximum number of primitives per chunk, &gt; 0
+     * @return the upload plan
+     */
+    static UploadChunkPlan create(Collection<? extends OsmPrimitive> primitives, int chunkSize) {
+        final List<List<OsmPrimitive>> chunks = new ArrayList<>();
+        final Map<OsmPrimitive, Integer> chunkOf = new HashMap<>();
+        List<OsmPrimitive> chunk = null;
+        for (OsmPrimitive p : primitives) {
+            if (chunk == null || chunk.size() >= chunkSize) {
+                chunk = new ArrayList<>(Math.min(chunkSize, primitives.size()));
+                chunks.add(chunk);
+            }
+            chunk.add(p);
+            chunkOf.put(p, chunks.size() - 1);
+        }
+
+        final int n = chunks.size();
+        final int[] minRank = new int[n];
+        final int[] maxRank = new int[n];
+        final boolean[] deletesRelations = new boolean[n];
+        for (int c = 0; c < n; c++) {
+            minRank[c] = Integer.MAX_VALUE;
+            for (OsmPrimitive p : chunks.get(c)) {
+                int rank = getRank(p);
+                minRank[c] = Math.min(minRank[c], rank);
+                maxRank[c] = Math.max(maxRank[c], rank);
+                deletesRelations[c] |= rank == 1;
+            }
+        }
+
+        final List<Set<Integer>> dependencies = new ArrayList<>(n);
+        for (int c = 0; c < n; c++) {
+            Set<Integer> deps = new TreeSet<>();
+            for (OsmPrimitive p : chunks.get(c)) {
+                if (p.isDeleted()) {
+                    continue;
+                }
+                for (OsmPrimitive q : getReferredPrimitives(p)) {
+                    Integer d = chunkOf.get(q);
+                    if (d == null || d == c || q.isDeleted() || !q.isNewOrUndeleted()) {
+                        continue;
+                    } else if (d > c) {
+                        return sequential(chunks);
+                    }
+                    deps.add(d);
+                }
+            }
+            if (maxRank[c] > 0) {
+                for (int d = 0; d < n; d++) {
+                    if (d == c || minRank[d] >= maxRank[c] && !(deletesRelations[c] && deletesRelations[d])) {
+                        continue;
+                    } else if (d < c) {
+                        deps.add(d);
+                    } else if (minRank[d] < maxRank[c]) {
+                        return sequential(chunks);
+                    }
+                }
+            }
+            dependencies.add(deps);
+        }
+        return new UploadChunkPlan(chunks, dependencies);
+    }
+
+    private static UploadChunkPlan sequential(List<List<OsmPrimitive>> chunks) {
+        final List<Set<Integer>> dependencies = new ArrayList<>(chunks.size());
+        for (int c = 0; c < chunks.size(); c++) {
+            dependencies.add(c == 0 ? Collections.<Integer>emptySet() : Collections.singleton(c - 1));
+        }
+        return new UploadChunkPlan(chunks, dependencies);
+    }
+
+    /**
+     * Returns the upload phase of a primitive: 0 for created and modified primitives, then 1, 2, 3 for deleted
+     * relations, ways and nodes.
+     */
+    private static int getRank(OsmPrimitive p) {
+        if (!p.isDeleted()) {
+            return 0;
+        }
+        switch (p.getType()) {
+        case RELATION: return 1;
+        case WAY: return 2;
+        default: return 3;
+        }
+    }
+
+    private static Collection<? extends OsmPrimitive> getReferredPrimitives(OsmPrimitive p) {
+        if (p instanceof Way) {
+            return ((Way) p).getNodes();
+        } else if (p instanceof Relation) {
+            return ((Relation) p).getMemberPrimitivesList();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the number of chunks.
+     * @return the number of chunks
+     */
+    int size() {
+        return chunks.size();
+    }
+
+    /**
+     * Returns a chunk.
+     * @param chunk the index of the chunk
+     * @return the primitives of the chunk, in upload order
+     */
+    List<OsmPrimitive> getChunk(int chunk) {
+        return chunks.get(chunk);
+    }
+
+    /**
+     * Returns the chunks which have to be uploaded before a chunk.
+     * @param chunk the index of the chunk
+     * @return the indexes of the chunks that have to be uploaded first, all lower than {@code chunk}
+     */
+    Set<Integer> getDependencies(int chunk) {
+        return Collections.unmodifiableSet(dependencies.get(chunk));
+    }
+
+    /**
+     * Determines whether a chunk can be uploaded.
+     * @param chunk the index of the chunk
+     * @param uploaded the uploaded chunks, by index
+     * @return {@code true} if all chunks {@code chunk} depends on are uploaded
+     */
+    boolean isReady(int chunk, boolean[] uploaded) {
+        for (int d : dependencies.get(chunk)) {
+            if (!uploaded[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -4,8 +4,6 @@ package org.openstreetmap.josm.io;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Helper class to use for xml outputting classes.
@@ -59,10 +57,7 @@ public class XmlWriter implements Closeable {
         StringBuilder buffer = null;
         if (unencoded != null) {
             for (int i = 0; i < unencoded.length(); ++i) {
-                String encS = null;
-                if (!keepApos || unencoded.charAt(i) != '\'') {
-                    encS = XmlWriter.encoding.get(unencoded.charAt(i));
-                }
+                String encS = getEncoding(unencoded.charAt(i), keepApos);
                 if (encS != null) {
                     if (buffer == null) {
                         buffer = new StringBuilder(unencoded.substring(0, i));
@@ -77,18 +72,43 @@ public class XmlWriter implements Closeable {
     }
 
     /**
-     * The output writer to save the values to.
+     * Writes the given string in XML1.0 format, without building the encoded string.
+     * @param unencoded the unencoded string. Nothing is written if {@code null}
+     * @see #encode(String)
+     */
+    protected void writeEncoded(String unencoded) {
+        if (unencoded == null) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < unencoded.length(); ++i) {
+            String encS = getEncoding(unencoded.charAt(i), false);
+            if (encS != null) {
+                out.write(unencoded, start, i - start);
+                out.write(encS);
+                start = i + 1;
+            }
+        }
+        out.write(unencoded, start, unencoded.length() - start);
+    }
+
+    private static String getEncoding(char c, boolean keepApos) {
+        return c < ENCODING.length && (!keepApos || c != '\'') ? ENCODING[c] : null;
+    }
+
+    /**
+     * The encoding of the characters which need one, indexed by character.
      */
-    private static final Map<Character, String> encoding = new HashMap<>();
+    private static final String[] ENCODING = new String['>' + 1];
     static {
-        encoding.put('<', "&lt;");
-        encoding.put('>', "&gt;");
-        encoding.put('"', "&quot;");
-        encoding.put('\'', "&apos;");
-        encoding.put('&', "&amp;");
-        encoding.put('\n', "&#xA;");
-        encoding.put('\r', "&#xD;");
-        encoding.put('\t', "&#x9;");
+        ENCODING['<'] = "&lt;";
+        ENCODING['>'] = "&gt;";
+        ENCODING['"'] = "&quot;";
+        ENCODING['\''] = "&apos;";
+        ENCODING['&'] = "&amp;";
+        ENCODING['\n'] = "&#xA;";
+        ENCODING['\r'] = "&#xD;";
+        ENCODING['\t'] = "&#x9;";
     }
 
     @Override
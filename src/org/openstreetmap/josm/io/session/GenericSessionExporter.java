@@ -196,13 +196,13 @@ public abstract class GenericSessionExporter<T extends Layer> extends AbstractSe
     public Element export(ExportSupport support) throws IOException {
         Element layerEl = support.createElement("layer");
         layerEl.setAttribute("type", type);
-        layerEl.setAttribute("version", version);
+        layerEl.setAttribute("version", getVersion());
 
         Element file = support.createElement("file");
         layerEl.appendChild(file);
 
         if (requiresZip()) {
-            String zipPath = "layers/" + String.format("%02d", support.getLayerIndex()) + "/data." + extension;
+            String zipPath = "layers/" + String.format("%02d", support.getLayerIndex()) + "/data." + getExtension();
             file.appendChild(support.createTextNode(zipPath));
             addDataFile(support.getOutputStreamZip(zipPath));
         } else {
@@ -223,5 +223,21 @@ public abstract class GenericSessionExporter<T extends Layer> extends AbstractSe
         return include.isSelected();
     }
 
+    /**
+     * Returns the version of the layer session element.
+     * @return the layer session version
+     */
+    protected String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the extension of the data file included in the session file.
+     * @return the data file extension
+     */
+    protected String getExtension() {
+        return extension;
+    }
+
     protected abstract void addDataFile(OutputStream out) throws IOException;
 }
@@ -1,13 +1,18 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io.session;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.OsmBinaryWriter;
+import org.openstreetmap.josm.io.OsmExporter;
 import org.openstreetmap.josm.io.OsmWriter;
 import org.openstreetmap.josm.io.OsmWriterFactory;
 
@@ -17,17 +22,64 @@ import org.openstreetmap.josm.io.OsmWriterFactory;
  */
 public class OsmDataSessionExporter extends GenericSessionExporter<OsmDataLayer> {
 
+    /**
+     * Defines if the data included in session files is written in the binary format of {@link OsmBinaryWriter},
+     * which is faster to read, instead of OSM XML.
+     */
+    public static final BooleanProperty PROP_BINARY = new BooleanProperty("session.osm-data.binary", false);
+
+    private final boolean binary;
+
     /**
      * Constructs a new {@code OsmDataSessionExporter}.
      * @param layer Data layer to export
      */
     public OsmDataSessionExporter(OsmDataLayer layer) { // NO_UCD (test only)
+        this(layer, PROP_BINARY.get());
+    }
+
+    /**
+     * Constructs a new {@code OsmDataSessionExporter}.
+     * @param layer Data layer to export
+     * @param binary if {@code true}, the data included in the session file is written in the binary format of
+     * {@link OsmBinaryWriter}, which cannot be read by versions of JOSM older than this one.
+     * Linked files are always OSM XML
+     */
+    public OsmDataSessionExporter(OsmDataLayer layer, boolean binary) {
         super(layer, "osm-data", "0.1", "osm");
+        this.binary = binary;
+    }
+
+    /**
+     * Determines if the data is written in the binary format, which is only the case when it is included.
+     * @return {@code true} if the data is written in the binary format
+     */
+    private boolean isBinary() {
+        return binary && requiresZip();
+    }
+
+    @Override
+    protected String getVersion() {
+        return isBinary() ? OsmDataSessionImporter.BINARY_VERSION : super.getVersion();
     }
 
     @Override
-    protected void addDataFile(OutputStream out) {
-        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    protected String getExtension() {
+        return isBinary() ? "osmb" : super.getExtension();
+    }
+
+    @Override
+    protected void addDataFile(OutputStream out) throws IOException {
+        if (isBinary()) {
+            layer.data.getReadLock().lock();
+            try {
+                new OsmBinaryWriter(out).writeLayer(layer);
+            } finally {
+                layer.data.getReadLock().unlock();
+            }
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), OsmExporter.BUFFER_SIZE);
         OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion());
         layer.data.getReadLock().lock();
         try {
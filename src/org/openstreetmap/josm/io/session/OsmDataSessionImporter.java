@@ -12,10 +12,12 @@ import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmBinaryReader;
 import org.openstreetmap.josm.io.OsmImporter;
 import org.openstreetmap.josm.io.session.SessionReader.ImportSupport;
 import org.w3c.dom.Element;
@@ -26,10 +28,14 @@ import org.w3c.dom.Element;
  */
 public class OsmDataSessionImporter implements SessionLayerImporter {
 
+    /** Version of the meta data of layers whose data is in the binary format of {@link OsmBinaryReader} */
+    static final String BINARY_VERSION = "0.2";
+
     @Override
     public Layer load(Element elem, ImportSupport support, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
         String version = elem.getAttribute("version");
-        if (!"0.1".equals(version)) {
+        final boolean binary = BINARY_VERSION.equals(version);
+        if (!binary && !"0.1".equals(version)) {
             throw new IllegalDataException(tr("Version ''{0}'' of meta data for osm data layer is not supported. Expected: 0.1", version));
         }
         try {
@@ -41,11 +47,20 @@ public class OsmDataSessionImporter implements SessionLayerImporter {
                 throw new IllegalDataException(tr("File name expected for layer no. {0}", support.getLayerIndex()));
             }
 
-            OsmImporter importer = new OsmImporter();
+            final OsmBinaryReader binaryReader = new OsmBinaryReader();
+            OsmImporter importer = !binary ? new OsmImporter() : new OsmImporter() {
+                @Override
+                protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
+                    return binaryReader.doParseDataSet(in, progressMonitor);
+                }
+            };
             try (InputStream in = support.getInputStream(fileStr)) {
                 OsmImporter.OsmImporterData importData = importer.loadLayer(in, support.getFile(fileStr), support.getLayerName(),
                         progressMonitor);
 
+                if (binary) {
+                    importData.getLayer().getConflicts().add(binaryReader.getConflicts());
+                }
                 support.addPostLayersTask(importData.getPostLayerTask());
                 return importData.getLayer();
             }
@@ -18,10 +18,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -170,7 +178,10 @@ public class SessionReader {
          * @param task task to run in EDT
          */
         public void addPostLayersTask(Runnable task) {
-            postLoadTasks.add(task);
+            // the layers are loaded in parallel
+            synchronized (postLoadTasks) {
+                postLoadTasks.add(task);
+            }
         }
 
         /**
@@ -430,76 +441,118 @@ public class SessionReader {
         final Map<Integer, Layer> layersMap = new TreeMap<>(Collections.reverseOrder());
         final Map<Integer, SessionLayerImporter> importers = new HashMap<>();
         final Map<Integer, String> names = new HashMap<>();
+        // the layers are loaded in parallel, each one after the layers it depends on
+        final Map<Integer, FutureTask<Layer>> tasks = new LinkedHashMap<>();
+        int threads = Math.min(sorted.size(),
+                Main.pref.getInteger("session.load.threads", Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("session-layer-loader-%d", Thread.NORM_PRIORITY)) : null;
+        Executor executor = pool != null ? pool : Utils.newDirectExecutor();
 
-        progressMonitor.setTicksCount(sorted.size());
-        LAYER: for (int idx: sorted) {
-            Element e = elems.get(idx);
-            if (e == null) {
-                error(tr("missing layer with index {0}", idx));
-                return;
-            } else if (!e.hasAttribute("name")) {
-                error(tr("missing mandatory attribute ''name'' for element ''layer''"));
-                return;
-            }
-            String name = e.getAttribute("name");
-            names.put(idx, name);
-            if (!e.hasAttribute("type")) {
-                error(tr("missing mandatory attribute ''type'' for element ''layer''"));
-                return;
-            }
-            String type = e.getAttribute("type");
-            SessionLayerImporter imp = getSessionLayerImporter(type);
-            if (imp == null && !GraphicsEnvironment.isHeadless()) {
-                CancelOrContinueDialog dialog = new CancelOrContinueDialog();
-                dialog.show(
-                        tr("Unable to load layer"),
-                        tr("Cannot load layer of type ''{0}'' because no suitable importer was found.", type),
-                        JOptionPane.WARNING_MESSAGE,
-                        progressMonitor
-                        );
-                if (dialog.isCancel()) {
-                    progressMonitor.cancel();
+        try {
+            progressMonitor.setTicksCount(sorted.size());
+            LAYER: for (int idx: sorted) {
+                Element e = elems.get(idx);
+                if (e == null) {
+                    error(tr("missing layer with index {0}", idx));
+                    return;
+                } else if (!e.hasAttribute("name")) {
+                    error(tr("missing mandatory attribute ''name'' for element ''layer''"));
                     return;
-                } else {
-                    continue;
                 }
-            } else if (imp != null) {
-                importers.put(idx, imp);
-                List<LayerDependency> depsImp = new ArrayList<>();
-                for (int d : deps.get(idx)) {
-                    SessionLayerImporter dImp = importers.get(d);
-                    if (dImp == null) {
-                        CancelOrContinueDialog dialog = new CancelOrContinueDialog();
-                        dialog.show(
-                                tr("Unable to load layer"),
-                                tr("Cannot load layer {0} because it depends on layer {1} which has been skipped.", idx, d),
-                                JOptionPane.WARNING_MESSAGE,
-                                progressMonitor
-                                );
-                        if (dialog.isCancel()) {
-                            progressMonitor.cancel();
-                            return;
-                        } else {
-                            continue LAYER;
+                String name = e.getAttribute("name");
+                names.put(idx, name);
+                if (!e.hasAttribute("type")) {
+                    error(tr("missing mandatory attribute ''type'' for element ''layer''"));
+                    return;
+                }
+                String type = e.getAttribute("type");
+                SessionLayerImporter imp = getSessionLayerImporter(type);
+                if (imp == null && !GraphicsEnvironment.isHeadless()) {
+                    CancelOrContinueDialog dialog = new CancelOrContinueDialog();
+                    dialog.show(
+                            tr("Unable to load layer"),
+                            tr("Cannot load layer of type ''{0}'' because no suitable importer was found.", type),
+                            JOptionPane.WARNING_MESSAGE,
+                            progressMonitor
+                            );
+                    if (dialog.isCancel()) {
+                        progressMonitor.cancel();
+                        return;
+                    } else {
+                        continue;
+                    }
+                } else if (imp != null) {
+                    importers.put(idx, imp);
+                    Map<Integer, FutureTask<Layer>> depTasks = new LinkedHashMap<>();
+                    Map<Integer, SessionLayerImporter> depImporters = new HashMap<>();
+                    for (int d : deps.get(idx)) {
+                        if (importers.get(d) == null) {
+                            CancelOrContinueDialog dialog = new CancelOrContinueDialog();
+                            dialog.show(
+                                    tr("Unable to load layer"),
+                                    tr("Cannot load layer {0} because it depends on layer {1} which has been skipped.", idx, d),
+                                    JOptionPane.WARNING_MESSAGE,
+                                    progressMonitor
+                                    );
+                            if (dialog.isCancel()) {
+                                progressMonitor.cancel();
+                                return;
+                            } else {
+                                continue LAYER;
+                            }
                         }
+                        depTasks.put(d, tasks.get(d));
+                        depImporters.put(d, importers.get(d));
                     }
-                    depsImp.add(new LayerDependency(d, layersMap.get(d), dImp));
+                    FutureTask<Layer> task = new FutureTask<>(new LayerLoader(imp, e, new ImportSupport(name, idx,
+                            new ArrayList<LayerDependency>()), depTasks, depImporters, progressMonitor.createSubTaskMonitor(1, false)));
+                    tasks.put(idx, task);
+                    executor.execute(task);
                 }
-                ImportSupport support = new ImportSupport(name, idx, depsImp);
+            }
+
+            for (Entry<Integer, FutureTask<Layer>> entry : tasks.entrySet()) {
+                int idx = entry.getKey();
                 Layer layer = null;
                 Exception exception = null;
                 try {
-                    layer = imp.load(e, support, progressMonitor.createSubTaskMonitor(1, false));
-                } catch (IllegalDataException | IOException ex) {
-                    exception = ex;
+                    layer = entry.getValue().get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    exception = (Exception) cause;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalDataException(ex);
                 }
-                if (exception != null) {
+                if (exception instanceof DependencyException) {
+                    CancelOrContinueDialog dialog = new CancelOrContinueDialog();
+                    dialog.show(
+                            tr("Unable to load layer"),
+                            tr("Cannot load layer {0} because it depends on layer {1} which has been skipped.",
+                                    idx, ((DependencyException) exception).dependency),
+                            JOptionPane.WARNING_MESSAGE,
+                            progressMonitor
+                            );
+                    if (dialog.isCancel()) {
+                        progressMonitor.cancel();
+                        return;
+                    } else {
+                        continue;
+                    }
+                } else if (exception != null) {
                     Main.error(exception);
                     if (!GraphicsEnvironment.isHeadless()) {
                         CancelOrContinueDialog dialog = new CancelOrContinueDialog();
                         dialog.show(
                                 tr("Error loading layer"),
-                                tr("<html>Could not load layer {0} ''{1}''.<br>Error is:<br>{2}</html>", idx, name, exception.getMessage()),
+                                tr("<html>Could not load layer {0} ''{1}''.<br>Error is:<br>{2}</html>", idx, names.get(idx),
+                                        exception.getMessage()),
                                 JOptionPane.ERROR_MESSAGE,
                                 progressMonitor
                                 );
@@ -514,8 +567,13 @@ public class SessionReader {
 
                 if (layer == null) throw new RuntimeException();
                 layersMap.put(idx, layer);
+                progressMonitor.worked(1);
+            }
+        } finally {
+            if (pool != null) {
+                // stops the loading of the remaining layers if it has been canceled
+                pool.shutdownNow();
             }
-            progressMonitor.worked(1);
         }
 
         layers = new ArrayList<>();
@@ -541,6 +599,54 @@ public class SessionReader {
         }
     }
 
+    /**
+     * Thrown when a layer cannot be loaded because a layer it depends on has not been loaded.
+     */
+    private static class DependencyException extends Exception {
+        private final int dependency;
+
+        DependencyException(int dependency) {
+            this.dependency = dependency;
+        }
+    }
+
+    /**
+     * Loads a layer, once the layers it depends on have been loaded.
+     */
+    private static class LayerLoader implements Callable<Layer> {
+        private final SessionLayerImporter importer;
+        private final Element element;
+        private final ImportSupport support;
+        private final Map<Integer, FutureTask<Layer>> dependencies;
+        private final Map<Integer, SessionLayerImporter> importers;
+        private final ProgressMonitor progressMonitor;
+
+        LayerLoader(SessionLayerImporter importer, Element element, ImportSupport support,
+                Map<Integer, FutureTask<Layer>> dependencies, Map<Integer, SessionLayerImporter> importers,
+                ProgressMonitor progressMonitor) {
+            this.importer = importer;
+            this.element = element;
+            this.support = support;
+            this.dependencies = dependencies;
+            this.importers = importers;
+            this.progressMonitor = progressMonitor;
+        }
+
+        @Override
+        public Layer call() throws IllegalDataException, IOException, DependencyException, InterruptedException {
+            for (Entry<Integer, FutureTask<Layer>> d : dependencies.entrySet()) {
+                Layer layer;
+                try {
+                    layer = d.getValue().get();
+                } catch (ExecutionException | CancellationException e) {
+                    throw new DependencyException(d.getKey());
+                }
+                support.getLayerDependencies().add(new LayerDependency(d.getKey(), layer, importers.get(d.getKey())));
+            }
+            return importer.load(element, support, progressMonitor);
+        }
+    }
+
     /**
      * Show Dialog when there is an error for one layer.
      * Ask the user whether to cancel the complete session loading or just to skip this layer.
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.tools;
 import java.awt.geom.AffineTransform;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.openstreetmap.josm.Main;
@@ -12,6 +13,7 @@ import org.openstreetmap.josm.tools.date.DateUtils;
 
 import com.drew.imaging.jpeg.JpegMetadataReader;
 import com.drew.imaging.jpeg.JpegProcessingException;
+import com.drew.imaging.jpeg.JpegSegmentMetadataReader;
 import com.drew.lang.Rational;
 import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
@@ -21,6 +23,7 @@ import com.drew.metadata.exif.ExifDirectoryBase;
 import com.drew.metadata.exif.ExifIFD0Directory;
 import com.drew.metadata.exif.ExifSubIFDDirectory;
 import com.drew.metadata.exif.GpsDirectory;
+import com.drew.metadata.jpeg.JpegReader;
 
 /**
  * Read out EXIF information from a JPEG file
@@ -29,10 +32,29 @@ import com.drew.metadata.exif.GpsDirectory;
  */
 public final class ExifReader {
 
+    /** Only the EXIF segment and the frame header (for the image size) are decoded */
+    private static final Iterable<JpegSegmentMetadataReader> EXIF_READERS = Arrays.<JpegSegmentMetadataReader>asList(
+            new JpegReader(), new com.drew.metadata.exif.ExifReader());
+
     private ExifReader() {
         // Hide default constructor for utils classes
     }
 
+    /**
+     * Reads the EXIF metadata of the given JPEG file.
+     * <p>
+     * Only the header segments of the file are read, and only the EXIF directories (including the embedded
+     * thumbnail, see {@link com.drew.metadata.exif.ExifThumbnailDirectory}) and the image size
+     * ({@link com.drew.metadata.jpeg.JpegDirectory}) are decoded, the other metadata (IPTC, comments) is skipped.
+     * @param filename The JPEG file to read
+     * @return The EXIF metadata
+     * @throws JpegProcessingException if the file is not a valid JPEG file
+     * @throws IOException if an I/O error occurs
+     */
+    public static Metadata readExif(File filename) throws JpegProcessingException, IOException {
+        return JpegMetadataReader.readMetadata(filename, EXIF_READERS);
+    }
+
     /**
      * Returns the date/time from the given JPEG file.
      * @param filename The JPEG file to read
@@ -40,7 +62,20 @@ public final class ExifReader {
      */
     public static Date readTime(File filename) {
         try {
-            Metadata metadata = JpegMetadataReader.readMetadata(filename);
+            return readTime(readExif(filename));
+        } catch (Exception e) {
+            Main.error(e);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the date/time from the given JPEG metadata.
+     * @param metadata The metadata, see {@link #readExif(File)}
+     * @return The date/time read in the EXIF section, or {@code null} if not found
+     */
+    public static Date readTime(Metadata metadata) {
+        try {
             String dateStr = null;
             String subSeconds = null;
             for (Directory dirIt : metadata.getDirectories()) {
@@ -22,6 +22,7 @@ import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Version;
@@ -39,11 +40,15 @@ import org.openstreetmap.josm.io.auth.DefaultAuthenticator;
  */
 public final class HttpClient {
 
+    private static final int STREAMING_BUFFER_SIZE = 64 * 1024;
+
     private URL url;
     private final String requestMethod;
     private int connectTimeout = Main.pref.getInteger("socket.timeout.connect", 15) * 1000;
     private int readTimeout = Main.pref.getInteger("socket.timeout.read", 30) * 1000;
     private byte[] requestBody;
+    private RequestBodyWriter requestBodyWriter;
+    private boolean compressRequestBody;
     private long ifModifiedSince;
     private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
     private int maxRedirects = Main.pref.getInteger("socket.maxredirects", 5);
@@ -52,6 +57,18 @@ public final class HttpClient {
     private HttpURLConnection connection; // to allow disconnecting before `response` is set
     private Response response;
 
+    /**
+     * Writes the body of a request while it is sent, see {@link HttpClient#setRequestBody(RequestBodyWriter, boolean)}.
+     */
+    public interface RequestBodyWriter {
+        /**
+         * Writes the request body. May be called several times, e.g. if the request is redirected.
+         * @param out the stream to write the body to. Must not be closed.
+         * @throws IOException if any I/O error occurs
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
     static {
         CookieHandler.setDefault(new CookieManager());
     }
@@ -105,7 +122,22 @@ public final class HttpClient {
         progressMonitor.beginTask(tr("Contacting Server..."), 1);
         progressMonitor.indeterminateSubTask(null);
 
-        if ("PUT".equals(requestMethod) || "POST".equals(requestMethod) || "DELETE".equals(requestMethod)) {
+        if (requestBodyWriter != null) {
+            Main.info("{0} {1} (streaming{2}) ...", requestMethod, url, compressRequestBody ? ", gzip" : "");
+            // chunked transfer encoding, the size of the body is not known before it is written
+            connection.setChunkedStreamingMode(0);
+            if (compressRequestBody) {
+                connection.setRequestProperty("Content-Encoding", "gzip");
+            }
+            connection.setDoOutput(true);
+            final ProgressMonitor subTaskMonitor = progressMonitor.createSubTaskMonitor(1, false);
+            final OutputStream progress = new ProgressOutputStream(connection.getOutputStream(), -1, subTaskMonitor);
+            try (OutputStream out = compressRequestBody
+                    ? new GZIPOutputStream(progress, STREAMING_BUFFER_SIZE)
+                    : new BufferedOutputStream(progress, STREAMING_BUFFER_SIZE)) {
+                requestBodyWriter.writeTo(out);
+            }
+        } else if ("PUT".equals(requestMethod) || "POST".equals(requestMethod) || "DELETE".equals(requestMethod)) {
             Main.info("{0} {1} ({2}) ...", requestMethod, url, Utils.getSizeString(requestBody.length, Locale.getDefault()));
             connection.setFixedLengthStreamingMode(requestBody.length);
             connection.setDoOutput(true);
@@ -408,6 +440,37 @@ public final class HttpClient {
             return Collections.unmodifiableMap(ret);
         }
 
+        /**
+         * Reads and closes what is left of the response body, without returning it.
+         * <p>
+         * This must be called for responses whose content is not needed (e.g., {@code 304 Not Modified} or errors), so that
+         * the underlying persistent (keep-alive) connection is handed back to the connection pool and reused by the
+         * next request to the same host, instead of being closed.
+         */
+        public void consume() {
+            InputStream in;
+            try {
+                in = connection.getInputStream();
+            } catch (IOException ioe) {
+                in = connection.getErrorStream();
+            }
+            if (in != null) {
+                try {
+                    byte[] buffer = new byte[2048];
+                    while (in.read(buffer) >= 0) {
+                        // discard remaining data
+                    }
+                } catch (IOException e) {
+                    // stream already consumed or connection broken, it will not be reused in either case
+                    if (Main.isTraceEnabled()) {
+                        Main.trace(e.getMessage());
+                    }
+                } finally {
+                    Utils.close(in);
+                }
+            }
+        }
+
         /**
          * @see HttpURLConnection#disconnect()
          */
@@ -537,6 +600,22 @@ public final class HttpClient {
      */
     public HttpClient setRequestBody(byte[] requestBody) {
         this.requestBody = requestBody;
+        this.requestBodyWriter = null;
+        return this;
+    }
+
+    /**
+     * Sets a request body which is written while it is sent, using chunked transfer encoding, so that it does not
+     * need to be held in memory.
+     * @param requestBodyWriter writes the request body
+     * @param compress whether the request body is compressed with gzip ({@code Content-Encoding: gzip})
+     *
+     * @return {@code this}
+     */
+    public HttpClient setRequestBody(RequestBodyWriter requestBodyWriter, boolean compress) {
+        this.requestBodyWriter = requestBodyWriter;
+        this.compressRequestBody = compress;
+        this.requestBody = null;
         return this;
     }
 
@@ -0,0 +1,281 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash set of primitive {@code long} values.
+ *
+ * Uses open addressing with linear probing, so that no entry object and no boxed value are allocated per element,
+ * as opposed to {@code HashSet<Long>}. The primitive methods ({@link #add(long)}, {@link #contains(long)},
+ * {@link #remove(long)}) should be used whenever possible, the {@link java.util.Set} methods are only provided for
+ * compatibility with existing APIs and box their arguments.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LongHashSet extends AbstractSet<Long> {
+
+    private static final byte FREE = 0;
+    private static final byte FULL = 1;
+    private static final byte REMOVED = 2;
+
+    private long[] keys;
+    private byte[] states;
+    private int size;
+    private int used; // size + removed slots
+    private int threshold;
+    private int modCount;
+
+    /**
+     * Constructs a new, empty {@code LongHashSet}.
+     */
+    public LongHashSet() {
+        this(0);
+    }
+
+    /**
+     * Constructs a new, empty {@code LongHashSet} able to hold the given number of elements without rehashing.
+     * @param expectedSize the number of expected elements
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(LongObjectHashMap.tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Constructs a new {@code LongHashSet} containing the elements of the given collection.
+     * @param c collection whose elements are to be placed into this set
+     */
+    public LongHashSet(Collection<Long> c) {
+        this(c.size());
+        addAll(c);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        states = new byte[capacity];
+        threshold = capacity * 3 / 4;
+        used = size;
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = LongObjectHashMap.hash(key) & mask;
+        byte s;
+        while ((s = states[i]) != FREE) {
+            if (s == FULL && keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Determines if this set contains the given value.
+     * @param key the value
+     * @return {@code true} if this set contains {@code key}
+     */
+    public boolean contains(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Adds the given value to this set.
+     * @param key the value
+     * @return {@code true} if this set did not already contain {@code key}
+     */
+    public boolean add(long key) {
+        int mask = keys.length - 1;
+        int i = LongObjectHashMap.hash(key) & mask;
+        int firstRemoved = -1;
+        byte s;
+        while ((s = states[i]) != FREE) {
+            if (s == REMOVED) {
+                if (firstRemoved < 0) {
+                    firstRemoved = i;
+                }
+            } else if (keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        if (firstRemoved >= 0) {
+            i = firstRemoved;
+        } else {
+            used++;
+        }
+        keys[i] = key;
+        states[i] = FULL;
+        size++;
+        modCount++;
+        if (used > threshold) {
+            rehash(size > threshold / 2 ? keys.length << 1 : keys.length);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given value from this set.
+     * @param key the value
+     * @return {@code true} if this set contained {@code key}
+     */
+    public boolean remove(long key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return false;
+        }
+        states[i] = REMOVED;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        byte[] oldStates = states;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldStates[j] == FULL) {
+                int i = LongObjectHashMap.hash(oldKeys[j]) & mask;
+                while (states[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                states[i] = FULL;
+            }
+        }
+    }
+
+    /**
+     * Returns the values of this set, in no particular order.
+     * @return a new array containing all values
+     */
+    public long[] toLongArray() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (states[i] == FULL) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && contains(((Long) o).longValue());
+    }
+
+    @Override
+    public boolean add(Long e) {
+        return add(e.longValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long && remove(((Long) o).longValue());
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> c) {
+        if (c instanceof LongHashSet) {
+            LongHashSet other = (LongHashSet) c;
+            boolean changed = false;
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.states[i] == FULL) {
+                    changed |= add(other.keys[i]);
+                }
+            }
+            return changed;
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        boolean changed = false;
+        if (c instanceof LongHashSet) {
+            LongHashSet other = (LongHashSet) c;
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.states[i] == FULL) {
+                    changed |= remove(other.keys[i]);
+                }
+            }
+        } else {
+            for (Object o : c) {
+                changed |= remove(o);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(states, FREE);
+        size = 0;
+        used = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            private int next = advance(0);
+            private int current = -1;
+            private int expectedModCount = modCount;
+
+            private int advance(int from) {
+                int i = from;
+                while (i < keys.length && states[i] != FULL) {
+                    i++;
+                }
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < keys.length;
+            }
+
+            @Override
+            public Long next() {
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                current = next;
+                next = advance(next + 1);
+                return keys[current];
+            }
+
+            @Override
+            public void remove() {
+                if (current < 0)
+                    throw new IllegalStateException();
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+                // removing does not move other elements, iteration can continue
+                states[current] = REMOVED;
+                size--;
+                current = -1;
+                expectedModCount = ++modCount;
+            }
+        };
+    }
+}
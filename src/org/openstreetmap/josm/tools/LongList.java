@@ -0,0 +1,97 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of primitive {@code long} values.
+ *
+ * Stores the values in a single array instead of one boxed {@code Long} per element as {@code ArrayList<Long>} does.
+ * The primitive methods ({@link #add(long)}, {@link #getLong(int)}) should be used whenever possible, the
+ * {@link java.util.List} methods are only provided for compatibility with existing APIs and box their arguments.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LongList extends AbstractList<Long> implements RandomAccess {
+
+    private long[] values;
+    private int size;
+
+    /**
+     * Constructs a new, empty {@code LongList}.
+     */
+    public LongList() {
+        this(10);
+    }
+
+    /**
+     * Constructs a new, empty {@code LongList} with the given initial capacity.
+     * @param initialCapacity the initial capacity
+     */
+    public LongList(int initialCapacity) {
+        values = new long[Math.max(initialCapacity, 1)];
+    }
+
+    /**
+     * Appends the given value to the end of this list.
+     * @param value the value
+     */
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Returns the value at the given position.
+     * @param index the position
+     * @return the value at {@code index}
+     * @throws IndexOutOfBoundsException if {@code index} is out of range
+     */
+    public long getLong(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return values[index];
+    }
+
+    /**
+     * Returns the values of this list.
+     * @return a new array containing all values, in order
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public boolean add(Long e) {
+        add(e.longValue());
+        return true;
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long element) {
+        long old = getLong(index);
+        values[index] = element;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+}
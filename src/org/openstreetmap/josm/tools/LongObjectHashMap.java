@@ -0,0 +1,225 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash map from primitive {@code long} keys to objects.
+ *
+ * Uses open addressing with linear probing, so that no entry object and no boxed key are allocated per mapping,
+ * as opposed to {@code HashMap<Long, V>}. Intended for id based lookup tables holding many entries.
+ * <p>
+ * {@code null} values are not supported. This class is not thread-safe.
+ *
+ * @param <V> value type
+ */
+public class LongObjectHashMap<V> {
+
+    private static final Object REMOVED = new Object();
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    /** values, {@code null} for free slots, {@link #REMOVED} for deleted ones */
+    private Object[] values;
+    private int size;
+    private int used; // size + removed slots
+    private int threshold;
+
+    /**
+     * Constructs a new, empty {@code LongObjectHashMap}.
+     */
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs a new, empty {@code LongObjectHashMap} able to hold the given number of entries without rehashing.
+     * @param expectedSize the number of expected entries
+     */
+    public LongObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        threshold = capacity * 3 / 4;
+        used = size;
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        Object v;
+        while ((v = values[i]) != null) {
+            if (v != REMOVED && keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value mapped to the given key.
+     * @param key the key
+     * @return the value, or {@code null} if there is no mapping for {@code key}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /**
+     * Determines if there is a mapping for the given key.
+     * @param key the key
+     * @return {@code true} if there is a mapping for {@code key}
+     */
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Maps the given key to the given value.
+     * @param key the key
+     * @param value the value, must not be {@code null}
+     * @return the value previously mapped to {@code key}, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        CheckParameterUtil.ensureParameterNotNull(value, "value");
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        int firstRemoved = -1;
+        Object v;
+        while ((v = values[i]) != null) {
+            if (v == REMOVED) {
+                if (firstRemoved < 0) {
+                    firstRemoved = i;
+                }
+            } else if (keys[i] == key) {
+                values[i] = value;
+                return (V) v;
+            }
+            i = (i + 1) & mask;
+        }
+        if (firstRemoved >= 0) {
+            i = firstRemoved;
+        } else {
+            used++;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        if (used > threshold) {
+            rehash(size > threshold / 2 ? keys.length << 1 : keys.length);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the given key.
+     * @param key the key
+     * @return the value previously mapped to {@code key}, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        V old = (V) values[i];
+        values[i] = REMOVED;
+        size--;
+        return old;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            Object v = oldValues[j];
+            if (v != null && v != REMOVED) {
+                int i = hash(oldKeys[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = v;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of mappings.
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determines if this map is empty.
+     * @return {@code true} if this map contains no mapping
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        used = 0;
+    }
+
+    /**
+     * Returns the keys of this map, in no particular order.
+     * @return a new array containing all keys
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null && values[i] != REMOVED) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values of this map, in the same order as {@link #keys()}.
+     * @return a new list containing all values
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (Object v : values) {
+            if (v != null && v != REMOVED) {
+                result.add((V) v);
+            }
+        }
+        return result;
+    }
+}
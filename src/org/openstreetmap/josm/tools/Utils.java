@@ -1536,4 +1536,22 @@ public final class Utils {
         return gvs;
     }
 
+    /**
+     * Determines if a public method declared by {@code base} is overridden below {@code base} in the hierarchy of {@code klass}.
+     * This allows optimized implementations in {@code base} to fall back to the method a subclass has overridden.
+     *
+     * @param klass the class to check, a subclass of {@code base}
+     * @param base the class declaring the method
+     * @param name the name of the method
+     * @param parameterTypes the parameter types of the method
+     * @return {@code true} if {@code klass} or one of its superclasses below {@code base} overrides the method
+     */
+    public static boolean isOverridden(Class<?> klass, Class<?> base, String name, Class<?>... parameterTypes) {
+        try {
+            return klass.getMethod(name, parameterTypes).getDeclaringClass() != base;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
 }
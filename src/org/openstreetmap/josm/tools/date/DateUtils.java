@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.tools.date;
 
+import java.nio.CharBuffer;
 import java.text.DateFormat;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -62,13 +63,21 @@ public final class DateUtils {
         XML_DATE = fact;
     }
 
+    /**
+     * First year parsed and formatted without {@code Calendar}. Older dates use the Julian calendar in
+     * {@link GregorianCalendar}, they are left to it.
+     */
+    private static final int MIN_FAST_YEAR = 1583;
+    private static final int MAX_FAST_YEAR = 9999;
+    private static final long MILLIS_PER_DAY = 86400000L;
+
     /**
      * Parses XML date quickly, regardless of current locale.
      * @param str The XML date as string
      * @return The date
      * @throws UncheckedParseException if the date does not match any of the supported date formats
      */
-    public static synchronized Date fromString(String str) throws UncheckedParseException {
+    public static Date fromString(String str) throws UncheckedParseException {
         return new Date(tsFromString(str));
     }
 
@@ -78,7 +87,122 @@ public final class DateUtils {
      * @return The date in milliseconds since epoch
      * @throws UncheckedParseException if the date does not match any of the supported date formats
      */
-    public static synchronized long tsFromString(String str) throws UncheckedParseException {
+    public static long tsFromString(String str) throws UncheckedParseException {
+        long ts = parseFixedTimestamp(str, 0, str.length());
+        return ts != Long.MIN_VALUE ? ts : tsFromStringSlow(str);
+    }
+
+    /**
+     * Parses XML date quickly from a character buffer, regardless of current locale.
+     * Dates in the usual UTC formats are parsed without allocation, see {@link #parseFixedTimestamp}.
+     * @param chars the characters
+     * @param offset index of the first character of the date
+     * @param length number of characters of the date
+     * @return The date in milliseconds since epoch
+     * @throws UncheckedParseException if the date does not match any of the supported date formats
+     */
+    public static long tsFromChars(char[] chars, int offset, int length) throws UncheckedParseException {
+        long ts = parseFixedTimestamp(CharBuffer.wrap(chars), offset, length);
+        return ts != Long.MIN_VALUE ? ts : tsFromStringSlow(new String(chars, offset, length));
+    }
+
+    /**
+     * Parses a date in one of the fixed ISO 8601 formats written by the OSM API, by JOSM and by most GPS devices,
+     * without allocation and without locking: {@code yyyy-MM-ddTHH:mm:ss}, optionally followed by 1 to 3 digits
+     * of fraction of second, then by {@code Z}, {@code +HH}, {@code +HH:mm} or nothing (UTC).
+     * @param text the text containing the date
+     * @param offset index of the first character of the date
+     * @param length number of characters of the date
+     * @return The date in milliseconds since epoch, or {@link Long#MIN_VALUE} if the date is not in one of these
+     * formats, or is outside of the years 1583-9999, or has out of range fields
+     */
+    public static long parseFixedTimestamp(CharSequence text, int offset, int length) {
+        if (length < 19 || text.charAt(offset + 4) != '-' || text.charAt(offset + 7) != '-'
+                || text.charAt(offset + 10) != 'T' || text.charAt(offset + 13) != ':' || text.charAt(offset + 16) != ':') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        int hour = digits(text, offset + 11, 2);
+        int minute = digits(text, offset + 14, 2);
+        int second = digits(text, offset + 17, 2);
+        if (year < MIN_FAST_YEAR || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        int end = offset + length;
+        int i = offset + 19;
+        int millis = 0;
+        if (i < end && text.charAt(i) == '.') {
+            int factor = 100;
+            for (i++; i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                if (factor == 0) {
+                    return Long.MIN_VALUE;
+                }
+                millis += (text.charAt(i) - '0') * factor;
+                factor /= 10;
+            }
+            if (factor == 100) {
+                return Long.MIN_VALUE;
+            }
+        }
+        long zoneOffset = 0;
+        if (i < end) {
+            char c = text.charAt(i);
+            if (c == 'Z' && i + 1 == end) {
+                zoneOffset = 0;
+            } else if ((c == '+' || c == '-') && (i + 3 == end || (i + 6 == end && text.charAt(i + 3) == ':'))) {
+                int zoneHours = digits(text, i + 1, 2);
+                int zoneMinutes = i + 3 == end ? 0 : digits(text, i + 4, 2);
+                if (zoneHours < 0 || zoneHours > 23 || zoneMinutes < 0 || zoneMinutes > 59) {
+                    return Long.MIN_VALUE;
+                }
+                zoneOffset = (zoneHours * 60 + zoneMinutes) * 60000L;
+                if (c == '+') {
+                    zoneOffset = -zoneOffset;
+                }
+            } else {
+                return Long.MIN_VALUE;
+            }
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + hour * 3600000L + minute * 60000L + second * 1000L + millis + zoneOffset;
+    }
+
+    private static int digits(CharSequence text, int offset, int count) {
+        int v = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = 10 * v + c - '0';
+        }
+        return v;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Converts a date of the proleptic Gregorian calendar to a number of days since 1970-01-01.
+     * See <a href="http://howardhinnant.github.io/date_algorithms.html#days_from_civil">days_from_civil</a>.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    private static synchronized long tsFromStringSlow(String str) throws UncheckedParseException {
         // "2007-07-25T09:26:24{Z|{+|-}01[:00]}"
         if (checkLayout(str, "xxxx-xx-xxTxx:xx:xxZ") ||
                 checkLayout(str, "xxxx-xx-xxTxx:xx:xx") ||
@@ -153,9 +277,8 @@ public final class DateUtils {
      * @param timestamp number of seconds since the epoch
      * @return The formatted date
      */
-    public static synchronized String fromTimestamp(int timestamp) {
-        calendar.setTimeInMillis(timestamp * 1000L);
-        return toXmlFormat(calendar);
+    public static String fromTimestamp(int timestamp) {
+        return fromMillis(timestamp * 1000L);
     }
 
     /**
@@ -163,11 +286,85 @@ public final class DateUtils {
      * @param date The date to format
      * @return The formatted date
      */
-    public static synchronized String fromDate(Date date) {
-        calendar.setTime(date);
+    public static String fromDate(Date date) {
+        return fromMillis(date.getTime());
+    }
+
+    /**
+     * Formats a date to the XML UTC format regardless of current locale.
+     * @param millis number of milliseconds since the epoch
+     * @return The formatted date
+     */
+    public static String fromMillis(long millis) {
+        char[] buffer = new char[24];
+        int length = formatTimestamp(millis, buffer, 0);
+        return length > 0 ? new String(buffer, 0, length) : fromMillisSlow(millis);
+    }
+
+    private static synchronized String fromMillisSlow(long millis) {
+        calendar.setTimeInMillis(millis);
         return toXmlFormat(calendar);
     }
 
+    /**
+     * Formats a date to the XML UTC format ({@code yyyy-MM-ddTHH:mm:ssZ}, or {@code yyyy-MM-ddTHH:mm:ss.SSSZ} if the
+     * milliseconds are not zero) into the given buffer, without allocation and without locking. Writers of many
+     * dates should reuse the same buffer.
+     * @param millis number of milliseconds since the epoch
+     * @param buffer the buffer, with room for at least 24 characters after {@code offset}
+     * @param offset index of the first character to write
+     * @return the number of characters written, or 0 if the date is outside of the years 1583-9999 and has to be
+     * formatted by {@link #fromMillis} instead
+     */
+    public static int formatTimestamp(long millis, char[] buffer, int offset) {
+        long days = millis / MILLIS_PER_DAY;
+        int ms = (int) (millis % MILLIS_PER_DAY);
+        if (ms < 0) {
+            days--;
+            ms += (int) MILLIS_PER_DAY;
+        }
+        // days to civil date, see http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < MIN_FAST_YEAR || year > MAX_FAST_YEAR) {
+            return 0;
+        }
+        put(buffer, offset, (int) year, 4);
+        buffer[offset + 4] = '-';
+        put(buffer, offset + 5, month, 2);
+        buffer[offset + 7] = '-';
+        put(buffer, offset + 8, day, 2);
+        buffer[offset + 10] = 'T';
+        put(buffer, offset + 11, ms / 3600000, 2);
+        buffer[offset + 13] = ':';
+        put(buffer, offset + 14, ms / 60000 % 60, 2);
+        buffer[offset + 16] = ':';
+        put(buffer, offset + 17, ms / 1000 % 60, 2);
+        if (ms % 1000 == 0) {
+            buffer[offset + 19] = 'Z';
+            return 20;
+        }
+        buffer[offset + 19] = '.';
+        put(buffer, offset + 20, ms % 1000, 3);
+        buffer[offset + 23] = 'Z';
+        return 24;
+    }
+
+    private static void put(char[] buffer, int offset, int value, int digits) {
+        int v = value;
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+    }
+
     private static boolean checkLayout(String text, String pattern) {
         if (text.length() != pattern.length()) return false;
         for (int i = 0; i < pattern.length(); i++) {
@@ -0,0 +1,139 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui;
+
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.WireframeMapRenderer;
+
+/**
+ * Measures the garbage produced when projecting nodes to the screen, per node and per rendered frame.
+ */
+public class NavigatableComponentPerformanceTest {
+
+    private static final int WIDTH = 1400;
+    private static final int HEIGHT = 1050;
+    private static final int NODES_PER_WAY = 20;
+    private static final int WAYS = 2500;
+    private static final int ITERATIONS = 20;
+
+    private static DataSet ds;
+    private static List<Node> nodes;
+    private static Bounds bounds;
+
+    /**
+     * Generates the data.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createPerformanceTestFixture().init();
+        Random random = new Random(42);
+        ds = new DataSet();
+        nodes = new ArrayList<>();
+        for (int w = 0; w < WAYS; w++) {
+            Way way = new Way();
+            double lat = 50 + random.nextDouble() / 10;
+            double lon = 8 + random.nextDouble() / 10;
+            for (int i = 0; i < NODES_PER_WAY; i++) {
+                Node n = new Node(new LatLon(lat + i / 10000d, lon + random.nextDouble() / 10000));
+                ds.addPrimitive(n);
+                nodes.add(n);
+                way.addNode(n);
+            }
+            ds.addPrimitive(way);
+        }
+        bounds = new Bounds(50, 8, 50.102, 8.101);
+    }
+
+    private static NavigatableComponent createComponent() {
+        NavigatableComponent nc = new NavigatableComponent();
+        nc.setBounds(new Rectangle(WIDTH, HEIGHT));
+        nc.zoomTo(bounds);
+        return nc;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Compares the allocations of {@link NavigatableComponent#getPoint2D(Node)} and
+     * {@link NavigatableComponent#getPoint2D(Node, Point2D.Double)}.
+     */
+    @Test
+    public void testProjectNodes() {
+        NavigatableComponent nc = createComponent();
+        double sum = 0;
+        // warm up, fills the east/north caches
+        for (Node n : nodes) {
+            sum += nc.getPoint2D(n).getX() + nc.getPoint(n).x;
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (Node n : nodes) {
+                sum += nc.getPoint2D(n).getX();
+            }
+        }
+        double allocating = (double) (allocatedBytes() - before) / ITERATIONS / nodes.size();
+
+        Point2D.Double buffer = new Point2D.Double();
+        Point point = new Point();
+        before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (Node n : nodes) {
+                sum += nc.getPoint2D(n, buffer).getX() + nc.getPoint(n, point).x;
+            }
+        }
+        double buffered = (double) (allocatedBytes() - before) / ITERATIONS / nodes.size();
+
+        System.out.println("getPoint2D(Node): " + allocating + " bytes/node, with buffers: " + buffered
+                + " bytes/node (checksum " + sum + ")");
+        PerformanceTestUtils.measurementPlotsPluginOutput("getPoint2D(Node) bytes per node", allocating);
+        PerformanceTestUtils.measurementPlotsPluginOutput("getPoint2D(Node, Point2D.Double) bytes per node", buffered);
+        assertTrue(buffered < 1);
+    }
+
+    /**
+     * Measures the garbage produced per frame by the wireframe renderer.
+     */
+    @Test
+    public void testWireframeFrame() {
+        NavigatableComponent nc = createComponent();
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setClip(0, 0, WIDTH, HEIGHT);
+        WireframeMapRenderer renderer = new WireframeMapRenderer(g, nc, false);
+        renderer.render(ds, false, bounds);
+
+        long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            renderer.render(ds, false, bounds);
+        }
+        double perFrame = (double) (allocatedBytes() - before) / ITERATIONS;
+        System.out.println("wireframe frame: " + perFrame + " bytes (" + perFrame / nodes.size() + " bytes/node)");
+        PerformanceTestUtils.measurementPlotsPluginOutput("wireframe bytes per frame", perFrame);
+        g.dispose();
+    }
+}
@@ -0,0 +1,122 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * This test tests how fast photos are correlated with a GPX track.
+ * <p>
+ * A synthetic track recorded every second during a week, one segment per day, is correlated with photos taken
+ * at random times of this week.
+ */
+public class CorrelateGpxWithImagesPerformanceTest {
+    private static final int DAYS = 7;
+    private static final int IMAGES = 5000;
+    private static final int OFFSETS = 20;
+    private static final long START = DateUtils.tsFromString("2016-01-04T00:00:00Z");
+
+    private static GpxData gpx;
+    private static List<ImageEntry> images;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        Random random = new Random(42);
+        List<GpxTrackSegment> segments = new ArrayList<>(DAYS);
+        char[] buffer = new char[24];
+        double lat = 46.98;
+        double lon = 1.06;
+        for (int d = 0; d < DAYS; d++) {
+            ImmutableGpxTrackSegment.Builder builder = new ImmutableGpxTrackSegment.Builder(86400);
+            for (int s = 0; s < 86400; s++) {
+                lat += (random.nextDouble() - 0.5) * 1e-4;
+                lon += (random.nextDouble() - 0.5) * 1e-4;
+                builder.addPoint(lat, lon);
+                int length = DateUtils.formatTimestamp(START + (d * 86400L + s) * 1000, buffer, 0);
+                builder.putTime(new String(buffer, 0, length));
+                builder.put("ele", Integer.toString(300 + random.nextInt(100)));
+            }
+            segments.add(builder.build());
+        }
+        gpx = new GpxData();
+        gpx.tracks.add(new ImmutableGpxTrack(segments, Collections.<String, Object>emptyMap()));
+
+        long[] times = new long[IMAGES];
+        for (int i = 0; i < IMAGES; i++) {
+            times[i] = START + (long) (random.nextDouble() * DAYS * 86400 * 1000);
+        }
+        Arrays.sort(times);
+        images = new ArrayList<>(IMAGES);
+        for (long t : times) {
+            ImageEntry e = new ImageEntry();
+            e.setExifTime(new Date(t));
+            images.add(e);
+        }
+    }
+
+    private static void resetImages() {
+        for (ImageEntry e : images) {
+            e.createTmp();
+            e.tmp.setPos(null);
+        }
+    }
+
+    /**
+     * Correlates the photos with the track, including the parsing of the track point times.
+     */
+    @Test
+    public void testMatchGpxTrack() {
+        resetImages();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(
+                "correlate " + IMAGES + " photos with a track of " + DAYS + " days");
+        int matched = CorrelateGpxWithImages.matchGpxTrack(images, gpx, 0);
+        timer.done();
+        assertEquals(IMAGES, matched);
+    }
+
+    /**
+     * Correlates the photos with the track again for several offsets, as when the user adjusts the offset.
+     */
+    @Test
+    public void testMatchOffsets() {
+        GpxTimeIndex index = GpxTimeIndex.of(gpx);
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(
+                "correlate " + IMAGES + " photos with a track of " + DAYS + " days, " + OFFSETS + " offsets");
+        int matched = 0;
+        for (int i = 0; i < OFFSETS; i++) {
+            resetImages();
+            matched = index.match(images, i * 60000L);
+        }
+        timer.done();
+        assertEquals(IMAGES, matched, IMAGES / 100);
+    }
+}
@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * This test tests how fast we are at reading large GPX files.
+ * <p>
+ * A synthetic track with typical track point attributes (elevation, time, HDOP) is read from memory.
+ */
+public class GpxReaderPerformanceTest {
+    private static final int TIMES = 4;
+    private static final int TRACKS = 10;
+    private static final int POINTS = 100000;
+
+    private static byte[] data;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        data = generate();
+    }
+
+    private static byte[] generate() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(TRACKS * POINTS * 150);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+          .append("<gpx version=\"1.1\" creator=\"JOSM\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+        int time = 1451606400;
+        for (int t = 0; t < TRACKS; t++) {
+            double lat = 48 + random.nextDouble();
+            double lon = 11 + random.nextDouble();
+            sb.append("  <trk>\n    <name>Track ").append(t).append("</name>\n    <trkseg>\n");
+            for (int i = 0; i < POINTS; i++) {
+                lat += (random.nextDouble() - 0.5) * 1e-4;
+                lon += (random.nextDouble() - 0.5) * 1e-4;
+                sb.append(String.format(Locale.ENGLISH, "      <trkpt lat=\"%.7f\" lon=\"%.7f\">%n", lat, lon))
+                  .append(String.format(Locale.ENGLISH, "        <ele>%.1f</ele>%n", 500 + random.nextDouble() * 100))
+                  .append("        <time>").append(DateUtils.fromTimestamp(time++)).append("</time>\n")
+                  .append("        <hdop>").append(1 + random.nextInt(30) / 10.0).append("</hdop>\n")
+                  .append("      </trkpt>\n");
+            }
+            sb.append("    </trkseg>\n  </trk>\n");
+        }
+        sb.append("</gpx>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Simulates a plain read of a large .gpx file (from memory)
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void test() throws Exception {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(
+                "load .gpx-file (" + data.length / 1024 / 1024 + " MB) " + TIMES + " times");
+        GpxData gpx = null;
+        for (int i = 0; i < TIMES; i++) {
+            GpxReader reader = new GpxReader(new ByteArrayInputStream(data));
+            assertTrue(reader.parse(false));
+            gpx = reader.getGpxData();
+        }
+        timer.done();
+        assertEquals(TRACKS, gpx.tracks.size());
+        for (GpxTrack track : gpx.tracks) {
+            for (GpxTrackSegment seg : track.getSegments()) {
+                assertEquals(POINTS, ((ImmutableGpxTrackSegment) seg).size());
+            }
+        }
+    }
+}
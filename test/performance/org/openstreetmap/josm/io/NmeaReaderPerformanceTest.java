@@ -0,0 +1,90 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+
+/**
+ * This test tests how fast we are at reading large NMEA files.
+ * <p>
+ * A synthetic log with GGA, RMC and GSA sentences for each position is read from memory.
+ */
+public class NmeaReaderPerformanceTest {
+    private static final int TIMES = 4;
+    private static final int POINTS = 200000;
+
+    private static byte[] data;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        data = generate();
+    }
+
+    private static String sentence(String content) {
+        int chk = 0;
+        for (int i = 0; i < content.length(); i++) {
+            chk ^= content.charAt(i);
+        }
+        return String.format(Locale.ENGLISH, "$%s*%02X\r\n", content, chk);
+    }
+
+    private static byte[] generate() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(POINTS * 220);
+        double lat = 4659.2842;
+        double lon = 124.0315;
+        for (int i = 0; i < POINTS; i++) {
+            lat += (random.nextDouble() - 0.5) * 1e-3;
+            lon += (random.nextDouble() - 0.5) * 1e-3;
+            int s = i / 5;
+            String time = String.format(Locale.ENGLISH, "%02d%02d%02d.%03d", s / 3600 % 24, s / 60 % 60, s % 60, i % 5 * 200);
+            String date = String.format(Locale.ENGLISH, "%02d0116", 1 + s / 86400 % 28);
+            sb.append(sentence(String.format(Locale.ENGLISH, "GPGGA,%s,%09.4f,N,%010.4f,W,1,16,0.7,%.1f,M,49.0,M,,0000",
+                    time, lat, lon, 30 + random.nextDouble() * 10)));
+            sb.append(sentence("GPGSA,A,3,01,03,08,11,10,14,22,27,32,28,18,,1.2,0.7,0.9"));
+            sb.append(sentence(String.format(Locale.ENGLISH, "GPRMC,%s,A,%09.4f,N,%010.4f,W,000.0,000.0,%s,,,A",
+                    time, lat, lon, date)));
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Simulates a plain read of a large .nmea file (from memory)
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void test() throws Exception {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(
+                "load .nmea-file (" + data.length / 1024 / 1024 + " MB) " + TIMES + " times");
+        NmeaReader reader = null;
+        for (int i = 0; i < TIMES; i++) {
+            reader = new NmeaReader(new ByteArrayInputStream(data));
+        }
+        timer.done();
+        assertEquals(POINTS, reader.getNumberOfCoordinates());
+        assertEquals(0, reader.getParserMalformed());
+        assertEquals(0, reader.getParserChecksumErrors());
+    }
+}
@@ -0,0 +1,132 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools.date;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+
+/**
+ * Compares the speed of {@link DateUtils} parsing and formatting with the {@code Calendar} based implementation
+ * it replaced for the usual XML UTC dates.
+ */
+public class DateUtilsPerformanceTest {
+    private static final int TIMES = 5;
+    private static final int COUNT = 1000000;
+
+    private static String[] dates;
+    private static long[] millis;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        Random random = new Random(42);
+        dates = new String[COUNT];
+        millis = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            millis[i] = (long) (random.nextDouble() * 1.5e12) / 1000 * 1000;
+            dates[i] = DateUtils.fromMillis(millis[i]);
+        }
+    }
+
+    /**
+     * The previous implementation, parsing with a shared {@code Calendar} and formatting with {@code XMLGregorianCalendar}.
+     */
+    private static final class CalendarCodec {
+        private final GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        private final DatatypeFactory xml;
+
+        CalendarCodec() throws Exception {
+            xml = DatatypeFactory.newInstance();
+        }
+
+        private static int part(String str, int off, int len) {
+            int v = 0;
+            for (int i = off; i < off + len; i++) {
+                v = 10 * v + str.charAt(i) - '0';
+            }
+            return v;
+        }
+
+        synchronized long parse(String str) {
+            calendar.set(part(str, 0, 4), part(str, 5, 2) - 1, part(str, 8, 2), part(str, 11, 2), part(str, 14, 2),
+                    part(str, 17, 2));
+            calendar.set(Calendar.MILLISECOND, 0);
+            return calendar.getTimeInMillis();
+        }
+
+        synchronized String format(long time) {
+            calendar.setTimeInMillis(time);
+            XMLGregorianCalendar xgc = xml.newXMLGregorianCalendar(calendar);
+            xgc.setFractionalSecond(null);
+            return xgc.toXMLFormat();
+        }
+    }
+
+    /**
+     * Measures parsing of {@code yyyy-MM-ddTHH:mm:ssZ} dates.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParse() throws Exception {
+        CalendarCodec calendar = new CalendarCodec();
+        long sum = 0;
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("parse " + COUNT + " dates with Calendar " + TIMES + " times");
+        for (int t = 0; t < TIMES; t++) {
+            for (String date : dates) {
+                sum += calendar.parse(date);
+            }
+        }
+        timer.done();
+        long sum2 = 0;
+        timer = PerformanceTestUtils.startTimer("parse " + COUNT + " dates with DateUtils " + TIMES + " times");
+        for (int t = 0; t < TIMES; t++) {
+            for (String date : dates) {
+                sum2 += DateUtils.tsFromString(date);
+            }
+        }
+        timer.done();
+        assertEquals(sum, sum2);
+    }
+
+    /**
+     * Measures formatting of dates into {@code yyyy-MM-ddTHH:mm:ssZ}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testFormat() throws Exception {
+        CalendarCodec calendar = new CalendarCodec();
+        long length = 0;
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("format " + COUNT + " dates with XMLGregorianCalendar " + TIMES + " times");
+        for (int t = 0; t < TIMES; t++) {
+            for (long time : millis) {
+                length += calendar.format(time).length();
+            }
+        }
+        timer.done();
+        long length2 = 0;
+        char[] buffer = new char[24];
+        timer = PerformanceTestUtils.startTimer("format " + COUNT + " dates with DateUtils into a buffer " + TIMES + " times");
+        for (int t = 0; t < TIMES; t++) {
+            for (long time : millis) {
+                length2 += DateUtils.formatTimestamp(time, buffer, 0);
+            }
+        }
+        timer.done();
+        assertEquals(length, length2);
+    }
+}
@@ -7,6 +7,7 @@ import java.awt.geom.Point2D;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
@@ -54,6 +55,12 @@ class MapViewMock extends MapView {
         return p != null ? new Point2D.Double(p.getX(), p.getY()) : null;
     }
 
+    @Override
+    public Point2D.Double getPoint2D(Node n, Point2D.Double result) {
+        result.setLocation(n.east(), n.north());
+        return result;
+    }
+
     @Override
     public void setActiveLayer(Layer layer) {}
 
@@ -2,15 +2,28 @@
 package org.openstreetmap.josm.data.cache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.jcs.access.behavior.ICacheAccess;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.cache.ICachedLoaderListener.LoadResult;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 /**
  * Unit tests for class {@link JCSCachedTileLoaderJob}.
@@ -19,10 +32,16 @@ public class JCSCachedTileLoaderJobTest {
 
     private static class TestCachedTileLoaderJob extends JCSCachedTileLoaderJob<String, CacheEntry> {
         private String url;
+        private String key;
 
         TestCachedTileLoaderJob(String url) throws IOException {
+            this(url, "cachekey");
+        }
+
+        TestCachedTileLoaderJob(String url, String key) throws IOException {
             super(getCache(), 30000, 30000, null);
             this.url = url;
+            this.key = key;
         }
 
         private static ICacheAccess<String, CacheEntry> getCache() throws IOException {
@@ -31,7 +50,7 @@ public class JCSCachedTileLoaderJobTest {
 
         @Override
         public String getCacheKey() {
-            return "cachekey";
+            return key;
         }
 
         @Override
@@ -51,16 +70,76 @@ public class JCSCachedTileLoaderJobTest {
 
     private static class Listener implements ICachedLoaderListener {
         private CacheEntryAttributes attributes;
+        private LoadResult result;
         private boolean ready;
 
         @Override
         public synchronized void loadingFinished(CacheEntry data, CacheEntryAttributes attributes, LoadResult result) {
             this.attributes = attributes;
+            this.result = result;
             this.ready = true;
             this.notify();
         }
     }
 
+    /**
+     * Local stand-in for a tile server. Serves a fixed tile with an ETag, answers conditional requests
+     * with {@code 304 Not Modified}, and records requests and client connections.
+     */
+    private static class TileServer implements HttpHandler {
+        private final HttpServer server;
+        private final String etag = "\"v1\"";
+        private volatile String cacheControl = "max-age=0";
+        private volatile boolean etagWithNotModified = true;
+        private final List<String> responses = new CopyOnWriteArrayList<>();
+        private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+        TileServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", this);
+            server.start();
+        }
+
+        String getUrl(String path) {
+            return "http://localhost:" + server.getAddress().getPort() + path;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+            if (exchange.getRequestURI().getPath().startsWith("/missing")) {
+                responses.add("404");
+                byte[] body = "not found".getBytes("UTF-8");
+                exchange.sendResponseHeaders(404, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+                return;
+            }
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                responses.add("304");
+                if (etagWithNotModified) {
+                    exchange.getResponseHeaders().add("ETag", etag);
+                }
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                responses.add("200");
+                exchange.getResponseHeaders().add("ETag", etag);
+                byte[] body = new byte[4096];
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+    }
+
     /**
      * Setup test.
      */
@@ -96,6 +175,93 @@ public class JCSCachedTileLoaderJobTest {
         assertEquals("java.net.UnknownHostException: unkownhost.unkownhost", listener.attributes.getErrorMessage());
     }
 
+    /**
+     * Test that an expired but unchanged object is revalidated with a conditional request, and that the
+     * refreshed expiration time avoids further requests.
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testConditionalRevalidation() throws Exception {
+        TileServer server = new TileServer();
+        try {
+            String url = server.getUrl("/revalidation/1/1/1.png");
+            // initial download, expires immediately
+            Listener listener = load(new TestCachedTileLoaderJob(url, url), false);
+            assertEquals(LoadResult.SUCCESS, listener.result);
+            assertEquals(Collections.singletonList("200"), server.responses);
+
+            // expired: revalidated with If-None-Match, refreshed for one hour
+            server.cacheControl = "max-age=3600";
+            Thread.sleep(10);
+            listener = load(new TestCachedTileLoaderJob(url, url), false);
+            assertEquals(LoadResult.SUCCESS, listener.result);
+            assertEquals(200, listener.attributes.getResponseCode());
+            assertEquals("[200, 304]", server.responses.toString());
+            assertTrue(listener.attributes.getExpirationTime() > System.currentTimeMillis());
+
+            // valid again: served from cache without contacting the server
+            listener = load(new TestCachedTileLoaderJob(url, url), false);
+            assertEquals(LoadResult.SUCCESS, listener.result);
+            assertEquals("[200, 304]", server.responses.toString());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test that the ETag of a cached object is kept when a {@code 304 Not Modified} response does not repeat it,
+     * so that the object is revalidated again later.
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testRevalidationWithoutETag() throws Exception {
+        TileServer server = new TileServer();
+        server.etagWithNotModified = false;
+        try {
+            String url = server.getUrl("/revalidation-without-etag/1/1/1.png");
+            load(new TestCachedTileLoaderJob(url, url), false);
+            for (int i = 0; i < 2; i++) {
+                Thread.sleep(10);
+                Listener listener = load(new TestCachedTileLoaderJob(url, url), false);
+                assertEquals(LoadResult.SUCCESS, listener.result);
+            }
+            assertEquals("[200, 304, 304]", server.responses.toString());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test that successive requests to the same host reuse a persistent connection, including after error responses.
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testConnectionReuse() throws Exception {
+        TileServer server = new TileServer();
+        try {
+            for (int i = 0; i < 20; i++) {
+                String url = server.getUrl((i % 3 == 2 ? "/missing/" : "/reuse/") + i + ".png");
+                load(new TestCachedTileLoaderJob(url, url), false);
+            }
+            assertEquals(20, server.responses.size());
+            assertTrue(server.responses.contains("404"));
+            assertEquals(1, server.clientPorts.size());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static Listener load(TestCachedTileLoaderJob job, boolean force) throws Exception {
+        Listener listener = new Listener();
+        job.submit(listener, force);
+        synchronized (listener) {
+            while (!listener.ready) {
+                listener.wait();
+            }
+        }
+        return listener;
+    }
+
     private void doTestStatusCode(int responseCode) throws Exception {
         TestCachedTileLoaderJob job = getStatusLoaderJob(responseCode);
         Listener listener = new Listener();
@@ -0,0 +1,81 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests for class {@link GpxData}.
+ */
+public class GpxDataTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static GpxData createData() {
+        GpxData data = new GpxData();
+        Collection<Collection<WayPoint>> segments = new ArrayList<>();
+        List<WayPoint> seg = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            WayPoint wp = new WayPoint(new LatLon(48 + i * 0.0005, 11 + i * 0.001));
+            wp.time = 1000 + i;
+            seg.add(wp);
+        }
+        segments.add(seg);
+        data.tracks.add(new ImmutableGpxTrack(segments, Collections.<String, Object>emptyMap()));
+        return data;
+    }
+
+    /**
+     * Test of {@link GpxData#nearestPointOnTrack}.
+     */
+    @Test
+    public void testNearestPointOnTrack() {
+        GpxData data = createData();
+        EastNorth a = Main.getProjection().latlon2eastNorth(new LatLon(48 + 150 * 0.0005, 11 + 150 * 0.001));
+        EastNorth b = Main.getProjection().latlon2eastNorth(new LatLon(48 + 151 * 0.0005, 11 + 151 * 0.001));
+        EastNorth middle = a.getCenter(b);
+        // a point slightly off the track, near the middle of the line between points 150 and 151
+        EastNorth p = new EastNorth(middle.east() - (b.north() - a.north()) / 10, middle.north() + (b.east() - a.east()) / 10);
+        double tolerance = a.distance(b);
+        WayPoint wp = data.nearestPointOnTrack(p, tolerance);
+        assertEquals(middle.east(), wp.getEastNorth().east(), 1e-7);
+        assertEquals(middle.north(), wp.getEastNorth().north(), 1e-7);
+        assertEquals(1150.5, wp.time, 1e-6);
+        // first and last points
+        wp = data.nearestPointOnTrack(Main.getProjection().latlon2eastNorth(new LatLon(47.9999, 10.9999)), tolerance);
+        assertEquals(1000, wp.time, 0.0);
+        wp = data.nearestPointOnTrack(Main.getProjection().latlon2eastNorth(new LatLon(48 + 199 * 0.0005, 11.2)), tolerance);
+        assertEquals(1199, wp.time, 0.0);
+        // too far away
+        assertNull(data.nearestPointOnTrack(new EastNorth(p.east() + 10 * tolerance, p.north() - 10 * tolerance), tolerance));
+    }
+
+    /**
+     * Test of {@link GpxData#getMinMaxTimeForAllTracks}.
+     */
+    @Test
+    public void testMinMaxTime() {
+        GpxData data = createData();
+        assertEquals(1000000, data.getMinMaxTimeForAllTracks()[0].getTime());
+        assertEquals(1199000, data.getMinMaxTimeForAllTracks()[1].getTime());
+        assertEquals(1199000, GpxData.getMinMaxTimeForTrack(data.tracks.iterator().next())[1].getTime());
+    }
+}
@@ -0,0 +1,223 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * Unit tests for class {@link ImmutableGpxTrackSegment}.
+ */
+public class ImmutableGpxTrackSegmentTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static WayPoint wpt(double lat, double lon, Object... attributes) {
+        WayPoint wp = new WayPoint(new LatLon(lat, lon));
+        for (int i = 0; i < attributes.length; i += 2) {
+            wp.put((String) attributes[i], attributes[i + 1]);
+        }
+        wp.setTime();
+        return wp;
+    }
+
+    /**
+     * Test that the attributes of the points are kept, whether they are stored in columns or not.
+     */
+    @Test
+    public void testAttributes() {
+        List<WayPoint> wpts = new ArrayList<>();
+        wpts.add(wpt(48.1, 11.5, "time", "2016-01-03T11:59:58Z", "ele", "523.40", "hdop", 1.5f));
+        wpts.add(wpt(48.2, 11.6, "time", "2016-01-03T11:59:59.120Z", "ele", "12"));
+        wpts.add(wpt(48.3, 11.7, "time", "2016-01-03T12:59:59+01:00", "ele", "-0.0", "name", "foo"));
+        wpts.add(wpt(48.4, 11.8, "ele", "1e3", "hdop", 0f));
+        wpts.add(wpt(48.5, 11.9, "ele", "007", "time", "2016-01-03T11:59:59.1Z"));
+        wpts.add(wpt(48.6, 12.0));
+        ImmutableGpxTrackSegment seg = new ImmutableGpxTrackSegment(wpts);
+        assertEquals(wpts.size(), seg.size());
+        for (int i = 0; i < wpts.size(); i++) {
+            WayPoint expected = wpts.get(i);
+            WayPoint actual = seg.getWayPoint(i);
+            assertEquals(expected.getCoor(), actual.getCoor());
+            assertEquals(expected.time, actual.time, 0.0);
+            assertEquals(expected.attr, actual.attr);
+            for (String key : new String[] {"time", "ele", "hdop", "name"}) {
+                assertEquals(expected.attr.get(key), seg.get(i, key));
+            }
+        }
+        assertTrue(seg.hasCanonicalTime(0));
+        assertFalse(seg.hasCanonicalTime(2));
+        assertFalse(seg.hasCanonicalTime(3));
+        assertEquals(523.4, seg.elevation(0), 0.0);
+        assertEquals(Double.NaN, seg.elevation(3), 0.0);
+        assertEquals(1.5f, seg.hdop(0), 0.0f);
+        assertEquals(Float.NaN, seg.hdop(1), 0.0f);
+        assertEquals(new Bounds(48.1, 11.5, 48.6, 12.0), seg.getBounds());
+        assertEquals(wpts.size(), seg.getWayPoints().size());
+    }
+
+    /**
+     * Test that the same waypoint instances are returned while they are in memory.
+     */
+    @Test
+    public void testWayPointsIdentity() {
+        List<WayPoint> wpts = new ArrayList<>();
+        wpts.add(wpt(48.1, 11.5));
+        wpts.add(wpt(48.2, 11.6));
+        ImmutableGpxTrackSegment seg = new ImmutableGpxTrackSegment(wpts);
+        // the waypoints are kept as long as they are referenced
+        Collection<WayPoint> kept = seg.getWayPoints();
+        List<WayPoint> first = new ArrayList<>(kept);
+        System.gc();
+        List<WayPoint> second = new ArrayList<>(seg.getWayPoints());
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i), second.get(i));
+            assertSame(first.get(i), seg.getWayPoint(i));
+        }
+        assertSame(kept, seg.getWayPoints());
+    }
+
+    /**
+     * Test that rebuilt time attributes match {@link DateUtils#fromDate}.
+     */
+    @Test
+    public void testFormatTime() {
+        Random r = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long seconds = (long) (r.nextDouble() * 4e9) - 1000000000L;
+            assertEquals(DateUtils.fromDate(new Date(seconds * 1000)), ImmutableGpxTrackSegment.formatTime(seconds));
+        }
+        assertEquals("1970-01-01T00:00:00.001Z", ImmutableGpxTrackSegment.formatTime(0.001));
+        assertEquals("1969-12-31T23:59:59.999Z", ImmutableGpxTrackSegment.formatTime(-0.001));
+        assertNull(ImmutableGpxTrackSegment.formatTime(-1e11));
+    }
+
+    /**
+     * Test that {@link ImmutableGpxTrackSegment#parseTime} only accepts the output of
+     * {@link ImmutableGpxTrackSegment#formatTime}, and parses it as {@link DateUtils} does.
+     */
+    @Test
+    public void testParseTime() {
+        Random r = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            double seconds = Math.floor(r.nextDouble() * 4e12 - 1e12) / 1000;
+            String s = ImmutableGpxTrackSegment.formatTime(seconds);
+            assertEquals(s, seconds, ImmutableGpxTrackSegment.parseTime(s), 0.0);
+            assertEquals(s, DateUtils.tsFromString(s) / 1000., ImmutableGpxTrackSegment.parseTime(s), 0.0);
+        }
+        assertEquals(0, ImmutableGpxTrackSegment.parseTime("1970-01-01T00:00:00Z"), 0.0);
+        assertEquals(951782400, ImmutableGpxTrackSegment.parseTime("2000-02-29T00:00:00Z"), 0.0);
+        assertEquals(Double.NaN, ImmutableGpxTrackSegment.parseTime("2001-02-29T00:00:00Z"), 0.0);
+        assertEquals(Double.NaN, ImmutableGpxTrackSegment.parseTime("2016-01-03T11:59:59.000Z"), 0.0);
+        assertEquals(Double.NaN, ImmutableGpxTrackSegment.parseTime("2016-01-03T11:59:59.1Z"), 0.0);
+        assertEquals(Double.NaN, ImmutableGpxTrackSegment.parseTime("2016-01-03T11:59:60Z"), 0.0);
+        assertEquals(Double.NaN, ImmutableGpxTrackSegment.parseTime("2016-01-03T12:59:59+01:00"), 0.0);
+        assertEquals(Double.NaN, ImmutableGpxTrackSegment.parseTime("2016-01-03 11:59:59Z"), 0.0);
+    }
+
+    /**
+     * Test that segments built point by point are the same as segments built from waypoints.
+     */
+    @Test
+    public void testBuilder() {
+        List<WayPoint> wpts = new ArrayList<>();
+        ImmutableGpxTrackSegment.Builder builder = new ImmutableGpxTrackSegment.Builder(1);
+        for (int i = 0; i < 100; i++) {
+            String time = i % 10 == 3 ? "2016-01-03T12:59:59+01:00" : "2016-01-03T11:59:" + (10 + i % 50) + "Z";
+            WayPoint wp = wpt(48 + i / 100., 11, "time", time);
+            builder.addPoint(48 + i / 100., 11);
+            builder.putTime(time);
+            if (i % 7 == 0) {
+                wp.put("ele", "1" + i);
+                builder.put("ele", "1" + i);
+            }
+            if (i % 13 == 0) {
+                wp.put("hdop", 2.5f);
+                builder.put("hdop", 2.5f);
+            }
+            if (i % 17 == 0) {
+                wp.put("name", "p" + i);
+                builder.put("name", "p" + i);
+            }
+            wpts.add(wp);
+        }
+        assertEquals(100, builder.size());
+        ImmutableGpxTrackSegment seg = builder.build();
+        assertEquals(0, builder.size());
+        ImmutableGpxTrackSegment expected = new ImmutableGpxTrackSegment(wpts);
+        assertEquals(expected.size(), seg.size());
+        assertEquals(expected.getBounds(), seg.getBounds());
+        assertEquals(expected.length(), seg.length(), 0.0);
+        for (int i = 0; i < seg.size(); i++) {
+            WayPoint wp = seg.getWayPoint(i);
+            assertEquals(wpts.get(i).getCoor(), wp.getCoor());
+            assertEquals(wpts.get(i).time, wp.time, 0.0);
+            assertEquals(wpts.get(i).attr, wp.attr);
+        }
+    }
+
+    /**
+     * Test of {@link ImmutableGpxTrackSegment#decimals}.
+     */
+    @Test
+    public void testDecimals() {
+        assertEquals(0, ImmutableGpxTrackSegment.decimals("0"));
+        assertEquals(0, ImmutableGpxTrackSegment.decimals("-12"));
+        assertEquals(2, ImmutableGpxTrackSegment.decimals("123.40"));
+        assertEquals(-1, ImmutableGpxTrackSegment.decimals("-0.0"));
+        assertEquals(-1, ImmutableGpxTrackSegment.decimals("01"));
+        assertEquals(-1, ImmutableGpxTrackSegment.decimals("1."));
+        assertEquals(-1, ImmutableGpxTrackSegment.decimals(".5"));
+        assertEquals(-1, ImmutableGpxTrackSegment.decimals("+5"));
+        assertEquals(-1, ImmutableGpxTrackSegment.decimals("1e3"));
+        assertEquals(-1, ImmutableGpxTrackSegment.decimals("1234567890.123456"));
+        assertEquals(-1, ImmutableGpxTrackSegment.decimals(""));
+    }
+
+    /**
+     * Test of the spatial index of projected points.
+     */
+    @Test
+    public void testRanges() {
+        List<WayPoint> wpts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            wpts.add(wpt(48, 11 + i * 0.001));
+        }
+        ImmutableGpxTrackSegment seg = new ImmutableGpxTrackSegment(wpts);
+        ImmutableGpxTrackSegment.ProjectedPoints points = seg.getProjectedPoints();
+        assertEquals(Main.getProjection(), points.getProjection());
+        EastNorth en = Main.getProjection().latlon2eastNorth(new LatLon(48, 11.05));
+        assertEquals(en.east(), points.east(50), 1e-6);
+        assertEquals(en.north(), points.north(50), 1e-6);
+        assertArrayEquals(new int[] {32, 64}, points.getRanges(new ProjectionBounds(en, 1e-3, 1e-3)));
+        EastNorth en2 = Main.getProjection().latlon2eastNorth(new LatLon(48, 11.064));
+        assertArrayEquals(new int[] {32, 96}, points.getRanges(new ProjectionBounds(en.getX(), en.getY() - 1, en2.getX(), en2.getY() + 1)));
+        assertArrayEquals(new int[0], points.getRanges(new ProjectionBounds(en.getX(), en.getY() + 10, en2.getX(), en2.getY() + 20)));
+        assertEquals(points, seg.getProjectedPoints());
+    }
+}
@@ -0,0 +1,127 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.notes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.notes.NoteIndex.Cluster;
+import org.openstreetmap.josm.io.NoteReader;
+import org.xml.sax.SAXException;
+
+/**
+ * Unit tests of {@link NoteIndex} class.
+ */
+public class NoteIndexTest {
+
+    private static NoteIndex readExtract() throws IOException, SAXException {
+        try (InputStream in = new FileInputStream(TestUtils.getTestDataRoot() + "planet-notes-extract.osn")) {
+            return new NoteIndex(new NoteReader(in).parse());
+        }
+    }
+
+    /**
+     * Unit test of {@link NoteIndex#search}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSearch() throws Exception {
+        NoteIndex index = readExtract();
+        assertEquals(9, index.size());
+        // Tarnów, Poland
+        List<Note> notes = index.search(new Bounds(49.85, 20.98, 49.86, 20.99));
+        assertEquals(3, notes.size());
+        assertEquals(1, index.search(new Bounds(49.853, 20.987, 49.854, 20.988)).size());
+        assertEquals(0, index.search(new Bounds(0, 0, 1, 1)).size());
+        assertEquals(9, index.search(new Bounds(-90, -180, 90, 180)).size());
+        // crossing the 180th meridian
+        assertEquals(1, index.search(new Bounds(30, 130, 40, -170)).size());
+    }
+
+    /**
+     * Compares {@link NoteIndex#search} with a linear search on random notes.
+     */
+    @Test
+    public void testSearchRandom() {
+        Random random = new Random(42);
+        List<Note> all = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            all.add(new Note(new LatLon(random.nextDouble() * 10 + 40, random.nextDouble() * 10)));
+        }
+        NoteIndex index = new NoteIndex(all);
+        for (int i = 0; i < 100; i++) {
+            double lat = random.nextDouble() * 10 + 40;
+            double lon = random.nextDouble() * 10;
+            double size = random.nextDouble();
+            Bounds bounds = new Bounds(lat, lon, lat + size, lon + size);
+            int expected = 0;
+            for (Note note : all) {
+                if (bounds.contains(note.getLatLon())) {
+                    expected++;
+                }
+            }
+            List<Note> found = index.search(bounds);
+            assertEquals(expected, found.size());
+            for (Note note : found) {
+                assertTrue(bounds.contains(note.getLatLon()));
+            }
+        }
+    }
+
+    /**
+     * Unit test of {@link NoteIndex#cluster}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCluster() throws Exception {
+        NoteIndex index = readExtract();
+        Bounds world = new Bounds(-90, -180, 90, 180);
+        List<Cluster> clusters = index.cluster(world, 0);
+        assertEquals(1, clusters.size());
+        assertEquals(9, clusters.get(0).getCount());
+        assertNull(clusters.get(0).getNote());
+
+        // the three notes of Tarnów are in a single tile of about 0.7 degree
+        int count = 0;
+        Cluster tarnow = null;
+        for (Cluster cluster : index.cluster(world, 9)) {
+            count += cluster.getCount();
+            if (cluster.getCount() > 1) {
+                tarnow = cluster;
+            } else {
+                assertNotNull(cluster.getNote());
+            }
+        }
+        assertEquals(9, count);
+        assertNotNull(tarnow);
+        assertEquals(3, tarnow.getCount());
+        assertTrue(tarnow.getBounds().contains(tarnow.getLatLon()));
+        assertEquals(49.8533, tarnow.getLatLon().lat(), 1e-4);
+        assertEquals(20.9853, tarnow.getLatLon().lon(), 1e-4);
+    }
+
+    /**
+     * Unit test of {@link NoteIndex#getLevel}.
+     */
+    @Test
+    public void testGetLevel() {
+        assertEquals(0, NoteIndex.getLevel(360));
+        assertEquals(0, NoteIndex.getLevel(1000));
+        assertEquals(1, NoteIndex.getLevel(180));
+        assertEquals(8, NoteIndex.getLevel(1));
+        assertEquals(24, NoteIndex.getLevel(1e-9));
+        assertEquals(24, NoteIndex.getLevel(0));
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
@@ -573,6 +574,13 @@ public class DataSetMergerTest {
         assertEquals(1, merged.getNode(0).getId());
         assertEquals(2, merged.getNode(1).getId());
         assertEquals("value1", merged.get("key1"));
+
+        // the conflict knows only about the merged nodes of their way
+        Map<PrimitiveId, PrimitiveId> mergedMap = visitor.getConflicts().get(0).getMergedMap();
+        assertEquals(3, mergedMap.size());
+        assertEquals(n1.getPrimitiveId(), mergedMap.get(n3.getPrimitiveId()));
+        assertEquals(n2.getPrimitiveId(), mergedMap.get(n4.getPrimitiveId()));
+        assertEquals(n5.getPrimitiveId(), mergedMap.get(n5.getPrimitiveId()));
     }
 
     /**
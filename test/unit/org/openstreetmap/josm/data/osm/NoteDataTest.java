@@ -6,6 +6,7 @@ import static org.junit.Assert.assertEquals;
 import java.util.Arrays;
 
 import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.notes.Note;
 
@@ -24,4 +25,23 @@ public class NoteDataTest {
         NoteData notEmpty = new NoteData(Arrays.asList(new Note(LatLon.ZERO)));
         assertEquals(1, notEmpty.getNotes().size());
     }
+
+    /**
+     * Unit test for {@link NoteData#searchNotes} after notes are added.
+     */
+    @Test
+    public void testSearchNotes() {
+        NoteData data = new NoteData(Arrays.asList(new Note(LatLon.ZERO)));
+        Bounds bounds = new Bounds(-1, -1, 1, 1);
+        assertEquals(1, data.searchNotes(bounds).size());
+        Note inside = new Note(new LatLon(0.5, 0.5));
+        inside.setId(1);
+        Note outside = new Note(new LatLon(10, 10));
+        outside.setId(2);
+        data.addNotes(Arrays.asList(inside, outside));
+        assertEquals(2, data.searchNotes(bounds).size());
+        // a single tile for the whole world
+        assertEquals(1, data.clusterNotes(bounds, 0).size());
+        assertEquals(3, data.clusterNotes(bounds, 0).get(0).getCount());
+    }
 }
@@ -0,0 +1,134 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.projection.datum.Datum;
+import org.openstreetmap.josm.data.projection.datum.ThreeParameterDatum;
+
+/**
+ * Unit tests for class {@link Projections}.
+ */
+public class ProjectionsTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static double[] randomCoordinates(Projection p, int count) {
+        Random rand = new Random(42);
+        Bounds b = p.getWorldBoundsLatLon();
+        double[] coords = new double[2 * count];
+        for (int i = 0; i < count; i++) {
+            coords[2 * i] = b.getMinLat() + rand.nextDouble() * (b.getMaxLat() - b.getMinLat());
+            coords[2 * i + 1] = b.getMinLon() + rand.nextDouble() * (b.getMaxLon() - b.getMinLon());
+        }
+        return coords;
+    }
+
+    private static void testBatch(String code, int count) {
+        testBatch(code, Projections.getProjectionByCode(code), count);
+    }
+
+    private static void testBatch(String code, Projection p, int count) {
+        double[] coords = randomCoordinates(p, count);
+        double[] expected = coords.clone();
+        for (int i = 0; i < count; i++) {
+            EastNorth en = p.latlon2eastNorth(new LatLon(coords[2 * i], coords[2 * i + 1]));
+            expected[2 * i] = en.east();
+            expected[2 * i + 1] = en.north();
+        }
+        Projections.project(p, coords);
+        for (int i = 0; i < 2 * count; i++) {
+            assertEquals(code + " #" + i, expected[i], coords[i], 0.0);
+        }
+    }
+
+    /**
+     * Test that batch projection gives exactly the same results as projecting one point at a time.
+     */
+    @Test
+    public void testBatchProjection() {
+        testBatch("EPSG:4326", 1000); // WGS 84, no datum conversion
+        testBatch("EPSG:3857", 1000); // Mercator
+        testBatch("EPSG:21781", 1000); // Swiss grid, 3 parameters datum
+        testBatch("EPSG:2056", 1000); // Swiss grid LV95
+        testBatch("EPSG:27572", 1000); // Lambert 4 Zones France, NTV2 datum
+        testBatch("EPSG:32632", 1000); // UTM 32N
+        testBatch("EPSG:31370", 1000); // Belgian Lambert 72, 7 parameters datum
+        testBatch("EPSG:2017", 1000); // NAD27 MTM zone 8, centric datum
+    }
+
+    /**
+     * Test that batch projection uses the per-point methods overridden by subclasses.
+     */
+    @Test
+    public void testBatchProjectionOverridden() {
+        testBatch("overridden projection", new CustomProjection("+proj=merc +a=6378137 +b=6378137 +nadgrids=@null") {
+            @Override
+            public EastNorth latlon2eastNorth(LatLon ll) {
+                return super.latlon2eastNorth(ll).add(1, 2);
+            }
+        }, 1000);
+        final Datum datum = new ThreeParameterDatum("test", null, Ellipsoid.Bessel1841, 600, 100, 400) {
+            @Override
+            public LatLon fromWGS84(LatLon ll) {
+                LatLon shifted = super.fromWGS84(ll);
+                return new LatLon(shifted.lat() + 0.001, shifted.lon());
+            }
+        };
+        testBatch("overridden datum", new CustomProjection("+proj=tmerc +lon_0=7 +ellps=bessel") {
+            {
+                this.datum = datum;
+            }
+        }, 1000);
+    }
+
+    /**
+     * Test that large batches, projected in parallel, give exactly the same results as projecting one point at a time.
+     */
+    @Test
+    public void testParallelBatchProjection() {
+        testBatch("EPSG:3857", 100000);
+        testBatch("EPSG:21781", 100000);
+    }
+
+    /**
+     * Test that the east/north cache of nodes is updated when the projection changes.
+     */
+    @Test
+    public void testDataSetReprojection() {
+        Projection old = Main.getProjection();
+        try {
+            DataSet ds = new DataSet();
+            Node n = new Node(new LatLon(46.5, 7.5));
+            ds.addPrimitive(n);
+            Node unknown = new Node(1);
+            ds.addPrimitive(unknown);
+            Main.setProjection(Projections.getProjectionByCode("EPSG:21781"));
+            ds.invalidateEastNorthCache();
+            EastNorth expected = Main.getProjection().latlon2eastNorth(n.getCoor());
+            assertEquals(expected.east(), n.east(), 0.0);
+            assertEquals(expected.north(), n.north(), 0.0);
+            assertEquals(expected, n.getEastNorth());
+            assertEquals(null, unknown.getEastNorth());
+        } finally {
+            Main.setProjection(old);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertSame;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -102,6 +103,26 @@ public class DefaultNameFormatterTest {
                 getFormattedRelationName("type=multipolygon building=residential addr:housenumber=123"));
     }
 
+    /**
+     * Tests that {@link DefaultNameFormatter#newCachingRelationComparator} sorts like the default comparator.
+     */
+    @Test
+    public void testCachingRelationComparator() {
+        List<Relation> relations = new ArrayList<>();
+        for (String tags : new String[] {"X=Y", "name=Foo", "name=bar", "type=route route=tram ref=123",
+                "type=route route=tram ref=45", "type=multipolygon building=yes", "type=multipolygon landuse=forest",
+                "type=restriction restriction=no_left_turn", "type=multipolygon"}) {
+            relations.add((Relation) OsmUtils.createPrimitive("relation " + tags));
+        }
+        List<Relation> expected = new ArrayList<>(relations);
+        Collections.sort(expected, DefaultNameFormatter.getInstance().getRelationComparator());
+        Collections.reverse(relations);
+        Comparator<Relation> comparator = DefaultNameFormatter.getInstance().newCachingRelationComparator();
+        Collections.sort(relations, comparator);
+        assertEquals(expected, relations);
+        TestUtils.checkComparableContract(comparator, relations.toArray(new Relation[0]));
+    }
+
     /**
      * Tests formatting of way names.
      */
@@ -2,8 +2,10 @@
 package org.openstreetmap.josm.gui;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 
@@ -17,6 +19,8 @@ import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 
 /**
@@ -75,6 +79,29 @@ public class NavigatableComponentTest {
         assertThat(testPointConverted, CustomMatchers.is(new Point2D.Double(WIDTH / 2 + 300, HEIGHT / 2 - 200)));
     }
 
+    /**
+     * Tests {@link NavigatableComponent#getPoint2D(Node, Point2D.Double)} and {@link NavigatableComponent#getPoint(Node, Point)}
+     */
+    @Test
+    public void testPoint2DNode() {
+        Point2D.Double buffer = new Point2D.Double(1, 1);
+        assertSame(buffer, component.getPoint2D(new Node(), buffer));
+        assertThat(buffer, CustomMatchers.is(new Point2D.Double()));
+
+        DataSet ds = new DataSet();
+        Node n = new Node(component.getCenter().add(300.5 * component.getScale(), 200 * component.getScale()));
+        ds.addPrimitive(n);
+        Point2D.Double expected = new Point2D.Double(WIDTH / 2 + 300.5, HEIGHT / 2 - 200);
+        assertThat(component.getPoint2D(n, buffer), CustomMatchers.is(expected));
+        assertThat(component.getPoint2D(n), CustomMatchers.is(expected));
+        assertThat(component.getPoint2D(n.getEastNorth()), CustomMatchers.is(expected));
+
+        Point point = new Point();
+        assertSame(point, component.getPoint(n, point));
+        assertEquals(component.getPoint(n.getEastNorth()), point);
+        assertEquals(new Point(WIDTH / 2 + 300, HEIGHT / 2 - 200), point);
+    }
+
     /**
      * TODO: Implement this test.
      */
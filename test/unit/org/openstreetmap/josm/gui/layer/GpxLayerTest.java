@@ -6,6 +6,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -22,6 +23,7 @@ import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.widgets.HtmlPanel;
 import org.openstreetmap.josm.io.GpxReaderTest;
 import org.xml.sax.SAXException;
@@ -202,4 +204,43 @@ public class GpxLayerTest {
             Main.main.removeLayer(layer);
         }
     }
+
+    /**
+     * Unit test of {@link GpxLayer#paint} when the map is panned: the cached lines are only translated.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testPaintPanned() throws Exception {
+        GpxData data = GpxReaderTest.parseGpxData("data_nodist/munich.gpx");
+        GpxLayer layer = new GpxLayer(data, "testPaintPanned");
+        try {
+            Main.main.addLayer(layer);
+            MapView mv = Main.map.mapView;
+            mv.setBounds(0, 0, 400, 300);
+            mv.zoomTo(data.recalculateBounds());
+            BufferedImage img1 = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+            layer.paint(img1.createGraphics(), mv, data.recalculateBounds());
+            // pan by 10 pixels
+            mv.zoomTo(mv.getCenter().add(10 * mv.getScale(), 0));
+            BufferedImage img2 = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+            layer.paint(img2.createGraphics(), mv, data.recalculateBounds());
+            int painted = 0;
+            int different = 0;
+            for (int x = 20; x < 300; x++) {
+                for (int y = 0; y < 300; y++) {
+                    if (img1.getRGB(x, y) != 0) {
+                        painted++;
+                        if (img1.getRGB(x, y) != img2.getRGB(x - 10, y)) {
+                            different++;
+                        }
+                    }
+                }
+            }
+            assertTrue(painted > 1000);
+            // lines are drawn at sub-pixel positions, allow a few differences
+            assertTrue(different + " of " + painted, different < painted / 20);
+        } finally {
+            Main.main.removeLayer(layer);
+        }
+    }
 }
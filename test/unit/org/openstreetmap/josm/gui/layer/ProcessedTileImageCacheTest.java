@@ -0,0 +1,159 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.tilesources.OsmTileSource;
+import org.openstreetmap.josm.JOSMFixture;
+
+/**
+ * Unit tests of {@link ProcessedTileImageCache} class.
+ */
+public class ProcessedTileImageCacheTest {
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init(true);
+    }
+
+    private static final class ColorProcessor implements ImageProcessor {
+        private volatile int color;
+
+        @Override
+        public BufferedImage process(BufferedImage image) {
+            BufferedImage ret = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            ret.setRGB(0, 0, color);
+            return ret;
+        }
+    }
+
+    /**
+     * Test that images are processed in background once per filter settings.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testProcessing() throws InterruptedException {
+        TMSLayer layer = TMSLayerTest.createTmsLayer();
+        ColorProcessor processor = new ColorProcessor();
+        processor.color = 0x123456;
+        layer.addImageProcessor(processor);
+
+        final Semaphore processed = new Semaphore(0);
+        ProcessedTileImageCache cache = new ProcessedTileImageCache(layer, 10, new Runnable() {
+            @Override
+            public void run() {
+                processed.release();
+            }
+        });
+
+        Tile tile = new Tile(new OsmTileSource.Mapnik(), 1, 1, 3, null);
+        assertNull(cache.getImage(tile));
+        BufferedImage source = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        tile.setImage(source);
+
+        cache.prefetch(tile);
+        assertTrue(processed.tryAcquire(10, TimeUnit.SECONDS));
+        BufferedImage img = cache.getImage(tile);
+        assertEquals(0x123456, img.getRGB(0, 0) & 0xffffff);
+        // same settings, same image
+        assertSame(img, cache.getImage(tile));
+        assertEquals(0, processed.availablePermits());
+
+        // changed settings: previous image is returned until the new one is ready
+        processor.color = 0x654321;
+        layer.imageProcessorsChanged();
+        BufferedImage stale = cache.getImage(tile);
+        assertTrue(stale == img || (stale.getRGB(0, 0) & 0xffffff) == 0x654321);
+        assertTrue(processed.tryAcquire(10, TimeUnit.SECONDS));
+        assertEquals(0x654321, cache.getImage(tile).getRGB(0, 0) & 0xffffff);
+    }
+
+    /**
+     * Test that an image whose processing failed is processed again.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testProcessingFailure() throws InterruptedException {
+        TMSLayer layer = TMSLayerTest.createTmsLayer();
+        final AtomicInteger attempts = new AtomicInteger();
+        final Semaphore retried = new Semaphore(0);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final ColorProcessor processor = new ColorProcessor();
+        processor.color = 0x123456;
+        layer.addImageProcessor(new ImageProcessor() {
+            @Override
+            public BufferedImage process(BufferedImage image) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("test");
+                }
+                // hold the retry until the test has checked the image painted meanwhile
+                retried.release();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return processor.process(image);
+            }
+        });
+        final Semaphore processed = new Semaphore(0);
+        ProcessedTileImageCache cache = new ProcessedTileImageCache(layer, 10, new Runnable() {
+            @Override
+            public void run() {
+                processed.release();
+            }
+        });
+
+        Tile tile = new Tile(new OsmTileSource.Mapnik(), 1, 1, 3, null);
+        BufferedImage source = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        tile.setImage(source);
+        cache.prefetch(tile);
+        // the failed attempt is forgotten, painting the tile processes it again
+        for (int i = 0; i < 100 && !retried.tryAcquire(100, TimeUnit.MILLISECONDS); i++) {
+            assertSame(source, cache.getImage(tile));
+        }
+        assertEquals(2, attempts.get());
+        assertSame(source, cache.getImage(tile));
+        proceed.countDown();
+        assertTrue(processed.tryAcquire(10, TimeUnit.SECONDS));
+        assertEquals(0x123456, cache.getImage(tile).getRGB(0, 0) & 0xffffff);
+    }
+
+    /**
+     * Test that the raw image is painted when the processors do not change it.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testUnchangedImage() throws InterruptedException {
+        TMSLayer layer = TMSLayerTest.createTmsLayer();
+        final Semaphore processed = new Semaphore(0);
+        ProcessedTileImageCache cache = new ProcessedTileImageCache(layer, 10, new Runnable() {
+            @Override
+            public void run() {
+                processed.release();
+            }
+        });
+        Tile tile = new Tile(new OsmTileSource.Mapnik(), 1, 1, 3, null);
+        BufferedImage source = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        tile.setImage(source);
+        cache.prefetch(tile);
+        assertTrue(processed.tryAcquire(10, TimeUnit.SECONDS));
+        assertSame(source, cache.getImage(tile));
+        assertEquals(0, processed.availablePermits());
+    }
+}
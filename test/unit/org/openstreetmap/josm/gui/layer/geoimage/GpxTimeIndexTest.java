@@ -0,0 +1,114 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * Unit tests of {@link GpxTimeIndex} class.
+ */
+public class GpxTimeIndexTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static WayPoint wpt(double lat, double lon, String time, String ele) {
+        WayPoint wp = new WayPoint(new LatLon(lat, lon));
+        if (time != null) {
+            wp.put("time", time);
+            wp.setTime();
+        }
+        if (ele != null) {
+            wp.put("ele", ele);
+        }
+        return wp;
+    }
+
+    private static ImageEntry image(String time) {
+        ImageEntry e = new ImageEntry();
+        e.setExifTime(new Date(DateUtils.tsFromString(time)));
+        e.createTmp();
+        return e;
+    }
+
+    /**
+     * Unit test of {@link GpxTimeIndex#getLastIndexBefore}.
+     */
+    @Test
+    public void testGetLastIndexBefore() {
+        long[] times = {10, 20, 20, 20, 30};
+        assertEquals(-1, GpxTimeIndex.getLastIndexBefore(times, 9));
+        assertEquals(0, GpxTimeIndex.getLastIndexBefore(times, 10));
+        assertEquals(0, GpxTimeIndex.getLastIndexBefore(times, 19));
+        assertEquals(3, GpxTimeIndex.getLastIndexBefore(times, 20));
+        assertEquals(3, GpxTimeIndex.getLastIndexBefore(times, 29));
+        assertEquals(4, GpxTimeIndex.getLastIndexBefore(times, 30));
+        assertEquals(4, GpxTimeIndex.getLastIndexBefore(times, 31));
+        assertEquals(-1, GpxTimeIndex.getLastIndexBefore(new long[0], 0));
+    }
+
+    /**
+     * Test that points without time and segment ends interrupt the interpolation, as do offsets.
+     */
+    @Test
+    public void testMatch() {
+        Collection<Collection<WayPoint>> segs = new ArrayList<>();
+        segs.add(Arrays.asList(
+                wpt(10, 10, "2016-01-03T12:00:00Z", "100"),
+                wpt(10, 11, "2016-01-03T12:00:10Z", "200"),
+                wpt(10, 12, null, null),
+                wpt(10, 13, "2016-01-03T13:00:20+01:00", "1e2")));
+        segs.add(Collections.singletonList(wpt(20, 20, "2016-01-03T12:01:00.000Z", null)));
+        GpxData gpx = new GpxData();
+        gpx.tracks.add(new ImmutableGpxTrack(segs, Collections.<String, Object>emptyMap()));
+        GpxTimeIndex index = GpxTimeIndex.of(gpx);
+        assertEquals(DateUtils.tsFromString("2016-01-03T12:00:00Z"), index.getFirstTime());
+        assertEquals(index.getFirstTime(), GpxTimeIndex.getFirstTime(gpx));
+
+        List<ImageEntry> images = Arrays.asList(
+                image("2016-01-03T11:59:55Z"), // 5 sec before start of track
+                image("2016-01-03T12:00:05Z"), // interpolated
+                image("2016-01-03T12:00:14Z"), // no interpolation across point without time
+                image("2016-01-03T12:00:18Z"), // within 5 sec before point after gap
+                image("2016-01-03T12:00:30Z"), // no interpolation across segments
+                image("2016-01-03T12:01:00Z")); // exact match
+        assertEquals(4, index.match(images, 0));
+        assertEquals(new LatLon(10, 10), images.get(0).tmp.getPos());
+        assertEquals(100, images.get(0).tmp.getElevation(), 0.0);
+        assertEquals(new LatLon(10, 10.5), images.get(1).tmp.getPos());
+        assertEquals(150, images.get(1).tmp.getElevation(), 1e-9);
+        assertNull(images.get(2).tmp.getPos());
+        assertEquals(new LatLon(10, 13), images.get(3).tmp.getPos());
+        assertEquals(100, images.get(3).tmp.getElevation(), 0.0);
+        assertNull(images.get(4).tmp.getPos());
+        assertEquals(new LatLon(20, 20), images.get(5).tmp.getPos());
+        assertEquals(DateUtils.tsFromString("2016-01-03T12:01:00Z"), images.get(5).tmp.getGpsTime().getTime());
+
+        // already matched images are kept, with an offset of 10 seconds the remaining ones match
+        assertEquals(2, index.match(images, 10000));
+        assertEquals(new LatLon(10, 10.4), images.get(2).tmp.getPos());
+        assertEquals(DateUtils.tsFromString("2016-01-03T12:00:04Z"), images.get(2).tmp.getGpsTime().getTime());
+        assertEquals(new LatLon(10, 13), images.get(4).tmp.getPos());
+    }
+}
@@ -0,0 +1,77 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.gui.layer.geoimage.ImageDecoder.DecodedImage;
+
+/**
+ * Unit tests of {@link ImageDecoder} class.
+ */
+public class ImageDecoderTest {
+
+    private static final File ROTATED = new File("data_nodist/exif-example_orientation=6.jpg");
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Unit test of {@link ImageDecoder#getSubsampling}.
+     */
+    @Test
+    public void testGetSubsampling() {
+        assertEquals(1, ImageDecoder.getSubsampling(800, 600, new Dimension(1024, 768)));
+        assertEquals(4, ImageDecoder.getSubsampling(4608, 3456, new Dimension(1024, 768)));
+        assertEquals(6, ImageDecoder.getSubsampling(3456, 4608, new Dimension(1024, 768)));
+    }
+
+    /**
+     * Unit test of {@link ImageDecoder#decode}.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testDecode() throws IOException {
+        DecodedImage img = ImageDecoder.decode(ROTATED, 6, new Dimension(800, 600));
+        assertEquals(1836, img.width);
+        assertEquals(3264, img.height);
+        assertEquals(5, img.subsampling);
+        assertEquals(new Rectangle(0, 0, 1836, 3264), img.region);
+        // dimensions are switched by the orientation
+        assertEquals((1836 + 4) / 5, img.image.getWidth());
+        assertEquals((3264 + 4) / 5, img.image.getHeight());
+    }
+
+    /**
+     * Unit test of {@link ImageDecoder#decodeRegion}.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testDecodeRegion() throws IOException {
+        DecodedImage img = ImageDecoder.decodeRegion(ROTATED, 6, new Rectangle(100, 200, 400, 300), 2);
+        assertEquals(1836, img.width);
+        assertEquals(3264, img.height);
+        assertEquals(2, img.subsampling);
+        assertEquals(new Rectangle(100, 200, 400, 300), img.region);
+        assertEquals(200, img.image.getWidth());
+        assertEquals(150, img.image.getHeight());
+
+        // the region is cropped to the image
+        img = ImageDecoder.decodeRegion(ROTATED, 6, new Rectangle(1700, 3000, 400, 400), 1);
+        assertEquals(new Rectangle(1700, 3000, 136, 264), img.region);
+        assertEquals(136, img.image.getWidth());
+        assertEquals(264, img.image.getHeight());
+    }
+}
@@ -1,11 +1,15 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.layer.geoimage;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.awt.Image;
 import java.io.File;
 
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
 import org.openstreetmap.josm.TestUtils;
 
 /**
@@ -13,6 +17,14 @@ import org.openstreetmap.josm.TestUtils;
  */
 public class ImageEntryTest {
 
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
     /**
      * Non-regression test for ticket <a href="https://josm.openstreetmap.de/ticket/12255">#12255</a>.
      */
@@ -22,4 +34,27 @@ public class ImageEntryTest {
         e.extractExif();
         assertNotNull(e.getExifTime());
     }
+
+    private static Image loadThumbnail(File file) {
+        ImageEntry e = new ImageEntry(file);
+        e.extractExif();
+        e.loadThumbnail();
+        assertNotNull(e.getThumbnail());
+        return e.getThumbnail();
+    }
+
+    /**
+     * Test of {@link ImageEntry#loadThumbnail}, from the embedded EXIF thumbnail or from the image itself.
+     */
+    @Test
+    public void testLoadThumbnail() {
+        // 3264x1836, rotated by 90°, with an embedded thumbnail of 256x144
+        Image thumb = loadThumbnail(new File("data_nodist/exif-example_orientation=6.jpg"));
+        assertEquals(67, thumb.getWidth(null));
+        assertEquals(ThumbsLoader.maxSize, thumb.getHeight(null));
+        // 500x500, without embedded thumbnail
+        thumb = loadThumbnail(new File(TestUtils.getRegressionDataFile(10030, "tile.jpg")));
+        assertEquals(ThumbsLoader.maxSize, thumb.getWidth(null));
+        assertEquals(ThumbsLoader.maxSize, thumb.getHeight(null));
+    }
 }
@@ -6,7 +6,6 @@ import static org.junit.Assert.assertEquals;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.junit.BeforeClass;
@@ -15,7 +14,7 @@ import org.openstreetmap.josm.JOSMFixture;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.gpx.GpxData;
-import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.io.GpxReaderTest;
 import org.openstreetmap.josm.tools.ColorHelper;
 import org.xml.sax.SAXException;
@@ -127,10 +126,10 @@ public class GpxDrawHelperTest {
         final GpxDrawHelper gdh = new GpxDrawHelper(data);
         gdh.readPreferences(layerName);
         gdh.calculateColors();
-        final Iterator<WayPoint> wayPointIterator = data.tracks.iterator().next().getSegments().iterator().next().getWayPoints().iterator();
+        final GpxTrackSegment segment = data.tracks.iterator().next().getSegments().iterator().next();
         final List<String> colorCodes = new ArrayList<>(n);
         while (colorCodes.size() < n) {
-            colorCodes.add(ColorHelper.color2html(wayPointIterator.next().customColoring));
+            colorCodes.add(ColorHelper.color2html(gdh.getColor(segment, colorCodes.size())));
         }
         return colorCodes;
     }
@@ -0,0 +1,226 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+/**
+ * Unit tests of {@link LocalOsmStore} class.
+ */
+public class LocalOsmStoreTest {
+
+    /**
+     * Temporary folder of the store.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static Node node(long id, int version, double lat, double lon) {
+        Node n = new Node(id, version);
+        n.setCoor(new LatLon(lat, lon));
+        return n;
+    }
+
+    /**
+     * Creates nodes 1 and 2 in one tile, node 3 in another tile, way 1 from node 2 to node 3,
+     * and relation 1 with way 1 as member.
+     */
+    private static DataSet createData() {
+        DataSet ds = new DataSet();
+        Node n1 = node(1, 1, 10.01, 20.01);
+        Node n2 = node(2, 1, 10.02, 20.02);
+        Node n3 = node(3, 1, 10.01, 20.31);
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        Way w = new Way(1, 1);
+        w.setNodes(Arrays.asList(n2, n3));
+        ds.addPrimitive(w);
+        Relation r = new Relation(1, 1);
+        r.addMember(new RelationMember("outer", w));
+        ds.addPrimitive(r);
+        ds.dataSources.add(new DataSource(new Bounds(10, 20, 11, 21), "test"));
+        return ds;
+    }
+
+    /**
+     * Tests that an area is read with the complete ways and the relations using its nodes.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadArea() throws Exception {
+        LocalOsmStore store = new LocalOsmStore(folder.getRoot());
+        store.importData(createData(), NullProgressMonitor.INSTANCE);
+
+        Bounds area = new Bounds(10, 20, 10.03, 20.03);
+        assertTrue(store.covers(area));
+        assertFalse(store.covers(new Bounds(9, 20, 10.03, 20.03)));
+
+        DataSet ds = store.read(area, NullProgressMonitor.INSTANCE);
+        assertNotNull(ds.getPrimitiveById(1, OsmPrimitiveType.NODE));
+        Way w = (Way) ds.getPrimitiveById(1, OsmPrimitiveType.WAY);
+        assertNotNull(w);
+        assertFalse(w.hasIncompleteNodes());
+        assertEquals(new LatLon(10.01, 20.31), w.lastNode().getCoor());
+        assertNotNull(ds.getPrimitiveById(1, OsmPrimitiveType.RELATION));
+        assertEquals(Collections.singletonList(area), ds.getDataSourceBounds());
+
+        // a new instance reads the index and the areas from disk
+        store = new LocalOsmStore(folder.getRoot());
+        assertTrue(store.covers(area));
+        ds = store.read(new Bounds(12, 20, 12.03, 20.03), NullProgressMonitor.INSTANCE);
+        assertTrue(ds.allPrimitives().isEmpty());
+    }
+
+    /**
+     * Tests that primitives are read by id, with what they refer to, and nothing else.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadById() throws Exception {
+        LocalOsmStore store = new LocalOsmStore(folder.getRoot());
+        store.importData(createData(), NullProgressMonitor.INSTANCE);
+        store = new LocalOsmStore(folder.getRoot());
+
+        DataSet ds = store.read(Arrays.asList(new SimplePrimitiveId(1, OsmPrimitiveType.RELATION)), NullProgressMonitor.INSTANCE);
+        assertEquals(4, ds.allPrimitives().size());
+        assertNull(ds.getPrimitiveById(1, OsmPrimitiveType.NODE));
+        assertFalse(((Way) ds.getPrimitiveById(1, OsmPrimitiveType.WAY)).hasIncompleteNodes());
+
+        ds = store.read(Arrays.asList(new SimplePrimitiveId(1, OsmPrimitiveType.NODE),
+                new SimplePrimitiveId(42, OsmPrimitiveType.NODE)), NullProgressMonitor.INSTANCE);
+        assertEquals(1, ds.allPrimitives().size());
+    }
+
+    /**
+     * Tests that importing newer data replaces the stored primitives, and keeps the others.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReimport() throws Exception {
+        LocalOsmStore store = new LocalOsmStore(folder.getRoot());
+        store.importData(createData(), NullProgressMonitor.INSTANCE);
+
+        DataSet update = new DataSet();
+        Node n1 = node(1, 2, 10.015, 20.015);
+        n1.put("name", "updated");
+        update.addPrimitive(n1);
+        store.importData(update, NullProgressMonitor.INSTANCE);
+
+        DataSet ds = store.read(new Bounds(10, 20, 10.03, 20.03), NullProgressMonitor.INSTANCE);
+        Node n = (Node) ds.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        assertEquals(2, n.getVersion());
+        assertEquals("updated", n.get("name"));
+        assertNotNull(ds.getPrimitiveById(2, OsmPrimitiveType.NODE));
+        assertNotNull(ds.getPrimitiveById(1, OsmPrimitiveType.WAY));
+    }
+
+    /**
+     * Tests that a stream is imported in one pass, with ways completed by nodes of other tiles when they are read.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testImportStream() throws Exception {
+        String osm = "<osm version='0.6'><bounds minlat='10' minlon='20' maxlat='11' maxlon='21'/>"
+                + "<node id='1' version='1' lat='10.01' lon='20.01'/>"
+                + "<node id='2' version='1' lat='10.02' lon='20.02'/>"
+                + "<node id='3' version='1' lat='10.01' lon='20.31'><tag k='name' v='far'/></node>"
+                + "<way id='1' version='1'><nd ref='2'/><nd ref='3'/></way>"
+                + "<relation id='1' version='1'><member type='way' ref='1' role='outer'/></relation>"
+                // new primitives are not stored
+                + "<node id='-1' lat='10.01' lon='20.01'/><way id='-2'><nd ref='-1'/><nd ref='1'/></way>"
+                + "</osm>";
+        // flush the tiles to disk after each primitive
+        Main.pref.putInteger("local-store.import.buffer-size", 0);
+        try {
+            LocalOsmStore store = new LocalOsmStore(folder.getRoot());
+            assertFalse(store.isImported());
+            store.importStream(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)), NullProgressMonitor.INSTANCE);
+            assertTrue(store.isImported());
+        } finally {
+            Main.pref.put("local-store.import.buffer-size", null);
+        }
+
+        LocalOsmStore store = new LocalOsmStore(folder.getRoot());
+        Bounds area = new Bounds(10, 20, 10.03, 20.03);
+        assertTrue(store.covers(area));
+        DataSet ds = store.read(area, NullProgressMonitor.INSTANCE);
+        Way w = (Way) ds.getPrimitiveById(1, OsmPrimitiveType.WAY);
+        assertNotNull(w);
+        assertFalse(w.hasIncompleteNodes());
+        assertEquals("far", w.lastNode().get("name"));
+        assertNotNull(ds.getPrimitiveById(1, OsmPrimitiveType.RELATION));
+
+        // the far tile only contains node 3, the way is stored in the tiles of its nodes
+        ds = store.readTiles(LocalOsmStore.getTiles(new Bounds(10.01, 20.31, 10.01, 20.31)), NullProgressMonitor.INSTANCE);
+        assertNotNull(ds.getPrimitiveById(1, OsmPrimitiveType.WAY));
+        assertNull(ds.getPrimitiveById(1, OsmPrimitiveType.NODE));
+
+        // importing a newer version replaces the stored primitives
+        store.importStream(new ByteArrayInputStream(("<osm version='0.6'>"
+                + "<node id='3' version='2' lat='10.01' lon='20.32'/></osm>").getBytes(StandardCharsets.UTF_8)),
+                NullProgressMonitor.INSTANCE);
+        ds = store.read(area, NullProgressMonitor.INSTANCE);
+        Node n = ((Way) ds.getPrimitiveById(1, OsmPrimitiveType.WAY)).lastNode();
+        assertEquals(2, n.getVersion());
+        assertEquals(new LatLon(10.01, 20.32), n.getCoor());
+    }
+
+    /**
+     * Tests that data with local changes is rejected if requested, since the changes would be lost.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testImportStreamRejectChanges() throws Exception {
+        String osm = "<osm version='0.6'><node id='1' version='1' lat='10.01' lon='20.01'/>"
+                + "<node id='2' version='1' action='modify' lat='10.02' lon='20.02'/></osm>";
+        LocalOsmStore store = new LocalOsmStore(folder.getRoot());
+        try {
+            store.importStream(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)), true,
+                    NullProgressMonitor.INSTANCE);
+            fail("Local changes must be rejected");
+        } catch (LocalOsmStore.LocalChangesException e) {
+            assertFalse(store.isImported());
+        }
+
+        // ignored otherwise
+        store.importStream(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)), false,
+                NullProgressMonitor.INSTANCE);
+        assertTrue(store.isImported());
+    }
+}
@@ -0,0 +1,163 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit tests of the packaging of requests by {@link MultiFetchServerObjectReader}, against a local stand-in
+ * for the OSM API.
+ */
+public class MultiFetchServerObjectReaderBatchingTest {
+
+    private HttpServer server;
+    private final Set<Long> missing = new HashSet<>(Arrays.asList(17L, 500L));
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger maxUrlLength = new AtomicInteger();
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Starts a local server which replies nodes with id 1 to 1000, except 17 and 500.
+     * @throws IOException if the server cannot be started
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String uri = "http://localhost:" + server.getAddress().getPort() + exchange.getRequestURI();
+                String query = exchange.getRequestURI().getQuery();
+                StringBuilder response = new StringBuilder("<osm version=\"0.6\">");
+                int code = 200;
+                if (exchange.getRequestURI().getPath().endsWith("/capabilities")) {
+                    response.append("<api><version minimum=\"0.6\" maximum=\"0.6\"/></api>");
+                } else if (query != null && query.startsWith("nodes=")) {
+                    requests.incrementAndGet();
+                    queries.add(query);
+                    synchronized (maxUrlLength) {
+                        maxUrlLength.set(Math.max(maxUrlLength.get(), uri.length()));
+                    }
+                    for (String id : query.substring("nodes=".length()).split(",")) {
+                        if (missing.contains(Long.valueOf(id)) || Long.parseLong(id) > 1000) {
+                            code = 404;
+                        }
+                        response.append("<node id=\"").append(id).append("\" version=\"1\" lat=\"1\" lon=\"1\"/>");
+                    }
+                } else {
+                    code = 404;
+                }
+                byte[] bytes = (code == 200 ? response.append("</osm>").toString() : "Not found").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Connection", "close");
+                exchange.sendResponseHeaders(code, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        Main.pref.put("osm-server.url", "http://localhost:" + server.getAddress().getPort() + "/api");
+    }
+
+    /**
+     * Stops the local server and restores the preferences.
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static List<PrimitiveId> nodeIds(int count) {
+        List<PrimitiveId> ids = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            ids.add(new SimplePrimitiveId(i, OsmPrimitiveType.NODE));
+        }
+        return ids;
+    }
+
+    /**
+     * Tests that packages with missing primitives are bisected, instead of fetching each primitive on its own.
+     * @throws OsmTransferException if an error occurs
+     */
+    @Test
+    public void testBisectMissing() throws OsmTransferException {
+        MultiFetchServerObjectReader reader = MultiFetchServerObjectReader.create(false);
+        reader.appendIds(nodeIds(1000));
+        DataSet ds = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        assertEquals(998, ds.getNodes().size());
+        assertEquals(new HashSet<>(Arrays.<PrimitiveId>asList(new SimplePrimitiveId(17, OsmPrimitiveType.NODE),
+                new SimplePrimitiveId(500, OsmPrimitiveType.NODE))), reader.getMissingPrimitives());
+        assertTrue(requests.toString(), requests.get() < 60);
+    }
+
+    /**
+     * Tests that packages are limited by the length of the request URL.
+     * @throws OsmTransferException if an error occurs
+     */
+    @Test
+    public void testMaxUrlLength() throws OsmTransferException {
+        Main.pref.putInteger("osm.multi-fetch.max-url-length", 200);
+        missing.clear();
+        MultiFetchServerObjectReader reader = MultiFetchServerObjectReader.create(false);
+        reader.appendIds(nodeIds(1000));
+        DataSet ds = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        assertEquals(1000, ds.getNodes().size());
+        assertTrue(maxUrlLength.toString(), maxUrlLength.get() <= 200);
+        assertTrue(requests.toString(), requests.get() < 40);
+    }
+
+    /**
+     * Tests that primitives are fetched in the order in which their ids were appended.
+     * @throws OsmTransferException if an error occurs
+     */
+    @Test
+    public void testFetchOrder() throws OsmTransferException {
+        Main.pref.putInteger("osm.download.threads", 1);
+        missing.clear();
+        List<PrimitiveId> ids = nodeIds(1000);
+        Collections.reverse(ids);
+        MultiFetchServerObjectReader reader = MultiFetchServerObjectReader.create(false);
+        reader.appendIds(ids);
+        reader.parseOsm(NullProgressMonitor.INSTANCE);
+        assertTrue(queries.toString(), queries.get(0).startsWith("nodes=1000,999,998,"));
+    }
+}
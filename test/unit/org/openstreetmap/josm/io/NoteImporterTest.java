@@ -1,15 +1,24 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 
 import org.junit.Test;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.notes.Note;
 import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.NoteLayer;
+import org.xml.sax.SAXException;
 
 /**
  * Unit tests of {@link NoteImporter} class.
@@ -31,4 +40,31 @@ public class NoteImporterTest {
         assertTrue(new NoteImporter().importDataHandleExceptions(
                 new File(TestUtils.getRegressionDataFile(12531, "notes.osn")), null));
     }
+
+    /**
+     * Unit test of the import of the notes of an area from a compressed notes dump.
+     * @throws IOException if any I/O error occurs
+     * @throws SAXException if any SAX parsing error occurs
+     */
+    @Test
+    public void testLoadFilteredBzip2() throws IOException, SAXException {
+        File file = File.createTempFile("planet-notes-extract", ".osn.bz2");
+        try {
+            try (OutputStream out = Compression.getCompressedFileOutputStream(file)) {
+                Files.copy(new File(TestUtils.getTestDataRoot() + "planet-notes-extract.osn").toPath(), out);
+            }
+            NoteImporter importer = new NoteImporter();
+            // open notes of Tarnów, Poland
+            importer.setFilter(NoteImporter.createFilter(new Bounds(49.85, 20.98, 49.86, 20.99), false));
+            try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+                NoteLayer layer = importer.loadLayer(in, file, file.getName(), null);
+                assertEquals(1, layer.getNoteData().getNotes().size());
+                Note note = layer.getNoteData().getNotes().iterator().next();
+                assertEquals(289382, note.getId());
+                assertEquals(Note.State.open, note.getState());
+            }
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
 }
@@ -3,16 +3,22 @@ package org.openstreetmap.josm.io;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.notes.Note;
 import org.openstreetmap.josm.data.notes.Note.State;
 import org.openstreetmap.josm.data.notes.NoteComment;
 import org.openstreetmap.josm.data.notes.NoteComment.Action;
 import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.io.NoteReader.NoteHandler;
 import org.openstreetmap.josm.tools.date.DateUtils;
 import org.xml.sax.SAXException;
 
@@ -99,4 +105,54 @@ public class NoteReaderTest {
             "</note>").parse();
         // CHECKSTYLE.ON: LineLength
     }
+
+    private static List<List<Note>> parseExtract(Bounds bounds, boolean includeClosed, int batchSize, final int maxBatches)
+            throws SAXException, IOException {
+        final List<List<Note>> batches = new ArrayList<>();
+        try (InputStream in = new FileInputStream(TestUtils.getTestDataRoot() + "planet-notes-extract.osn")) {
+            new NoteReader(in).parse(NoteImporter.createFilter(bounds, includeClosed), batchSize, new NoteHandler() {
+                @Override
+                public boolean notesParsed(List<Note> notes) {
+                    batches.add(notes);
+                    return batches.size() < maxBatches;
+                }
+            });
+        }
+        return batches;
+    }
+
+    /**
+     * Unit test of {@link NoteReader#parse(org.openstreetmap.josm.tools.Predicate, int, NoteHandler)}.
+     * @throws SAXException if any SAX parsing error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testParseFiltered() throws SAXException, IOException {
+        // all notes, in batches
+        List<List<Note>> batches = parseExtract(null, true, 4, Integer.MAX_VALUE);
+        assertEquals(3, batches.size());
+        assertEquals(4, batches.get(0).size());
+        assertEquals(4, batches.get(1).size());
+        assertEquals(1, batches.get(2).size());
+        assertEquals(4, batches.get(0).get(0).getId());
+        assertEquals(2, batches.get(0).get(0).getComments().size());
+
+        // open notes only
+        batches = parseExtract(null, false, 100, Integer.MAX_VALUE);
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+        for (Note note : batches.get(0)) {
+            assertEquals(State.open, note.getState());
+            assertEquals(false, note.getComments().isEmpty());
+        }
+
+        // Tarnów, Poland
+        batches = parseExtract(new Bounds(49.85, 20.98, 49.86, 20.99), true, 100, Integer.MAX_VALUE);
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+
+        // stopped by the handler
+        batches = parseExtract(null, true, 2, 2);
+        assertEquals(2, batches.size());
+    }
 }
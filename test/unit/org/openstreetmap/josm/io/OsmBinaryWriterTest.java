@@ -0,0 +1,146 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.conflict.Conflict;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+/**
+ * Unit tests of {@link OsmBinaryWriter} and {@link OsmBinaryReader} classes.
+ */
+public class OsmBinaryWriterTest {
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Tests that the data, the state of the primitives, the data sources and the conflicts of a layer are read back.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadWrite() throws Exception {
+        DataSet ds = new DataSet();
+        ds.setUploadDiscouraged(true);
+        ds.dataSources.add(new DataSource(new Bounds(10, 20, 11, 21), "test"));
+        Node n1 = new Node(1, 3);
+        n1.setCoor(new LatLon(10.12345678901, -20.5));
+        n1.put("name", "Ça va");
+        n1.put("amenity", "bench");
+        n1.setUser(User.createOsmUser(42, "mapper"));
+        n1.setChangesetId(1000);
+        n1.setRawTimestamp(1400000000);
+        n1.setModified(true);
+        Node n2 = new Node(new LatLon(10.5, 20.5));
+        n2.put("amenity", "bench");
+        Node deleted = new Node(2, 1);
+        deleted.setCoor(new LatLon(10.6, 20.6));
+        deleted.setDeleted(true);
+        Node newDeleted = new Node(new LatLon(10.7, 20.7));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(deleted);
+        ds.addPrimitive(newDeleted);
+        newDeleted.setDeleted(true);
+        Node incomplete = new Node(3);
+        ds.addPrimitive(incomplete);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2, incomplete));
+        ds.addPrimitive(w);
+        Relation r = new Relation(5, 2);
+        r.addMember(new RelationMember("outer", w));
+        r.addMember(new RelationMember("", n1));
+        ds.addPrimitive(r);
+        OsmDataLayer layer = new OsmDataLayer(ds, "test", null);
+
+        Node theirN1 = new Node(1, 4);
+        theirN1.setCoor(new LatLon(10, 20));
+        theirN1.put("name", "theirs");
+        layer.getConflicts().add(n1, theirN1);
+        Relation theirR = new Relation(5, 3);
+        theirR.addMember(new RelationMember("inner", new Way(7)));
+        layer.getConflicts().add(new Conflict<>(r, theirR, true));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new OsmBinaryWriter(out).writeLayer(layer);
+        OsmBinaryReader reader = new OsmBinaryReader();
+        DataSet read = reader.doParseDataSet(new ByteArrayInputStream(out.toByteArray()), NullProgressMonitor.INSTANCE);
+
+        assertTrue(read.isUploadDiscouraged());
+        assertEquals("0.6", read.getVersion());
+        assertEquals(1, read.dataSources.size());
+        DataSource source = read.dataSources.iterator().next();
+        assertEquals(new Bounds(10, 20, 11, 21), source.bounds);
+        assertEquals("test", source.origin);
+
+        Node rn1 = (Node) read.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        assertEquals(n1.getCoor(), rn1.getCoor());
+        assertEquals(n1.getKeys(), rn1.getKeys());
+        assertEquals(3, rn1.getVersion());
+        assertEquals(1000, rn1.getChangesetId());
+        assertEquals(1400000000, rn1.getRawTimestamp());
+        assertEquals(User.createOsmUser(42, "mapper"), rn1.getUser());
+        assertTrue(rn1.isModified());
+        assertTrue(read.getPrimitiveById(2, OsmPrimitiveType.NODE).isDeleted());
+        // the new deleted node is not written
+        assertEquals(4, read.getNodes().size());
+
+        Way rw = read.getWays().iterator().next();
+        assertTrue(rw.isNew());
+        assertEquals(3, rw.getNodesCount());
+        assertEquals(rn1, rw.firstNode());
+        assertTrue(rw.getNode(1).isNew());
+        assertEquals("bench", rw.getNode(1).get("amenity"));
+        assertTrue(rw.lastNode().isIncomplete());
+        assertEquals(3, rw.lastNode().getId());
+
+        Relation rr = (Relation) read.getPrimitiveById(5, OsmPrimitiveType.RELATION);
+        assertEquals(2, rr.getVersion());
+        assertEquals(rw, rr.getMember(0).getMember());
+        assertEquals("outer", rr.getMember(0).getRole());
+        assertEquals(rn1, rr.getMember(1).getMember());
+
+        assertEquals(2, reader.getConflicts().size());
+        Conflict<?> c = reader.getConflicts().getConflictForMy(rn1);
+        assertNotNull(c);
+        assertFalse(c.isMyDeleted());
+        assertNull(c.getTheir().getDataSet());
+        assertEquals(4, c.getTheir().getVersion());
+        assertEquals("theirs", c.getTheir().get("name"));
+        c = reader.getConflicts().getConflictForMy(rr);
+        assertTrue(c.isMyDeleted());
+        RelationMember m = ((Relation) c.getTheir()).getMember(0);
+        assertEquals("inner", m.getRole());
+        assertEquals(7, m.getUniqueId());
+        assertTrue(m.getMember().isIncomplete());
+        // the primitives of the data set are not referred to by the primitives of the conflicts
+        assertEquals(2, rn1.getReferrers().size());
+    }
+}
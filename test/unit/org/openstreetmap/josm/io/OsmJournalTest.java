@@ -0,0 +1,154 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+
+/**
+ * Unit tests of {@link OsmJournal} class.
+ */
+public class OsmJournalTest {
+
+    /**
+     * Temporary folder of the files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static void write(DataSet ds, File file) throws IOException {
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(new OutputStreamWriter(
+                Compression.getCompressedFileOutputStream(file), StandardCharsets.UTF_8)), false, ds.getVersion())) {
+            w.header();
+            w.writeContent(ds);
+            w.footer();
+        }
+    }
+
+    private static DataSet read(File file) throws Exception {
+        try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+            return OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    /**
+     * Tests that the records are applied in order to the snapshot, with the ids of the new primitives in the files,
+     * and that an incomplete record is ignored.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testApply() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(1, 1);
+        n1.setCoor(new LatLon(10, 20));
+        Node a = new Node(new LatLon(10.1, 20.1));
+        Node b = new Node(new LatLon(10.2, 20.2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(a);
+        ds.addPrimitive(b);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(a, b));
+        ds.addPrimitive(w);
+        File snapshot = folder.newFile("layer.osm");
+        write(ds, snapshot);
+
+        OsmJournal journal = new OsmJournal(new File(folder.getRoot(), "layer.journal"));
+        assertEquals(0, journal.length());
+        // no record, nothing to do
+        journal.applyTo(snapshot);
+
+        n1.put("name", "changed");
+        Node c = new Node(new LatLon(10.3, 20.3));
+        ds.addPrimitive(c);
+        journal.append(Arrays.asList(n1, c), Collections.<PrimitiveId>emptyList());
+
+        PrimitiveId aId = a.getPrimitiveId();
+        w.setNodes(Arrays.asList(b, c));
+        ds.removePrimitive(a);
+        journal.append(Collections.singletonList(w), Collections.singletonList(aId));
+
+        // c is uploaded, the way refers to its new id
+        PrimitiveId cId = c.getPrimitiveId();
+        c.setOsmId(100, 1);
+        journal.append(Arrays.asList(c, w), Collections.singletonList(cId));
+        long length = journal.length();
+
+        // the last record is only partially written
+        try (FileOutputStream out = new FileOutputStream(journal.getFile(), true)) {
+            out.write("record 1000 node:1\n<?xml".getBytes(StandardCharsets.UTF_8));
+        }
+        assertTrue(journal.length() > length);
+
+        journal.applyTo(snapshot);
+        assertFalse(journal.getFile().exists());
+
+        DataSet recovered = read(snapshot);
+        assertEquals(3, recovered.getNodes().size());
+        assertEquals("changed", recovered.getPrimitiveById(1, OsmPrimitiveType.NODE).get("name"));
+        assertEquals(1, recovered.getWays().size());
+        Way rw = recovered.getWays().iterator().next();
+        assertTrue(rw.isNew());
+        assertEquals(2, rw.getNodesCount());
+        assertEquals(new LatLon(10.2, 20.2), rw.firstNode().getCoor());
+        assertTrue(rw.firstNode().isNew());
+        assertEquals(100, rw.lastNode().getId());
+        assertEquals(1, recovered.getPrimitiveById(100, OsmPrimitiveType.NODE).getVersion());
+    }
+
+    /**
+     * Tests that a compressed snapshot is still compressed after the journal has been applied.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testApplyCompressed() throws Exception {
+        DataSet ds = new DataSet();
+        Node n = new Node(new LatLon(10, 20));
+        ds.addPrimitive(n);
+        File snapshot = folder.newFile("layer.osm.gz");
+        write(ds, snapshot);
+
+        OsmJournal journal = new OsmJournal(new File(folder.getRoot(), "layer.journal"));
+        n.put("name", "changed");
+        journal.append(Collections.singletonList(n), Collections.<PrimitiveId>emptyList());
+        journal.applyTo(snapshot);
+
+        try (InputStream in = new FileInputStream(snapshot)) {
+            // magic number of gzip
+            assertEquals(0x1f, in.read());
+            assertEquals(0x8b, in.read());
+        }
+        assertEquals("changed", read(snapshot).getNodes().iterator().next().get("name"));
+    }
+}
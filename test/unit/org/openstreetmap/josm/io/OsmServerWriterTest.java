@@ -0,0 +1,291 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.actions.upload.CyclicUploadDependencyException;
+import org.openstreetmap.josm.data.APIDataSet;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Changeset;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.io.UploadStrategy;
+import org.openstreetmap.josm.gui.io.UploadStrategySpecification;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit tests of {@link OsmServerWriter} class, against a local stand-in for the OSM API.
+ */
+public class OsmServerWriterTest {
+
+    private FakeApi api;
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Starts the local API server.
+     * @throws IOException if the server cannot be started
+     */
+    @Before
+    public void setUp() throws IOException {
+        api = new FakeApi();
+        Main.pref.put("osm-server.url", "http://localhost:" + api.server.getAddress().getPort() + "/api");
+        Main.pref.put("osm-server.auth-method", "basic");
+        Main.pref.put("osm-server.username", "test");
+        Main.pref.put("osm-server.password", "test");
+        Main.pref.putInteger("osm-server.max-num-retries", 0);
+        Main.pref.putInteger("osm-server.upload-chunks.threads", 3);
+    }
+
+    /**
+     * Stops the local API server and restores the preferences.
+     */
+    @After
+    public void tearDown() {
+        api.server.stop(0);
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Tests a chunked upload of new ways and relations, and of deletions. Chunks are uploaded concurrently,
+     * but never before the chunks they depend on.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testUploadInChunks() throws Exception {
+        List<OsmPrimitive> primitives = createChanges();
+        OsmServerWriter writer = new OsmServerWriter();
+        writer.uploadOsm(new UploadStrategySpecification().setStrategy(UploadStrategy.CHUNKED_DATASET_STRATEGY).setChunkSize(5),
+                primitives, new Changeset(), NullProgressMonitor.INSTANCE);
+
+        assertEquals(api.errors.toString(), 0, api.errors.size());
+        assertEquals(primitives.size(), writer.getProcessedPrimitives().size());
+        assertTrue(api.maxConcurrentUploads.get() > 1);
+        for (OsmPrimitive p : primitives) {
+            assertFalse(p.toString(), p.isNew());
+        }
+    }
+
+    /**
+     * Tests that a chunk whose upload failed with a server error is uploaded again.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRetryChunk() throws Exception {
+        Main.pref.putInteger("osm-server.upload-chunks.retries", 1);
+        api.failUpload = 2;
+        List<OsmPrimitive> primitives = createChanges();
+        OsmServerWriter writer = new OsmServerWriter();
+        writer.uploadOsm(new UploadStrategySpecification().setStrategy(UploadStrategy.CHUNKED_DATASET_STRATEGY).setChunkSize(5),
+                primitives, new Changeset(), NullProgressMonitor.INSTANCE);
+
+        assertEquals(api.errors.toString(), 0, api.errors.size());
+        assertEquals(primitives.size(), writer.getProcessedPrimitives().size());
+        assertEquals((primitives.size() + 4) / 5 + 1, api.uploads.get());
+    }
+
+    /**
+     * Creates 20 new nodes, 8 new ways, 2 new relations, and deletes an existing way and its nodes.
+     */
+    private static List<OsmPrimitive> createChanges() throws CyclicUploadDependencyException {
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Node n = new Node(new LatLon(i, i));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Way w = new Way();
+            w.setNodes(Arrays.asList(nodes.get(i), nodes.get(i + 12)));
+            ds.addPrimitive(w);
+            ways.add(w);
+        }
+        for (int i = 0; i < 2; i++) {
+            Relation r = new Relation();
+            r.addMember(new RelationMember("", ways.get(i)));
+            r.addMember(new RelationMember("", nodes.get(19 - i)));
+            ds.addPrimitive(r);
+        }
+        Node n1 = new Node(1, 1);
+        Node n2 = new Node(2, 1);
+        n1.setCoor(LatLon.ZERO);
+        n2.setCoor(LatLon.ZERO);
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        Way w = new Way(1, 1);
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(w);
+        w.setDeleted(true);
+        n1.setDeleted(true);
+        n2.setDeleted(true);
+
+        APIDataSet apiDataSet = new APIDataSet(ds);
+        apiDataSet.adjustRelationUploadOrder();
+        return apiDataSet.getPrimitives();
+    }
+
+    /**
+     * A minimal OSM API which checks that uploads only refer to primitives which exist on the server.
+     */
+    private static class FakeApi implements HttpHandler {
+        private final HttpServer server;
+        private final Set<String> existing = new HashSet<>(Arrays.asList("node1", "node2", "way1"));
+        private final Map<String, Set<String>> referrers = new HashMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private final AtomicInteger activeUploads = new AtomicInteger();
+        private final AtomicInteger maxConcurrentUploads = new AtomicInteger();
+        private final AtomicInteger uploads = new AtomicInteger();
+        private volatile int failUpload;
+        private long nextId = 100;
+
+        FakeApi() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", this);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            referrers.put("node1", new HashSet<>(Arrays.asList("way1")));
+            referrers.put("node2", new HashSet<>(Arrays.asList("way1")));
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            String response;
+            int code = 200;
+            if (path.endsWith("/capabilities")) {
+                response = "<osm version=\"0.6\"><api><version minimum=\"0.6\" maximum=\"0.6\"/>" +
+                        "<changesets maximum_elements=\"10000\"/></api></osm>";
+            } else if (path.endsWith("/changeset/create")) {
+                response = "1";
+            } else if (path.endsWith("/upload")) {
+                int upload = uploads.incrementAndGet();
+                maxConcurrentUploads.set(Math.max(maxConcurrentUploads.get(), activeUploads.incrementAndGet()));
+                try {
+                    Thread.sleep(100);
+                    if (upload == failUpload) {
+                        code = 503;
+                        response = "Service unavailable";
+                    } else {
+                        response = processUpload(exchange.getRequestBody());
+                    }
+                } catch (Exception e) {
+                    code = 400;
+                    response = e.toString();
+                    synchronized (this) {
+                        errors.add(response);
+                    }
+                } finally {
+                    activeUploads.decrementAndGet();
+                }
+            } else {
+                code = 404;
+                response = "";
+            }
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            // like the OSM API, so that the client does not try to reuse the connection
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private synchronized String processUpload(InputStream in) throws Exception {
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+            StringBuilder result = new StringBuilder("<diffResult version=\"0.6\">");
+            Map<String, String> placeholders = new HashMap<>();
+            NodeList actions = doc.getDocumentElement().getChildNodes();
+            for (int i = 0; i < actions.getLength(); i++) {
+                if (!(actions.item(i) instanceof Element)) continue;
+                Element action = (Element) actions.item(i);
+                NodeList elements = action.getChildNodes();
+                for (int j = 0; j < elements.getLength(); j++) {
+                    if (!(elements.item(j) instanceof Element)) continue;
+                    Element e = (Element) elements.item(j);
+                    String type = e.getTagName();
+                    String id = e.getAttribute("id");
+                    if ("delete".equals(action.getTagName())) {
+                        Set<String> refs = referrers.get(type + id);
+                        if (refs != null && !refs.isEmpty())
+                            throw new IllegalStateException(type + id + " still used by " + refs);
+                        existing.remove(type + id);
+                        for (Set<String> r : referrers.values()) {
+                            r.remove(type + id);
+                        }
+                        result.append('<').append(type).append(" old_id=\"").append(id).append("\"/>");
+                        continue;
+                    }
+                    String newId = "create".equals(action.getTagName()) ? Long.toString(nextId++) : id;
+                    placeholders.put(type + id, type + newId);
+                    existing.add(type + newId);
+                    List<String> refs = new ArrayList<>();
+                    NodeList nds = e.getElementsByTagName("nd");
+                    for (int k = 0; k < nds.getLength(); k++) {
+                        refs.add("node" + ((Element) nds.item(k)).getAttribute("ref"));
+                    }
+                    NodeList members = e.getElementsByTagName("member");
+                    for (int k = 0; k < members.getLength(); k++) {
+                        Element m = (Element) members.item(k);
+                        refs.add(m.getAttribute("type") + m.getAttribute("ref"));
+                    }
+                    for (String ref : refs) {
+                        String resolved = placeholders.containsKey(ref) ? placeholders.get(ref) : ref;
+                        if (!existing.contains(resolved))
+                            throw new IllegalStateException(type + id + " refers to missing " + ref);
+                        if (!referrers.containsKey(resolved)) {
+                            referrers.put(resolved, new HashSet<String>());
+                        }
+                        referrers.get(resolved).add(type + newId);
+                    }
+                    result.append('<').append(type).append(" old_id=\"").append(id)
+                          .append("\" new_id=\"").append(newId).append("\" new_version=\"1\"/>");
+                }
+            }
+            return result.append("</diffResult>").toString();
+        }
+    }
+}
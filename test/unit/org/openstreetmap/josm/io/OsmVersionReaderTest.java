@@ -0,0 +1,75 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+
+/**
+ * Unit tests of {@link OsmVersionReader} class.
+ */
+public class OsmVersionReaderTest {
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static Map<PrimitiveId, Integer> parse(String xml) throws IllegalDataException {
+        return OsmVersionReader.parseVersions(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Tests that the versions of nodes, ways and relations are read, and that their content is skipped.
+     * @throws IllegalDataException if the data cannot be parsed
+     */
+    @Test
+    public void testParseVersions() throws IllegalDataException {
+        Map<PrimitiveId, Integer> versions = parse("<?xml version='1.0' encoding='UTF-8'?>" +
+                "<osm version='0.6' generator='test'>" +
+                "<node id='1' version='3' lat='1' lon='2'><tag k='name' v='node'/></node>" +
+                "<node id='2' version='1' visible='false'/>" +
+                "<way id='1' version='7'><nd ref='1'/><nd ref='2'/></way>" +
+                "<relation id='1' version='2'><member type='node' ref='1' role=''/>" +
+                "<member type='relation' ref='5' role=''/></relation>" +
+                "<node id='9' lat='1' lon='2'/>" +
+                "</osm>");
+        Map<PrimitiveId, Integer> expected = new HashMap<>();
+        expected.put(new SimplePrimitiveId(1, OsmPrimitiveType.NODE), 3);
+        expected.put(new SimplePrimitiveId(2, OsmPrimitiveType.NODE), 1);
+        expected.put(new SimplePrimitiveId(1, OsmPrimitiveType.WAY), 7);
+        expected.put(new SimplePrimitiveId(1, OsmPrimitiveType.RELATION), 2);
+        assertEquals(expected, versions);
+    }
+
+    /**
+     * Tests that an invalid version is rejected.
+     * @throws IllegalDataException always
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testInvalidVersion() throws IllegalDataException {
+        parse("<osm version='0.6'><node id='1' version='x'/></osm>");
+    }
+
+    /**
+     * Tests that malformed XML is rejected.
+     * @throws IllegalDataException always
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testMalformedXml() throws IllegalDataException {
+        parse("<osm version='0.6'><node id='1' version='1'></osm>");
+    }
+}
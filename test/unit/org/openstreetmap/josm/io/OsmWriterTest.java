@@ -3,13 +3,20 @@ package org.openstreetmap.josm.io;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -41,4 +48,61 @@ public class OsmWriterTest {
 
         assertEquals("[-3, -12, -20, -9223372036854775808, 0, 2, 12, 65, 9223372036854775807]", idsAsString);
     }
+
+    private static String write(NodeData n) {
+        StringWriter sw = new StringWriter();
+        OsmWriter writer = OsmWriterFactory.createOsmWriter(new PrintWriter(sw), true, OsmWriter.DEFAULT_API_VERSION);
+        writer.visit(n);
+        writer.flush();
+        return sw.toString();
+    }
+
+    /**
+     * Tests that coordinates are written like {@link LatLon#cDdHighPecisionFormatter} formats them.
+     */
+    @Test
+    public void testCoordinates() {
+        List<Double> values = new ArrayList<>(Arrays.asList(0.0, -0.0, 1.0, -1.0, 0.5, -179.99999999999, 180.0, 90.0,
+                1e-12, -1e-12, 5e-12, 0.000000000015, 12.345678901234, 1234567.5, 1e300));
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            values.add(random.nextDouble() * 360 - 180);
+            values.add(Math.round(random.nextDouble() * 1e7) / 1e7);
+        }
+        for (double value : values) {
+            NodeData n = new NodeData();
+            n.setId(1);
+            n.setCoor(new LatLon(value, -value));
+            String expected = "<node id='1' visible='true' lat='" + LatLon.cDdHighPecisionFormatter.format(value)
+                    + "' lon='" + LatLon.cDdHighPecisionFormatter.format(-value) + "' />";
+            assertEquals(expected, write(n).trim());
+        }
+    }
+
+    /**
+     * Tests that tags and roles are escaped, and tags are sorted by key.
+     */
+    @Test
+    public void testEscaping() {
+        NodeData n = new NodeData();
+        n.setId(-1);
+        n.put("name", "<a & \"b\">\t'c'\n");
+        n.put("amenity", "bench");
+        String nl = System.lineSeparator();
+        assertEquals("  <node id='-1' visible='true'>" + nl
+                + "    <tag k='amenity' v='bench' />" + nl
+                + "    <tag k='name' v='&lt;a &amp; &quot;b&quot;&gt;&#x9;&apos;c&apos;&#xA;' />" + nl
+                + "  </node>" + nl, write(n));
+
+        RelationData r = new RelationData();
+        r.setId(Long.MIN_VALUE);
+        r.setMembers(Arrays.asList(new RelationMemberData("in&out", OsmPrimitiveType.WAY, 12)));
+        StringWriter sw = new StringWriter();
+        OsmWriter writer = OsmWriterFactory.createOsmWriter(new PrintWriter(sw), true, OsmWriter.DEFAULT_API_VERSION);
+        writer.visit(r);
+        writer.flush();
+        assertEquals("  <relation id='-9223372036854775808' visible='true'>" + nl
+                + "    <member type='way' ref='12' role='in&amp;out' />" + nl
+                + "  </relation>" + nl, sw.toString());
+    }
 }
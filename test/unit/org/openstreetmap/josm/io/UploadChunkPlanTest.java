@@ -0,0 +1,116 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Unit tests of {@link UploadChunkPlan} class.
+ */
+public class UploadChunkPlanTest {
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static Node newNode() {
+        return new Node(LatLon.ZERO);
+    }
+
+    private static Way newWay(Node... nodes) {
+        Way w = new Way();
+        w.setNodes(Arrays.asList(nodes));
+        return w;
+    }
+
+    private static <T extends OsmPrimitive> T deleted(T p) {
+        p.setDeleted(true);
+        return p;
+    }
+
+    /**
+     * Tests that chunks of new nodes are independent, and that ways wait for the chunks of their new nodes.
+     */
+    @Test
+    public void testNewPrimitives() {
+        Node n1 = newNode();
+        Node n2 = newNode();
+        Node n3 = newNode();
+        Node n4 = newNode();
+        Node existing = new Node(1, 1);
+        Way w1 = newWay(n1, existing);
+        Way w2 = newWay(n3, n4);
+        Relation r = new Relation();
+        r.addMember(new RelationMember("", w1));
+        UploadChunkPlan plan = UploadChunkPlan.create(Arrays.asList(n1, n2, n3, n4, w1, w2, r), 2);
+        assertEquals(4, plan.size());
+        assertEquals(Collections.emptySet(), plan.getDependencies(0));
+        assertEquals(Collections.emptySet(), plan.getDependencies(1));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1)), plan.getDependencies(2));
+        assertEquals(Collections.singleton(2), plan.getDependencies(3));
+    }
+
+    /**
+     * Tests that deletions are uploaded after other changes, relations before ways before nodes.
+     */
+    @Test
+    public void testDeletions() {
+        Node modified = new Node(1, 1);
+        modified.setModified(true);
+        Relation r1 = deleted(new Relation(2, 1));
+        Relation r2 = deleted(new Relation(3, 1));
+        Way w1 = deleted(new Way(4, 1));
+        Way w2 = deleted(new Way(5, 1));
+        Node n1 = deleted(new Node(6, 1));
+        Node n2 = deleted(new Node(7, 1));
+        UploadChunkPlan plan = UploadChunkPlan.create(Arrays.<OsmPrimitive>asList(modified, r1, r2, w1, w2, n1, n2), 1);
+        assertEquals(7, plan.size());
+        assertEquals(Collections.emptySet(), plan.getDependencies(0));
+        assertEquals(Collections.singleton(0), plan.getDependencies(1));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1)), plan.getDependencies(2));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), plan.getDependencies(3));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), plan.getDependencies(4));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4)), plan.getDependencies(5));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4)), plan.getDependencies(6));
+
+        boolean[] uploaded = new boolean[7];
+        uploaded[0] = uploaded[1] = uploaded[2] = true;
+        assertEquals(true, plan.isReady(4, uploaded));
+        assertEquals(false, plan.isReady(5, uploaded));
+    }
+
+    /**
+     * Tests that primitives which are not in upload order are uploaded chunk after chunk.
+     */
+    @Test
+    public void testUnordered() {
+        Node n1 = newNode();
+        Node n2 = newNode();
+        Way w = newWay(n1, n2);
+        List<OsmPrimitive> primitives = new ArrayList<>(Arrays.<OsmPrimitive>asList(w, n1, n2));
+        UploadChunkPlan plan = UploadChunkPlan.create(primitives, 1);
+        assertEquals(3, plan.size());
+        assertEquals(Collections.emptySet(), plan.getDependencies(0));
+        assertEquals(Collections.singleton(0), plan.getDependencies(1));
+        assertEquals(Collections.singleton(1), plan.getDependencies(2));
+    }
+}
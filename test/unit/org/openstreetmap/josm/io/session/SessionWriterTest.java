@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io.session;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.io.File;
@@ -20,6 +21,7 @@ import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.data.imagery.ImageryInfo;
 import org.openstreetmap.josm.data.notes.Note;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
 import org.openstreetmap.josm.gui.layer.ImageryLayer;
 import org.openstreetmap.josm.gui.layer.Layer;
@@ -30,6 +32,7 @@ import org.openstreetmap.josm.gui.layer.markerlayer.MarkerLayer;
 import org.openstreetmap.josm.gui.preferences.projection.ProjectionPreference;
 import org.openstreetmap.josm.tools.MultiMap;
 import org.openstreetmap.josm.tools.Utils;
+import org.w3c.dom.Element;
 
 /**
  * Unit tests for Session writing.
@@ -58,6 +61,28 @@ public class SessionWriterTest {
         }
     }
 
+    protected static final class OsmHeadlessBinaryJozExporter extends OsmDataSessionExporter {
+        public OsmHeadlessBinaryJozExporter(OsmDataLayer layer) {
+            super(layer, true);
+        }
+
+        @Override
+        public boolean requiresZip() {
+            return true;
+        }
+    }
+
+    protected static final class OsmHeadlessBinaryJosExporter extends OsmDataSessionExporter {
+        public OsmHeadlessBinaryJosExporter(OsmDataLayer layer) {
+            super(layer, true);
+        }
+
+        @Override
+        public boolean requiresZip() {
+            return false;
+        }
+    }
+
     protected static final class GpxHeadlessJosExporter extends GpxTracksSessionExporter {
         public GpxHeadlessJosExporter(GpxLayer layer) {
             super(layer);
@@ -176,6 +201,50 @@ public class SessionWriterTest {
         testWrite(Collections.<Layer>singletonList(createOsmLayer()), true);
     }
 
+    /**
+     * Tests to write a .joz file containing OSM data in the binary format, and to read it back.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWriteOsmJozBinary() throws Exception {
+        OsmDataLayer layer = createOsmLayer();
+        Node n = new Node(new LatLon(42.72665, -0.00747));
+        n.put("name", "binary");
+        layer.data.addPrimitive(n);
+        Map<Layer, SessionLayerExporter> exporters = new HashMap<>();
+        // not registered, so that the exporters used by the other tests are unchanged
+        exporters.put(layer, new OsmHeadlessBinaryJozExporter(layer));
+        SessionWriter sw = new SessionWriter(Collections.<Layer>singletonList(layer), -1, exporters, new MultiMap<Layer, Layer>(), true);
+        File file = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "-binary.joz");
+        try {
+            sw.write(file);
+            SessionReader reader = new SessionReader();
+            reader.loadSession(file, true, null);
+            OsmDataLayer read = (OsmDataLayer) reader.getLayers().get(0);
+            assertEquals("OSM layer name", read.getName());
+            Node rn = read.data.getNodes().iterator().next();
+            assertEquals(n.getCoor(), rn.getCoor());
+            assertEquals("binary", rn.get("name"));
+        } finally {
+            Utils.deleteFile(file);
+        }
+    }
+
+    /**
+     * Tests that a linked file is referred to as OSM XML, even if the binary format is enabled.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWriteOsmJosBinary() throws Exception {
+        OsmDataLayer layer = createOsmLayer();
+        Map<Layer, SessionLayerExporter> exporters = new HashMap<>();
+        exporters.put(layer, new OsmHeadlessBinaryJosExporter(layer));
+        SessionWriter sw = new SessionWriter(Collections.<Layer>singletonList(layer), -1, exporters, new MultiMap<Layer, Layer>(), false);
+        Element layerEl = (Element) sw.createJosDocument().getElementsByTagName("layer").item(0);
+        assertEquals("osm-data", layerEl.getAttribute("type"));
+        assertEquals("0.1", layerEl.getAttribute("version"));
+    }
+
     /**
      * Tests to write a .jos file containing GPX data.
      */
@@ -0,0 +1,118 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit tests of the request bodies of {@link HttpClient}.
+ */
+public class HttpClientRequestBodyTest {
+
+    private HttpServer server;
+    private URL url;
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Starts a local server which replies the transfer encoding and the uncompressed body of each request.
+     * @throws IOException if the server cannot be started
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                    in = new GZIPInputStream(in);
+                }
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    body.write(buffer, 0, n);
+                }
+                byte[] reply = (exchange.getRequestHeaders().getFirst("Transfer-Encoding") + ':' +
+                        new String(body.toByteArray(), StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, reply.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(reply);
+                }
+            }
+        });
+        server.start();
+        url = new URL("http://localhost:" + server.getAddress().getPort() + "/upload");
+    }
+
+    /**
+     * Stops the local server.
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private String post(boolean compress) throws IOException {
+        return HttpClient.create(url, "POST")
+                .setRequestBody(new HttpClient.RequestBodyWriter() {
+                    @Override
+                    public void writeTo(OutputStream out) throws IOException {
+                        for (int i = 0; i < 10000; i++) {
+                            out.write(("line " + i + '\n').getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                }, compress)
+                .connect().fetchContent();
+    }
+
+    private static String expectedBody() {
+        StringBuilder sb = new StringBuilder("chunked:");
+        for (int i = 0; i < 10000; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tests that a request body written by a {@link HttpClient.RequestBodyWriter} is sent in chunks.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testStreamingRequestBody() throws IOException {
+        assertEquals(expectedBody(), post(false));
+    }
+
+    /**
+     * Tests that a request body written by a {@link HttpClient.RequestBodyWriter} can be compressed.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testCompressedStreamingRequestBody() throws IOException {
+        assertEquals(expectedBody(), post(true));
+    }
+}
@@ -0,0 +1,82 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LongHashSet} class.
+ */
+public class LongHashSetTest {
+
+    /**
+     * Unit test of basic set operations.
+     */
+    @Test
+    public void testBasics() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertTrue(set.add(Long.valueOf(-5)));
+        assertTrue(set.add(0));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(5));
+        assertTrue(set.contains(Long.valueOf(0)));
+        assertFalse(set.contains("5"));
+        assertTrue(set.remove(Long.valueOf(-5)));
+        assertFalse(set.remove(-5));
+        long[] values = set.toLongArray();
+        Arrays.sort(values);
+        assertEquals("[0, 5]", Arrays.toString(values));
+        assertEquals(new HashSet<>(Arrays.asList(0L, 5L)), set);
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    /**
+     * Unit test of removal through the iterator.
+     */
+    @Test
+    public void testIteratorRemove() {
+        LongHashSet set = new LongHashSet(Arrays.asList(1L, 2L, 3L, 4L));
+        for (Iterator<Long> it = set.iterator(); it.hasNext();) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(new HashSet<>(Arrays.asList(1L, 3L)), set);
+    }
+
+    /**
+     * Compares random operations, including growth and many removals, against {@link HashSet}.
+     */
+    @Test
+    public void testAgainstHashSet() {
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextInt(5000) - 2500L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        assertEquals(expected, set);
+        LongHashSet copy = new LongHashSet();
+        copy.addAll(set);
+        assertEquals(expected, copy);
+        copy.removeAll(set);
+        assertTrue(copy.isEmpty());
+    }
+}
@@ -0,0 +1,43 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LongList} class.
+ */
+public class LongListTest {
+
+    /**
+     * Unit test of list operations.
+     */
+    @Test
+    public void testList() {
+        LongList list = new LongList(1);
+        for (long i = 0; i < 100; i++) {
+            list.add(i * 1000000000000L);
+        }
+        assertEquals(100, list.size());
+        assertEquals(42000000000000L, list.getLong(42));
+        assertEquals(Long.valueOf(99000000000000L), list.get(99));
+        list.set(0, 7L);
+        assertEquals(7L, list.toLongArray()[0]);
+        assertEquals(Arrays.asList(7L, 1000000000000L), list.subList(0, 2));
+        list.clear();
+        assertEquals(0, list.toLongArray().length);
+    }
+
+    /**
+     * Unit test of out of bounds access.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        LongList list = new LongList();
+        list.add(1);
+        list.getLong(1);
+    }
+}
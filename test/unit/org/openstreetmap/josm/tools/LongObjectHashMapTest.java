@@ -0,0 +1,81 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LongObjectHashMap} class.
+ */
+public class LongObjectHashMapTest {
+
+    /**
+     * Unit test of basic map operations.
+     */
+    @Test
+    public void testBasics() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(-1, "b"));
+        assertNull(map.put(0, "c"));
+        assertEquals("a", map.put(1, "d"));
+        assertEquals(3, map.size());
+        assertEquals("d", map.get(1));
+        assertEquals("b", map.get(-1));
+        assertEquals("c", map.get(0));
+        assertNull(map.get(2));
+        assertTrue(map.containsKey(0));
+        assertEquals("b", map.remove(-1));
+        assertNull(map.remove(-1));
+        assertFalse(map.containsKey(-1));
+        assertEquals(2, map.size());
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertEquals("[0, 1]", Arrays.toString(keys));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    /**
+     * Unit test that {@code null} values are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValue() {
+        new LongObjectHashMap<String>().put(1, null);
+    }
+
+    /**
+     * Compares random operations, including growth and many removals, against {@link HashMap}.
+     */
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(42);
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(5000) - 2500L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        long[] keys = map.keys();
+        assertEquals(expected.size(), keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(expected.get(keys[i]), map.values().get(i));
+        }
+    }
+}
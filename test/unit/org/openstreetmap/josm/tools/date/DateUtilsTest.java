@@ -4,11 +4,16 @@ package org.openstreetmap.josm.tools.date;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.text.DateFormat;
+import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Random;
 import java.util.TimeZone;
 
+import javax.xml.datatype.DatatypeFactory;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openstreetmap.josm.JOSMFixture;
@@ -151,6 +156,67 @@ public class DateUtilsTest {
         assertEquals(1459688400000L, DateUtils.tsFromString("03-APR-16 15:00:00"));
     }
 
+    /**
+     * Unit test of {@link DateUtils#parseFixedTimestamp} and {@link DateUtils#tsFromChars} methods.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParseFixedTimestamp() throws Exception {
+        DatatypeFactory xml = DatatypeFactory.newInstance();
+        Random r = new Random(42);
+        String[] zones = {"Z", "", "+00", "-03", "+02:00", "-05:30", "+00:20"};
+        String[] fractions = {"", ".5", ".52", ".523"};
+        for (int i = 0; i < 1000; i++) {
+            long millis = (long) (r.nextDouble() * 1e13) / 1000 * 1000;
+            String zone = zones[i % zones.length];
+            String s = DateUtils.fromMillis(millis).substring(0, 19) + fractions[i % fractions.length] + zone;
+            // XML schema requires a time zone with minutes
+            String reference = zone.isEmpty() ? s + 'Z' : zone.length() == 3 ? s + ":00" : s;
+            long expected = xml.newXMLGregorianCalendar(reference).toGregorianCalendar().getTimeInMillis();
+            assertEquals(s, expected, DateUtils.parseFixedTimestamp(s, 0, s.length()));
+            assertEquals(s, expected, DateUtils.tsFromString(s));
+            char[] chars = ("<" + s + ">").toCharArray();
+            assertEquals(s, expected, DateUtils.tsFromChars(chars, 1, s.length()));
+        }
+        // handled by the slower, lenient, parser
+        for (String s : new String[] {"2016-02-30T15:00:00Z", "2016-04-03 15:00:00 UTC", "1500-04-03T15:00:00Z",
+                "2016-04-03T15:00:00.1234Z", "2016-04-03T15:00:00.Z", "2016-04-03T15:00:00+0100", "2016-04-03T24:00:00Z"}) {
+            assertEquals(s, Long.MIN_VALUE, DateUtils.parseFixedTimestamp(s, 0, s.length()));
+        }
+        assertEquals(1456844400000L, DateUtils.tsFromString("2016-02-30T15:00:00Z"));
+        char[] chars = "x2014-11-29 22:08:50 UTCx".toCharArray();
+        assertEquals(1417298930000L, DateUtils.tsFromChars(chars, 1, chars.length - 2));
+    }
+
+    /**
+     * Unit test of {@link DateUtils#formatTimestamp} and {@link DateUtils#fromMillis} methods.
+     */
+    @Test
+    public void testFormatTimestamp() {
+        SimpleDateFormat seconds = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        seconds.setTimeZone(TimeZone.getTimeZone("UTC"));
+        SimpleDateFormat millis = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        millis.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Random r = new Random(42);
+        char[] buffer = new char[30];
+        for (int i = 0; i < 1000; i++) {
+            long time = (long) (r.nextDouble() * 2.5e14 - 1.1e13);
+            if (i % 2 == 0) {
+                time = time / 1000 * 1000;
+            }
+            Date date = new Date(time);
+            String expected = (time % 1000 == 0 ? seconds : millis).format(date);
+            int length = DateUtils.formatTimestamp(time, buffer, 3);
+            assertEquals(expected, new String(buffer, 3, length));
+            assertEquals(expected, DateUtils.fromMillis(time));
+            assertEquals(expected, DateUtils.fromDate(date));
+        }
+        // years before 1583 and after 9999 are formatted by XMLGregorianCalendar
+        assertEquals(0, DateUtils.formatTimestamp(-13000000000000L, buffer, 0));
+        assertTrue(DateUtils.fromMillis(-13000000000000L).startsWith("1558-"));
+        assertEquals(0, DateUtils.formatTimestamp(260000000000000L, buffer, 0));
+    }
+
     /**
      * Unit test of {@link DateUtils#getDateFormat} method.
      */